@@ -2,6 +2,8 @@
 -- Compatible with PostgreSQL
 
 -- Drop tables and sequences if they exist (in correct order due to foreign key constraints)
+DROP TABLE IF EXISTS file_integrity_issue CASCADE;
+DROP TABLE IF EXISTS file_processing_job CASCADE;
 DROP TABLE IF EXISTS editor_book_type_permission CASCADE;
 DROP TABLE IF EXISTS user_profile CASCADE;
 DROP TABLE IF EXISTS token CASCADE;
@@ -14,14 +16,23 @@ DROP SEQUENCE IF EXISTS _user_id_seq CASCADE;
 DROP SEQUENCE IF EXISTS book_id_seq CASCADE;
 DROP SEQUENCE IF EXISTS book_type_id_seq CASCADE;
 DROP SEQUENCE IF EXISTS token_id_seq CASCADE;
+DROP SEQUENCE IF EXISTS file_processing_job_id_seq CASCADE;
+DROP SEQUENCE IF EXISTS file_integrity_issue_id_seq CASCADE;
+
+-- Trigram matching for substring search on books
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
 
 -- Create sequences for auto-increment columns (match PostgreSQL naming convention)
 CREATE SEQUENCE _user_id_seq START 1 INCREMENT 1;
-CREATE SEQUENCE book_id_seq START 1 INCREMENT 1;
+-- book ids are allocated 50 at a time to match hibernate.jdbc.batch_size (Book allocationSize);
+-- existing databases: ALTER SEQUENCE book_id_seq INCREMENT BY 50;
+CREATE SEQUENCE book_id_seq START 1 INCREMENT 50;
 CREATE SEQUENCE book_type_id_seq START 1 INCREMENT 1;
 CREATE SEQUENCE token_id_seq START 1 INCREMENT 1;
 CREATE SEQUENCE user_profile_id_seq START 1 INCREMENT 1;
 CREATE SEQUENCE editor_permission_id_seq START 1 INCREMENT 1;
+CREATE SEQUENCE file_processing_job_id_seq START 1 INCREMENT 1;
+CREATE SEQUENCE file_integrity_issue_id_seq START 1 INCREMENT 1;
 
 -- Create _user table
 CREATE TABLE _user (
@@ -70,6 +81,9 @@ CREATE TABLE book (
     file_name VARCHAR(100),
     file_format VARCHAR(10),
     file_size BIGINT,
+    checksum VARCHAR(100),
+    cover_image_path VARCHAR(500),
+    preview_file_path VARCHAR(500),
     
     -- Pricing and access control
     is_free BOOLEAN NOT NULL DEFAULT TRUE,
@@ -160,6 +174,60 @@ CREATE TABLE editor_book_type_permission (
 -- Set sequence ownership
 ALTER SEQUENCE editor_permission_id_seq OWNED BY editor_book_type_permission.id;
 
+-- Create temporary_upload table (staged files of the 2-step document upload)
+CREATE TABLE temporary_upload (
+    id VARCHAR(36) NOT NULL PRIMARY KEY,
+    original_file_name VARCHAR(255) NOT NULL,
+    stored_file_name VARCHAR(255) NOT NULL,
+    file_size BIGINT NOT NULL,
+    file_format VARCHAR(50),
+    checksum VARCHAR(100),
+    uploaded_at TIMESTAMP NOT NULL,
+    expires_at TIMESTAMP NOT NULL
+);
+
+-- Create storage_usage table (persisted per-category storage counters)
+CREATE TABLE storage_usage (
+    category VARCHAR(100) NOT NULL PRIMARY KEY,
+    file_count BIGINT NOT NULL,
+    total_bytes BIGINT NOT NULL,
+    updated_at TIMESTAMP NOT NULL
+);
+
+-- Create file_processing_job table (queued metadata extraction / thumbnail jobs)
+CREATE TABLE file_processing_job (
+    id BIGINT NOT NULL DEFAULT nextval('file_processing_job_id_seq') PRIMARY KEY,
+    target_type VARCHAR(30) NOT NULL,
+    target_id INTEGER NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    worker VARCHAR(100),
+    requested_by INTEGER,
+    created_at TIMESTAMP NOT NULL,
+    started_at TIMESTAMP,
+    finished_at TIMESTAMP,
+    file_format VARCHAR(20),
+    page_count INTEGER,
+    language VARCHAR(50),
+    thumbnail_path VARCHAR(500),
+    error_message VARCHAR(1000)
+);
+
+-- Create file_integrity_issue table (stored files that failed checksum verification)
+CREATE TABLE file_integrity_issue (
+    id BIGINT NOT NULL DEFAULT nextval('file_integrity_issue_id_seq') PRIMARY KEY,
+    owner_type VARCHAR(30) NOT NULL,
+    owner_id INTEGER NOT NULL,
+    file_path VARCHAR(1000) NOT NULL,
+    problem VARCHAR(20) NOT NULL,
+    expected_checksum VARCHAR(100),
+    actual_checksum VARCHAR(100),
+    file_size BIGINT,
+    error_message VARCHAR(1000),
+    first_detected_at TIMESTAMP NOT NULL,
+    last_detected_at TIMESTAMP NOT NULL
+);
+
 -- Create indexes for better performance
 CREATE INDEX idx_user_email ON _user(email);
 CREATE INDEX idx_user_username ON _user(username);
@@ -174,6 +242,12 @@ CREATE INDEX idx_book_downloadable ON book(downloadable);
 CREATE INDEX idx_book_active ON book(active);
 CREATE INDEX idx_book_file_format ON book(file_format);
 CREATE INDEX idx_book_rating ON book(rating);
+CREATE INDEX idx_book_created_date_id ON book(created_date, id);
+CREATE INDEX idx_book_title_trgm ON book USING GIN (lower(title) gin_trgm_ops);
+CREATE INDEX idx_book_author_trgm ON book USING GIN (lower(author) gin_trgm_ops);
+CREATE INDEX idx_book_isbn_trgm ON book USING GIN (lower(isbn) gin_trgm_ops);
+CREATE INDEX idx_book_description_trgm ON book USING GIN (lower(description) gin_trgm_ops);
+CREATE INDEX idx_book_isbn_normalized ON book ((replace(replace(upper(isbn), '-', ''), ' ', '')));
 CREATE INDEX idx_user_profile_user_id ON user_profile(user_id);
 CREATE INDEX idx_user_profile_activity_status ON user_profile(activity_status);
 CREATE INDEX idx_user_profile_city ON user_profile(city);
@@ -184,6 +258,10 @@ CREATE INDEX idx_book_type_active ON book_type(active);
 CREATE INDEX idx_editor_permission_user_id ON editor_book_type_permission(user_id);
 CREATE INDEX idx_editor_permission_book_type_id ON editor_book_type_permission(book_type_id);
 CREATE INDEX idx_editor_permission_active ON editor_book_type_permission(active);
+CREATE INDEX idx_temporary_upload_expires_at ON temporary_upload(expires_at);
+CREATE INDEX idx_file_processing_job_status ON file_processing_job(status, id);
+CREATE INDEX idx_file_processing_job_target ON file_processing_job(target_type, target_id);
+CREATE UNIQUE INDEX idx_file_integrity_issue_owner ON file_integrity_issue(owner_type, owner_id);
 
 -- Insert sample data
 -- Admin user (password: "password" - encoded with BCrypt)
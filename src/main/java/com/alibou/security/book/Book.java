@@ -20,12 +20,13 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Table(indexes = @Index(name = "idx_book_created_date_id", columnList = "created_date, id"))
 @EntityListeners(AuditingEntityListener.class)
 public class Book {
 
     @Id
     @GeneratedValue(generator = "book_id_seq")
-    @SequenceGenerator(name = "book_id_seq", sequenceName = "book_id_seq", allocationSize = 1)
+    @SequenceGenerator(name = "book_id_seq", sequenceName = "book_id_seq", allocationSize = 50)
     private Integer id;
 
     @Column(nullable = false, length = 255)
@@ -64,6 +65,15 @@ public class Book {
     @Column
     private Long fileSize; // Kích thước file (bytes)
 
+    @Column(length = 100)
+    private String checksum; // SHA-256 của file
+
+    @Column(length = 500)
+    private String coverImagePath; // Ảnh bìa
+
+    @Column(length = 500)
+    private String previewFilePath; // File đọc thử
+
     // Pricing and access control
     @Builder.Default
     @Column(nullable = false)
@@ -98,12 +108,14 @@ public class Book {
     @Column(precision = 3, scale = 2)
     private BigDecimal rating = BigDecimal.ZERO;
 
+    // Only changed by the additive counter updates (CounterBuffer), never by saving the entity,
+    // so an edit of a loaded book cannot overwrite hits counted meanwhile
     @Builder.Default
-    @Column
+    @Column(updatable = false)
     private Integer downloadCount = 0;
 
     @Builder.Default
-    @Column
+    @Column(updatable = false)
     private Integer viewCount = 0;
 
     @CreatedDate
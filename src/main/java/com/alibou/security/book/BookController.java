@@ -1,11 +1,13 @@
 package com.alibou.security.book;
 
+import com.alibou.security.core.domain.repository.CursorPage;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
@@ -16,6 +18,7 @@ import java.util.List;
 public class BookController {
 
     private final BookRepository bookRepository;
+    private final BookService bookService;
 
     @PostMapping
     public ResponseEntity<?> save(
@@ -34,7 +37,18 @@ public class BookController {
     }
 
     @GetMapping
-    public ResponseEntity<List<Book>> findAllBooks() {
-        return ResponseEntity.ok(bookRepository.findAll());
+    public ResponseEntity<List<BookSummary>> findAllBooks() {
+        return ResponseEntity.ok(bookRepository.findAllSummaries());
+    }
+
+    // Newest first; pass the previous page's nextCursor to continue
+    @GetMapping("/recent")
+    public ResponseEntity<CursorPage<BookSummary>> findRecentBooks(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean withTotal
+    ) {
+        return ResponseEntity.ok(bookService.getRecentBooks(
+                cursor == null || cursor.isBlank() ? null : cursor, Math.max(1, Math.min(size, 100)), withTotal));
     }
 }
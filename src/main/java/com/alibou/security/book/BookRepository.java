@@ -1,30 +1,74 @@
 package com.alibou.security.book;
 
+import com.alibou.security.core.domain.service.StoredChecksum;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface BookRepository extends JpaRepository<Book, Integer> {
 
-    // Search functionality
+    // Card fields for list endpoints; descriptions and file locations stay in the table
+    String SUMMARY = "SELECT new com.alibou.security.book.BookSummary(b.id, b.title, b.author, bt.name, b.fileFormat, " +
+                     "b.fileSize, b.coverImagePath, b.isFree, b.price, b.downloadCount, b.viewCount, b.rating, " +
+                     "b.createDate) FROM Book b LEFT JOIN b.bookType bt ";
+
+    @Query(SUMMARY + "ORDER BY b.id")
+    List<BookSummary> findAllSummaries();
+
+    // Search functionality (substring match; on PostgreSQL served by the trigram indexes, see BookSearchService)
     @Query("SELECT b FROM Book b WHERE b.active = true AND " +
            "(LOWER(b.title) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
            "LOWER(b.author) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
            "LOWER(b.isbn) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
            "LOWER(b.description) LIKE LOWER(CONCAT('%', :search, '%')))")
-    Page<Book> findActiveBooksBySearchTerm(@Param("search") String search, Pageable pageable);
+    Slice<Book> findActiveBooksBySearchTerm(@Param("search") String search, Pageable pageable);
 
     @Query("SELECT b FROM Book b WHERE " +
            "(LOWER(b.title) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
            "LOWER(b.author) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
            "LOWER(b.isbn) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
            "LOWER(b.description) LIKE LOWER(CONCAT('%', :search, '%')))")
-    Page<Book> findAllBooksBySearchTerm(@Param("search") String search, Pageable pageable);
+    Slice<Book> findAllBooksBySearchTerm(@Param("search") String search, Pageable pageable);
+
+    // Rows matching a search pattern (also the statement whose row estimate stands in for large totals)
+    String SEARCH_MATCHES = "SELECT 1 FROM book b " +
+                            "WHERE (:activeOnly = false OR b.active = true) AND " +
+                            "(lower(b.title) LIKE lower(:pattern) OR lower(b.author) LIKE lower(:pattern) OR " +
+                            "lower(b.isbn) LIKE lower(:pattern) OR lower(b.description) LIKE lower(:pattern))";
+
+    // Number of search matches, counting no further than :limit
+    @Query(value = "SELECT count(*) FROM (" + SEARCH_MATCHES + " LIMIT :limit) matches",
+           nativeQuery = true)
+    long countBySearchPatternUpTo(@Param("pattern") String pattern,
+                                  @Param("activeOnly") boolean activeOnly,
+                                  @Param("limit") int limit);
+
+    // Exact ISBN lookup ignoring hyphens, spaces and the case of a trailing X (idx_book_isbn_normalized)
+    @Query("SELECT b FROM Book b WHERE REPLACE(REPLACE(UPPER(b.isbn), '-', ''), ' ', '') = :isbn " +
+           "AND (:activeOnly = false OR b.active = true) ORDER BY b.id")
+    List<Book> findByNormalizedIsbn(@Param("isbn") String isbn, @Param("activeOnly") boolean activeOnly);
+
+    // Typo-tolerant fallback: pg_trgm word similarity on title and author (PostgreSQL only)
+    @Query(value = "SELECT b.* FROM book b " +
+                   "WHERE (:activeOnly = false OR b.active = true) AND " +
+                   "(lower(b.title) %> lower(:term) OR lower(b.author) %> lower(:term)) " +
+                   "ORDER BY greatest(word_similarity(lower(:term), lower(b.title)), " +
+                   "word_similarity(lower(:term), lower(b.author))) DESC, b.id " +
+                   "LIMIT :limit",
+           nativeQuery = true)
+    List<Book> findSimilarBooks(@Param("term") String term,
+                                @Param("activeOnly") boolean activeOnly,
+                                @Param("limit") int limit);
 
     // Filter by book type
     List<Book> findByBookTypeIdAndActiveTrue(Integer bookTypeId);
@@ -67,6 +111,17 @@ public interface BookRepository extends JpaRepository<Book, Integer> {
     @Query("SELECT b FROM Book b WHERE b.active = true ORDER BY b.createDate DESC")
     Page<Book> findRecentBooks(Pageable pageable);
 
+    // First keyset page of recent books, newest first (idx_book_created_date_id)
+    @Query(SUMMARY + "WHERE b.active = true ORDER BY b.createDate DESC, b.id DESC")
+    List<BookSummary> findRecentSummaries(Pageable pageable);
+
+    // Next keyset page: rows after (afterDate, afterId); the row comparison is a range start on the index
+    @Query(SUMMARY + "WHERE b.active = true AND (b.createDate, b.id) < (:afterDate, :afterId) " +
+           "ORDER BY b.createDate DESC, b.id DESC")
+    List<BookSummary> findRecentSummariesAfter(@Param("afterDate") LocalDateTime afterDate,
+                                               @Param("afterId") Integer afterId,
+                                               Pageable pageable);
+
     // Books by publisher
     Page<Book> findByPublisherContainingIgnoreCaseAndActiveTrue(String publisher, Pageable pageable);
 
@@ -79,4 +134,33 @@ public interface BookRepository extends JpaRepository<Book, Integer> {
     boolean existsByIsbn(String isbn);
 
     boolean existsByTitle(String title);
+
+    // Keyset batches over all books (storage layout migration)
+    List<Book> findByIdGreaterThanOrderByIdAsc(Integer id, Pageable pageable);
+
+    // Stored file references (used by the orphan file scanner; must run inside a transaction)
+    @Query("SELECT b.filePath FROM Book b WHERE b.filePath IS NOT NULL")
+    Stream<String> streamFilePaths();
+
+    @Query("SELECT b.coverImagePath FROM Book b WHERE b.coverImagePath IS NOT NULL")
+    Stream<String> streamCoverImagePaths();
+
+    @Query("SELECT b.previewFilePath FROM Book b WHERE b.previewFilePath IS NOT NULL")
+    Stream<String> streamPreviewFilePaths();
+
+    // Keyset batches of files with a checksum (integrity verifier)
+    @Query("SELECT new com.alibou.security.core.domain.service.StoredChecksum(b.id, b.filePath, b.checksum) " +
+           "FROM Book b WHERE b.id > :afterId AND b.filePath IS NOT NULL AND b.checksum IS NOT NULL ORDER BY b.id")
+    List<StoredChecksum> findStoredChecksums(@Param("afterId") Integer afterId, Pageable pageable);
+
+    // Counter bumps in place, without loading the row; bypasses auditing, so last-modified is left alone
+    @Modifying
+    @Transactional
+    @Query("UPDATE Book b SET b.viewCount = COALESCE(b.viewCount, 0) + :delta WHERE b.id = :id")
+    int addToViewCount(@Param("id") Integer id, @Param("delta") int delta);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Book b SET b.downloadCount = COALESCE(b.downloadCount, 0) + :delta WHERE b.id = :id")
+    int addToDownloadCount(@Param("id") Integer id, @Param("delta") int delta);
 }
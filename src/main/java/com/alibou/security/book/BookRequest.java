@@ -1,13 +1,17 @@
 package com.alibou.security.book;
 
 import jakarta.validation.constraints.*;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class BookRequest {
 
     @NotBlank(message = "Tiêu đề sách không được để trống")
@@ -1,11 +1,13 @@
 package com.alibou.security.book;
 
 import com.alibou.security.booktype.BookTypeResponse;
+import com.alibou.security.core.domain.service.ImageVariant;
 import lombok.Builder;
 import lombok.Data;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Map;
 
 @Data
 @Builder
@@ -29,6 +31,10 @@ public class BookResponse {
     private String fileName;
     private String fileFormat;
     private Long fileSize;
+    private String checksum;
+    private String coverImagePath;
+    private Map<String, String> coverImageUrls; // thumb/card/full renditions
+    private String previewFilePath;
     
     // Pricing and access
     private Boolean isFree;
@@ -64,6 +70,10 @@ public class BookResponse {
                 .fileName(book.getFileName())
                 .fileFormat(book.getFileFormat())
                 .fileSize(book.getFileSize())
+                .checksum(book.getChecksum())
+                .coverImagePath(book.getCoverImagePath())
+                .coverImageUrls(coverImageUrls(book))
+                .previewFilePath(book.getPreviewFilePath())
                 .isFree(book.getIsFree())
                 .price(book.getPrice())
                 .downloadable(book.getDownloadable())
@@ -96,6 +106,7 @@ public class BookResponse {
                 .isbn(book.getIsbn())
                 .description(book.getDescription())
                 .fileName(book.getFileName()) // Show filename but not full path
+                .coverImageUrls(coverImageUrls(book))
                 .fileFormat(book.getFileFormat())
                 .fileSize(book.getFileSize())
                 .isFree(book.getIsFree())
@@ -115,4 +126,11 @@ public class BookResponse {
 
         return builder.build();
     }
+
+    private static Map<String, String> coverImageUrls(Book book) {
+        if (book.getId() == null) {
+            return null;
+        }
+        return ImageVariant.urls("/api/v1/images/books/" + book.getId() + "/cover", book.getCoverImagePath());
+    }
 }
@@ -0,0 +1,197 @@
+package com.alibou.security.book;
+
+import com.alibou.security.core.domain.repository.CountedPage;
+import com.alibou.security.core.infrastructure.repository.ConcurrentIndexes;
+import com.alibou.security.core.infrastructure.service.EmbeddedSearchIndex;
+import com.alibou.security.core.infrastructure.service.PageCounter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Substring search over books
+ *
+ * On PostgreSQL, pg_trgm GIN indexes on lower(title/author/isbn/description)
+ * serve the '%term%' LIKE predicates of the search queries, so a search no
+ * longer scans the whole table (terms shorter than three characters have no
+ * trigrams and still do). A term that looks like an ISBN is first looked up
+ * exactly through an index on the normalized ISBN.
+ *
+ * Pages are read as slices (one extra row tells whether there is a next page)
+ * and matches are only counted when there is one, exactly up to count-limit;
+ * past that the total is the planner's estimate (see PageCounter) and the page
+ * is marked as not exact. Totals are cached briefly per term. When a
+ * term matches nothing, titles and authors are matched by trigram word
+ * similarity instead, so a misspelt title still finds the book.
+ *
+ * The indexes are created here, idempotently, so that schemas managed by
+ * Hibernate get them too. They are built concurrently (no lock blocking book
+ * writes); until they are ready, searches use LIKE scans. On other databases (H2 in dev) searches are plain
+ * LIKE scans without the similarity fallback.
+ *
+ * With the embedded search index enabled, it is asked first (word prefixes,
+ * newest first); the database is only queried when it finds nothing.
+ */
+@Service
+@Slf4j
+public class BookSearchService {
+
+    // Index name -> definition; built concurrently, so book writes go on during the first build
+    private static final Map<String, String> INDEXES = new LinkedHashMap<>();
+    static {
+        INDEXES.put("idx_book_title_trgm", "ON book USING GIN (lower(title) gin_trgm_ops)");
+        INDEXES.put("idx_book_author_trgm", "ON book USING GIN (lower(author) gin_trgm_ops)");
+        INDEXES.put("idx_book_isbn_trgm", "ON book USING GIN (lower(isbn) gin_trgm_ops)");
+        INDEXES.put("idx_book_description_trgm", "ON book USING GIN (lower(description) gin_trgm_ops)");
+        INDEXES.put("idx_book_isbn_normalized", "ON book ((replace(replace(upper(isbn), '-', ''), ' ', '')))");
+    }
+
+    // Digits, hyphens and spaces with an optional check character X; 10 or 13 characters once normalized
+    private static final Pattern ISBN_INPUT = Pattern.compile("[0-9][0-9\\- ]*[0-9Xx]");
+    private static final Pattern ISBN = Pattern.compile("[0-9]{9}[0-9X]|[0-9]{13}");
+
+    // Shortest term worth a similarity search; shorter ones share too few trigrams with anything
+    private static final int MIN_SIMILARITY_TERM_LENGTH = 3;
+
+    private final BookRepository bookRepository;
+    private final EmbeddedSearchIndex embeddedSearchIndex;
+    private final PageCounter pageCounter;
+    private final JdbcTemplate jdbcTemplate;
+    private final String mode;
+    private final int countLimit;
+    private final int similarLimit;
+    private volatile boolean trigramAvailable;
+
+    public BookSearchService(BookRepository bookRepository,
+                             EmbeddedSearchIndex embeddedSearchIndex,
+                             PageCounter pageCounter,
+                             JdbcTemplate jdbcTemplate,
+                             @Value("${app.search.books.mode:auto}") String mode,
+                             @Value("${app.search.books.count-limit:1000}") int countLimit,
+                             @Value("${app.search.books.similar-limit:20}") int similarLimit) {
+        if (!"auto".equalsIgnoreCase(mode) && !"trigram".equalsIgnoreCase(mode) && !"like".equalsIgnoreCase(mode)) {
+            throw new IllegalArgumentException("Unknown book search mode: " + mode);
+        }
+        this.bookRepository = bookRepository;
+        this.embeddedSearchIndex = embeddedSearchIndex;
+        this.pageCounter = pageCounter;
+        this.jdbcTemplate = jdbcTemplate;
+        this.mode = mode;
+        this.countLimit = countLimit;
+        this.similarLimit = similarLimit;
+    }
+
+    /**
+     * Whether searches are served by the trigram indexes
+     */
+    public boolean isTrigramAvailable() {
+        return trigramAvailable;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if ("like".equalsIgnoreCase(mode)) {
+            return;
+        }
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+            connection.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equalsIgnoreCase(database)) {
+            if ("trigram".equalsIgnoreCase(mode)) {
+                throw new IllegalStateException("Trigram book search needs PostgreSQL, not " + database);
+            }
+            log.info("Book search uses LIKE matching on {}", database);
+            return;
+        }
+
+        long started = System.currentTimeMillis();
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+            // Auto-commit statements: CONCURRENTLY cannot run inside a transaction
+            INDEXES.forEach((name, definition) -> ConcurrentIndexes.create(jdbcTemplate, name, definition));
+        } catch (DataAccessException e) {
+            // Typically no permission to create the extension; searches still work, scanning the table
+            if ("trigram".equalsIgnoreCase(mode)) {
+                throw e;
+            }
+            log.warn("Trigram indexes for book search unavailable, using LIKE scans", e);
+            return;
+        }
+        trigramAvailable = true;
+        log.info("Book trigram indexes ready in {} ms", System.currentTimeMillis() - started);
+    }
+
+    /**
+     * One page of books whose title, author, ISBN or description contains the term
+     */
+    public Page<Book> search(String term, boolean activeOnly, Pageable pageable) {
+        Optional<Page<Book>> indexed = embeddedSearchIndex.search(EmbeddedSearchIndex.Kind.BOOKS,
+            term, activeOnly, pageable, bookRepository::findAllById, Book::getId);
+        if (indexed.isPresent()) {
+            return indexed.get();
+        }
+
+        if (looksLikeIsbn(term)) {
+            List<Book> exact = bookRepository.findByNormalizedIsbn(normalizeIsbn(term), activeOnly);
+            if (!exact.isEmpty()) {
+                return page(exact, pageable);
+            }
+        }
+
+        Slice<Book> slice = activeOnly
+            ? bookRepository.findActiveBooksBySearchTerm(term, pageable)
+            : bookRepository.findAllBooksBySearchTerm(term, pageable);
+
+        if (!slice.hasContent() && slice.isFirst()
+                && trigramAvailable && term.length() >= MIN_SIMILARITY_TERM_LENGTH) {
+            return page(bookRepository.findSimilarBooks(term, activeOnly, similarLimit), pageable);
+        }
+
+        long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+        long seen = offset + slice.getNumberOfElements();
+        if (!slice.hasNext()) {
+            return new PageImpl<>(slice.getContent(), pageable, seen);
+        }
+        String pattern = "%" + term + "%";
+        PageCounter.Total total = pageCounter.count("books:" + activeOnly + ":" + pattern, countLimit,
+            limit -> bookRepository.countBySearchPatternUpTo(pattern, activeOnly, (int) Math.min(limit, Integer.MAX_VALUE)),
+            () -> pageCounter.planEstimate(BookRepository.SEARCH_MATCHES, Map.of("pattern", pattern, "activeOnly", activeOnly)));
+        return new CountedPage<>(slice.getContent(), pageable, Math.max(total.getValue(), seen + 1), total.isExact());
+    }
+
+    // Helper methods
+
+    private static boolean looksLikeIsbn(String term) {
+        return ISBN_INPUT.matcher(term).matches() && ISBN.matcher(normalizeIsbn(term)).matches();
+    }
+
+    private static String normalizeIsbn(String term) {
+        return term.replace("-", "").replace(" ", "").toUpperCase(Locale.ROOT);
+    }
+
+    private static Page<Book> page(List<Book> books, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(books, pageable, books.size());
+        }
+        List<Book> content = books.stream()
+            .skip(pageable.getOffset())
+            .limit(pageable.getPageSize())
+            .toList();
+        return new PageImpl<>(content, pageable, books.size());
+    }
+}
@@ -2,6 +2,10 @@ package com.alibou.security.book;
 
 import com.alibou.security.booktype.BookType;
 import com.alibou.security.booktype.BookTypeRepository;
+import com.alibou.security.core.domain.repository.CursorPage;
+import com.alibou.security.core.domain.repository.KeysetCursor;
+import com.alibou.security.core.infrastructure.service.CounterBuffer;
+import com.alibou.security.core.infrastructure.service.CounterBuffer.Counter;
 import com.alibou.security.exception.ResourceNotFoundException;
 import com.alibou.security.user.Role;
 import com.alibou.security.user.User;
@@ -9,6 +13,7 @@ import com.alibou.security.user.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
@@ -17,6 +22,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Service
@@ -25,9 +31,13 @@ import java.util.List;
 @Transactional
 public class BookService {
 
+    private static final String RECENT_CURSOR = "books:createDate-desc,id-desc";
+
     private final BookRepository bookRepository;
     private final BookTypeRepository bookTypeRepository;
     private final UserRepository userRepository;
+    private final CounterBuffer counterBuffer;
+    private final BookSearchService bookSearchService;
 
     public Page<BookResponse> getAllBooks(String search, Pageable pageable, boolean activeOnly) {
         Page<Book> books;
@@ -37,9 +47,7 @@ public class BookService {
                 bookRepository.findAll(pageable) : 
                 bookRepository.findAll(pageable);
         } else {
-            books = activeOnly ? 
-                bookRepository.findActiveBooksBySearchTerm(search.trim(), pageable) :
-                bookRepository.findAllBooksBySearchTerm(search.trim(), pageable);
+            books = bookSearchService.search(search.trim(), activeOnly, pageable);
         }
         
         // Return public version for non-admin users
@@ -55,9 +63,8 @@ public class BookService {
         Book book = bookRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy sách với ID: " + id));
         
-        // Increment view count
-        book.setViewCount(book.getViewCount() + 1);
-        bookRepository.save(book);
+        // Buffered; written with the next counter flush
+        counterBuffer.increment(Counter.BOOK_VIEWS, id);
         
         // Return appropriate version based on user role
         User currentUser = getCurrentUser();
@@ -208,6 +215,32 @@ public class BookService {
         return books.map(BookResponse::fromEntityPublic);
     }
 
+    // Newest books page by page with a cursor; the total is only counted when asked for
+    @Transactional(readOnly = true)
+    public CursorPage<BookSummary> getRecentBooks(String cursor, int size, boolean withTotal) {
+        LocalDateTime afterDate = null;
+        Integer afterId = null;
+        if (cursor != null) {
+            List<String> values = KeysetCursor.decode(RECENT_CURSOR, cursor, 2);
+            try {
+                afterDate = LocalDateTime.parse(values.get(0));
+                afterId = Integer.valueOf(values.get(1));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+            }
+        }
+        List<BookSummary> books = cursor == null
+            ? bookRepository.findRecentSummaries(PageRequest.of(0, size + 1))
+            : bookRepository.findRecentSummariesAfter(afterDate, afterId, PageRequest.of(0, size + 1));
+        String nextCursor = null;
+        if (books.size() > size) {
+            books = books.subList(0, size);
+            BookSummary last = books.get(size - 1);
+            nextCursor = KeysetCursor.encode(RECENT_CURSOR, List.of(last.getCreateDate(), last.getId()));
+        }
+        return new CursorPage<>(books, nextCursor, withTotal ? bookRepository.countByActiveTrue() : null);
+    }
+
     public String downloadBook(Integer id) {
         Book book = bookRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy sách với ID: " + id));
@@ -221,9 +254,8 @@ public class BookService {
             throw new AccessDeniedException("Bạn cần mua sách này trước khi tải về");
         }
 
-        // Increment download count
-        book.setDownloadCount(book.getDownloadCount() + 1);
-        bookRepository.save(book);
+        // Buffered; written with the next counter flush
+        counterBuffer.increment(Counter.BOOK_DOWNLOADS, id);
 
         log.info("Book downloaded: {} by user: {}", book.getTitle(), getCurrentUsername());
         
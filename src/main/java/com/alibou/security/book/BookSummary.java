@@ -0,0 +1,65 @@
+package com.alibou.security.book;
+
+import com.alibou.security.core.domain.service.ImageVariant;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Card fields of a book for list views (query projection)
+ *
+ * Leaves out descriptions, synopsis and file locations; those are loaded
+ * with the full book on the detail view. The cover is exposed only as the
+ * URLs of its renditions, not as its stored path.
+ */
+public class BookSummary {
+    private final Integer id;
+    private final String title;
+    private final String author;
+    private final String bookTypeName;
+    private final String fileFormat;
+    private final Long fileSize;
+    private final Map<String, String> coverImageUrls;
+    private final Boolean isFree;
+    private final BigDecimal price;
+    private final long downloadCount;
+    private final long viewCount;
+    private final double rating;
+    private final LocalDateTime createDate;
+
+    public BookSummary(Integer id, String title, String author, String bookTypeName, String fileFormat,
+                       Long fileSize, String coverImagePath, Boolean isFree, BigDecimal price,
+                       Integer downloadCount, Integer viewCount, BigDecimal rating,
+                       LocalDateTime createDate) {
+        this.id = id;
+        this.title = title;
+        this.author = author;
+        this.bookTypeName = bookTypeName;
+        this.fileFormat = fileFormat;
+        this.fileSize = fileSize;
+        this.coverImageUrls = id != null
+            ? ImageVariant.urls("/api/v1/images/books/" + id + "/cover", coverImagePath) : null;
+        this.isFree = isFree;
+        this.price = price;
+        this.downloadCount = downloadCount != null ? downloadCount : 0;
+        this.viewCount = viewCount != null ? viewCount : 0;
+        this.rating = rating != null ? rating.doubleValue() : 0.0;
+        this.createDate = createDate;
+    }
+
+    // Getters
+    public Integer getId() { return id; }
+    public String getTitle() { return title; }
+    public String getAuthor() { return author; }
+    public String getBookTypeName() { return bookTypeName; }
+    public String getFileFormat() { return fileFormat; }
+    public Long getFileSize() { return fileSize; }
+    public Map<String, String> getCoverImageUrls() { return coverImageUrls; }
+    public Boolean getIsFree() { return isFree; }
+    public BigDecimal getPrice() { return price; }
+    public long getDownloadCount() { return downloadCount; }
+    public long getViewCount() { return viewCount; }
+    public double getRating() { return rating; }
+    public LocalDateTime getCreateDate() { return createDate; }
+}
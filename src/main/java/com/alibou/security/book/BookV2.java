@@ -2,6 +2,7 @@ package com.alibou.security.book;
 
 import com.alibou.security.booktype.BookType;
 import com.alibou.security.core.domain.entity.BaseEntity;
+import com.alibou.security.core.domain.entity.Searchable;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -19,15 +20,18 @@ import java.math.BigDecimal;
 @Entity
 public class BookV2 extends BaseEntity {
 
+    @Searchable
     @Column(nullable = false, length = 255)
     private String title;
 
+    @Searchable
     @Column(nullable = false, length = 255)
     private String author;
 
     @Column(length = 20)
     private String isbn;
 
+    @Searchable
     @Column(length = 1000)
     private String description;
 
@@ -0,0 +1,40 @@
+package com.alibou.security.book.application.service;
+
+import com.alibou.security.book.BookResponse;
+
+import java.util.List;
+
+/**
+ * Per-item outcome of a batch book upload
+ */
+public class BatchUploadItemResult {
+    private final int index;
+    private final String fileName;
+    private final UploadStatus status;
+    private final BookResponse book;
+    private final List<String> errors;
+
+    public BatchUploadItemResult(int index, String fileName, UploadStatus status,
+                                BookResponse book, List<String> errors) {
+        this.index = index;
+        this.fileName = fileName;
+        this.status = status;
+        this.book = book;
+        this.errors = errors;
+    }
+
+    public static BatchUploadItemResult completed(int index, String fileName, BookResponse book) {
+        return new BatchUploadItemResult(index, fileName, UploadStatus.COMPLETED, book, List.of());
+    }
+
+    public static BatchUploadItemResult failed(int index, String fileName, List<String> errors) {
+        return new BatchUploadItemResult(index, fileName, UploadStatus.FAILED, null, errors);
+    }
+
+    // Getters
+    public int getIndex() { return index; }
+    public String getFileName() { return fileName; }
+    public UploadStatus getStatus() { return status; }
+    public BookResponse getBook() { return book; }
+    public List<String> getErrors() { return errors; }
+}
@@ -0,0 +1,34 @@
+package com.alibou.security.book.application.service;
+
+import java.util.List;
+
+/**
+ * Batch book upload result
+ * Successful items are committed independently of failed ones
+ */
+public class BatchUploadResult {
+    private final int totalItems;
+    private final int succeeded;
+    private final int failed;
+    private final List<BatchUploadItemResult> items;
+    private final long durationMillis;
+
+    public BatchUploadResult(List<BatchUploadItemResult> items, long durationMillis) {
+        this.totalItems = items.size();
+        this.succeeded = (int) items.stream()
+            .filter(item -> item.getStatus() == UploadStatus.COMPLETED)
+            .count();
+        this.failed = totalItems - succeeded;
+        this.items = items;
+        this.durationMillis = durationMillis;
+    }
+
+    // Getters
+    public int getTotalItems() { return totalItems; }
+    public int getSucceeded() { return succeeded; }
+    public int getFailed() { return failed; }
+    public List<BatchUploadItemResult> getItems() { return items; }
+    public long getDurationMillis() { return durationMillis; }
+
+    public boolean isPartialFailure() { return failed > 0 && succeeded > 0; }
+}
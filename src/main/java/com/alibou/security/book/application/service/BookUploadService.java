@@ -2,6 +2,7 @@ package com.alibou.security.book.application.service;
 
 import com.alibou.security.book.BookRequest;
 import com.alibou.security.book.BookResponse;
+import com.alibou.security.core.domain.service.ProcessingJobStatus;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
@@ -19,8 +20,9 @@ public interface BookUploadService {
     
     /**
      * Upload multiple books with files
+     * Items succeed or fail independently; the result reports status per item
      */
-    List<BookResponse> uploadBooksInBatch(List<BookRequest> bookRequests, 
+    BatchUploadResult uploadBooksInBatch(List<BookRequest> bookRequests, 
                                          List<MultipartFile> files, Integer userId);
     
     /**
@@ -54,9 +56,20 @@ public interface BookUploadService {
     void cancelUpload(String uploadId);
     
     /**
-     * Process uploaded book file (extract metadata, generate thumbnails, etc.)
+     * Queue processing of the book file (extract metadata, generate thumbnails, etc.)
+     * Returns at once; poll the job with {@link #getProcessingJob(Long)}
      */
-    BookProcessingResult processBookFile(Integer bookId, Integer userId);
+    ProcessingJobStatus processBookFile(Integer bookId, Integer userId);
+    
+    /**
+     * Status of a queued, running or finished processing job
+     */
+    ProcessingJobStatus getProcessingJob(Long jobId);
+    
+    /**
+     * Latest processing job of the book (uploads queue one automatically)
+     */
+    ProcessingJobStatus getLatestProcessingJob(Integer bookId);
     
     /**
      * Move book file to different storage category
@@ -83,8 +96,18 @@ public interface BookUploadService {
      */
     OrphanCleanupResult cleanupOrphanedFiles();
     
+    /**
+     * Find orphaned files; with dryRun they are only reported, not deleted
+     */
+    OrphanCleanupResult cleanupOrphanedFiles(boolean dryRun);
+    
     /**
      * Get download URL for book file
      */
     String getDownloadUrl(Integer bookId, Integer userId);
+    
+    /**
+     * Get a signed, expiring download link for book file
+     */
+    String getSignedDownloadUrl(Integer bookId, Integer userId, long expirationMinutes);
 }
@@ -6,6 +6,8 @@ import java.util.List;
  * Orphan cleanup result
  */
 public class OrphanCleanupResult {
+    private final boolean dryRun;
+    private final long filesScanned;
     private final int orphanedFilesFound;
     private final int filesDeleted;
     private final long spaceFreedBytes;
@@ -13,9 +15,12 @@ public class OrphanCleanupResult {
     private final List<String> errors;
     private final java.time.LocalDateTime cleanupTime;
     
-    public OrphanCleanupResult(int orphanedFilesFound, int filesDeleted, long spaceFreedBytes,
+    public OrphanCleanupResult(boolean dryRun, long filesScanned,
+                              int orphanedFilesFound, int filesDeleted, long spaceFreedBytes,
                               List<String> deletedFiles, List<String> errors,
                               java.time.LocalDateTime cleanupTime) {
+        this.dryRun = dryRun;
+        this.filesScanned = filesScanned;
         this.orphanedFilesFound = orphanedFilesFound;
         this.filesDeleted = filesDeleted;
         this.spaceFreedBytes = spaceFreedBytes;
@@ -25,6 +30,8 @@ public class OrphanCleanupResult {
     }
     
     // Getters
+    public boolean isDryRun() { return dryRun; }
+    public long getFilesScanned() { return filesScanned; }
     public int getOrphanedFilesFound() { return orphanedFilesFound; }
     public int getFilesDeleted() { return filesDeleted; }
     public long getSpaceFreedBytes() { return spaceFreedBytes; }
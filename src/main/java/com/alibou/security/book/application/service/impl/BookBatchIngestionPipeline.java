@@ -0,0 +1,379 @@
+package com.alibou.security.book.application.service.impl;
+
+import com.alibou.security.book.Book;
+import com.alibou.security.book.BookRepository;
+import com.alibou.security.book.BookRequest;
+import com.alibou.security.book.BookResponse;
+import com.alibou.security.book.application.service.BatchUploadItemResult;
+import com.alibou.security.book.application.service.BatchUploadResult;
+import com.alibou.security.booktype.BookType;
+import com.alibou.security.booktype.BookTypeRepository;
+import com.alibou.security.config.FileUploadConfig;
+import com.alibou.security.core.domain.entity.FileProcessingJob.TargetType;
+import com.alibou.security.core.domain.service.FileStorageResult;
+import com.alibou.security.core.domain.service.FileStorageService;
+import com.alibou.security.core.domain.service.FileValidationResult;
+import com.alibou.security.core.infrastructure.service.FileProcessingJobService;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Batch ingestion pipeline for book uploads
+ *
+ * Stages:
+ * 1. validate  - bean validation, file rules and duplicate checks (request thread)
+ * 2. store     - stream each file to storage while hashing it, at most
+ *                {@code app.file-upload.max-concurrent-uploads} files at a time
+ * 3. persist   - insert stored books in JDBC batches, each batch in its own transaction,
+ *                together with their metadata/thumbnail processing jobs
+ *
+ * A failed batch insert is retried row by row so one bad row never rolls back
+ * the others; files of rows that could not be inserted are removed again.
+ */
+@Component
+@Slf4j
+public class BookBatchIngestionPipeline {
+
+    private static final String STORAGE_CATEGORY = "books";
+    private static final int INSERT_BATCH_SIZE = 50;
+
+    private final BookRepository bookRepository;
+    private final BookTypeRepository bookTypeRepository;
+    private final FileStorageService fileStorageService;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor storageExecutor;
+    private final FileProcessingJobService fileProcessingJobService;
+
+    public BookBatchIngestionPipeline(BookRepository bookRepository,
+                                      BookTypeRepository bookTypeRepository,
+                                      FileStorageService fileStorageService,
+                                      Validator validator,
+                                      PlatformTransactionManager transactionManager,
+                                      FileUploadConfig fileUploadConfig,
+                                      FileProcessingJobService fileProcessingJobService) {
+        this.bookRepository = bookRepository;
+        this.bookTypeRepository = bookTypeRepository;
+        this.fileStorageService = fileStorageService;
+        this.validator = validator;
+        this.fileProcessingJobService = fileProcessingJobService;
+
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        int workers = Math.max(1, fileUploadConfig.getMaxConcurrentUploads());
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.storageExecutor = new ThreadPoolExecutor(
+            workers, workers, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "book-batch-upload-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.storageExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        storageExecutor.shutdown();
+    }
+
+    public BatchUploadResult ingest(List<BookRequest> requests, List<MultipartFile> files, Integer userId) {
+        if (requests.size() != files.size()) {
+            throw new IllegalArgumentException("Number of book requests (" + requests.size() +
+                ") does not match number of files (" + files.size() + ")");
+        }
+
+        long startTime = System.currentTimeMillis();
+        int itemCount = requests.size();
+        BatchUploadItemResult[] results = new BatchUploadItemResult[itemCount];
+
+        log.info("Starting batch ingestion of {} books for user {}", itemCount, userId);
+
+        // Stage 1: validate everything up front, before any I/O
+        Map<Integer, BookType> bookTypes = new HashMap<>();
+        Set<String> batchIsbns = new HashSet<>();
+        Set<String> batchTitles = new HashSet<>();
+        List<Integer> accepted = new ArrayList<>();
+
+        for (int i = 0; i < itemCount; i++) {
+            List<String> errors = validate(requests.get(i), files.get(i), bookTypes, batchIsbns, batchTitles);
+            if (errors.isEmpty()) {
+                accepted.add(i);
+            } else {
+                results[i] = BatchUploadItemResult.failed(i, files.get(i).getOriginalFilename(), errors);
+            }
+        }
+
+        // Stage 2: stream files to storage concurrently (bounded by the executor size)
+        CompletionService<StagedBook> completionService = new ExecutorCompletionService<>(storageExecutor);
+        for (int index : accepted) {
+            BookRequest request = requests.get(index);
+            MultipartFile file = files.get(index);
+            BookType bookType = request.getBookTypeId() != null ? bookTypes.get(request.getBookTypeId()) : null;
+            completionService.submit(() -> store(index, request, file, bookType, userId));
+        }
+
+        // Stage 3: persist in batches as soon as files land on disk
+        List<StagedBook> pending = new ArrayList<>(INSERT_BATCH_SIZE);
+        int remaining = accepted.size();
+        try {
+            for (; remaining > 0; remaining--) {
+                StagedBook staged = completionService.take().get();
+                if (staged.error != null) {
+                    results[staged.index] = BatchUploadItemResult.failed(
+                        staged.index, staged.originalFileName, List.of(staged.error));
+                    continue;
+                }
+
+                pending.add(staged);
+                if (pending.size() >= INSERT_BATCH_SIZE) {
+                    persist(pending, results, userId);
+                    pending.clear();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // Files still being written are left to the orphan file scanner
+            abandon(pending, completionService, remaining, false);
+            throw new IllegalStateException("Batch upload interrupted", e);
+        } catch (ExecutionException e) {
+            // store() reports its own failures, so this only happens on errors
+            abandon(pending, completionService, remaining - 1, true);
+            throw new IllegalStateException("Batch upload failed: " + e.getCause().getMessage(), e.getCause());
+        }
+
+        if (!pending.isEmpty()) {
+            persist(pending, results, userId);
+        }
+
+        BatchUploadResult result = new BatchUploadResult(Arrays.asList(results), System.currentTimeMillis() - startTime);
+        log.info("Batch ingestion finished: {} succeeded, {} failed in {} ms",
+                result.getSucceeded(), result.getFailed(), result.getDurationMillis());
+        return result;
+    }
+
+    // ==========================================================
+    // STAGES
+    // ==========================================================
+
+    private List<String> validate(BookRequest request, MultipartFile file, Map<Integer, BookType> bookTypes,
+                                  Set<String> batchIsbns, Set<String> batchTitles) {
+        List<String> errors = new ArrayList<>();
+
+        if (request == null) {
+            errors.add("Book metadata is missing");
+            return errors;
+        }
+
+        for (ConstraintViolation<BookRequest> violation : validator.validate(request)) {
+            errors.add(violation.getPropertyPath() + ": " + violation.getMessage());
+        }
+
+        FileValidationResult fileValidation = fileStorageService.validateFile(file, STORAGE_CATEGORY);
+        if (!fileValidation.isValid()) {
+            errors.addAll(fileValidation.getErrors());
+        }
+
+        if (request.getIsbn() != null && !request.getIsbn().isBlank()) {
+            if (!batchIsbns.add(request.getIsbn()) || bookRepository.existsByIsbn(request.getIsbn())) {
+                errors.add("ISBN đã tồn tại: " + request.getIsbn());
+            }
+        }
+
+        if (request.getTitle() != null) {
+            if (!batchTitles.add(request.getTitle()) || bookRepository.existsByTitle(request.getTitle())) {
+                errors.add("Tiêu đề sách đã tồn tại: " + request.getTitle());
+            }
+        }
+
+        if (request.getBookTypeId() != null) {
+            BookType bookType = bookTypes.computeIfAbsent(request.getBookTypeId(),
+                id -> bookTypeRepository.findById(id).orElse(null));
+            if (bookType == null) {
+                errors.add("Không tìm thấy loại sách với ID: " + request.getBookTypeId());
+            }
+        }
+
+        return errors;
+    }
+
+    private StagedBook store(int index, BookRequest request, MultipartFile file, BookType bookType, Integer userId) {
+        try {
+            FileStorageResult storage = fileStorageService.storeFile(file, STORAGE_CATEGORY, userId);
+            if (!storage.isSuccess()) {
+                return StagedBook.failed(index, file.getOriginalFilename(), storage.getErrorMessage());
+            }
+            return new StagedBook(index, request, storage, bookType, userId);
+        } catch (Exception e) {
+            log.warn("Failed to store batch item {} ({}): {}", index, file.getOriginalFilename(), e.getMessage());
+            return StagedBook.failed(index, file.getOriginalFilename(), "Failed to store file: " + e.getMessage());
+        }
+    }
+
+    private void persist(List<StagedBook> chunk, BatchUploadItemResult[] results, Integer userId) {
+        try {
+            List<Book> saved = transactionTemplate.execute(status -> {
+                List<Book> books = bookRepository.saveAll(chunk.stream().map(StagedBook::toBook).toList());
+                bookRepository.flush();
+                fileProcessingJobService.enqueueAll(TargetType.BOOK, books.stream().map(Book::getId).toList(), userId);
+                return books;
+            });
+            for (int i = 0; i < chunk.size(); i++) {
+                StagedBook staged = chunk.get(i);
+                results[staged.index] = BatchUploadItemResult.completed(
+                    staged.index, staged.originalFileName, BookResponse.fromEntity(saved.get(i)));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Batch insert of {} books failed, retrying row by row: {}", chunk.size(), e.getMessage());
+            for (StagedBook staged : chunk) {
+                persistSingle(staged, results, userId);
+            }
+        }
+    }
+
+    private void persistSingle(StagedBook staged, BatchUploadItemResult[] results, Integer userId) {
+        try {
+            Book saved = transactionTemplate.execute(status -> {
+                Book book = bookRepository.saveAndFlush(staged.toBook());
+                fileProcessingJobService.enqueue(TargetType.BOOK, book.getId(), userId);
+                return book;
+            });
+            results[staged.index] = BatchUploadItemResult.completed(
+                staged.index, staged.originalFileName, BookResponse.fromEntity(saved));
+        } catch (RuntimeException e) {
+            log.warn("Failed to insert batch item {} ({}): {}", staged.index, staged.originalFileName, e.getMessage());
+            discardStoredFile(staged.storage.getFilePath());
+            results[staged.index] = BatchUploadItemResult.failed(
+                staged.index, staged.originalFileName, List.of("Failed to save book: " + e.getMessage()));
+        }
+    }
+
+    // Remove the files of an aborted batch: those waiting for insert and those of stores still in flight
+    private void abandon(List<StagedBook> pending, CompletionService<StagedBook> completionService,
+                         int inFlight, boolean waitForStores) {
+        for (StagedBook staged : pending) {
+            discardStoredFile(staged.storage.getFilePath());
+        }
+        for (int i = 0; i < inFlight; i++) {
+            Future<StagedBook> future;
+            try {
+                future = waitForStores ? completionService.take() : completionService.poll();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (future == null) {
+                return;
+            }
+            try {
+                StagedBook staged = future.get();
+                if (staged.error == null) {
+                    discardStoredFile(staged.storage.getFilePath());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                log.warn("Batch item failed while the batch was being aborted: {}", e.getCause().getMessage());
+            }
+        }
+    }
+
+    private void discardStoredFile(String filePath) {
+        try {
+            fileStorageService.deleteFile(filePath);
+        } catch (Exception e) {
+            log.warn("Failed to remove stored file of rejected batch item: {}", filePath, e);
+        }
+    }
+
+    /**
+     * A book whose file is already in storage and is waiting to be inserted.
+     * Entities are built fresh on every insert attempt so a failed batch
+     * never leaves generated ids behind on the retry path.
+     */
+    private static final class StagedBook {
+        private final int index;
+        private final String originalFileName;
+        private final BookRequest request;
+        private final FileStorageResult storage;
+        private final BookType bookType;
+        private final Integer userId;
+        private final String error;
+
+        private StagedBook(int index, BookRequest request, FileStorageResult storage,
+                           BookType bookType, Integer userId) {
+            this.index = index;
+            this.originalFileName = storage.getOriginalFileName();
+            this.request = request;
+            this.storage = storage;
+            this.bookType = bookType;
+            this.userId = userId;
+            this.error = null;
+        }
+
+        private StagedBook(int index, String originalFileName, String error) {
+            this.index = index;
+            this.originalFileName = originalFileName;
+            this.request = null;
+            this.storage = null;
+            this.bookType = null;
+            this.userId = null;
+            this.error = error;
+        }
+
+        static StagedBook failed(int index, String originalFileName, String error) {
+            return new StagedBook(index, originalFileName, error);
+        }
+
+        Book toBook() {
+            return Book.builder()
+                .title(request.getTitle())
+                .author(request.getAuthor())
+                .isbn(request.getIsbn())
+                .description(request.getDescription())
+                .synopsis(request.getSynopsis())
+                .category(request.getCategory())
+                .bookType(bookType)
+                .filePath(storage.getFilePath())
+                .fileName(storage.getOriginalFileName())
+                .fileFormat(fileFormatOf(storage.getOriginalFileName()))
+                .fileSize(storage.getFileSize())
+                .checksum(storage.getChecksum())
+                .isFree(request.getIsFree() != null ? request.getIsFree() : true)
+                .price(request.getPrice())
+                .downloadable(request.getDownloadable() != null ? request.getDownloadable() : true)
+                .active(request.getActive() != null ? request.getActive() : true)
+                .publisher(request.getPublisher())
+                .publicationYear(request.getPublicationYear())
+                .language(request.getLanguage())
+                .pageCount(request.getPageCount())
+                .rating(BigDecimal.ZERO)
+                .downloadCount(0)
+                .viewCount(0)
+                .createdBy(userId)
+                .build();
+        }
+
+        private static String fileFormatOf(String fileName) {
+            if (fileName == null || !fileName.contains(".")) {
+                return null;
+            }
+            return fileName.substring(fileName.lastIndexOf(".") + 1).toUpperCase();
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.alibou.security.book.application.service.impl;
+
+import com.alibou.security.book.Book;
+import com.alibou.security.book.BookRepository;
+import com.alibou.security.book.BookRequest;
+import com.alibou.security.book.BookResponse;
+import com.alibou.security.book.application.service.*;
+import com.alibou.security.booktype.BookType;
+import com.alibou.security.booktype.BookTypeRepository;
+import com.alibou.security.core.domain.entity.FileProcessingJob.TargetType;
+import com.alibou.security.core.domain.service.FileStorageResult;
+import com.alibou.security.core.domain.service.FileStorageService;
+import com.alibou.security.core.domain.service.FileValidationResult;
+import com.alibou.security.core.domain.service.ProcessingJobStatus;
+import com.alibou.security.core.infrastructure.service.CounterBuffer;
+import com.alibou.security.core.infrastructure.service.CounterBuffer.Counter;
+import com.alibou.security.core.infrastructure.service.FileProcessingJobService;
+import com.alibou.security.core.infrastructure.service.OrphanFileScanner;
+import com.alibou.security.exception.ResourceNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of book upload service
+ * Stores files through FileStorageService and keeps Book records in sync
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional
+public class BookUploadServiceImpl implements BookUploadService {
+
+    private static final String BOOKS_CATEGORY = "books";
+    private static final String IMAGES_CATEGORY = "images";
+
+    private final BookRepository bookRepository;
+    private final BookTypeRepository bookTypeRepository;
+    private final FileStorageService fileStorageService;
+    private final BookBatchIngestionPipeline batchIngestionPipeline;
+    private final OrphanFileScanner orphanFileScanner;
+    private final FileProcessingJobService fileProcessingJobService;
+    private final CounterBuffer counterBuffer;
+
+    @Override
+    public BookResponse uploadBook(BookRequest bookRequest, MultipartFile file, Integer userId) {
+        log.info("Uploading book {} with file {}", bookRequest.getTitle(), file.getOriginalFilename());
+
+        if (bookRequest.getIsbn() != null && bookRepository.existsByIsbn(bookRequest.getIsbn())) {
+            throw new IllegalArgumentException("ISBN đã tồn tại: " + bookRequest.getIsbn());
+        }
+        if (bookRepository.existsByTitle(bookRequest.getTitle())) {
+            throw new IllegalArgumentException("Tiêu đề sách đã tồn tại: " + bookRequest.getTitle());
+        }
+
+        FileStorageResult storage = storeOrThrow(file, BOOKS_CATEGORY, userId);
+
+        Book book = Book.builder()
+                .title(bookRequest.getTitle())
+                .author(bookRequest.getAuthor())
+                .isbn(bookRequest.getIsbn())
+                .description(bookRequest.getDescription())
+                .synopsis(bookRequest.getSynopsis())
+                .category(bookRequest.getCategory())
+                .filePath(storage.getFilePath())
+                .fileName(storage.getOriginalFileName())
+                .fileFormat(getFileFormat(storage.getOriginalFileName()))
+                .fileSize(storage.getFileSize())
+                .checksum(storage.getChecksum())
+                .isFree(bookRequest.getIsFree() != null ? bookRequest.getIsFree() : true)
+                .price(bookRequest.getPrice())
+                .downloadable(bookRequest.getDownloadable() != null ? bookRequest.getDownloadable() : true)
+                .active(bookRequest.getActive() != null ? bookRequest.getActive() : true)
+                .publisher(bookRequest.getPublisher())
+                .publicationYear(bookRequest.getPublicationYear())
+                .language(bookRequest.getLanguage())
+                .pageCount(bookRequest.getPageCount())
+                .rating(BigDecimal.ZERO)
+                .downloadCount(0)
+                .viewCount(0)
+                .createdBy(userId)
+                .build();
+
+        if (bookRequest.getBookTypeId() != null) {
+            BookType bookType = bookTypeRepository.findById(bookRequest.getBookTypeId())
+                    .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy loại sách với ID: " + bookRequest.getBookTypeId()));
+            book.setBookType(bookType);
+        }
+
+        Book saved = bookRepository.save(book);
+        fileProcessingJobService.enqueue(TargetType.BOOK, saved.getId(), userId);
+        return BookResponse.fromEntity(saved);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BatchUploadResult uploadBooksInBatch(List<BookRequest> bookRequests,
+                                               List<MultipartFile> files, Integer userId) {
+        // The pipeline commits each insert batch on its own, so no outer transaction
+        return batchIngestionPipeline.ingest(bookRequests, files, userId);
+    }
+
+    @Override
+    public BookResponse updateBookFile(Integer bookId, MultipartFile file, Integer userId) {
+        Book book = findBook(bookId);
+        String oldFilePath = book.getFilePath();
+
+        FileStorageResult storage = storeOrThrow(file, BOOKS_CATEGORY, userId);
+
+        book.setFilePath(storage.getFilePath());
+        book.setFileName(storage.getOriginalFileName());
+        book.setFileFormat(getFileFormat(storage.getOriginalFileName()));
+        book.setFileSize(storage.getFileSize());
+        book.setChecksum(storage.getChecksum());
+        Book saved = bookRepository.save(book);
+        fileProcessingJobService.enqueue(TargetType.BOOK, bookId, userId);
+
+        deleteQuietly(oldFilePath);
+        return BookResponse.fromEntity(saved);
+    }
+
+    @Override
+    public BookResponse uploadBookCover(Integer bookId, MultipartFile coverImage, Integer userId) {
+        Book book = findBook(bookId);
+        String oldCoverPath = book.getCoverImagePath();
+
+        FileStorageResult storage = storeOrThrow(coverImage, IMAGES_CATEGORY, userId);
+        book.setCoverImagePath(storage.getFilePath());
+        Book saved = bookRepository.save(book);
+
+        deleteQuietly(oldCoverPath);
+        return BookResponse.fromEntity(saved);
+    }
+
+    @Override
+    public BookResponse uploadBookPreview(Integer bookId, MultipartFile previewFile, Integer userId) {
+        Book book = findBook(bookId);
+        String oldPreviewPath = book.getPreviewFilePath();
+
+        FileStorageResult storage = storeOrThrow(previewFile, BOOKS_CATEGORY, userId);
+        book.setPreviewFilePath(storage.getFilePath());
+        Book saved = bookRepository.save(book);
+
+        deleteQuietly(oldPreviewPath);
+        return BookResponse.fromEntity(saved);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public BookFileValidationResult validateBookFile(MultipartFile file, String bookTypeCategory) {
+        FileValidationResult validation = fileStorageService.validateFile(file, BOOKS_CATEGORY);
+        return new BookFileValidationResult(validation.isValid(), validation.getErrors(),
+                validation.getWarnings(), null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public UploadProgress getUploadProgress(String uploadId) {
+        // Uploads are stored within the request, so there is nothing in flight to report
+        return null;
+    }
+
+    @Override
+    public void cancelUpload(String uploadId) {
+        throw new IllegalStateException("Upload not found or already completed: " + uploadId);
+    }
+
+    @Override
+    public ProcessingJobStatus processBookFile(Integer bookId, Integer userId) {
+        Book book = findBook(bookId);
+        requireFile(book);
+        return fileProcessingJobService.enqueue(TargetType.BOOK, bookId, userId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ProcessingJobStatus getProcessingJob(Long jobId) {
+        return fileProcessingJobService.getStatus(jobId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ProcessingJobStatus getLatestProcessingJob(Integer bookId) {
+        findBook(bookId);
+        return fileProcessingJobService.getLatestStatus(TargetType.BOOK, bookId);
+    }
+
+    @Override
+    public BookResponse moveBookFile(Integer bookId, String newCategory, Integer userId) {
+        Book book = findBook(bookId);
+
+        FileStorageResult moved = fileStorageService.moveFile(book.getFilePath(), newCategory);
+        if (!moved.isSuccess()) {
+            throw new IllegalStateException(moved.getErrorMessage());
+        }
+
+        book.setFilePath(moved.getFilePath());
+        return BookResponse.fromEntity(bookRepository.save(book));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public String createBookFileBackup(Integer bookId, Integer userId) {
+        Book book = findBook(bookId);
+        requireFile(book);
+        return fileStorageService.createBackup(book.getFilePath());
+    }
+
+    @Override
+    public BookResponse restoreBookFileFromBackup(Integer bookId, String backupPath, Integer userId) {
+        Book book = findBook(bookId);
+        requireFile(book);
+        fileStorageService.restoreFromBackup(backupPath, book.getFilePath());
+        return BookResponse.fromEntity(book);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public BookFileStatistics getBookFileStatistics(Integer bookId) {
+        Book book = findBook(bookId);
+        return new BookFileStatistics(
+                book.getId(),
+                book.getFileName(),
+                book.getFileSize() != null ? book.getFileSize() : 0L,
+                book.getDownloadCount(),
+                book.getViewCount(),
+                null,
+                null,
+                Map.of(),
+                Map.of()
+        );
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public OrphanCleanupResult cleanupOrphanedFiles() {
+        return cleanupOrphanedFiles(false);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public OrphanCleanupResult cleanupOrphanedFiles(boolean dryRun) {
+        // Long-running scan and rate-limited deletes; the scanner opens its own read transaction
+        return orphanFileScanner.scan(dryRun);
+    }
+
+    @Override
+    public String getDownloadUrl(Integer bookId, Integer userId) {
+        Book book = findBook(bookId);
+        requireFile(book);
+
+        if (!Boolean.TRUE.equals(book.getDownloadable())) {
+            throw new AccessDeniedException("Sách này không cho phép tải về");
+        }
+
+        counterBuffer.increment(Counter.BOOK_DOWNLOADS, bookId);
+
+        return book.getFilePath();
+    }
+
+    @Override
+    public String getSignedDownloadUrl(Integer bookId, Integer userId, long expirationMinutes) {
+        Book book = findBook(bookId);
+        String filePath = getDownloadUrl(bookId, userId);
+        return fileStorageService.generateDownloadUrl(filePath, book.getChecksum(), userId, expirationMinutes);
+    }
+
+    // Helper methods
+
+    private Book findBook(Integer bookId) {
+        return bookRepository.findById(bookId)
+                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy sách với ID: " + bookId));
+    }
+
+    private void requireFile(Book book) {
+        if (book.getFilePath() == null) {
+            throw new ResourceNotFoundException("Sách chưa có file: " + book.getId());
+        }
+    }
+
+    private FileStorageResult storeOrThrow(MultipartFile file, String category, Integer userId) {
+        FileStorageResult storage = fileStorageService.storeFile(file, category, userId);
+        if (!storage.isSuccess()) {
+            throw new IllegalArgumentException(storage.getErrorMessage());
+        }
+        return storage;
+    }
+
+    private void deleteQuietly(String filePath) {
+        if (filePath == null) {
+            return;
+        }
+        try {
+            fileStorageService.deleteFile(filePath);
+        } catch (Exception e) {
+            log.warn("Failed to delete replaced file: {}", filePath, e);
+        }
+    }
+
+    private String getFileFormat(String fileName) {
+        if (fileName == null || !fileName.contains(".")) {
+            return null;
+        }
+        return fileName.substring(fileName.lastIndexOf(".") + 1).toUpperCase();
+    }
+}
@@ -3,9 +3,23 @@ package com.alibou.security.book.controller;
 import com.alibou.security.book.BookRequest;
 import com.alibou.security.book.BookResponse;
 import com.alibou.security.book.application.service.*;
+import com.alibou.security.core.domain.entity.FileIntegrityIssue;
+import com.alibou.security.core.domain.repository.FileIntegrityIssueRepository;
 import com.alibou.security.core.domain.service.FileStorageService;
+import com.alibou.security.core.domain.service.IntegrityVerificationResult;
+import com.alibou.security.core.domain.service.LayoutMigrationResult;
 import com.alibou.security.core.domain.service.PermissionService;
+import com.alibou.security.core.domain.service.ProcessingJobStatus;
+import com.alibou.security.core.domain.service.SnapshotResult;
+import com.alibou.security.core.domain.service.StorageStatistics;
+import com.alibou.security.core.domain.service.StoredFileContent;
+import com.alibou.security.core.infrastructure.service.CompressedVariantService;
+import com.alibou.security.core.infrastructure.service.FileIntegrityVerifier;
+import com.alibou.security.core.infrastructure.service.StorageLayoutMigrationService;
 import com.alibou.security.user.User;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -13,14 +27,17 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.InputStreamResource;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -38,6 +55,10 @@ public class BookFileController {
     private final BookUploadService bookUploadService;
     private final FileStorageService fileStorageService;
     private final PermissionService permissionService;
+    private final StorageLayoutMigrationService storageLayoutMigrationService;
+    private final FileIntegrityVerifier fileIntegrityVerifier;
+    private final FileIntegrityIssueRepository fileIntegrityIssueRepository;
+    private final ObjectMapper objectMapper;
 
     @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @Operation(summary = "Upload a new book with file", 
@@ -68,8 +89,10 @@ public class BookFileController {
     }
 
     @PostMapping(value = "/upload/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    @Operation(summary = "Upload multiple books with files")
-    public ResponseEntity<List<BookResponse>> uploadBooksInBatch(
+    @Operation(summary = "Upload multiple books with files",
+               description = "Files and metadata are matched by position. Each item succeeds or fails on its own; " +
+                             "returns 207 when some items failed")
+    public ResponseEntity<BatchUploadResult> uploadBooksInBatch(
             @Parameter(description = "Book files to upload") 
             @RequestParam("files") List<MultipartFile> files,
             
@@ -88,11 +111,12 @@ public class BookFileController {
             return ResponseEntity.status(403).build();
         }
         
-        // Parse book requests from JSON (would need ObjectMapper)
-        // List<BookRequest> bookRequests = parseBookRequests(bookRequestsJson);
+        List<BookRequest> bookRequests = parseBookRequests(bookRequestsJson);
         
-        // For now, return empty list
-        return ResponseEntity.ok(List.of());
+        BatchUploadResult result = bookUploadService.uploadBooksInBatch(bookRequests, files, user.getId());
+        
+        HttpStatus status = result.getFailed() == 0 ? HttpStatus.OK : HttpStatus.MULTI_STATUS;
+        return ResponseEntity.status(status).body(result);
     }
 
     @PutMapping(value = "/{bookId}/update", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -181,6 +205,8 @@ public class BookFileController {
             @Parameter(description = "Book ID") 
             @PathVariable Integer bookId,
             
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            
             Authentication authentication) {
         
         log.info("Download request for book ID: {} by user: {}", 
@@ -197,17 +223,20 @@ public class BookFileController {
             // Get download URL (this would trigger download count increment)
             String downloadUrl = bookUploadService.getDownloadUrl(bookId, user.getId());
             
-            // Get file stream
-            InputStream fileStream = fileStorageService.getFileAsStream(downloadUrl);
-            
-            // Get file metadata for headers
-            var metadata = fileStorageService.getFileMetadata(downloadUrl);
+            // Open the file, or its pre-compressed variant if the client takes gzip
+            StoredFileContent content = fileStorageService.openForDownload(
+                downloadUrl, CompressedVariantService.acceptsGzip(acceptEncoding));
             
-            return ResponseEntity.ok()
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, 
-                       "attachment; filename=\"" + metadata.getFileName() + "\"")
+                       "attachment; filename=\"" + content.getFileName() + "\"")
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
                 .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .body(new InputStreamResource(fileStream));
+                .contentLength(content.getContentLength());
+            if (content.getContentEncoding() != null) {
+                response.header(HttpHeaders.CONTENT_ENCODING, content.getContentEncoding());
+            }
+            return response.body(new InputStreamResource(content.getInputStream()));
                 
         } catch (Exception e) {
             log.error("Failed to download book {}: {}", bookId, e.getMessage());
@@ -216,7 +245,8 @@ public class BookFileController {
     }
 
     @GetMapping("/{bookId}/download-url")
-    @Operation(summary = "Get secure download URL")
+    @Operation(summary = "Get secure download URL",
+               description = "Signed link served by /api/v1/downloads without further authentication")
     public ResponseEntity<Map<String, String>> getDownloadUrl(
             @Parameter(description = "Book ID") 
             @PathVariable Integer bookId,
@@ -234,9 +264,8 @@ public class BookFileController {
         }
         
         try {
-            String downloadUrl = bookUploadService.getDownloadUrl(bookId, user.getId());
-            String secureUrl = fileStorageService.generateDownloadUrl(
-                downloadUrl, user.getId(), expirationMinutes);
+            String secureUrl = bookUploadService.getSignedDownloadUrl(
+                bookId, user.getId(), expirationMinutes);
             
             return ResponseEntity.ok(Map.of(
                 "downloadUrl", secureUrl,
@@ -244,6 +273,8 @@ public class BookFileController {
                 "bookId", bookId.toString()
             ));
             
+        } catch (IllegalArgumentException e) {
+            throw e; // Expiration out of range
         } catch (Exception e) {
             log.error("Failed to generate download URL for book {}: {}", bookId, e.getMessage());
             return ResponseEntity.notFound().build();
@@ -278,8 +309,9 @@ public class BookFileController {
 
     @PostMapping("/{bookId}/process")
     @Operation(summary = "Process uploaded book file", 
-               description = "Extract metadata and generate thumbnails for uploaded book")
-    public ResponseEntity<BookProcessingResult> processBookFile(
+               description = "Queue metadata extraction and thumbnail generation for uploaded book. " +
+                             "Returns the job at once; poll /jobs/{jobId} for the result")
+    public ResponseEntity<ProcessingJobStatus> processBookFile(
             @Parameter(description = "Book ID") 
             @PathVariable Integer bookId,
             
@@ -292,9 +324,45 @@ public class BookFileController {
             return ResponseEntity.status(403).build();
         }
         
-        BookProcessingResult result = bookUploadService.processBookFile(bookId, user.getId());
+        ProcessingJobStatus job = bookUploadService.processBookFile(bookId, user.getId());
         
-        return ResponseEntity.ok(result);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+
+    @GetMapping("/{bookId}/process")
+    @Operation(summary = "Get latest processing job of a book",
+               description = "Uploads queue processing automatically; this returns that job")
+    public ResponseEntity<ProcessingJobStatus> getLatestProcessingJob(
+            @Parameter(description = "Book ID")
+            @PathVariable Integer bookId,
+            
+            Authentication authentication) {
+        
+        User user = (User) authentication.getPrincipal();
+        
+        if (!permissionService.hasEditorAccess(user)) {
+            return ResponseEntity.status(403).build();
+        }
+        
+        return ResponseEntity.ok(bookUploadService.getLatestProcessingJob(bookId));
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    @Operation(summary = "Get file processing job status",
+               description = "Status and results of a metadata/thumbnail job (QUEUED, RUNNING, SUCCEEDED, FAILED)")
+    public ResponseEntity<ProcessingJobStatus> getProcessingJob(
+            @Parameter(description = "Job ID")
+            @PathVariable Long jobId,
+            
+            Authentication authentication) {
+        
+        User user = (User) authentication.getPrincipal();
+        
+        if (!permissionService.hasEditorAccess(user)) {
+            return ResponseEntity.status(403).build();
+        }
+        
+        return ResponseEntity.ok(bookUploadService.getProcessingJob(jobId));
     }
 
     @GetMapping("/{bookId}/statistics")
@@ -317,6 +385,21 @@ public class BookFileController {
         return ResponseEntity.ok(statistics);
     }
 
+    @GetMapping("/storage/statistics")
+    @Operation(summary = "Get storage usage statistics",
+               description = "File count and size per storage category, served from running counters")
+    public ResponseEntity<StorageStatistics> getStorageStatistics(Authentication authentication) {
+        
+        User user = (User) authentication.getPrincipal();
+        
+        // Validate permission (admin only)
+        if (!permissionService.hasAdminAccess(user)) {
+            return ResponseEntity.status(403).build();
+        }
+        
+        return ResponseEntity.ok(fileStorageService.getStorageStatistics());
+    }
+
     @PostMapping("/{bookId}/backup")
     @Operation(summary = "Create backup of book file")
     public ResponseEntity<Map<String, String>> createBookFileBackup(
@@ -348,10 +431,82 @@ public class BookFileController {
         }
     }
 
+    @PostMapping("/storage/migrate-layout")
+    @Operation(summary = "Move stored files to the configured directory layout",
+               description = "Moves files and rewrites book and document paths in batches; safe to re-run")
+    public ResponseEntity<LayoutMigrationResult> migrateStorageLayout(
+            @Parameter(description = "Rows per transaction")
+            @RequestParam(defaultValue = "500") int batchSize,
+            
+            @Parameter(description = "Only count what would be moved")
+            @RequestParam(defaultValue = "false") boolean dryRun,
+            
+            Authentication authentication) {
+        
+        User user = (User) authentication.getPrincipal();
+        
+        // Validate permission (admin only)
+        if (!permissionService.hasAdminAccess(user)) {
+            return ResponseEntity.status(403).build();
+        }
+        
+        return ResponseEntity.ok(storageLayoutMigrationService.migrate(batchSize, dryRun));
+    }
+
+    @PostMapping("/snapshots")
+    @Operation(summary = "Create snapshot backup of all stored files",
+               description = "Incremental snapshot: unchanged files are hard-linked, old snapshots are pruned")
+    public ResponseEntity<SnapshotResult> createSnapshot(Authentication authentication) {
+        
+        User user = (User) authentication.getPrincipal();
+        
+        // Validate permission (admin only)
+        if (!permissionService.hasAdminAccess(user)) {
+            return ResponseEntity.status(403).build();
+        }
+        
+        return ResponseEntity.ok(fileStorageService.createSnapshot());
+    }
+
+    @PostMapping("/storage/verify-integrity")
+    @Operation(summary = "Verify checksums of all stored files",
+               description = "Recomputes SHA-256 of every book and document file; problems go to the integrity report")
+    public ResponseEntity<IntegrityVerificationResult> verifyStorageIntegrity(Authentication authentication) {
+        
+        User user = (User) authentication.getPrincipal();
+        
+        // Validate permission (admin only)
+        if (!permissionService.hasAdminAccess(user)) {
+            return ResponseEntity.status(403).build();
+        }
+        
+        return ResponseEntity.ok(fileIntegrityVerifier.verify());
+    }
+
+    @GetMapping("/storage/integrity-issues")
+    @Operation(summary = "Get files that failed checksum verification")
+    public ResponseEntity<Page<FileIntegrityIssue>> getIntegrityIssues(
+            @PageableDefault(size = 50) Pageable pageable,
+            
+            Authentication authentication) {
+        
+        User user = (User) authentication.getPrincipal();
+        
+        // Validate permission (admin only)
+        if (!permissionService.hasAdminAccess(user)) {
+            return ResponseEntity.status(403).build();
+        }
+        
+        return ResponseEntity.ok(fileIntegrityIssueRepository.findAllByOrderByLastDetectedAtDesc(pageable));
+    }
+
     @PostMapping("/cleanup-orphaned")
     @Operation(summary = "Clean up orphaned files", 
                description = "Remove files that no longer have corresponding book records")
     public ResponseEntity<OrphanCleanupResult> cleanupOrphanedFiles(
+            @Parameter(description = "Only report orphaned files, do not delete them")
+            @RequestParam(defaultValue = "false") boolean dryRun,
+            
             Authentication authentication) {
         
         User user = (User) authentication.getPrincipal();
@@ -361,7 +516,7 @@ public class BookFileController {
             return ResponseEntity.status(403).build();
         }
         
-        OrphanCleanupResult result = bookUploadService.cleanupOrphanedFiles();
+        OrphanCleanupResult result = bookUploadService.cleanupOrphanedFiles(dryRun);
         
         return ResponseEntity.ok(result);
     }
@@ -404,4 +559,12 @@ public class BookFileController {
                 .body(Map.of("error", "Failed to cancel upload: " + e.getMessage()));
         }
     }
+
+    private List<BookRequest> parseBookRequests(String bookRequestsJson) {
+        try {
+            return objectMapper.readValue(bookRequestsJson, new TypeReference<List<BookRequest>>() {});
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid bookRequests JSON: " + e.getOriginalMessage());
+        }
+    }
 }
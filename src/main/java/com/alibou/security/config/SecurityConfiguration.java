@@ -35,6 +35,7 @@ public class SecurityConfiguration {
                 .headers(headers -> headers.frameOptions().sameOrigin()) // For H2 Console
                 .authorizeHttpRequests(authorize -> authorize
                         .requestMatchers("/api/v1/auth/**", "/h2-console/**", "/swagger-ui/**", "/v3/api-docs/**").permitAll()
+                        .requestMatchers("/api/v1/downloads").permitAll() // signed token is the credential
                         .requestMatchers("/api/v1/management/**").hasAnyRole(ADMIN.name(), EDITOR.name())
                         .anyRequest().authenticated()
                 )
@@ -0,0 +1,36 @@
+package com.alibou.security.core.config;
+
+import com.alibou.security.core.domain.service.ObjectStore;
+import com.alibou.security.core.infrastructure.service.LocalObjectStore;
+import com.alibou.security.core.infrastructure.service.S3ObjectStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Object Storage Configuration
+ * Backend for the categories listed in app.file-storage.object-categories:
+ * an S3-compatible bucket, or a local directory that stands in for one
+ */
+@Configuration
+public class ObjectStorageConfig {
+
+    @Bean
+    public ObjectStore objectStore(@Value("${app.object-storage.type:local}") String type,
+                                   @Value("${app.object-storage.local-dir:./object-store}") String localDir,
+                                   @Value("${app.object-storage.endpoint:}") String endpoint,
+                                   @Value("${app.object-storage.region:us-east-1}") String region,
+                                   @Value("${app.object-storage.bucket:}") String bucket,
+                                   @Value("${app.object-storage.access-key:}") String accessKey,
+                                   @Value("${app.object-storage.secret-key:}") String secretKey,
+                                   @Value("${app.object-storage.path-style:true}") boolean pathStyle,
+                                   @Value("${app.object-storage.part-size:8388608}") int partSize) {
+        if ("s3".equalsIgnoreCase(type)) {
+            return new S3ObjectStore(endpoint, region, bucket, accessKey, secretKey, pathStyle, partSize);
+        }
+        if ("local".equalsIgnoreCase(type)) {
+            return new LocalObjectStore(localDir);
+        }
+        throw new IllegalArgumentException("Unknown object storage type: " + type);
+    }
+}
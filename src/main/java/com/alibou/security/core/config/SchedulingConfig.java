@@ -0,0 +1,13 @@
+package com.alibou.security.core.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Scheduling Configuration
+ * Enables @Scheduled background jobs (storage usage flush and reconciliation, ...)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
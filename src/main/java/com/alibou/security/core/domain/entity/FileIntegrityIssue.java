@@ -0,0 +1,72 @@
+package com.alibou.security.core.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A stored file that failed checksum verification
+ * One row per file; a later run that finds the file intact removes it
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "file_integrity_issue", indexes = {
+    @Index(name = "idx_file_integrity_issue_owner", columnList = "owner_type, owner_id", unique = true)
+})
+public class FileIntegrityIssue {
+
+    public enum OwnerType {
+        BOOK,
+        TECHNICAL_DOCUMENT
+    }
+
+    public enum Problem {
+        MISMATCH,   // Content no longer matches the stored checksum
+        MISSING,    // File is gone
+        UNREADABLE  // File exists but could not be read
+    }
+
+    @Id
+    @GeneratedValue(generator = "file_integrity_issue_id_seq")
+    @SequenceGenerator(name = "file_integrity_issue_id_seq", sequenceName = "file_integrity_issue_id_seq", allocationSize = 1)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "owner_type", nullable = false, length = 30)
+    private OwnerType ownerType;
+
+    @Column(name = "owner_id", nullable = false)
+    private Integer ownerId;
+
+    @Column(nullable = false, length = 1000)
+    private String filePath;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Problem problem;
+
+    @Column(length = 100)
+    private String expectedChecksum;
+
+    @Column(length = 100)
+    private String actualChecksum;
+
+    @Column
+    private Long fileSize;
+
+    @Column(length = 1000)
+    private String errorMessage;
+
+    @Column(nullable = false)
+    private LocalDateTime firstDetectedAt;
+
+    @Column(nullable = false)
+    private LocalDateTime lastDetectedAt;
+}
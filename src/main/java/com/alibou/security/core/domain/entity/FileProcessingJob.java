@@ -0,0 +1,88 @@
+package com.alibou.security.core.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Queued post-upload processing of a stored file (metadata extraction, thumbnail)
+ * Jobs live in the database so any node can pick them up and clients can poll them
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "file_processing_job", indexes = {
+    @Index(name = "idx_file_processing_job_status", columnList = "status, id"),
+    @Index(name = "idx_file_processing_job_target", columnList = "target_type, target_id")
+})
+public class FileProcessingJob {
+
+    public enum TargetType {
+        BOOK,
+        TECHNICAL_DOCUMENT
+    }
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED
+    }
+
+    @Id
+    @GeneratedValue(generator = "file_processing_job_id_seq")
+    @SequenceGenerator(name = "file_processing_job_id_seq", sequenceName = "file_processing_job_id_seq", allocationSize = 1)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "target_type", nullable = false, length = 30)
+    private TargetType targetType;
+
+    @Column(name = "target_id", nullable = false)
+    private Integer targetId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private Status status;
+
+    @Builder.Default
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(length = 100)
+    private String worker; // Node that ran (or is running) the job
+
+    @Column
+    private Integer requestedBy;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column
+    private LocalDateTime startedAt;
+
+    @Column
+    private LocalDateTime finishedAt;
+
+    // Results
+    @Column(length = 20)
+    private String fileFormat;
+
+    @Column
+    private Integer pageCount;
+
+    @Column(length = 50)
+    private String language;
+
+    @Column(length = 500)
+    private String thumbnailPath;
+
+    @Column(length = 1000)
+    private String errorMessage;
+}
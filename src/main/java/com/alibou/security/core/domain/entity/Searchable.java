@@ -0,0 +1,15 @@
+package com.alibou.security.core.domain.entity;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a String attribute of an entity as matched by the generic repository search
+ * (BaseRepository#search), case-insensitively as a substring
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Searchable {
+}
@@ -2,6 +2,7 @@ package com.alibou.security.core.domain.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.util.List;
@@ -29,6 +30,10 @@ public interface BaseRepository<T, ID> {
     long count(Specification<T> spec);
     Optional<T> findOne(Specification<T> spec);
     
+    // Keyset pagination: rows after the cursor (null for the first page) in the given order, with id
+    // as the final tie-breaker and nulls last; counts the total only when withTotal is set
+    CursorPage<T> findAll(Specification<T> spec, Sort sort, String cursor, int size, boolean withTotal);
+    
     // Active entity operations
     List<T> findAllActive();
     Page<T> findAllActive(Pageable pageable);
@@ -39,7 +44,7 @@ public interface BaseRepository<T, ID> {
     void deleteAll(Iterable<T> entities);
     void deleteAllById(Iterable<ID> ids);
     
-    // Search operations
+    // Search operations (substring match on the entity's @Searchable attributes)
     Page<T> search(String query, Pageable pageable);
     Page<T> searchActive(String query, Pageable pageable);
 }
@@ -0,0 +1,50 @@
+package com.alibou.security.core.domain.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Page whose total may be an estimate
+ *
+ * Large totals are not counted exactly (see PageCounter); totalExact tells
+ * clients whether totalElements and totalPages can be shown as they are.
+ * An estimated total is never lower than the rows seen so far, and leaves
+ * room for one more page when this one is full, so clients can page on; a
+ * page that is not full is the last one and settles the total exactly.
+ */
+public class CountedPage<T> extends PageImpl<T> {
+    private final boolean totalExact;
+
+    public CountedPage(List<T> content, Pageable pageable, long total, boolean totalExact) {
+        super(content, pageable, totalExact ? total : settle(content, pageable, total));
+        this.totalExact = totalExact || isPartial(content, pageable);
+    }
+
+    @Override
+    public <U> Page<U> map(Function<? super T, ? extends U> converter) {
+        return new CountedPage<>(getConvertedContent(converter), getPageable(), getTotalElements(), totalExact);
+    }
+
+    // Getters
+    public boolean isTotalExact() { return totalExact; }
+
+    // Helper methods
+
+    // A short page ends the results, unless it is an empty page past their end
+    private static boolean isPartial(List<?> content, Pageable pageable) {
+        return pageable.isUnpaged() || content.size() < pageable.getPageSize()
+            && (!content.isEmpty() || pageable.getOffset() == 0);
+    }
+
+    private static long settle(List<?> content, Pageable pageable, long total) {
+        long seen = (pageable.isPaged() ? pageable.getOffset() : 0) + content.size();
+        if (isPartial(content, pageable)) {
+            return seen;
+        }
+        return content.isEmpty() ? total : Math.max(total, seen + 1);
+    }
+}
@@ -0,0 +1,33 @@
+package com.alibou.security.core.domain.repository;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset (seek) paginated listing
+ *
+ * The next page is requested with nextCursor, which encodes the sort values of
+ * the last row, so every page costs the same however deep it is. The total is
+ * only counted when asked for and is null otherwise.
+ */
+public class CursorPage<T> {
+    private final List<T> content;
+    private final String nextCursor;
+    private final Long totalElements;
+
+    public CursorPage(List<T> content, String nextCursor, Long totalElements) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.totalElements = totalElements;
+    }
+
+    public <U> CursorPage<U> map(Function<? super T, ? extends U> mapper) {
+        return new CursorPage<>(content.stream().<U>map(mapper).toList(), nextCursor, totalElements);
+    }
+
+    // Getters
+    public List<T> getContent() { return content; }
+    public String getNextCursor() { return nextCursor; }
+    public Long getTotalElements() { return totalElements; }
+    public boolean isLast() { return nextCursor == null; }
+}
@@ -0,0 +1,29 @@
+package com.alibou.security.core.domain.repository;
+
+import com.alibou.security.core.domain.entity.FileIntegrityIssue;
+import com.alibou.security.core.domain.entity.FileIntegrityIssue.OwnerType;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+/**
+ * Repository for FileIntegrityIssue entity
+ */
+public interface FileIntegrityIssueRepository extends JpaRepository<FileIntegrityIssue, Long> {
+
+    Optional<FileIntegrityIssue> findByOwnerTypeAndOwnerId(OwnerType ownerType, Integer ownerId);
+
+    Page<FileIntegrityIssue> findAllByOrderByLastDetectedAtDesc(Pageable pageable);
+
+    /**
+     * Clear the report for a file that verified intact again (e.g. restored from a snapshot)
+     */
+    @Modifying
+    @Query("DELETE FROM FileIntegrityIssue i WHERE i.ownerType = :ownerType AND i.ownerId = :ownerId")
+    int deleteByOwner(@Param("ownerType") OwnerType ownerType, @Param("ownerId") Integer ownerId);
+}
@@ -0,0 +1,75 @@
+package com.alibou.security.core.domain.repository;
+
+import com.alibou.security.core.domain.entity.FileProcessingJob;
+import com.alibou.security.core.domain.entity.FileProcessingJob.Status;
+import com.alibou.security.core.domain.entity.FileProcessingJob.TargetType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for FileProcessingJob entity
+ */
+public interface FileProcessingJobRepository extends JpaRepository<FileProcessingJob, Long> {
+
+    /**
+     * Queued job ids, oldest first (served by the status index)
+     */
+    @Query("SELECT j.id FROM FileProcessingJob j WHERE j.status = :status ORDER BY j.id")
+    List<Long> findIdsByStatus(@Param("status") Status status, Pageable pageable);
+
+    /**
+     * A job of the target that has not started yet, so repeated requests do not pile up
+     */
+    Optional<FileProcessingJob> findFirstByTargetTypeAndTargetIdAndStatusOrderByIdDesc(
+            TargetType targetType, Integer targetId, Status status);
+
+    Optional<FileProcessingJob> findFirstByTargetTypeAndTargetIdOrderByIdDesc(TargetType targetType, Integer targetId);
+
+    /**
+     * Claim a queued job: exactly one worker across all nodes gets 1 back
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE FileProcessingJob j SET j.status = :running, j.worker = :worker, j.startedAt = :now, " +
+           "j.attempts = j.attempts + 1 WHERE j.id = :id AND j.status = :queued")
+    int claim(@Param("id") Long id, @Param("worker") String worker, @Param("now") LocalDateTime now,
+              @Param("queued") Status queued, @Param("running") Status running);
+
+    default int claim(Long id, String worker, LocalDateTime now) {
+        return claim(id, worker, now, Status.QUEUED, Status.RUNNING);
+    }
+
+    /**
+     * Put jobs back whose worker stopped reporting (node restarted mid-job)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE FileProcessingJob j SET j.status = :queued " +
+           "WHERE j.status = :running AND j.startedAt < :startedBefore AND j.attempts < :maxAttempts")
+    int requeueStale(@Param("startedBefore") LocalDateTime startedBefore, @Param("maxAttempts") int maxAttempts,
+                     @Param("queued") Status queued, @Param("running") Status running);
+
+    default int requeueStale(LocalDateTime startedBefore, int maxAttempts) {
+        return requeueStale(startedBefore, maxAttempts, Status.QUEUED, Status.RUNNING);
+    }
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE FileProcessingJob j SET j.status = :failed, j.finishedAt = :now, j.errorMessage = :message " +
+           "WHERE j.status = :running AND j.startedAt < :startedBefore AND j.attempts >= :maxAttempts")
+    int failStale(@Param("startedBefore") LocalDateTime startedBefore, @Param("maxAttempts") int maxAttempts,
+                  @Param("now") LocalDateTime now, @Param("message") String message,
+                  @Param("running") Status running, @Param("failed") Status failed);
+
+    default int failStale(LocalDateTime startedBefore, int maxAttempts, LocalDateTime now, String message) {
+        return failStale(startedBefore, maxAttempts, now, message, Status.RUNNING, Status.FAILED);
+    }
+}
@@ -0,0 +1,64 @@
+package com.alibou.security.core.domain.repository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Opaque cursor for keyset pagination: the sort values of the last row of a page
+ *
+ * Values are kept as their string form; the query that decodes them knows their
+ * types. A hash of the query's sort description is included, so a cursor handed
+ * to a listing with a different order is rejected instead of skipping rows.
+ */
+public final class KeysetCursor {
+
+    private KeysetCursor() {
+    }
+
+    /**
+     * Encode the sort values (nulls allowed) of a row for the listing identified by key
+     */
+    public static String encode(String key, List<?> values) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(key.hashCode());
+            out.writeByte(values.size());
+            for (Object value : values) {
+                out.writeBoolean(value != null);
+                if (value != null) {
+                    out.writeUTF(value instanceof Enum<?> constant ? constant.name() : value.toString());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * Decode a cursor of the listing identified by key into its values (null where the row had null)
+     *
+     * @throws IllegalArgumentException if the cursor is malformed or belongs to another listing
+     */
+    public static List<String> decode(String key, String cursor, int count) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(cursor)))) {
+            if (in.readInt() != key.hashCode() || in.readUnsignedByte() != count) {
+                throw new IllegalArgumentException("Cursor does not belong to this listing");
+            }
+            List<String> values = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                values.add(in.readBoolean() ? in.readUTF() : null);
+            }
+            return values;
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.alibou.security.core.domain.repository;
+
+import com.alibou.security.core.domain.entity.StorageUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * Repository for StorageUsage entity
+ */
+public interface StorageUsageRepository extends JpaRepository<StorageUsage, String> {
+}
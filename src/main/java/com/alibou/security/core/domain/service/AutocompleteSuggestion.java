@@ -0,0 +1,24 @@
+package com.alibou.security.core.domain.service;
+
+/**
+ * Type-ahead suggestion: a book title or author, or a manufacturer, series or product name
+ */
+public class AutocompleteSuggestion {
+    private final String text;
+    private final String type;
+    private final Integer id;
+    private final long downloadCount;
+
+    public AutocompleteSuggestion(String text, String type, Integer id, long downloadCount) {
+        this.text = text;
+        this.type = type;
+        this.id = id;
+        this.downloadCount = downloadCount;
+    }
+
+    // Getters
+    public String getText() { return text; }
+    public String getType() { return type; }
+    public Integer getId() { return id; }
+    public long getDownloadCount() { return downloadCount; }
+}
@@ -0,0 +1,29 @@
+package com.alibou.security.core.domain.service;
+
+import java.time.Instant;
+
+/**
+ * Contents of a verified download token
+ */
+public class DownloadGrant {
+    private final String filePath;
+    private final long fileSize;
+    private final String checksum;
+    private final Integer userId;
+    private final Instant expiresAt;
+
+    public DownloadGrant(String filePath, long fileSize, String checksum, Integer userId, Instant expiresAt) {
+        this.filePath = filePath;
+        this.fileSize = fileSize;
+        this.checksum = checksum;
+        this.userId = userId;
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters
+    public String getFilePath() { return filePath; }
+    public long getFileSize() { return fileSize; } // Size when issued; a different size means the file was replaced
+    public String getChecksum() { return checksum; } // May be null
+    public Integer getUserId() { return userId; }
+    public Instant getExpiresAt() { return expiresAt; }
+}
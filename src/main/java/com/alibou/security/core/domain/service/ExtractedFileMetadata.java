@@ -0,0 +1,28 @@
+package com.alibou.security.core.domain.service;
+
+/**
+ * Metadata read from the content of a stored file
+ */
+public class ExtractedFileMetadata {
+    private final String fileFormat;
+    private final Integer pageCount;
+    private final String language;
+    private final String coverEntry;
+
+    public ExtractedFileMetadata(String fileFormat, Integer pageCount, String language, String coverEntry) {
+        this.fileFormat = fileFormat;
+        this.pageCount = pageCount;
+        this.language = language;
+        this.coverEntry = coverEntry;
+    }
+
+    // Getters
+    public String getFileFormat() { return fileFormat; }
+    public Integer getPageCount() { return pageCount; }
+    public String getLanguage() { return language; }
+    public String getCoverEntry() { return coverEntry; } // Archive entry of the cover image (EPUB)
+
+    public boolean isImage() {
+        return "PNG".equals(fileFormat) || "JPG".equals(fileFormat) || "GIF".equals(fileFormat);
+    }
+}
@@ -31,15 +31,26 @@ public interface FileStorageService {
      */
     InputStream getFileAsStream(String filePath);
     
+    /**
+     * Open a file for download; serves the stored gzip variant when acceptGzip is set and one exists
+     */
+    StoredFileContent openForDownload(String filePath, boolean acceptGzip);
+    
+    /**
+     * Open length bytes of a file starting at offset (HTTP range requests); never compressed
+     */
+    StoredFileContent openRange(String filePath, long offset, long length);
+    
     /**
      * Get file metadata
      */
     FileMetadata getFileMetadata(String filePath);
     
     /**
-     * Generate secure download URL (for temporary access)
+     * Generate a signed, expiring download URL (for temporary access)
+     * The URL is served by the download endpoint without another permission check
      */
-    String generateDownloadUrl(String filePath, Integer userId, long expirationMinutes);
+    String generateDownloadUrl(String filePath, String checksum, Integer userId, long expirationMinutes);
     
     /**
      * Validate file before storage
@@ -76,6 +87,11 @@ public interface FileStorageService {
      */
     String createBackup(String filePath);
     
+    /**
+     * Snapshot all stored files (incremental, shares unchanged content with earlier snapshots)
+     */
+    SnapshotResult createSnapshot();
+    
     /**
      * Restore file from backup
      */
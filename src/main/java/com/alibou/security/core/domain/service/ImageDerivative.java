@@ -0,0 +1,26 @@
+package com.alibou.security.core.domain.service;
+
+import java.io.InputStream;
+
+/**
+ * A rendered image variant, opened for streaming
+ */
+public class ImageDerivative {
+    private final InputStream inputStream;
+    private final long contentLength;
+    private final String etag;
+    private final String version;
+
+    public ImageDerivative(InputStream inputStream, long contentLength, String etag, String version) {
+        this.inputStream = inputStream;
+        this.contentLength = contentLength;
+        this.etag = etag;
+        this.version = version;
+    }
+
+    // Getters
+    public InputStream getInputStream() { return inputStream; }
+    public long getContentLength() { return contentLength; }
+    public String getEtag() { return etag; }
+    public String getVersion() { return version; } // Current ImageVariant.version of the source
+}
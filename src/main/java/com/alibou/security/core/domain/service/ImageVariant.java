@@ -0,0 +1,85 @@
+package com.alibou.security.core.domain.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Fixed-width renditions served for covers, product and profile images
+ * Part of the image URL: .../{variant}?v={version}
+ */
+public enum ImageVariant {
+    THUMB(160),  // List rows
+    CARD(480),   // Grid cards
+    FULL(1600);  // Detail pages (never upscaled)
+
+    private final int width;
+
+    ImageVariant(int width) {
+        this.width = width;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public String pathSegment() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public static ImageVariant fromPathSegment(String value) {
+        for (ImageVariant variant : values()) {
+            if (variant.pathSegment().equals(value)) {
+                return variant;
+            }
+        }
+        throw new IllegalArgumentException("Unknown image size: " + value + " (expected thumb, card or full)");
+    }
+
+    /**
+     * Version tag of a source image, from its path, size and modification
+     * time (as the derivative cache key), so the tag changes whenever the
+     * image is replaced, even at the same path, and a URL carrying it can be
+     * cached for good.
+     */
+    public static String version(String sourcePath, BasicFileAttributes attributes) {
+        String identity = sourcePath + "|" + attributes.size() + "|" + attributes.lastModifiedTime().toMillis();
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(identity.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 6);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+    }
+
+    /**
+     * URLs of all variants below the base URL; null if there is no source image
+     * or it is not a local file (external URL, object storage, missing file).
+     * The source path must carry the storage base path (covers, profile images).
+     */
+    public static Map<String, String> urls(String baseUrl, String sourcePath) {
+        if (sourcePath == null || sourcePath.isBlank() || sourcePath.contains("://")) {
+            return null;
+        }
+        String version;
+        try {
+            version = version(sourcePath, Files.readAttributes(Paths.get(sourcePath), BasicFileAttributes.class));
+        } catch (IOException | InvalidPathException e) {
+            return null;
+        }
+        Map<String, String> urls = new LinkedHashMap<>();
+        for (ImageVariant variant : values()) {
+            urls.put(variant.pathSegment(), baseUrl + "/" + variant.pathSegment() + "?v=" + version);
+        }
+        return urls;
+    }
+}
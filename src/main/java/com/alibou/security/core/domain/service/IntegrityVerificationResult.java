@@ -0,0 +1,47 @@
+package com.alibou.security.core.domain.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Result of a checksum verification run over all stored files
+ */
+public class IntegrityVerificationResult {
+    private final long filesChecked;
+    private final long bytesChecked;
+    private final int mismatched;
+    private final int missing;
+    private final int unreadable;
+    private final int skipped;
+    private final int cleared;
+    private final List<String> problems;
+    private final long durationMs;
+    private final LocalDateTime completedAt;
+
+    public IntegrityVerificationResult(long filesChecked, long bytesChecked, int mismatched, int missing,
+                                       int unreadable, int skipped, int cleared, List<String> problems,
+                                       long durationMs, LocalDateTime completedAt) {
+        this.filesChecked = filesChecked;
+        this.bytesChecked = bytesChecked;
+        this.mismatched = mismatched;
+        this.missing = missing;
+        this.unreadable = unreadable;
+        this.skipped = skipped;
+        this.cleared = cleared;
+        this.problems = problems;
+        this.durationMs = durationMs;
+        this.completedAt = completedAt;
+    }
+
+    // Getters
+    public long getFilesChecked() { return filesChecked; }
+    public long getBytesChecked() { return bytesChecked; }
+    public int getMismatched() { return mismatched; }
+    public int getMissing() { return missing; }
+    public int getUnreadable() { return unreadable; }
+    public int getSkipped() { return skipped; } // Modified while being read; checked again next run
+    public int getCleared() { return cleared; } // Earlier issues whose file is intact again
+    public List<String> getProblems() { return problems; } // First entries only
+    public long getDurationMs() { return durationMs; }
+    public LocalDateTime getCompletedAt() { return completedAt; }
+}
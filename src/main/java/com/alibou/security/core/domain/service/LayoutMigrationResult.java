@@ -0,0 +1,37 @@
+package com.alibou.security.core.domain.service;
+
+import java.util.List;
+
+/**
+ * Result of rewriting stored file paths to the configured storage layout
+ */
+public class LayoutMigrationResult {
+    private final boolean dryRun;
+    private final long booksUpdated;
+    private final long documentsUpdated;
+    private final long filesMoved;
+    private final long filesMissing;
+    private final List<String> errors;
+    private final long durationMillis;
+    
+    public LayoutMigrationResult(boolean dryRun, long booksUpdated, long documentsUpdated,
+                                long filesMoved, long filesMissing, List<String> errors,
+                                long durationMillis) {
+        this.dryRun = dryRun;
+        this.booksUpdated = booksUpdated;
+        this.documentsUpdated = documentsUpdated;
+        this.filesMoved = filesMoved;
+        this.filesMissing = filesMissing;
+        this.errors = errors;
+        this.durationMillis = durationMillis;
+    }
+    
+    // Getters
+    public boolean isDryRun() { return dryRun; }
+    public long getBooksUpdated() { return booksUpdated; }
+    public long getDocumentsUpdated() { return documentsUpdated; }
+    public long getFilesMoved() { return filesMoved; }
+    public long getFilesMissing() { return filesMissing; }
+    public List<String> getErrors() { return errors; }
+    public long getDurationMillis() { return durationMillis; }
+}
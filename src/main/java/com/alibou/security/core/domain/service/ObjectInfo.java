@@ -0,0 +1,26 @@
+package com.alibou.security.core.domain.service;
+
+import java.time.Instant;
+
+/**
+ * Metadata of a stored object
+ */
+public class ObjectInfo {
+    private final String key;
+    private final long size;
+    private final String etag;
+    private final Instant lastModified;
+
+    public ObjectInfo(String key, long size, String etag, Instant lastModified) {
+        this.key = key;
+        this.size = size;
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+
+    // Getters
+    public String getKey() { return key; }
+    public long getSize() { return size; }
+    public String getEtag() { return etag; }
+    public Instant getLastModified() { return lastModified; }
+}
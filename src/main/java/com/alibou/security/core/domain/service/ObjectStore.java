@@ -0,0 +1,44 @@
+package com.alibou.security.core.domain.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+
+/**
+ * Minimal object storage operations (S3 semantics: flat keys, whole-object writes)
+ * Implementations: S3-compatible endpoint, or a local directory stand-in
+ */
+public interface ObjectStore {
+
+    /**
+     * Store an object, streaming the content; large or unsized content is uploaded in parts
+     *
+     * @param size content length, or -1 if unknown
+     */
+    void put(String key, InputStream content, long size, String contentType) throws IOException;
+
+    /**
+     * Open an object, or a byte range of it
+     *
+     * @param length bytes to read from offset, or -1 for the rest of the object
+     * @throws java.nio.file.NoSuchFileException if there is no such object
+     */
+    InputStream get(String key, long offset, long length) throws IOException;
+
+    /**
+     * Size and version of an object; null if there is no such object
+     */
+    ObjectInfo head(String key) throws IOException;
+
+    void delete(String key) throws IOException;
+
+    void copy(String sourceKey, String targetKey) throws IOException;
+
+    /**
+     * URL that lets a client download the object directly, without going through the application
+     *
+     * @param downloadFileName file name for the Content-Disposition of the response
+     * @return null if the store cannot hand out direct URLs
+     */
+    String presignGet(String key, Duration expiresIn, String downloadFileName);
+}
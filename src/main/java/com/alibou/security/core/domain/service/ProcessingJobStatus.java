@@ -0,0 +1,60 @@
+package com.alibou.security.core.domain.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * State of a file processing job, as returned to polling clients
+ */
+public class ProcessingJobStatus {
+    private final Long jobId;
+    private final String targetType;
+    private final Integer targetId;
+    private final String status;
+    private final int attempts;
+    private final String fileFormat;
+    private final Integer pageCount;
+    private final String language;
+    private final String thumbnailPath;
+    private final String errorMessage;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime startedAt;
+    private final LocalDateTime finishedAt;
+
+    public ProcessingJobStatus(Long jobId, String targetType, Integer targetId, String status, int attempts,
+                              String fileFormat, Integer pageCount, String language, String thumbnailPath,
+                              String errorMessage, LocalDateTime createdAt, LocalDateTime startedAt,
+                              LocalDateTime finishedAt) {
+        this.jobId = jobId;
+        this.targetType = targetType;
+        this.targetId = targetId;
+        this.status = status;
+        this.attempts = attempts;
+        this.fileFormat = fileFormat;
+        this.pageCount = pageCount;
+        this.language = language;
+        this.thumbnailPath = thumbnailPath;
+        this.errorMessage = errorMessage;
+        this.createdAt = createdAt;
+        this.startedAt = startedAt;
+        this.finishedAt = finishedAt;
+    }
+
+    // Getters
+    public Long getJobId() { return jobId; }
+    public String getTargetType() { return targetType; }
+    public Integer getTargetId() { return targetId; }
+    public String getStatus() { return status; }
+    public int getAttempts() { return attempts; }
+    public String getFileFormat() { return fileFormat; }
+    public Integer getPageCount() { return pageCount; }
+    public String getLanguage() { return language; }
+    public String getThumbnailPath() { return thumbnailPath; }
+    public String getErrorMessage() { return errorMessage; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+
+    public boolean isFinished() {
+        return "SUCCEEDED".equals(status) || "FAILED".equals(status);
+    }
+}
@@ -0,0 +1,46 @@
+package com.alibou.security.core.domain.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Result of a whole-library snapshot backup
+ */
+public class SnapshotResult {
+    private final String snapshotId;
+    private final long filesInSnapshot;
+    private final long newBlobs;
+    private final long filesHashed;
+    private final long bytesLinked;
+    private final long bytesCopied;
+    private final int snapshotsPruned;
+    private final long blobsPruned;
+    private final long durationMillis;
+    private final LocalDateTime createdAt;
+    
+    public SnapshotResult(String snapshotId, long filesInSnapshot, long newBlobs, long filesHashed,
+                         long bytesLinked, long bytesCopied, int snapshotsPruned, long blobsPruned,
+                         long durationMillis, LocalDateTime createdAt) {
+        this.snapshotId = snapshotId;
+        this.filesInSnapshot = filesInSnapshot;
+        this.newBlobs = newBlobs;
+        this.filesHashed = filesHashed;
+        this.bytesLinked = bytesLinked;
+        this.bytesCopied = bytesCopied;
+        this.snapshotsPruned = snapshotsPruned;
+        this.blobsPruned = blobsPruned;
+        this.durationMillis = durationMillis;
+        this.createdAt = createdAt;
+    }
+    
+    // Getters
+    public String getSnapshotId() { return snapshotId; }
+    public long getFilesInSnapshot() { return filesInSnapshot; }
+    public long getNewBlobs() { return newBlobs; }
+    public long getFilesHashed() { return filesHashed; }
+    public long getBytesLinked() { return bytesLinked; }
+    public long getBytesCopied() { return bytesCopied; }
+    public int getSnapshotsPruned() { return snapshotsPruned; }
+    public long getBlobsPruned() { return blobsPruned; }
+    public long getDurationMillis() { return durationMillis; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+}
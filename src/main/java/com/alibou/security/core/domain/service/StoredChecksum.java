@@ -0,0 +1,21 @@
+package com.alibou.security.core.domain.service;
+
+/**
+ * Stored file path and checksum of a book or technical document (query projection)
+ */
+public class StoredChecksum {
+    private final Integer id;
+    private final String filePath;
+    private final String checksum;
+
+    public StoredChecksum(Integer id, String filePath, String checksum) {
+        this.id = id;
+        this.filePath = filePath;
+        this.checksum = checksum;
+    }
+
+    // Getters
+    public Integer getId() { return id; }
+    public String getFilePath() { return filePath; }
+    public String getChecksum() { return checksum; }
+}
@@ -0,0 +1,28 @@
+package com.alibou.security.core.domain.service;
+
+import java.io.InputStream;
+
+/**
+ * Opened stored file, ready to be streamed to a client
+ * contentEncoding is "gzip" when a pre-compressed variant is served, null otherwise
+ */
+public class StoredFileContent {
+    private final InputStream inputStream;
+    private final String fileName;
+    private final long contentLength;
+    private final String contentEncoding;
+    
+    public StoredFileContent(InputStream inputStream, String fileName, long contentLength,
+                            String contentEncoding) {
+        this.inputStream = inputStream;
+        this.fileName = fileName;
+        this.contentLength = contentLength;
+        this.contentEncoding = contentEncoding;
+    }
+    
+    // Getters
+    public InputStream getInputStream() { return inputStream; }
+    public String getFileName() { return fileName; }
+    public long getContentLength() { return contentLength; }
+    public String getContentEncoding() { return contentEncoding; }
+}
@@ -0,0 +1,67 @@
+package com.alibou.security.core.domain.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.math.BigDecimal;
+
+/**
+ * Card fields of a technical document for list views (query projection)
+ *
+ * Read from technical_document alone: the hierarchy names come from the
+ * materialized hierarchy path, and the description and file details are left
+ * for the detail view. The hierarchy sort key positions the row in the
+ * hierarchy listing (its keyset cursor); it is internal and not serialized.
+ */
+public class TechnicalDocumentSummary {
+    private final Integer id;
+    private final String title;
+    private final String documentType;
+    private final String category;
+    private final String fileFormat;
+    private final Long fileSize;
+    private final Integer pageCount;
+    private final String language;
+    private final long downloadCount;
+    private final long viewCount;
+    private final double rating;
+    private final Integer productId;
+    private final String hierarchyPath;
+    private final String hierarchySortKey;
+
+    public TechnicalDocumentSummary(Integer id, String title, String documentType, String category,
+                                    String fileFormat, Long fileSize, Integer pageCount, String language,
+                                    Integer downloadCount, Integer viewCount, BigDecimal rating,
+                                    Integer productId, String hierarchyPath, String hierarchySortKey) {
+        this.id = id;
+        this.title = title;
+        this.documentType = documentType;
+        this.category = category;
+        this.fileFormat = fileFormat;
+        this.fileSize = fileSize;
+        this.pageCount = pageCount;
+        this.language = language;
+        this.downloadCount = downloadCount != null ? downloadCount : 0;
+        this.viewCount = viewCount != null ? viewCount : 0;
+        this.rating = rating != null ? rating.doubleValue() : 0.0;
+        this.productId = productId;
+        this.hierarchyPath = hierarchyPath;
+        this.hierarchySortKey = hierarchySortKey;
+    }
+
+    // Getters
+    public Integer getId() { return id; }
+    public String getTitle() { return title; }
+    public String getDocumentType() { return documentType; }
+    public String getCategory() { return category; }
+    public String getFileFormat() { return fileFormat; }
+    public Long getFileSize() { return fileSize; }
+    public Integer getPageCount() { return pageCount; }
+    public String getLanguage() { return language; }
+    public long getDownloadCount() { return downloadCount; }
+    public long getViewCount() { return viewCount; }
+    public double getRating() { return rating; }
+    public Integer getProductId() { return productId; }
+    public String getHierarchyPath() { return hierarchyPath; }
+    @JsonIgnore
+    public String getHierarchySortKey() { return hierarchySortKey; }
+}
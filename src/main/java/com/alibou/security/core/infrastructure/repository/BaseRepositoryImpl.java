@@ -1,23 +1,52 @@
 package com.alibou.security.core.infrastructure.repository;
 
 import com.alibou.security.core.domain.entity.BaseEntity;
+import com.alibou.security.core.domain.entity.Searchable;
 import com.alibou.security.core.domain.repository.BaseRepository;
+import com.alibou.security.core.domain.repository.CountedPage;
+import com.alibou.security.core.domain.repository.CursorPage;
+import com.alibou.security.core.domain.repository.KeysetCursor;
+import com.alibou.security.core.infrastructure.service.PageCounter;
+import jakarta.annotation.PostConstruct;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.Parameter;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import jakarta.persistence.metamodel.SingularAttribute;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.hibernate.query.criteria.JpaExpression;
+import org.hibernate.query.sqm.NullPrecedence;
+import org.hibernate.query.sqm.SortOrder;
+import org.hibernate.query.sqm.tree.SqmStatement;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 /**
  * Base repository implementation providing common functionality
@@ -29,13 +58,32 @@ public abstract class BaseRepositoryImpl<T extends BaseEntity, ID>
 
     @PersistenceContext
     protected EntityManager entityManager;
+
+    @Autowired
+    protected PageCounter pageCounter;
     
     protected final Class<T> entityClass;
 
+    // String attributes marked @Searchable, matched by search() and searchActive()
+    private List<SingularAttribute<? super T, String>> searchableAttributes = List.of();
+
     public BaseRepositoryImpl(Class<T> entityClass) {
         this.entityClass = entityClass;
     }
 
+    @PostConstruct
+    @SuppressWarnings("unchecked")
+    void resolveSearchableAttributes() {
+        List<SingularAttribute<? super T, String>> attributes = new ArrayList<>();
+        for (SingularAttribute<? super T, ?> attribute : entityManager.getMetamodel().entity(entityClass).getSingularAttributes()) {
+            if (attribute.getJavaType() == String.class
+                    && attribute.getJavaMember() instanceof Field field && field.isAnnotationPresent(Searchable.class)) {
+                attributes.add((SingularAttribute<? super T, String>) attribute);
+            }
+        }
+        searchableAttributes = List.copyOf(attributes);
+    }
+
     @Override
     @Transactional
     public T save(T entity) {
@@ -78,15 +126,14 @@ public abstract class BaseRepositoryImpl<T extends BaseEntity, ID>
         CriteriaQuery<T> query = cb.createQuery(entityClass);
         Root<T> root = query.from(entityClass);
         query.select(root);
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
 
         TypedQuery<T> typedQuery = entityManager.createQuery(query);
         typedQuery.setFirstResult((int) pageable.getOffset());
         typedQuery.setMaxResults(pageable.getPageSize());
 
         List<T> results = typedQuery.getResultList();
-        long total = count();
-
-        return new PageImpl<>(results, pageable, total);
+        return page(results, pageable, null);
     }
 
     @Override
@@ -165,14 +212,73 @@ public abstract class BaseRepositoryImpl<T extends BaseEntity, ID>
             }
         }
 
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+
         TypedQuery<T> typedQuery = entityManager.createQuery(query);
         typedQuery.setFirstResult((int) pageable.getOffset());
         typedQuery.setMaxResults(pageable.getPageSize());
 
         List<T> results = typedQuery.getResultList();
-        long total = count(spec);
+        return page(results, pageable, spec);
+    }
+
+    @Override
+    public CursorPage<T> findAll(Specification<T> spec, Sort sort, String cursor, int size, boolean withTotal) {
+        // Order by the requested properties up to id, then id, so every row has a distinct position
+        List<Sort.Order> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            orders.add(order);
+            if (order.getProperty().equals("id")) {
+                break;
+            }
+        }
+        if (orders.isEmpty() || !orders.get(orders.size() - 1).getProperty().equals("id")) {
+            orders.add(Sort.Order.asc("id"));
+        }
+        String key = entityClass.getName() + ":" + orders;
+
+        HibernateCriteriaBuilder cb = (HibernateCriteriaBuilder) entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<T> root = query.from(entityClass);
+        List<Expression<?>> keys = orders.stream().<Expression<?>>map(order -> path(root, order.getProperty())).toList();
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (spec != null) {
+            Predicate predicate = spec.toPredicate(root, query, cb);
+            if (predicate != null) {
+                predicates.add(predicate);
+            }
+        }
+        if (cursor != null) {
+            List<String> raw = KeysetCursor.decode(key, cursor, orders.size());
+            List<Object> values = new ArrayList<>(raw.size());
+            for (int i = 0; i < raw.size(); i++) {
+                values.add(parseKey(raw.get(i), keys.get(i).getJavaType()));
+            }
+            predicates.add(cb.and(from(cb, orders, keys, values), after(cb, orders, keys, values, 0)));
+        }
 
-        return new PageImpl<>(results, pageable, total);
+        List<Selection<?>> selections = new ArrayList<>();
+        selections.add(root);
+        selections.addAll(keys);
+        query.multiselect(selections).where(predicates.toArray(new Predicate[0]));
+        query.orderBy(orders.stream().<Order>map(order -> cb.sort((JpaExpression<?>) path(root, order.getProperty()),
+            order.isAscending() ? SortOrder.ASCENDING : SortOrder.DESCENDING, NullPrecedence.LAST)).toList());
+
+        // One row more than requested tells whether there is a next page
+        List<Tuple> rows = entityManager.createQuery(query).setMaxResults(size + 1).getResultList();
+        String nextCursor = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            Tuple last = rows.get(size - 1);
+            List<Object> values = new ArrayList<>(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                values.add(last.get(i + 1));
+            }
+            nextCursor = KeysetCursor.encode(key, values);
+        }
+        List<T> content = rows.stream().map(row -> entityClass.cast(row.get(0))).toList();
+        return new CursorPage<>(content, nextCursor, withTotal ? count(spec) : null);
     }
 
     @Override
@@ -238,25 +344,18 @@ public abstract class BaseRepositoryImpl<T extends BaseEntity, ID>
             query.where(cb.or(predicates.toArray(new Predicate[0])));
         }
 
-        // Apply sorting
-        if (pageable.getSort().isSorted()) {
-            pageable.getSort().forEach(order -> {
-                if (order.isAscending()) {
-                    query.orderBy(cb.asc(root.get(order.getProperty())));
-                } else {
-                    query.orderBy(cb.desc(root.get(order.getProperty())));
-                }
-            });
-        }
+        // All sort orders at once; orderBy replaces the previous ones
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
 
         TypedQuery<T> typedQuery = entityManager.createQuery(query);
         typedQuery.setFirstResult((int) pageable.getOffset());
         typedQuery.setMaxResults(pageable.getPageSize());
 
         List<T> results = typedQuery.getResultList();
-        long total = countSearchResults(searchQuery);
-
-        return new PageImpl<>(results, pageable, total);
+        return page(results, pageable, (countRoot, countQuery, countCb) -> {
+            List<Predicate> countPredicates = buildSearchPredicates(countCb, countRoot, searchQuery);
+            return countPredicates.isEmpty() ? null : countCb.or(countPredicates.toArray(new Predicate[0]));
+        });
     }
 
     @Override
@@ -265,19 +364,15 @@ public abstract class BaseRepositoryImpl<T extends BaseEntity, ID>
         CriteriaQuery<T> query = cb.createQuery(entityClass);
         Root<T> root = query.from(entityClass);
 
-        List<Predicate> predicates = buildSearchPredicates(cb, root, searchQuery);
-        predicates.add(cb.isTrue(root.get("active")));
-        
-        query.where(cb.and(predicates.toArray(new Predicate[0])));
+        query.where(activeMatch(cb, root, searchQuery));
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
 
         TypedQuery<T> typedQuery = entityManager.createQuery(query);
         typedQuery.setFirstResult((int) pageable.getOffset());
         typedQuery.setMaxResults(pageable.getPageSize());
 
         List<T> results = typedQuery.getResultList();
-        long total = countActiveSearchResults(searchQuery);
-
-        return new PageImpl<>(results, pageable, total);
+        return page(results, pageable, (countRoot, countQuery, countCb) -> activeMatch(countCb, countRoot, searchQuery));
     }
 
     private List<Predicate> buildSearchPredicates(CriteriaBuilder cb, Root<T> root, String searchQuery) {
@@ -285,65 +380,136 @@ public abstract class BaseRepositoryImpl<T extends BaseEntity, ID>
         
         if (searchQuery != null && !searchQuery.trim().isEmpty()) {
             String likePattern = "%" + searchQuery.toLowerCase() + "%";
-            
-            // Add searchable fields based on common entity patterns
-            try {
-                // Check if entity has common searchable fields
-                if (hasField(root, "title")) {
-                    predicates.add(cb.like(cb.lower(root.get("title")), likePattern));
-                }
-                if (hasField(root, "name")) {
-                    predicates.add(cb.like(cb.lower(root.get("name")), likePattern));
-                }
-                if (hasField(root, "description")) {
-                    predicates.add(cb.like(cb.lower(root.get("description")), likePattern));
-                }
-                if (hasField(root, "author")) {
-                    predicates.add(cb.like(cb.lower(root.get("author")), likePattern));
-                }
-            } catch (Exception e) {
-                // Field doesn't exist, continue
+            for (SingularAttribute<? super T, String> attribute : searchableAttributes) {
+                predicates.add(cb.like(cb.lower(root.get(attribute)), likePattern));
             }
         }
         
         return predicates;
     }
 
-    private boolean hasField(Root<T> root, String fieldName) {
-        try {
-            root.get(fieldName);
-            return true;
-        } catch (Exception e) {
-            return false;
+    // Active and matching on any searchable attribute
+    private Predicate activeMatch(CriteriaBuilder cb, Root<T> root, String searchQuery) {
+        List<Predicate> predicates = buildSearchPredicates(cb, root, searchQuery);
+        Predicate active = cb.isTrue(root.get("active"));
+        return predicates.isEmpty() ? active : cb.and(active, cb.or(predicates.toArray(new Predicate[0])));
+    }
+
+    private static Path<?> path(Root<?> root, String property) {
+        Path<?> path = root;
+        for (String part : property.split("\\.")) {
+            path = path.get(part);
         }
+        return path;
     }
 
-    private long countSearchResults(String searchQuery) {
-        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-        CriteriaQuery<Long> query = cb.createQuery(Long.class);
-        Root<T> root = query.from(entityClass);
+    // Leading range on the first key (at or beyond the cursor), which an index on it can start from;
+    // the nested after() condition alone is an OR the planner cannot turn into an index range
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Predicate from(CriteriaBuilder cb, List<Sort.Order> orders, List<Expression<?>> keys,
+                                  List<Object> values) {
+        Expression<Comparable> key = (Expression<Comparable>) keys.get(0);
+        Comparable value = (Comparable) values.get(0);
+        if (value == null) {
+            return cb.isNull(key);
+        }
+        Predicate range = orders.get(0).isAscending()
+            ? cb.greaterThanOrEqualTo(key, value) : cb.lessThanOrEqualTo(key, value);
+        return isNullable(key) ? cb.or(range, cb.isNull(key)) : range;
+    }
 
-        List<Predicate> predicates = buildSearchPredicates(cb, root, searchQuery);
-        
-        if (!predicates.isEmpty()) {
-            query.select(cb.count(root)).where(cb.or(predicates.toArray(new Predicate[0])));
+    // Rows after the cursor position: beyond it on the first key, or tied there and after it on the rest.
+    // Nulls sort last, so nothing non-null comes after a null and every null comes after a value;
+    // keys that cannot be null (ids, non-optional attributes) get no null branches
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Predicate after(CriteriaBuilder cb, List<Sort.Order> orders, List<Expression<?>> keys,
+                                   List<Object> values, int index) {
+        Expression<Comparable> key = (Expression<Comparable>) keys.get(index);
+        Comparable value = (Comparable) values.get(index);
+        Predicate beyond;
+        if (value == null) {
+            beyond = cb.disjunction();
         } else {
-            query.select(cb.count(root));
+            beyond = orders.get(index).isAscending() ? cb.greaterThan(key, value) : cb.lessThan(key, value);
+            if (isNullable(key)) {
+                beyond = cb.or(beyond, cb.isNull(key));
+            }
+        }
+        if (index == keys.size() - 1) {
+            return beyond;
         }
+        Predicate tied = value == null ? cb.isNull(key) : cb.equal(key, value);
+        return cb.or(beyond, cb.and(tied, after(cb, orders, keys, values, index + 1)));
+    }
 
-        return entityManager.createQuery(query).getSingleResult();
+    private static boolean isNullable(Expression<?> key) {
+        return !(key instanceof Path<?> path && path.getModel() instanceof SingularAttribute<?, ?> attribute)
+            || attribute.isOptional() && !attribute.isId();
     }
 
-    private long countActiveSearchResults(String searchQuery) {
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object parseKey(String raw, Class<?> type) {
+        if (raw == null || type == String.class) {
+            return raw;
+        }
+        if (type == Integer.class || type == int.class) {
+            return Integer.valueOf(raw);
+        }
+        if (type == Long.class || type == long.class) {
+            return Long.valueOf(raw);
+        }
+        if (type == BigDecimal.class) {
+            return new BigDecimal(raw);
+        }
+        if (type == Double.class || type == double.class) {
+            return Double.valueOf(raw);
+        }
+        if (type == Boolean.class || type == boolean.class) {
+            return Boolean.valueOf(raw);
+        }
+        if (type == LocalDateTime.class) {
+            return LocalDateTime.parse(raw);
+        }
+        if (type == LocalDate.class) {
+            return LocalDate.parse(raw);
+        }
+        if (type == Instant.class) {
+            return Instant.parse(raw);
+        }
+        if (type.isEnum()) {
+            return Enum.valueOf((Class<Enum>) type, raw);
+        }
+        throw new IllegalArgumentException("Cannot page by a property of type " + type.getSimpleName());
+    }
+
+    // Page with its total from the page counter: exact for small results, estimated past its limit
+    private Page<T> page(List<T> results, Pageable pageable, Specification<T> spec) {
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        CriteriaQuery<Object> query = cb.createQuery(Object.class);
         Root<T> root = query.from(entityClass);
+        query.select(root.get("id"));
+        if (spec != null) {
+            Predicate predicate = spec.toPredicate(root, query, cb);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+        TypedQuery<Object> ids = entityManager.createQuery(query);
 
-        List<Predicate> predicates = buildSearchPredicates(cb, root, searchQuery);
-        predicates.add(cb.isTrue(root.get("active")));
-        
-        query.select(cb.count(root)).where(cb.and(predicates.toArray(new Predicate[0])));
+        // The statement and its parameter values identify the filter in the count cache
+        StringBuilder key = new StringBuilder(((SqmStatement<?>) query).toHqlString());
+        for (Parameter<?> parameter : ids.getParameters()) {
+            key.append('|').append(ids.getParameterValue(parameter));
+        }
+        PageCounter.Total total = pageCounter.count(key.toString(),
+            limit -> limit > Integer.MAX_VALUE ? count(spec) : ids.setMaxResults((int) limit).getResultList().size(),
+            () -> spec == null ? pageCounter.tableEstimate(tableName()) : OptionalLong.empty());
+        return new CountedPage<>(results, pageable, total.getValue(), total.isExact());
+    }
 
-        return entityManager.createQuery(query).getSingleResult();
+    private String tableName() {
+        EntityPersister persister = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+            .getMappingMetamodel().getEntityDescriptor(entityClass);
+        return ((AbstractEntityPersister) persister).getTableName();
     }
 }
@@ -0,0 +1,33 @@
+package com.alibou.security.core.infrastructure.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * PostgreSQL indexes created while the application serves requests
+ *
+ * CREATE INDEX CONCURRENTLY builds without the SHARE lock that blocks writes
+ * to the table for the whole build. It cannot run inside a transaction, so
+ * the JdbcTemplate must be used outside one (auto-commit). A build that fails
+ * or is interrupted leaves an INVALID index behind, which IF NOT EXISTS would
+ * keep forever; it is dropped and built again.
+ */
+public final class ConcurrentIndexes {
+
+    private ConcurrentIndexes() {
+    }
+
+    /**
+     * Create the index unless a valid one of that name exists
+     *
+     * @param definition everything after the index name, e.g. "ON book USING GIN (lower(title) gin_trgm_ops)"
+     */
+    public static void create(JdbcTemplate jdbcTemplate, String name, String definition) {
+        Boolean invalid = jdbcTemplate.query(
+            "SELECT NOT i.indisvalid FROM pg_index i WHERE i.indexrelid = to_regclass(?)",
+            rs -> rs.next() ? rs.getBoolean(1) : null, name);
+        if (Boolean.TRUE.equals(invalid)) {
+            jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + name);
+        }
+        jdbcTemplate.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + name + " " + definition);
+    }
+}
@@ -0,0 +1,694 @@
+package com.alibou.security.core.infrastructure.service;
+
+import com.alibou.security.book.Book;
+import com.alibou.security.core.domain.service.AutocompleteSuggestion;
+import com.alibou.security.document.domain.entity.Manufacturer;
+import com.alibou.security.document.domain.entity.Product;
+import com.alibou.security.document.domain.entity.ProductSeries;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Type-ahead suggestions from book titles and authors and manufacturer,
+ * series and product names, ranked by download count
+ *
+ * Every suggestion is folded (lower case, no diacritics, single spaces) and
+ * each of its word starts becomes a key, so "code" finds "Clean Code". The
+ * keys are one int array sorted by the text they point at: a prefix is two
+ * binary searches, and the best suggestions in that range are found by
+ * skipping blocks of keys whose highest score cannot make the top results.
+ * Scores are the downloads of a book, of an author's books, or of the
+ * documents below a hierarchy level.
+ *
+ * The main snapshot is built from a full scan at startup and every
+ * rebuild-interval-ms (which also refreshes download counts), on a dedicated
+ * thread so the shared scheduler keeps running the refresh and flush jobs. Committed
+ * changes are re-read every refresh-interval-ms into a small delta snapshot
+ * that masks the main snapshot's entries. An author whose books were all
+ * renamed to someone else keeps their suggestion until the next rebuild.
+ */
+@Component
+@Slf4j
+public class AutocompleteIndex {
+
+    public enum Source {
+        // Columns: id, text, score
+        BOOK_TITLE("b.id", "SELECT b.id, b.title, COALESCE(b.download_count, 0) FROM book b " +
+            "WHERE b.active = true AND b.title IS NOT NULL%s"),
+        BOOK_AUTHOR("b.author", "SELECT 0, b.author, SUM(COALESCE(b.download_count, 0)) FROM book b " +
+            "WHERE b.active = true AND b.author IS NOT NULL%s GROUP BY b.author"),
+        MANUFACTURER("m.id", "SELECT m.id, m.name, COALESCE(SUM(td.download_count), 0) FROM manufacturer m " +
+            "LEFT JOIN product_series ps ON ps.manufacturer_id = m.id " +
+            "LEFT JOIN product p ON p.product_series_id = ps.id " +
+            "LEFT JOIN technical_document td ON td.product_id = p.id AND td.active = true " +
+            "WHERE m.active = true%s GROUP BY m.id, m.name"),
+        PRODUCT_SERIES("ps.id", "SELECT ps.id, ps.name, COALESCE(SUM(td.download_count), 0) FROM product_series ps " +
+            "LEFT JOIN product p ON p.product_series_id = ps.id " +
+            "LEFT JOIN technical_document td ON td.product_id = p.id AND td.active = true " +
+            "WHERE ps.active = true%s GROUP BY ps.id, ps.name"),
+        PRODUCT("p.id", "SELECT p.id, p.name, COALESCE(SUM(td.download_count), 0) FROM product p " +
+            "LEFT JOIN technical_document td ON td.product_id = p.id AND td.active = true " +
+            "WHERE p.active = true%s GROUP BY p.id, p.name");
+
+        private final String keyColumn;
+        private final String sql;
+
+        Source(String keyColumn, String sql) {
+            this.keyColumn = keyColumn;
+            this.sql = sql;
+        }
+    }
+
+    private static final int BLOCK_SIZE = 64;
+    private static final int MAX_KEY_BYTES = 255;
+    private static final int BATCH_SIZE = 500;
+    private static final Snapshot EMPTY = Snapshot.build(List.of());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate scanTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+    private final int rebuildThreshold;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "autocomplete-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile State state;
+    private final Map<Source, Set<Integer>> changed = new EnumMap<>(Source.class);
+    // Identity -> latest version of a changed suggestion, marked gone when deleted or deactivated
+    private final Map<String, Suggestion> changes = new HashMap<>();
+
+    public AutocompleteIndex(CommittedChangeListener changeListener,
+                             JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.autocomplete.enabled:true}") boolean enabled,
+                             @Value("${app.autocomplete.rebuild-threshold:20000}") int rebuildThreshold) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.scanTemplate = new JdbcTemplate(Objects.requireNonNull(jdbcTemplate.getDataSource()));
+        this.scanTemplate.setFetchSize(1000);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.rebuildThreshold = rebuildThreshold;
+        for (Source source : List.of(Source.BOOK_TITLE, Source.MANUFACTURER, Source.PRODUCT_SERIES, Source.PRODUCT)) {
+            changed.put(source, ConcurrentHashMap.newKeySet());
+        }
+        if (enabled) {
+            changeListener.subscribe(Book.class, id -> changed.get(Source.BOOK_TITLE).add(id));
+            changeListener.subscribe(Manufacturer.class, id -> changed.get(Source.MANUFACTURER).add(id));
+            changeListener.subscribe(ProductSeries.class, id -> changed.get(Source.PRODUCT_SERIES).add(id));
+            changeListener.subscribe(Product.class, id -> changed.get(Source.PRODUCT).add(id));
+        }
+    }
+
+    /**
+     * Best suggestions having a word that starts with the query (the query's
+     * words in order), highest download count first; empty until loaded
+     */
+    public List<AutocompleteSuggestion> suggest(String query, int limit, Set<Source> sources) {
+        State current = state;
+        byte[] prefix = normalize(query).getBytes(StandardCharsets.UTF_8);
+        if (current == null || prefix.length == 0 || limit <= 0) {
+            return List.of();
+        }
+        TopSuggestions top = new TopSuggestions(limit);
+        current.main.collect(prefix, sources, current.masked, top);
+        current.delta.collect(prefix, sources, null, top);
+        return top.toList();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        scheduleRebuild();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    /**
+     * Queue a full rescan on the rebuild thread, unless one is already queued
+     */
+    @Scheduled(initialDelayString = "${app.autocomplete.rebuild-interval-ms:3600000}",
+               fixedDelayString = "${app.autocomplete.rebuild-interval-ms:3600000}")
+    public void scheduleRebuild() {
+        if (!enabled || !rebuildQueued.compareAndSet(false, true)) {
+            return;
+        }
+        rebuilder.execute(() -> {
+            rebuildQueued.set(false);
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.error("Failed to build the autocomplete index", e);
+            }
+        });
+    }
+
+    /**
+     * Full rescan; also brings download counts up to date
+     */
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            long started = System.currentTimeMillis();
+            List<Suggestion> suggestions = new ArrayList<>();
+            readOnlyTransaction.executeWithoutResult(status -> {
+                for (Source source : Source.values()) {
+                    scanTemplate.query(String.format(source.sql, ""),
+                        (RowCallbackHandler) rs -> suggestions.add(
+                            new Suggestion(source, rs.getInt(1), rs.getString(2), rs.getLong(3))));
+                }
+            });
+            Snapshot main = Snapshot.build(suggestions);
+            changes.clear();
+            state = new State(main, EMPTY, new BitSet());
+            log.info("Autocomplete index built ({} suggestions, {} keys) in {} ms",
+                main.size(), main.keys.length, System.currentTimeMillis() - started);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Re-read the rows changed since the last run into the delta
+     */
+    @Scheduled(fixedDelayString = "${app.autocomplete.refresh-interval-ms:2000}")
+    public void applyChanges() {
+        // Skipped while a rebuild runs; the changes stay queued
+        if (state == null || !lock.tryLock()) {
+            return;
+        }
+        try {
+            boolean applied = false;
+            for (Map.Entry<Source, Set<Integer>> entry : changed.entrySet()) {
+                List<Integer> ids = drain(entry.getValue());
+                if (ids.isEmpty()) {
+                    continue;
+                }
+                try {
+                    if (entry.getKey() == Source.BOOK_TITLE) {
+                        refreshBooks(ids);
+                    } else {
+                        refresh(entry.getKey(), ids);
+                    }
+                    applied = true;
+                } catch (RuntimeException e) {
+                    log.warn("Failed to refresh {} autocomplete suggestions, retrying", entry.getKey(), e);
+                    entry.getValue().addAll(ids);
+                }
+            }
+            if (!applied) {
+                return;
+            }
+            if (changes.size() >= rebuildThreshold) {
+                // The changes stay in the delta until the rebuild replaces it
+                scheduleRebuild();
+            }
+            Snapshot main = state.main;
+            BitSet masked = new BitSet();
+            List<Suggestion> current = new ArrayList<>();
+            for (Suggestion suggestion : changes.values()) {
+                int index = main.find(suggestion);
+                if (index >= 0) {
+                    masked.set(index);
+                }
+                if (!suggestion.gone) {
+                    current.add(suggestion);
+                }
+            }
+            state = new State(main, Snapshot.build(current), masked);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refreshBooks(List<Integer> ids) {
+        refresh(Source.BOOK_TITLE, ids);
+        // The authors of the changed books get their totals recomputed
+        Set<String> authors = new HashSet<>();
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            List<Integer> batch = ids.subList(from, Math.min(from + BATCH_SIZE, ids.size()));
+            authors.addAll(jdbcTemplate.queryForList("SELECT DISTINCT b.author FROM book b WHERE b.author IS NOT NULL " +
+                "AND b.id IN (" + placeholders(batch.size()) + ")", String.class, batch.toArray()));
+        }
+        refresh(Source.BOOK_AUTHOR, new ArrayList<>(authors));
+    }
+
+    private void refresh(Source source, List<?> keys) {
+        for (int from = 0; from < keys.size(); from += BATCH_SIZE) {
+            List<?> batch = keys.subList(from, Math.min(from + BATCH_SIZE, keys.size()));
+            Set<Object> missing = new HashSet<>(batch);
+            jdbcTemplate.query(String.format(source.sql,
+                    " AND " + source.keyColumn + " IN (" + placeholders(batch.size()) + ")"),
+                (RowCallbackHandler) rs -> {
+                    Suggestion suggestion = new Suggestion(source, rs.getInt(1), rs.getString(2), rs.getLong(3));
+                    missing.remove(source == Source.BOOK_AUTHOR ? suggestion.text : (Object) suggestion.id);
+                    changes.put(suggestion.identity(), suggestion);
+                },
+                batch.toArray());
+            // Deleted or deactivated
+            for (Object key : missing) {
+                Suggestion gone = key instanceof Integer id
+                    ? Suggestion.gone(source, id, null)
+                    : Suggestion.gone(source, 0, (String) key);
+                changes.put(gone.identity(), gone);
+            }
+        }
+    }
+
+    // Helper methods
+
+    /**
+     * Folded words joined by single spaces; a trailing space is kept so that
+     * "java " only matches the whole word
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String folded = InvertedIndex.fold(text);
+        StringBuilder normalized = new StringBuilder(folded.length());
+        boolean space = false;
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (space && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                normalized.append(c);
+                space = false;
+            } else {
+                space = true;
+            }
+        }
+        if (space && normalized.length() > 0) {
+            normalized.append(' ');
+        }
+        return normalized.toString();
+    }
+
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+
+    private static List<Integer> drain(Set<Integer> ids) {
+        List<Integer> drained = new ArrayList<>();
+        for (Integer id : ids) {
+            if (ids.remove(id)) {
+                drained.add(id);
+            }
+        }
+        return drained;
+    }
+
+    private static final class Suggestion {
+        private final Source source;
+        private final int id;
+        private final String text;
+        private final long score;
+        // Deleted or deactivated: only masks the main snapshot's entry
+        private final boolean gone;
+
+        Suggestion(Source source, int id, String text, long score) {
+            this(source, id, text, score, false);
+        }
+
+        private Suggestion(Source source, int id, String text, long score, boolean gone) {
+            this.source = source;
+            this.id = id;
+            this.text = text;
+            this.score = score;
+            this.gone = gone;
+        }
+
+        // Text is only needed for authors, which are identified by it
+        static Suggestion gone(Source source, int id, String text) {
+            return new Suggestion(source, id, text, 0, true);
+        }
+
+        // Authors are identified by name, everything else by id
+        String identity() {
+            return source == Source.BOOK_AUTHOR ? source + ":" + text : source + ":" + id;
+        }
+    }
+
+    private static final class State {
+        private final Snapshot main;
+        private final Snapshot delta;
+        private final BitSet masked;
+
+        State(Snapshot main, Snapshot delta, BitSet masked) {
+            this.main = main;
+            this.delta = delta;
+            this.masked = masked;
+        }
+    }
+
+    /**
+     * Immutable set of suggestions, ordered by source then identity, with the
+     * sorted word-start keys; a key packs the suggestion index (high 24 bits)
+     * and the byte offset of the word in its folded text (low 8 bits)
+     */
+    private static final class Snapshot {
+
+        private final byte[] sources;
+        private final int[] ids;
+        private final String[] texts;
+        private final long[] scores;
+        private final int[] sourceStarts;
+        private final byte[] folded;
+        private final int[] foldedStarts;
+        private final int[] keys;
+        private final long[] blockMax;
+
+        private Snapshot(List<Suggestion> suggestions) {
+            int count = suggestions.size();
+            if (count >= 1 << 24) {
+                throw new IllegalStateException("Too many autocomplete suggestions: " + count);
+            }
+            sources = new byte[count];
+            ids = new int[count];
+            texts = new String[count];
+            scores = new long[count];
+            sourceStarts = new int[Source.values().length + 1];
+            foldedStarts = new int[count + 1];
+
+            List<byte[]> foldedTexts = new ArrayList<>(count);
+            int foldedLength = 0;
+            int keyCount = 0;
+            for (int i = 0; i < count; i++) {
+                Suggestion suggestion = suggestions.get(i);
+                sources[i] = (byte) suggestion.source.ordinal();
+                ids[i] = suggestion.id;
+                texts[i] = suggestion.text;
+                scores[i] = suggestion.score;
+                sourceStarts[suggestion.source.ordinal() + 1] = i + 1;
+                // Each word ends with a space, so that a query ending in a space matches whole words only
+                byte[] words = normalize(suggestion.text).strip().getBytes(StandardCharsets.UTF_8);
+                byte[] bytes = Arrays.copyOf(words, words.length == 0 ? 0 : Math.min(words.length, MAX_KEY_BYTES - 1) + 1);
+                if (bytes.length > 0) {
+                    bytes[bytes.length - 1] = ' ';
+                }
+                foldedTexts.add(bytes);
+                foldedLength += bytes.length;
+                keyCount += wordStarts(bytes);
+            }
+            for (int source = 1; source < sourceStarts.length; source++) {
+                sourceStarts[source] = Math.max(sourceStarts[source], sourceStarts[source - 1]);
+            }
+
+            folded = new byte[foldedLength];
+            keys = new int[keyCount];
+            int position = 0;
+            int key = 0;
+            for (int i = 0; i < count; i++) {
+                byte[] bytes = foldedTexts.get(i);
+                foldedStarts[i] = position;
+                System.arraycopy(bytes, 0, folded, position, bytes.length);
+                position += bytes.length;
+                for (int offset = 0; offset < bytes.length - 1; offset++) {
+                    if (offset == 0 || bytes[offset - 1] == ' ') {
+                        keys[key++] = i << 8 | offset;
+                    }
+                }
+            }
+            foldedStarts[count] = position;
+            // The first eight bytes of each key, big-endian, decide most comparisons while sorting
+            long[] heads = new long[keys.length];
+            for (int k = 0; k < keys.length; k++) {
+                int start = foldedStarts[keys[k] >>> 8] + (keys[k] & 0xFF);
+                int end = foldedStarts[(keys[k] >>> 8) + 1];
+                long head = 0;
+                for (int i = 0; i < 8; i++) {
+                    head = head << 8 | (start + i < end ? folded[start + i] & 0xFF : 0);
+                }
+                heads[k] = head;
+            }
+            sortKeys(heads, 0, keys.length);
+
+            blockMax = new long[(keys.length + BLOCK_SIZE - 1) / BLOCK_SIZE];
+            Arrays.fill(blockMax, Long.MIN_VALUE);
+            for (int k = 0; k < keys.length; k++) {
+                blockMax[k / BLOCK_SIZE] = Math.max(blockMax[k / BLOCK_SIZE], scores[keys[k] >>> 8]);
+            }
+        }
+
+        static Snapshot build(Collection<Suggestion> suggestions) {
+            List<Suggestion> ordered = new ArrayList<>(suggestions);
+            ordered.sort(Comparator.comparingInt((Suggestion s) -> s.source.ordinal())
+                .thenComparingInt(s -> s.source == Source.BOOK_AUTHOR ? 0 : s.id)
+                .thenComparing(s -> s.source == Source.BOOK_AUTHOR ? s.text : ""));
+            return new Snapshot(ordered);
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        /**
+         * Index of the suggestion with the same identity, or -1
+         */
+        int find(Suggestion suggestion) {
+            int low = sourceStarts[suggestion.source.ordinal()];
+            int high = sourceStarts[suggestion.source.ordinal() + 1] - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int order = suggestion.source == Source.BOOK_AUTHOR
+                    ? texts[mid].compareTo(suggestion.text)
+                    : Integer.compare(ids[mid], suggestion.id);
+                if (order < 0) {
+                    low = mid + 1;
+                } else if (order > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        void collect(byte[] prefix, Set<Source> wanted, BitSet skip, TopSuggestions top) {
+            int from = bound(prefix, false);
+            int to = bound(prefix, true);
+            int k = from;
+            while (k < to) {
+                int blockEnd = Math.min((k / BLOCK_SIZE + 1) * BLOCK_SIZE, to);
+                if (top.isFull() && blockMax[k / BLOCK_SIZE] <= top.lowestScore()) {
+                    k = blockEnd;
+                    continue;
+                }
+                for (; k < blockEnd; k++) {
+                    int suggestion = keys[k] >>> 8;
+                    if ((skip == null || !skip.get(suggestion))
+                            && wanted.contains(Source.values()[sources[suggestion]])) {
+                        top.offer(this, suggestion, scores[suggestion]);
+                    }
+                }
+            }
+        }
+
+        AutocompleteSuggestion toSuggestion(int index) {
+            Source source = Source.values()[sources[index]];
+            return new AutocompleteSuggestion(texts[index], source.name(),
+                source == Source.BOOK_AUTHOR ? null : ids[index], scores[index]);
+        }
+
+        /**
+         * First key not below the prefix, or (upper) first key past the keys starting with it
+         */
+        private int bound(byte[] prefix, boolean upper) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                int order = comparePrefix(keys[mid], prefix);
+                if (order < 0 || (upper && order == 0)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        // 0 when the key starts with the prefix
+        private int comparePrefix(int key, byte[] prefix) {
+            int start = foldedStarts[key >>> 8] + (key & 0xFF);
+            int length = foldedStarts[(key >>> 8) + 1] - start;
+            for (int i = 0; i < Math.min(length, prefix.length); i++) {
+                int order = Integer.compare(folded[start + i] & 0xFF, prefix[i] & 0xFF);
+                if (order != 0) {
+                    return order;
+                }
+            }
+            return length >= prefix.length ? 0 : -1;
+        }
+
+        private int compareKeys(int a, int b) {
+            int startA = foldedStarts[a >>> 8] + (a & 0xFF);
+            int lengthA = foldedStarts[(a >>> 8) + 1] - startA;
+            int startB = foldedStarts[b >>> 8] + (b & 0xFF);
+            int lengthB = foldedStarts[(b >>> 8) + 1] - startB;
+            for (int i = 0; i < Math.min(lengthA, lengthB); i++) {
+                int order = Integer.compare(folded[startA + i] & 0xFF, folded[startB + i] & 0xFF);
+                if (order != 0) {
+                    return order;
+                }
+            }
+            return Integer.compare(lengthA, lengthB);
+        }
+
+        // Quicksort of keys[from, to) by the text they point at, recursing into the smaller part
+        private void sortKeys(long[] heads, int from, int to) {
+            while (to - from > 16) {
+                int middle = from + (to - from) / 2;
+                long pivotHead = heads[middle];
+                int pivot = keys[middle];
+                int i = from;
+                int j = to - 1;
+                while (i <= j) {
+                    while (compareKeys(heads[i], keys[i], pivotHead, pivot) < 0) {
+                        i++;
+                    }
+                    while (compareKeys(heads[j], keys[j], pivotHead, pivot) > 0) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        swap(heads, i++, j--);
+                    }
+                }
+                if (j + 1 - from < to - i) {
+                    sortKeys(heads, from, j + 1);
+                    from = i;
+                } else {
+                    sortKeys(heads, i, to);
+                    to = j + 1;
+                }
+            }
+            for (int i = from + 1; i < to; i++) {
+                for (int j = i; j > from && compareKeys(heads[j - 1], keys[j - 1], heads[j], keys[j]) > 0; j--) {
+                    swap(heads, j - 1, j);
+                }
+            }
+        }
+
+        private int compareKeys(long headA, int a, long headB, int b) {
+            int order = Long.compareUnsigned(headA, headB);
+            return order != 0 ? order : compareKeys(a, b);
+        }
+
+        private void swap(long[] heads, int i, int j) {
+            long head = heads[i];
+            heads[i] = heads[j];
+            heads[j] = head;
+            int key = keys[i];
+            keys[i] = keys[j];
+            keys[j] = key;
+        }
+
+        private static int wordStarts(byte[] bytes) {
+            int starts = 0;
+            for (int offset = 0; offset < bytes.length - 1; offset++) {
+                if (offset == 0 || bytes[offset - 1] == ' ') {
+                    starts++;
+                }
+            }
+            return starts;
+        }
+    }
+
+    /**
+     * The highest scoring distinct suggestions seen so far, best first
+     */
+    private static final class TopSuggestions {
+
+        private final Snapshot[] snapshots;
+        private final int[] indexes;
+        private final long[] scores;
+        private int size;
+
+        TopSuggestions(int limit) {
+            this.snapshots = new Snapshot[limit];
+            this.indexes = new int[limit];
+            this.scores = new long[limit];
+        }
+
+        boolean isFull() {
+            return size == scores.length;
+        }
+
+        long lowestScore() {
+            return scores[size - 1];
+        }
+
+        void offer(Snapshot snapshot, int index, long score) {
+            if (isFull() && score <= lowestScore()) {
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                if (snapshots[i] == snapshot && indexes[i] == index) {
+                    return; // Another word of the same suggestion
+                }
+            }
+            int position = isFull() ? size - 1 : size++;
+            while (position > 0 && scores[position - 1] < score) {
+                snapshots[position] = snapshots[position - 1];
+                indexes[position] = indexes[position - 1];
+                scores[position] = scores[position - 1];
+                position--;
+            }
+            snapshots[position] = snapshot;
+            indexes[position] = index;
+            scores[position] = score;
+        }
+
+        List<AutocompleteSuggestion> toList() {
+            List<AutocompleteSuggestion> suggestions = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                suggestions.add(snapshots[i].toSuggestion(indexes[i]));
+            }
+            return suggestions;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.alibou.security.core.infrastructure.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps a gzip variant ("name.ext.gz") next to stored files that compress well
+ *
+ * Compression happens once, at store time: a sample of the file is compressed
+ * first and only files that shrink enough get a full variant. Downloads from
+ * clients sending Accept-Encoding: gzip stream the variant as is, so serving
+ * costs no CPU. Formats that are compressed already (images, PDF, zip-based
+ * office files) are skipped without sampling.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CompressedVariantService {
+
+    public static final String VARIANT_SUFFIX = ".gz";
+
+    private static final Set<String> ALREADY_COMPRESSED = Set.of(
+        "jpg", "jpeg", "png", "gif", "webp", "pdf", "zip", "gz", "7z", "rar",
+        "docx", "xlsx", "pptx", "mobi", "mp3", "mp4");
+
+    private final StorageUsageTracker usageTracker;
+
+    @Value("${app.file-storage.compression.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.file-storage.compression.min-size-bytes:4096}")
+    private long minSizeBytes;
+
+    @Value("${app.file-storage.compression.min-savings-percent:10}")
+    private int minSavingsPercent;
+
+    @Value("${app.file-storage.compression.sample-bytes:65536}")
+    private int sampleBytes;
+
+    /**
+     * Create the gzip variant of a freshly stored file if it is worth it
+     *
+     * @return true if a variant was written
+     */
+    public boolean createVariant(Path file) {
+        if (!enabled || ALREADY_COMPRESSED.contains(extensionOf(file))) {
+            return false;
+        }
+        Path variant = variantOf(file);
+        Path partial = variant.resolveSibling(variant.getFileName() + ".part");
+        try {
+            long size = Files.size(file);
+            if (size < minSizeBytes || !sampleCompressesWell(file)) {
+                return false;
+            }
+
+            try (InputStream in = Files.newInputStream(file);
+                 OutputStream out = new BestCompressionGzipStream(Files.newOutputStream(partial))) {
+                in.transferTo(out);
+            }
+
+            long compressedSize = Files.size(partial);
+            if (!worthKeeping(size, compressedSize)) {
+                Files.delete(partial);
+                return false;
+            }
+            Files.move(partial, variant, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            usageTracker.recordStored(usageTracker.categoryOf(variant), compressedSize);
+            log.debug("Stored gzip variant of {} ({} -> {} bytes)", file, size, compressedSize);
+            return true;
+        } catch (IOException e) {
+            // The original is stored fine; it is simply served uncompressed
+            log.warn("Failed to create compressed variant of {}", file, e);
+            deleteQuietly(partial);
+            return false;
+        }
+    }
+
+    /**
+     * Variant to serve instead of the file, if one exists and is not older than the file
+     */
+    public Path findVariant(Path file) {
+        Path variant = variantOf(file);
+        try {
+            if (Files.exists(variant)
+                    && Files.getLastModifiedTime(variant).compareTo(Files.getLastModifiedTime(file)) >= 0) {
+                return variant;
+            }
+        } catch (IOException e) {
+            log.debug("Ignoring unreadable variant of {}", file);
+        }
+        return null;
+    }
+
+    public void deleteVariant(Path file) {
+        Path variant = variantOf(file);
+        try {
+            if (Files.exists(variant)) {
+                long size = Files.size(variant);
+                Files.delete(variant);
+                usageTracker.recordDeleted(usageTracker.categoryOf(variant), size);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to delete compressed variant: {}", variant, e);
+        }
+    }
+
+    /**
+     * Move the variant along with its file (after the file itself was moved)
+     */
+    public void moveVariant(Path from, Path to) throws IOException {
+        Path variant = variantOf(from);
+        if (Files.exists(variant)) {
+            Path target = variantOf(to);
+            long size = Files.size(variant);
+            Files.move(variant, target, StandardCopyOption.REPLACE_EXISTING);
+            usageTracker.recordMoved(usageTracker.categoryOf(variant), usageTracker.categoryOf(target), size);
+        }
+    }
+
+    public static Path variantOf(Path file) {
+        return file.resolveSibling(file.getFileName() + VARIANT_SUFFIX);
+    }
+
+    /**
+     * True if the Accept-Encoding header allows gzip (and does not disable it with q=0)
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                for (int i = 1; i < parts.length; i++) {
+                    String param = parts[i].trim().replace(" ", "");
+                    if (param.equals("q=0") || param.matches("q=0\\.0*")) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Helper methods
+
+    private boolean sampleCompressesWell(Path file) throws IOException {
+        byte[] sample;
+        try (InputStream in = Files.newInputStream(file)) {
+            sample = in.readNBytes(sampleBytes);
+        }
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(sample);
+            deflater.finish();
+            byte[] buffer = new byte[8192];
+            long compressed = 0;
+            while (!deflater.finished()) {
+                compressed += deflater.deflate(buffer);
+            }
+            return worthKeeping(sample.length, compressed);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private boolean worthKeeping(long originalSize, long compressedSize) {
+        return compressedSize * 100 <= originalSize * (100L - minSavingsPercent);
+    }
+
+    private static String extensionOf(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // Best effort
+        }
+    }
+
+    /**
+     * Variants are written once and served many times, so spend the CPU on ratio
+     */
+    private static final class BestCompressionGzipStream extends GZIPOutputStream {
+        private BestCompressionGzipStream(OutputStream out) throws IOException {
+            super(out, 64 * 1024);
+            def.setLevel(Deflater.BEST_COMPRESSION);
+        }
+    }
+}
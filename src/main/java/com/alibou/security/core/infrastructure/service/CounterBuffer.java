@@ -0,0 +1,179 @@
+package com.alibou.security.core.infrastructure.service;
+
+import com.alibou.security.book.BookRepository;
+import com.alibou.security.document.domain.repository.TechnicalDocumentRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind view and download counters of books and technical documents
+ *
+ * A hit only increments an in-memory LongAdder for the row (striped, so hot
+ * rows do not contend). Every flush-interval-ms the pending deltas are written
+ * as one JDBC batch of "SET count = count + ?" updates in a single
+ * transaction, so a row costs at most one write per interval however often it
+ * is hit, and concurrent hits on several nodes add up instead of overwriting
+ * each other. Counts read from the database lag by up to one interval.
+ *
+ * The adder of a row idle for a whole interval is dropped from the map, but
+ * read once more at the next flush: a hit that looked the adder up just
+ * before it was dropped still lands on it and is written then.
+ *
+ * With write-behind disabled, each hit is a single in-place UPDATE through
+ * the repositories' counter queries instead.
+ */
+@Component
+@Slf4j
+public class CounterBuffer {
+
+    public enum Counter {
+        BOOK_VIEWS("book", "view_count"),
+        BOOK_DOWNLOADS("book", "download_count"),
+        DOCUMENT_VIEWS("technical_document", "view_count"),
+        DOCUMENT_DOWNLOADS("technical_document", "download_count");
+
+        private final String sql;
+
+        Counter(String table, String column) {
+            this.sql = "UPDATE " + table + " SET " + column + " = COALESCE(" + column + ", 0) + ? WHERE id = ?";
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BookRepository bookRepository;
+    private final TechnicalDocumentRepository documentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean writeBehind;
+    private final Map<Counter, ConcurrentHashMap<Integer, LongAdder>> pending = new EnumMap<>(Counter.class);
+    // Adders dropped by the last flush; only touched while flushing
+    private final Map<Counter, Map<Integer, LongAdder>> retired = new EnumMap<>(Counter.class);
+
+    public CounterBuffer(JdbcTemplate jdbcTemplate,
+                         BookRepository bookRepository,
+                         TechnicalDocumentRepository documentRepository,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${app.counters.write-behind:true}") boolean writeBehind) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.bookRepository = bookRepository;
+        this.documentRepository = documentRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.writeBehind = writeBehind;
+        for (Counter counter : Counter.values()) {
+            pending.put(counter, new ConcurrentHashMap<>());
+            retired.put(counter, new HashMap<>());
+        }
+    }
+
+    public void increment(Counter counter, Integer id) {
+        if (id == null) {
+            return;
+        }
+        if (!writeBehind) {
+            incrementNow(counter, id);
+            return;
+        }
+        ConcurrentHashMap<Integer, LongAdder> counts = pending.get(counter);
+        LongAdder count = counts.get(id);
+        if (count == null) {
+            count = counts.computeIfAbsent(id, key -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Write all pending deltas; deltas of a failed flush are put back for the next one
+     */
+    @Scheduled(fixedDelayString = "${app.counters.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        Map<Counter, List<Object[]>> batches = new EnumMap<>(Counter.class);
+        int rows = 0;
+        for (Counter counter : Counter.values()) {
+            List<Object[]> batch = drain(pending.get(counter), retired.get(counter));
+            if (!batch.isEmpty()) {
+                batches.put(counter, batch);
+                rows += batch.size();
+            }
+        }
+        if (batches.isEmpty()) {
+            return;
+        }
+
+        long started = System.currentTimeMillis();
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                batches.forEach((counter, batch) -> jdbcTemplate.batchUpdate(counter.sql, batch)));
+            log.debug("Flushed {} counter updates in {} ms", rows, System.currentTimeMillis() - started);
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush {} counter updates, retrying with the next flush", rows, e);
+            batches.forEach((counter, batch) -> {
+                for (Object[] row : batch) {
+                    pending.get(counter).computeIfAbsent((Integer) row[1], key -> new LongAdder()).add((Long) row[0]);
+                }
+            });
+        }
+    }
+
+    private void incrementNow(Counter counter, Integer id) {
+        switch (counter) {
+            case BOOK_VIEWS -> bookRepository.addToViewCount(id, 1);
+            case BOOK_DOWNLOADS -> bookRepository.addToDownloadCount(id, 1);
+            case DOCUMENT_VIEWS -> documentRepository.addToViewCount(id, 1);
+            case DOCUMENT_DOWNLOADS -> documentRepository.addToDownloadCount(id, 1);
+        }
+    }
+
+    /**
+     * Take the counts accumulated since the last flush, ordered by id so that
+     * nodes flushing at the same time lock rows in the same order
+     *
+     * An adder that was idle for the whole interval is removed and kept in
+     * retired until the next drain, which collects any increment made by a
+     * caller that had already looked it up.
+     */
+    private static List<Object[]> drain(ConcurrentHashMap<Integer, LongAdder> counts,
+                                        Map<Integer, LongAdder> retired) {
+        Map<Integer, Long> deltas = new TreeMap<>();
+        retired.forEach((id, count) -> {
+            long late = count.sumThenReset();
+            if (late != 0) {
+                deltas.merge(id, late, Long::sum);
+            }
+        });
+        retired.clear();
+
+        counts.forEach((id, count) -> {
+            long delta = count.sumThenReset();
+            if (delta != 0) {
+                deltas.merge(id, delta, Long::sum);
+            } else if (counts.remove(id, count)) {
+                retired.put(id, count);
+            }
+        });
+
+        List<Object[]> batch = new ArrayList<>(deltas.size());
+        deltas.forEach((id, delta) -> batch.add(new Object[] {delta, id}));
+        return batch;
+    }
+}
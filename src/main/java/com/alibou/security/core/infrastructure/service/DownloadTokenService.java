@@ -0,0 +1,159 @@
+package com.alibou.security.core.infrastructure.service;
+
+import com.alibou.security.core.domain.service.DownloadGrant;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Issues and verifies HMAC-SHA256 signed download tokens
+ *
+ * A token carries everything needed to serve the download (path, size,
+ * checksum, user, expiry), so verifying it needs no database access. The
+ * token is base64url(payload) "." base64url(signature). Every node that
+ * serves downloads must share app.download-token.secret; without one a
+ * random per-process key is used and tokens die with the process.
+ */
+@Component
+@Slf4j
+public class DownloadTokenService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final byte VERSION = 1;
+    private static final int MIN_SECRET_BYTES = 32;
+
+    private final SecretKeySpec key;
+    private final Duration maxExpiration;
+    private final ThreadLocal<Mac> macs;
+
+    public DownloadTokenService(@Value("${app.download-token.secret:}") String secret,
+                                @Value("${app.download-token.max-expiration-minutes:1440}") long maxExpirationMinutes) {
+        byte[] keyBytes;
+        if (secret == null || secret.isBlank()) {
+            log.warn("app.download-token.secret is not set; download links will not survive a restart " +
+                     "and only work on the node that issued them");
+            keyBytes = new byte[MIN_SECRET_BYTES];
+            new SecureRandom().nextBytes(keyBytes);
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+            if (keyBytes.length < MIN_SECRET_BYTES) {
+                throw new IllegalStateException("app.download-token.secret must be at least " +
+                                                MIN_SECRET_BYTES + " bytes");
+            }
+        }
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+        this.maxExpiration = Duration.ofMinutes(maxExpirationMinutes);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    /**
+     * Sign a token for the given file
+     *
+     * @param checksum stored checksum of the file, may be null
+     */
+    public String issue(String filePath, long fileSize, String checksum, Integer userId, Duration expiresIn) {
+        if (expiresIn.isNegative() || expiresIn.isZero()) {
+            throw new IllegalArgumentException("Expiration must be positive");
+        }
+        if (expiresIn.compareTo(maxExpiration) > 0) {
+            throw new IllegalArgumentException("Expiration must not exceed " + maxExpiration.toMinutes() + " minutes");
+        }
+        Instant expiresAt = Instant.now().plus(expiresIn);
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(96 + filePath.length());
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            out.writeByte(VERSION);
+            out.writeLong(expiresAt.getEpochSecond());
+            out.writeInt(userId != null ? userId : -1);
+            out.writeLong(fileSize);
+            out.writeUTF(checksum != null ? checksum : "");
+            out.writeUTF(filePath);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] payload = buffer.toByteArray();
+
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(payload) + "." + encoder.encodeToString(sign(payload));
+    }
+
+    /**
+     * Check signature and expiry
+     *
+     * @throws AccessDeniedException if the token is malformed, forged or expired
+     */
+    public DownloadGrant verify(String token) {
+        int dot = token != null ? token.indexOf('.') : -1;
+        if (dot <= 0) {
+            throw new AccessDeniedException("Invalid download token");
+        }
+
+        byte[] payload;
+        byte[] signature;
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            payload = decoder.decode(token.substring(0, dot));
+            signature = decoder.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            throw new AccessDeniedException("Invalid download token");
+        }
+        if (!MessageDigest.isEqual(sign(payload), signature)) {
+            throw new AccessDeniedException("Invalid download token");
+        }
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            if (in.readByte() != VERSION) {
+                throw new AccessDeniedException("Unsupported download token");
+            }
+            Instant expiresAt = Instant.ofEpochSecond(in.readLong());
+            int userId = in.readInt();
+            long fileSize = in.readLong();
+            String checksum = in.readUTF();
+            String filePath = in.readUTF();
+
+            if (Instant.now().isAfter(expiresAt)) {
+                throw new AccessDeniedException("Download link has expired");
+            }
+            return new DownloadGrant(filePath, fileSize, checksum.isEmpty() ? null : checksum,
+                                     userId >= 0 ? userId : null, expiresAt);
+        } catch (IOException e) {
+            // Correctly signed but unreadable: only a key shared with another token format gets here
+            throw new AccessDeniedException("Invalid download token");
+        }
+    }
+
+    // Helper methods
+
+    private byte[] sign(byte[] payload) {
+        Mac mac = macs.get();
+        mac.reset();
+        return mac.doFinal(payload);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " not available", e);
+        }
+    }
+}
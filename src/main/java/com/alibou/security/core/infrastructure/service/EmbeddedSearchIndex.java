@@ -0,0 +1,438 @@
+package com.alibou.security.core.infrastructure.service;
+
+import com.alibou.security.book.Book;
+import com.alibou.security.document.domain.entity.DocumentField;
+import com.alibou.security.document.domain.entity.Manufacturer;
+import com.alibou.security.document.domain.entity.Product;
+import com.alibou.security.document.domain.entity.ProductSeries;
+import com.alibou.security.document.domain.entity.ProductionYear;
+import com.alibou.security.document.domain.entity.TechnicalDocument;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * In-process search index over book and technical document text
+ *
+ * For nodes whose database is too small for full-text or trigram indexes
+ * (app.search.embedded.enabled). Each kind has an InvertedIndex, built at
+ * startup from one streaming scan ordered by id, or memory-mapped from the
+ * segment file saved at the last shutdown and brought up to date with the
+ * rows changed since (and without the rows deleted since).
+ *
+ * Inserts, updates and deletes committed through Hibernate are reported by
+ * the CommittedChangeListener and applied every refresh-interval-ms by
+ * re-reading the rows, so a rolled back change never reaches the index.
+ * Renaming or moving a level of the document hierarchy re-reads the documents
+ * below it. Changes made by other nodes are picked up by a rescan of recently
+ * modified rows every catch-up-interval-ms, which also drops the rows they
+ * deleted. Once compact-threshold rows have changed, the delta is merged
+ * into a new segment file.
+ *
+ * Searches consult the index first; a loaded index answers misses too (an
+ * empty page), so they never reach the database. The index only knows ids,
+ * so it orders results by id (creation): newest first, or oldest first when
+ * the page asks for ascending id or creation date. Callers fall back to their
+ * database query while the index is loading or when the page is sorted by
+ * anything else.
+ */
+@Component
+@Slf4j
+public class EmbeddedSearchIndex {
+
+    private static final String HIERARCHY_JOINS =
+        "LEFT JOIN product p ON p.id = td.product_id " +
+        "LEFT JOIN product_series ps ON ps.id = p.product_series_id " +
+        "LEFT JOIN manufacturer m ON m.id = ps.manufacturer_id " +
+        "LEFT JOIN production_year py ON py.id = m.production_year_id " +
+        "LEFT JOIN document_field df ON df.id = py.document_field_id";
+
+    public enum Kind {
+        // Columns: id, visible, then the indexed text
+        BOOKS("books.idx", "book", "b",
+            "SELECT b.id, COALESCE(b.active, FALSE), b.title, b.author, b.isbn, REPLACE(b.isbn, '-', ''), " +
+            "b.publisher, b.description FROM book b"),
+        DOCUMENTS("documents.idx", "technical_document", "td",
+            "SELECT td.id, COALESCE(td.active AND td.is_public, FALSE), td.title, td.document_type, " +
+            "td.category, td.sub_category, td.description, p.name, ps.name, m.name, df.name " +
+            "FROM technical_document td " + HIERARCHY_JOINS);
+
+        private final String fileName;
+        private final String table;
+        private final String alias;
+        private final String select;
+
+        Kind(String fileName, String table, String alias, String select) {
+            this.fileName = fileName;
+            this.table = table;
+            this.alias = alias;
+            this.select = select;
+        }
+    }
+
+    // Hierarchy entity -> column of the documents query its id is matched against
+    private static final Map<Class<?>, String> HIERARCHY_LEVELS = Map.of(
+        Product.class, "p.id",
+        ProductSeries.class, "ps.id",
+        Manufacturer.class, "m.id",
+        ProductionYear.class, "py.id",
+        DocumentField.class, "py.document_field_id"
+    );
+
+    private static final int BATCH_SIZE = 500;
+
+    // Sorts the index can honour: both follow the id order
+    private static final Set<String> ID_ORDER_PROPERTIES = Set.of("id", "createdDate", "createDate");
+
+    // Rows modified shortly before the watermark are read again (clock skew, commits in flight)
+    private static final long CATCH_UP_MARGIN_MS = 60_000;
+
+    private final CommittedChangeListener changeListener;
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate scanTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+    private final Path directory;
+    private final int compactThreshold;
+
+    private final Map<Kind, InvertedIndex> indexes = new ConcurrentHashMap<>();
+    private final Map<Kind, Set<Integer>> changed = new EnumMap<>(Kind.class);
+    private final Map<String, Set<Integer>> changedHierarchy = new ConcurrentHashMap<>();
+
+    public EmbeddedSearchIndex(CommittedChangeListener changeListener,
+                               JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${app.search.embedded.enabled:false}") boolean enabled,
+                               @Value("${app.search.embedded.directory:}") String directory,
+                               @Value("${app.search.embedded.compact-threshold:5000}") int compactThreshold) {
+        this.changeListener = changeListener;
+        this.jdbcTemplate = jdbcTemplate;
+        // Scans stream with a cursor, which PostgreSQL only uses inside a transaction
+        this.scanTemplate = new JdbcTemplate(Objects.requireNonNull(jdbcTemplate.getDataSource()));
+        this.scanTemplate.setFetchSize(1000);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.directory = directory.isBlank() ? null : Paths.get(directory);
+        this.compactThreshold = compactThreshold;
+        for (Kind kind : Kind.values()) {
+            changed.put(kind, ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    /**
+     * Whether searches of this kind are answered from the index
+     */
+    public boolean isReady(Kind kind) {
+        return indexes.containsKey(kind);
+    }
+
+    /**
+     * One page of the rows matching every word of the query, newest first
+     * unless the page is sorted by ascending id or creation date; empty when
+     * the index is not ready or cannot answer the query in the page's sort
+     */
+    public <T> Optional<Page<T>> search(Kind kind, String query, boolean visibleOnly, Pageable pageable,
+                                        Function<List<Integer>, List<T>> loader, Function<T, Integer> idOf) {
+        InvertedIndex index = indexes.get(kind);
+        // Also when the query has no word the index could match (only punctuation, say)
+        if (index == null || !isIdOrder(pageable.getSort()) || InvertedIndex.tokenize(query).isEmpty()) {
+            return Optional.empty();
+        }
+        int[] ids = index.search(query, visibleOnly);
+        if (isOldestFirst(pageable.getSort())) {
+            reverse(ids);
+        }
+        int from = pageable.isPaged() ? (int) Math.min(pageable.getOffset(), ids.length) : 0;
+        int to = pageable.isPaged() ? Math.min(from + pageable.getPageSize(), ids.length) : ids.length;
+        List<Integer> pageIds = Arrays.stream(ids, from, to).boxed().toList();
+        Map<Integer, T> loaded = pageIds.isEmpty() ? Map.of()
+            : loader.apply(pageIds).stream().collect(Collectors.toMap(idOf, Function.identity()));
+        // A row deleted by another node stays in the index until the next catch-up; skip it
+        // (the total still counts it until then)
+        List<T> content = pageIds.stream().map(loaded::get).filter(Objects::nonNull).toList();
+        return Optional.of(new PageImpl<>(content, pageable, ids.length));
+    }
+
+    @PostConstruct
+    void subscribe() {
+        if (!enabled) {
+            return;
+        }
+        changeListener.subscribe(Book.class, id -> changed.get(Kind.BOOKS).add(id));
+        changeListener.subscribe(TechnicalDocument.class, id -> changed.get(Kind.DOCUMENTS).add(id));
+        HIERARCHY_LEVELS.forEach((type, column) -> changeListener.subscribe(type, id ->
+            changedHierarchy.computeIfAbsent(column, key -> ConcurrentHashMap.newKeySet()).add(id)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        // Changes committed while loading are queued and applied once the index is ready
+        Thread loader = new Thread(() -> {
+            for (Kind kind : Kind.values()) {
+                try {
+                    load(kind);
+                } catch (RuntimeException e) {
+                    log.error("Failed to load the {} search index; searching the database instead", kind, e);
+                }
+            }
+        }, "search-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Apply the changes committed since the last run
+     */
+    @Scheduled(fixedDelayString = "${app.search.embedded.refresh-interval-ms:1000}")
+    public synchronized void applyChanges() {
+        if (indexes.containsKey(Kind.DOCUMENTS)) {
+            changedHierarchy.forEach((column, ids) -> {
+                List<Integer> levels = drain(ids);
+                if (!levels.isEmpty()) {
+                    changed.get(Kind.DOCUMENTS).addAll(documentsBelow(column, levels));
+                }
+            });
+        }
+        indexes.forEach((kind, index) -> {
+            List<Integer> ids = drain(changed.get(kind));
+            if (ids.isEmpty()) {
+                return;
+            }
+            try {
+                refresh(kind, index, ids);
+            } catch (RuntimeException e) {
+                log.warn("Failed to apply {} changes to the {} search index, retrying", ids.size(), kind, e);
+                changed.get(kind).addAll(ids);
+                return;
+            }
+            compactIfNeeded(kind, index);
+        });
+    }
+
+    /**
+     * Pick up rows changed or deleted by other nodes
+     */
+    @Scheduled(initialDelayString = "${app.search.embedded.catch-up-interval-ms:300000}",
+               fixedDelayString = "${app.search.embedded.catch-up-interval-ms:300000}")
+    public synchronized void catchUpAll() {
+        indexes.forEach((kind, index) -> {
+            try {
+                int removed = removeDeleted(kind, index);
+                int updated = catchUp(kind, index);
+                log.debug("{} search index caught up with {} changed and {} deleted rows", kind, updated, removed);
+            } catch (RuntimeException e) {
+                log.warn("Failed to catch up the {} search index", kind, e);
+                return;
+            }
+            compactIfNeeded(kind, index);
+        });
+    }
+
+    @PreDestroy
+    public synchronized void save() {
+        if (directory == null) {
+            return;
+        }
+        indexes.forEach((kind, index) -> {
+            if (index.deltaSize() > 0) {
+                compact(kind, index);
+            }
+        });
+    }
+
+    private void load(Kind kind) {
+        long started = System.currentTimeMillis();
+        Path file = directory == null ? null : directory.resolve(kind.fileName);
+        InvertedIndex index = null;
+        if (file != null && Files.exists(file)) {
+            try {
+                index = InvertedIndex.open(file);
+                int removed = removeDeleted(kind, index);
+                int updated = catchUp(kind, index);
+                log.info("Opened {} search index from {} ({} rows removed, {} updated since saved) in {} ms",
+                    kind, file, removed, updated, System.currentTimeMillis() - started);
+            } catch (IOException e) {
+                log.warn("Cannot open search index {}, rebuilding it", file, e);
+                index = null;
+            }
+        }
+        if (index == null) {
+            index = build(kind, file);
+            log.info("Built {} search index ({} rows) in {} ms",
+                kind, index.ids().cardinality(), System.currentTimeMillis() - started);
+        }
+        indexes.put(kind, index);
+    }
+
+    private InvertedIndex build(Kind kind, Path file) {
+        long scanStarted = System.currentTimeMillis();
+        InvertedIndex.Builder builder = new InvertedIndex.Builder();
+        readOnlyTransaction.executeWithoutResult(status ->
+            scanTemplate.query(kind.select + " ORDER BY " + kind.alias + ".id",
+                (RowCallbackHandler) rs -> builder.add(rs.getInt(1), rs.getBoolean(2), text(rs))));
+        try {
+            return builder.build(file, scanStarted);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write search index " + file, e);
+        }
+    }
+
+    private int catchUp(Kind kind, InvertedIndex index) {
+        long scanStarted = System.currentTimeMillis();
+        Timestamp since = new Timestamp(index.getWatermark() - CATCH_UP_MARGIN_MS);
+        int[] updated = {0};
+        readOnlyTransaction.executeWithoutResult(status ->
+            scanTemplate.query(kind.select + " WHERE " + kind.alias + ".last_modified_date >= ? OR " +
+                    kind.alias + ".created_date >= ?",
+                (RowCallbackHandler) rs -> {
+                    index.put(rs.getInt(1), rs.getBoolean(2), text(rs));
+                    updated[0]++;
+                },
+                since, since));
+        index.setWatermark(scanStarted);
+        return updated[0];
+    }
+
+    private int removeDeleted(Kind kind, InvertedIndex index) {
+        BitSet existing = new BitSet();
+        readOnlyTransaction.executeWithoutResult(status ->
+            scanTemplate.query("SELECT id FROM " + kind.table,
+                (RowCallbackHandler) rs -> existing.set(rs.getInt(1))));
+        BitSet deleted = index.ids();
+        deleted.andNot(existing);
+        deleted.stream().forEach(index::remove);
+        return deleted.cardinality();
+    }
+
+    private void refresh(Kind kind, InvertedIndex index, List<Integer> ids) {
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            List<Integer> batch = ids.subList(from, Math.min(from + BATCH_SIZE, ids.size()));
+            Set<Integer> missing = new HashSet<>(batch);
+            jdbcTemplate.query(kind.select + " WHERE " + kind.alias + ".id IN (" + placeholders(batch.size()) + ")",
+                (RowCallbackHandler) rs -> {
+                    int id = rs.getInt(1);
+                    missing.remove(id);
+                    index.put(id, rs.getBoolean(2), text(rs));
+                },
+                batch.toArray());
+            missing.forEach(index::remove);
+        }
+    }
+
+    private List<Integer> documentsBelow(String column, List<Integer> levelIds) {
+        List<Integer> documents = new ArrayList<>();
+        for (int from = 0; from < levelIds.size(); from += BATCH_SIZE) {
+            List<Integer> batch = levelIds.subList(from, Math.min(from + BATCH_SIZE, levelIds.size()));
+            documents.addAll(jdbcTemplate.queryForList(
+                "SELECT td.id FROM technical_document td " + HIERARCHY_JOINS +
+                    " WHERE " + column + " IN (" + placeholders(batch.size()) + ")",
+                Integer.class, batch.toArray()));
+        }
+        return documents;
+    }
+
+    private void compactIfNeeded(Kind kind, InvertedIndex index) {
+        if (index.deltaSize() >= compactThreshold) {
+            compact(kind, index);
+        }
+    }
+
+    private void compact(Kind kind, InvertedIndex index) {
+        long started = System.currentTimeMillis();
+        Path file = directory == null ? null : directory.resolve(kind.fileName);
+        try {
+            index.compact(file);
+            log.debug("Compacted {} search index in {} ms", kind, System.currentTimeMillis() - started);
+        } catch (IOException e) {
+            // The delta stays in memory and is merged on the next attempt
+            log.warn("Failed to compact {} search index into {}", kind, file, e);
+        }
+    }
+
+    // Helper methods
+
+    private static String text(ResultSet rs) throws SQLException {
+        int columns = rs.getMetaData().getColumnCount();
+        StringBuilder text = new StringBuilder();
+        for (int column = 3; column <= columns; column++) {
+            String value = rs.getString(column);
+            if (value != null) {
+                text.append(value).append(' ');
+            }
+        }
+        return text.toString();
+    }
+
+    // Unsorted, or sorted only by properties that follow the id, all in one direction
+    private static boolean isIdOrder(Sort sort) {
+        return sort.stream().allMatch(order -> ID_ORDER_PROPERTIES.contains(order.getProperty()))
+            && sort.stream().map(Sort.Order::getDirection).distinct().count() <= 1;
+    }
+
+    private static boolean isOldestFirst(Sort sort) {
+        Sort.Order first = sort.stream().findFirst().orElse(null);
+        return first != null && first.isAscending() && ID_ORDER_PROPERTIES.contains(first.getProperty());
+    }
+
+    private static void reverse(int[] ids) {
+        for (int i = 0, j = ids.length - 1; i < j; i++, j--) {
+            int id = ids[i];
+            ids[i] = ids[j];
+            ids[j] = id;
+        }
+    }
+
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+
+    private static List<Integer> drain(Set<Integer> ids) {
+        List<Integer> drained = new ArrayList<>();
+        for (Integer id : ids) {
+            if (ids.remove(id)) {
+                drained.add(id);
+            }
+        }
+        return drained;
+    }
+}
@@ -0,0 +1,82 @@
+package com.alibou.security.core.infrastructure.service;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.function.LongConsumer;
+
+/**
+ * SHA-256 of stored files without reading them onto the heap
+ *
+ * Files are mapped in windows of {@link #MAP_WINDOW} bytes and digested a
+ * slice at a time, so memory use is the same for a 1KB and a 1GB file.
+ */
+public final class FileChecksums {
+
+    static final long MAP_WINDOW = 64L * 1024 * 1024;
+    static final int SLICE = 1024 * 1024;
+
+    private static final String PREFIX = "sha256:";
+
+    private FileChecksums() {
+    }
+
+    /**
+     * Lower-case hex SHA-256 of the file
+     */
+    public static String sha256(Path file) throws IOException {
+        return sha256(file, bytes -> { });
+    }
+
+    /**
+     * Lower-case hex SHA-256 of the file
+     *
+     * @param beforeSlice called with the length of each slice before it is read; used for throttling
+     */
+    public static String sha256(Path file, LongConsumer beforeSlice) throws IOException {
+        MessageDigest digest = newDigest();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += MAP_WINDOW) {
+                long windowSize = Math.min(MAP_WINDOW, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+                while (window.hasRemaining()) {
+                    int length = Math.min(SLICE, window.remaining());
+                    beforeSlice.accept(length);
+                    window.limit(window.position() + length);
+                    digest.update(window);
+                    window.limit((int) windowSize);
+                }
+            }
+        } catch (InternalError e) {
+            // Access fault in the mapping: the file was truncated while being read
+            throw new IOException("File changed while computing checksum: " + file, e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Stored checksums come as plain hex (books) or "sha256:hex" (technical documents)
+     */
+    public static String normalize(String checksum) {
+        if (checksum == null) {
+            return null;
+        }
+        String value = checksum.trim().toLowerCase(Locale.ROOT);
+        return value.startsWith(PREFIX) ? value.substring(PREFIX.length()) : value;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+    }
+}
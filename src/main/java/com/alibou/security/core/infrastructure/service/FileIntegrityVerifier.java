@@ -0,0 +1,359 @@
+package com.alibou.security.core.infrastructure.service;
+
+import com.alibou.security.book.BookRepository;
+import com.alibou.security.core.domain.entity.FileIntegrityIssue;
+import com.alibou.security.core.domain.entity.FileIntegrityIssue.OwnerType;
+import com.alibou.security.core.domain.entity.FileIntegrityIssue.Problem;
+import com.alibou.security.core.domain.repository.FileIntegrityIssueRepository;
+import com.alibou.security.core.domain.service.IntegrityVerificationResult;
+import com.alibou.security.core.domain.service.StoredChecksum;
+import com.alibou.security.document.domain.repository.TechnicalDocumentRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Detects bit rot: recomputes the SHA-256 of every stored book and technical
+ * document file and compares it with the checksum saved at upload.
+ *
+ * Rows are read in keyset batches, so no transaction stays open while files
+ * are hashed. Files are hashed in parallel through memory mappings
+ * ({@link FileChecksums}), which keeps heap use independent of file size, and
+ * all workers share one byte-rate limit so a run leaves disk bandwidth for
+ * requests. Problems go to the file_integrity_issue table, one row per file;
+ * a file that verifies intact again has its row removed.
+ *
+ * A run can take hours, so the scheduled one is handed to a dedicated
+ * thread instead of holding one of the shared scheduler's few threads.
+ */
+@Component
+@Slf4j
+public class FileIntegrityVerifier {
+
+    private static final int MAX_REPORTED_ENTRIES = 1000;
+
+    private final BookRepository bookRepository;
+    private final TechnicalDocumentRepository documentRepository;
+    private final FileIntegrityIssueRepository issueRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "integrity-verifier");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${app.upload.dir:./uploads}")
+    private String documentUploadDir;
+
+    @Value("${app.file-storage.integrity.parallelism:2}")
+    private int parallelism;
+
+    @Value("${app.file-storage.integrity.max-bytes-per-second:52428800}") // 50MB/s default
+    private long maxBytesPerSecond;
+
+    @Value("${app.file-storage.integrity.batch-size:200}")
+    private int batchSize;
+
+    public FileIntegrityVerifier(BookRepository bookRepository,
+                                 TechnicalDocumentRepository documentRepository,
+                                 FileIntegrityIssueRepository issueRepository,
+                                 PlatformTransactionManager transactionManager) {
+        this.bookRepository = bookRepository;
+        this.documentRepository = documentRepository;
+        this.issueRepository = issueRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(cron = "${app.file-storage.integrity.cron:-}")
+    public void scheduledVerification() {
+        if (running.get()) {
+            log.warn("Skipping scheduled file integrity verification, the previous run is still going");
+            return;
+        }
+        runner.execute(() -> {
+            try {
+                verify();
+            } catch (Exception e) {
+                log.error("Scheduled file integrity verification failed", e);
+            }
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        runner.shutdownNow();
+    }
+
+    /**
+     * Verify every stored file that has a checksum
+     */
+    public IntegrityVerificationResult verify() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("File integrity verification already running");
+        }
+        try {
+            return doVerify();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private IntegrityVerificationResult doVerify() {
+        long started = System.currentTimeMillis();
+        RunState state = new RunState(new ByteRateLimiter(maxBytesPerSecond));
+
+        // The issue table only ever holds the few broken files
+        issueRepository.findAll().forEach(issue -> state.reported.add(key(issue.getOwnerType(), issue.getOwnerId())));
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "integrity-verifier-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            verifyAll(OwnerType.BOOK, afterId -> bookRepository.findStoredChecksums(afterId, PageRequest.of(0, batchSize)),
+                      null, pool, state);
+            verifyAll(OwnerType.TECHNICAL_DOCUMENT,
+                      afterId -> documentRepository.findStoredChecksums(afterId, PageRequest.of(0, batchSize)),
+                      Paths.get(documentUploadDir), pool, state);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        long duration = System.currentTimeMillis() - started;
+        log.info("File integrity verification: {} files ({} bytes) in {} ms, {} mismatched, {} missing, " +
+                 "{} unreadable, {} skipped, {} cleared",
+            state.filesChecked, state.bytesChecked, duration, state.mismatched, state.missing,
+            state.unreadable, state.skipped, state.cleared);
+        return new IntegrityVerificationResult(state.filesChecked, state.bytesChecked, state.mismatched,
+            state.missing, state.unreadable, state.skipped, state.cleared, state.problems, duration,
+            LocalDateTime.now());
+    }
+
+    private void verifyAll(OwnerType ownerType, Function<Integer, List<StoredChecksum>> nextBatch,
+                           Path relativeTo, ExecutorService pool, RunState state) {
+        int afterId = 0;
+        List<StoredChecksum> batch;
+        while (!(batch = nextBatch.apply(afterId)).isEmpty()) {
+            List<Future<Outcome>> futures = new ArrayList<>(batch.size());
+            for (StoredChecksum stored : batch) {
+                futures.add(pool.submit(() -> check(stored, relativeTo, state.rateLimiter)));
+            }
+
+            List<Outcome> outcomes = new ArrayList<>(futures.size());
+            for (Future<Outcome> future : futures) {
+                try {
+                    outcomes.add(future.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("File integrity verification interrupted", e);
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("File integrity check failed", e.getCause());
+                }
+            }
+            record(ownerType, outcomes, state);
+            afterId = batch.get(batch.size() - 1).getId();
+        }
+    }
+
+    /**
+     * Hash one file; runs on a pool thread
+     */
+    private Outcome check(StoredChecksum stored, Path relativeTo, ByteRateLimiter rateLimiter) {
+        if (ObjectStorageFileStorageService.isObjectPath(stored.getFilePath())) {
+            return Outcome.skipped(stored); // The object store checks its own content
+        }
+        Path path;
+        try {
+            path = relativeTo != null ? relativeTo.resolve(stored.getFilePath()) : Paths.get(stored.getFilePath());
+        } catch (InvalidPathException e) {
+            return Outcome.problem(stored, Problem.UNREADABLE, null, null, "Invalid path: " + e.getMessage());
+        }
+
+        try {
+            BasicFileAttributes before = Files.readAttributes(path, BasicFileAttributes.class);
+            String actual = FileChecksums.sha256(path, rateLimiter::acquire);
+            BasicFileAttributes after = Files.readAttributes(path, BasicFileAttributes.class);
+            if (before.size() != after.size() || !before.lastModifiedTime().equals(after.lastModifiedTime())) {
+                return Outcome.skipped(stored); // Replaced while being read
+            }
+            if (!actual.equals(FileChecksums.normalize(stored.getChecksum()))) {
+                return Outcome.problem(stored, Problem.MISMATCH, actual, after.size(), null);
+            }
+            return Outcome.intact(stored, after.size());
+        } catch (NoSuchFileException e) {
+            return Outcome.problem(stored, Problem.MISSING, null, null, null);
+        } catch (IOException e) {
+            return Outcome.problem(stored, Problem.UNREADABLE, null, null, e.getMessage());
+        }
+    }
+
+    /**
+     * Write one batch of outcomes to the issue table
+     */
+    private void record(OwnerType ownerType, List<Outcome> outcomes, RunState state) {
+        LocalDateTime now = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Outcome outcome : outcomes) {
+                Integer ownerId = outcome.stored.getId();
+                if (outcome.skipped) {
+                    state.skipped++;
+                    continue;
+                }
+                state.filesChecked++;
+                if (outcome.fileSize != null) {
+                    state.bytesChecked += outcome.fileSize;
+                }
+
+                if (outcome.problem == null) {
+                    if (state.reported.contains(key(ownerType, ownerId))) {
+                        state.cleared += issueRepository.deleteByOwner(ownerType, ownerId);
+                    }
+                    continue;
+                }
+
+                switch (outcome.problem) {
+                    case MISMATCH -> state.mismatched++;
+                    case MISSING -> state.missing++;
+                    case UNREADABLE -> state.unreadable++;
+                }
+                if (state.problems.size() < MAX_REPORTED_ENTRIES) {
+                    state.problems.add(outcome.problem + " " + outcome.stored.getFilePath());
+                }
+
+                FileIntegrityIssue issue = issueRepository.findByOwnerTypeAndOwnerId(ownerType, ownerId)
+                    .orElseGet(() -> FileIntegrityIssue.builder()
+                        .ownerType(ownerType)
+                        .ownerId(ownerId)
+                        .firstDetectedAt(now)
+                        .build());
+                issue.setFilePath(outcome.stored.getFilePath());
+                issue.setProblem(outcome.problem);
+                issue.setExpectedChecksum(outcome.stored.getChecksum());
+                issue.setActualChecksum(outcome.actualChecksum);
+                issue.setFileSize(outcome.fileSize);
+                issue.setErrorMessage(outcome.errorMessage != null && outcome.errorMessage.length() > 1000
+                    ? outcome.errorMessage.substring(0, 1000) : outcome.errorMessage);
+                issue.setLastDetectedAt(now);
+                issueRepository.save(issue);
+            }
+        });
+    }
+
+    private static String key(OwnerType ownerType, Integer ownerId) {
+        return ownerType + ":" + ownerId;
+    }
+
+    /**
+     * Counters are only touched by the thread that records batches
+     */
+    private static final class RunState {
+        private final ByteRateLimiter rateLimiter;
+        private final Set<String> reported = new HashSet<>();
+        private final List<String> problems = new ArrayList<>();
+        private long filesChecked;
+        private long bytesChecked;
+        private int mismatched;
+        private int missing;
+        private int unreadable;
+        private int skipped;
+        private int cleared;
+
+        private RunState(ByteRateLimiter rateLimiter) {
+            this.rateLimiter = rateLimiter;
+        }
+    }
+
+    private static final class Outcome {
+        private final StoredChecksum stored;
+        private final boolean skipped;
+        private final Problem problem;
+        private final String actualChecksum;
+        private final Long fileSize;
+        private final String errorMessage;
+
+        private Outcome(StoredChecksum stored, boolean skipped, Problem problem, String actualChecksum,
+                        Long fileSize, String errorMessage) {
+            this.stored = stored;
+            this.skipped = skipped;
+            this.problem = problem;
+            this.actualChecksum = actualChecksum;
+            this.fileSize = fileSize;
+            this.errorMessage = errorMessage;
+        }
+
+        private static Outcome intact(StoredChecksum stored, long fileSize) {
+            return new Outcome(stored, false, null, null, fileSize, null);
+        }
+
+        private static Outcome skipped(StoredChecksum stored) {
+            return new Outcome(stored, true, null, null, null, null);
+        }
+
+        private static Outcome problem(StoredChecksum stored, Problem problem, String actualChecksum,
+                                       Long fileSize, String errorMessage) {
+            return new Outcome(stored, false, problem, actualChecksum, fileSize, errorMessage);
+        }
+    }
+
+    /**
+     * Shared by all workers: each caller reserves the next free slot for its
+     * bytes, then sleeps until that slot starts
+     */
+    private static final class ByteRateLimiter {
+        private final double nanosPerByte;
+        private long nextFreeNanos = System.nanoTime();
+
+        private ByteRateLimiter(long bytesPerSecond) {
+            this.nanosPerByte = bytesPerSecond > 0 ? 1_000_000_000d / bytesPerSecond : 0;
+        }
+
+        private void acquire(long bytes) {
+            if (nanosPerByte == 0) {
+                return;
+            }
+            long waitNanos;
+            synchronized (this) {
+                long now = System.nanoTime();
+                long start = Math.max(now, nextFreeNanos);
+                nextFreeNanos = start + (long) (bytes * nanosPerByte);
+                waitNanos = start - now;
+            }
+            if (waitNanos > 0) {
+                try {
+                    Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("File integrity verification interrupted", e);
+                }
+            }
+        }
+    }
+}
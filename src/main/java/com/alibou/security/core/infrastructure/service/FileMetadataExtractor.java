@@ -0,0 +1,564 @@
+package com.alibou.security.core.infrastructure.service;
+
+import com.alibou.security.core.domain.service.ExtractedFileMetadata;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads format, page count, language and the embedded cover from stored files
+ *
+ * Only the JDK is used, so the parsing is deliberately shallow:
+ * - PDF:  the file is memory-mapped and scanned for the page tree (/Type /Pages
+ *         /Count), page objects and /Lang; compressed object streams are
+ *         inflated one at a time with a size cap
+ * - EPUB: container.xml and the OPF package document give the language and
+ *         the cover image entry
+ * - DOCX: page count from docProps/app.xml
+ * - PNG, JPEG, GIF: format only (they are their own cover)
+ * Neither path loads the whole file onto the heap.
+ */
+@Component
+@Slf4j
+public class FileMetadataExtractor {
+
+    private static final int MAX_XML_ENTRY_BYTES = 4 * 1024 * 1024;
+    private static final int MAX_OBJECT_STREAM_BYTES = 16 * 1024 * 1024;
+    private static final int MAX_DICTIONARY_SCAN = 1024 * 1024;
+    private static final long MAX_COVER_BYTES = 20L * 1024 * 1024;
+
+    private static final String DC_NAMESPACE = "http://purl.org/dc/elements/1.1/";
+    private static final String EPUB_MIMETYPE = "application/epub+zip";
+
+    private static final byte[] TYPE = ascii("/Type");
+    private static final byte[] PAGES = ascii("/Pages");
+    private static final byte[] PAGE = ascii("/Page");
+    private static final byte[] OBJECT_STREAM = ascii("/ObjStm");
+    private static final byte[] COUNT = ascii("/Count");
+    private static final byte[] LENGTH = ascii("/Length");
+    private static final byte[] FLATE_DECODE = ascii("/FlateDecode");
+    private static final byte[] LANG = ascii("/Lang");
+    private static final byte[] STREAM = ascii("stream");
+    private static final byte[] END_STREAM = ascii("endstream");
+
+    public ExtractedFileMetadata extract(Path file) throws IOException {
+        byte[] magic;
+        try (InputStream in = Files.newInputStream(file)) {
+            magic = in.readNBytes(8);
+        }
+
+        if (startsWith(magic, "%PDF-")) {
+            return extractPdf(file);
+        }
+        if (startsWith(magic, "PK\u0003\u0004")) {
+            return extractZip(file);
+        }
+        if (magic.length >= 4 && (magic[0] & 0xff) == 0x89 && startsWith(Arrays.copyOfRange(magic, 1, 4), "PNG")) {
+            return new ExtractedFileMetadata("PNG", null, null, null);
+        }
+        if (magic.length >= 3 && (magic[0] & 0xff) == 0xff && (magic[1] & 0xff) == 0xd8 && (magic[2] & 0xff) == 0xff) {
+            return new ExtractedFileMetadata("JPG", null, null, null);
+        }
+        if (startsWith(magic, "GIF8")) {
+            return new ExtractedFileMetadata("GIF", null, null, null);
+        }
+        return new ExtractedFileMetadata(null, null, null, null);
+    }
+
+    /**
+     * Copy an archive entry (the EPUB cover) to the target file
+     */
+    public void copyEntry(Path archive, String entryName, Path target) throws IOException {
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            ZipEntry entry = zip.getEntry(entryName);
+            if (entry == null) {
+                throw new IOException("Entry not found in " + archive.getFileName() + ": " + entryName);
+            }
+            Files.createDirectories(target.getParent());
+            try (InputStream in = zip.getInputStream(entry)) {
+                // The declared size cannot be trusted, so cap what is actually read
+                long copied = Files.copy(new BoundedInputStream(in, MAX_COVER_BYTES), target,
+                    StandardCopyOption.REPLACE_EXISTING);
+                if (copied >= MAX_COVER_BYTES) {
+                    Files.deleteIfExists(target);
+                    throw new IOException("Cover image too large: " + entryName);
+                }
+            }
+        }
+    }
+
+    // PDF
+
+    private ExtractedFileMetadata extractPdf(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                log.info("Not scanning {} for pages: larger than 2 GB", file);
+                return new ExtractedFileMetadata("PDF", null, null, null);
+            }
+            PdfScan scan = new PdfScan();
+            scan.scan(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), true);
+            return new ExtractedFileMetadata("PDF", scan.pageCount(), scan.language, null);
+        }
+    }
+
+    private static int countOf(ByteBuffer pdf, int position) {
+        int start = dictionaryStart(pdf, position);
+        int end = dictionaryEnd(pdf, position);
+        int count = indexOf(pdf, COUNT, start, end);
+        return count < 0 ? 0 : readInt(pdf, skipWhitespace(pdf, count + COUNT.length));
+    }
+
+    /**
+     * Decoded content of the stream whose dictionary contains the position; null if unreadable
+     */
+    private static ByteBuffer inflateStream(ByteBuffer pdf, int position) {
+        int start = dictionaryStart(pdf, position);
+        int end = dictionaryEnd(pdf, position);
+        int keyword = skipWhitespace(pdf, end + 2);
+        if (!matches(pdf, keyword, STREAM)) {
+            return null;
+        }
+        int data = keyword + STREAM.length;
+        if (data < pdf.limit() && pdf.get(data) == '\r') {
+            data++;
+        }
+        if (data < pdf.limit() && pdf.get(data) == '\n') {
+            data++;
+        }
+
+        // /Length is usually direct; an indirect one ("12 0 R") falls back to the endstream keyword
+        int length = -1;
+        int lengthKey = indexOf(pdf, LENGTH, start, end);
+        if (lengthKey >= 0) {
+            int number = skipWhitespace(pdf, lengthKey + LENGTH.length);
+            int after = skipDigits(pdf, number);
+            if (after > number && !isDigit(pdf, skipWhitespace(pdf, after))) {
+                length = readInt(pdf, number);
+            }
+        }
+        int dataEnd = length >= 0
+            ? (int) Math.min((long) data + length, pdf.limit())
+            : indexOf(pdf, END_STREAM, data, (int) Math.min((long) data + MAX_OBJECT_STREAM_BYTES, pdf.limit()));
+        if (dataEnd < data) {
+            return null;
+        }
+
+        ByteBuffer encoded = pdf.slice(data, dataEnd - data);
+        if (indexOf(pdf, FLATE_DECODE, start, end) < 0) {
+            return encoded;
+        }
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(encoded);
+            byte[] decoded = new byte[(int) Math.min(MAX_OBJECT_STREAM_BYTES, Math.max(8192L, encoded.remaining() * 4L))];
+            int size = 0;
+            while (!inflater.finished() && !inflater.needsInput() && !inflater.needsDictionary()) {
+                if (size == decoded.length) {
+                    if (decoded.length >= MAX_OBJECT_STREAM_BYTES) {
+                        break;
+                    }
+                    decoded = Arrays.copyOf(decoded, Math.min(MAX_OBJECT_STREAM_BYTES, decoded.length * 2));
+                }
+                size += inflater.inflate(decoded, size, decoded.length - size);
+            }
+            return ByteBuffer.wrap(decoded, 0, size);
+        } catch (DataFormatException e) {
+            return null;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Position right after the "<<" that opens the dictionary around the position
+     */
+    private static int dictionaryStart(ByteBuffer pdf, int position) {
+        int floor = Math.max(1, position - MAX_DICTIONARY_SCAN);
+        int depth = 0;
+        for (int i = position - 1; i >= floor; i--) {
+            byte current = pdf.get(i);
+            byte previous = pdf.get(i - 1);
+            if (previous == '>' && current == '>') {
+                depth++;
+                i--;
+            } else if (previous == '<' && current == '<') {
+                if (depth == 0) {
+                    return i + 1;
+                }
+                depth--;
+                i--;
+            }
+        }
+        return floor;
+    }
+
+    /**
+     * Position of the ">>" that closes the dictionary around the position
+     */
+    private static int dictionaryEnd(ByteBuffer pdf, int position) {
+        int ceiling = (int) Math.min((long) position + MAX_DICTIONARY_SCAN, pdf.limit() - 1L);
+        int depth = 0;
+        for (int i = position; i < ceiling; i++) {
+            byte current = pdf.get(i);
+            byte next = pdf.get(i + 1);
+            if (current == '<' && next == '<') {
+                depth++;
+                i++;
+            } else if (current == '>' && next == '>') {
+                if (depth == 0) {
+                    return i;
+                }
+                depth--;
+                i++;
+            }
+        }
+        return ceiling;
+    }
+
+    private static String readLiteralString(ByteBuffer pdf, int position) {
+        if (position >= pdf.limit() || pdf.get(position) != '(') {
+            return null;
+        }
+        StringBuilder value = new StringBuilder();
+        int end = Math.min(pdf.limit(), position + 64);
+        for (int i = position + 1; i < end; i++) {
+            char c = (char) (pdf.get(i) & 0xff);
+            if (c == '\\') {
+                i++;
+            } else if (c == ')') {
+                break;
+            } else if (c >= 0x20 && c < 0x7f) {
+                // Language tags are ASCII; this also drops the bytes of a UTF-16 encoding
+                value.append(c);
+            }
+        }
+        String language = value.toString().trim();
+        return language.isEmpty() ? null : language;
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte[] pattern, int from, int to) {
+        int last = to - pattern.length;
+        for (int i = Math.max(0, from); i <= last; i++) {
+            if (buffer.get(i) == pattern[0] && matches(buffer, i, pattern)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean matches(ByteBuffer buffer, int position, byte[] pattern) {
+        if (position < 0 || position + pattern.length > buffer.limit()) {
+            return false;
+        }
+        for (int i = 0; i < pattern.length; i++) {
+            if (buffer.get(position + i) != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The name at the position is exactly the pattern ("/Page" does not match "/PageLabel")
+     */
+    private static boolean matchesName(ByteBuffer buffer, int position, byte[] name) {
+        if (!matches(buffer, position, name)) {
+            return false;
+        }
+        int next = position + name.length;
+        return next >= buffer.limit() || !isRegularCharacter(buffer.get(next));
+    }
+
+    private static boolean isRegularCharacter(byte b) {
+        return !isWhitespace(b) && "()<>[]{}/%".indexOf(b) < 0;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f' || b == 0;
+    }
+
+    private static int skipWhitespace(ByteBuffer buffer, int position) {
+        while (position < buffer.limit() && isWhitespace(buffer.get(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private static boolean isDigit(ByteBuffer buffer, int position) {
+        return position < buffer.limit() && buffer.get(position) >= '0' && buffer.get(position) <= '9';
+    }
+
+    private static int skipDigits(ByteBuffer buffer, int position) {
+        while (isDigit(buffer, position)) {
+            position++;
+        }
+        return position;
+    }
+
+    private static int readInt(ByteBuffer buffer, int position) {
+        long value = 0;
+        while (isDigit(buffer, position) && value <= Integer.MAX_VALUE) {
+            value = value * 10 + (buffer.get(position++) - '0');
+        }
+        return (int) Math.min(value, Integer.MAX_VALUE);
+    }
+
+    // ZIP based formats
+
+    private ExtractedFileMetadata extractZip(Path file) throws IOException {
+        try (ZipFile zip = new ZipFile(file.toFile())) {
+            ZipEntry mimetype = zip.getEntry("mimetype");
+            if (mimetype != null
+                    && EPUB_MIMETYPE.equals(new String(readEntry(zip, mimetype), StandardCharsets.US_ASCII).trim())) {
+                return extractEpub(zip);
+            }
+            if (zip.getEntry("word/document.xml") != null) {
+                ZipEntry properties = zip.getEntry("docProps/app.xml");
+                Integer pages = properties == null ? null : parseInteger(firstText(parseXml(zip, properties), "*", "Pages"));
+                return new ExtractedFileMetadata("DOCX", pages, null, null);
+            }
+            return new ExtractedFileMetadata(null, null, null, null);
+        }
+    }
+
+    private ExtractedFileMetadata extractEpub(ZipFile zip) throws IOException {
+        Document container = parseXml(zip, requireEntry(zip, "META-INF/container.xml"));
+        NodeList rootFiles = container.getElementsByTagNameNS("*", "rootfile");
+        if (rootFiles.getLength() == 0) {
+            throw new IOException("EPUB container does not name a package document");
+        }
+        String packagePath = ((Element) rootFiles.item(0)).getAttribute("full-path");
+        Document packageDocument = parseXml(zip, requireEntry(zip, packagePath));
+
+        String language = firstText(packageDocument, DC_NAMESPACE, "language");
+        String coverHref = coverHref(packageDocument);
+        String cover = coverHref == null ? null : resolveEntry(packagePath, coverHref);
+        if (cover != null && zip.getEntry(cover) == null) {
+            log.debug("EPUB cover {} not found in archive", cover);
+            cover = null;
+        }
+        // Reflowable EPUBs have no fixed page count
+        return new ExtractedFileMetadata("EPUB", null, language, cover);
+    }
+
+    /**
+     * EPUB 3 marks the cover item with properties="cover-image"; EPUB 2 names it in a "cover" meta
+     */
+    private static String coverHref(Document packageDocument) {
+        NodeList items = packageDocument.getElementsByTagNameNS("*", "item");
+        for (int i = 0; i < items.getLength(); i++) {
+            Element item = (Element) items.item(i);
+            if ((" " + item.getAttribute("properties") + " ").contains(" cover-image ")) {
+                return item.getAttribute("href");
+            }
+        }
+
+        NodeList metas = packageDocument.getElementsByTagNameNS("*", "meta");
+        for (int i = 0; i < metas.getLength(); i++) {
+            Element meta = (Element) metas.item(i);
+            if ("cover".equals(meta.getAttribute("name"))) {
+                String coverId = meta.getAttribute("content");
+                for (int j = 0; j < items.getLength(); j++) {
+                    Element item = (Element) items.item(j);
+                    if (coverId.equals(item.getAttribute("id"))) {
+                        return item.getAttribute("href");
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Archive entry of an href relative to the package document
+     */
+    private static String resolveEntry(String packagePath, String href) {
+        String base = packagePath.contains("/") ? packagePath.substring(0, packagePath.lastIndexOf('/') + 1) : "";
+        String decoded = URLDecoder.decode(href.replace("+", "%2B"), StandardCharsets.UTF_8);
+        Deque<String> segments = new ArrayDeque<>();
+        for (String segment : (base + decoded).split("/")) {
+            if (segment.equals("..")) {
+                segments.pollLast();
+            } else if (!segment.isEmpty() && !segment.equals(".")) {
+                segments.addLast(segment);
+            }
+        }
+        return String.join("/", segments);
+    }
+
+    private static ZipEntry requireEntry(ZipFile zip, String name) throws IOException {
+        ZipEntry entry = zip.getEntry(name);
+        if (entry == null) {
+            throw new IOException("Missing archive entry: " + name);
+        }
+        return entry;
+    }
+
+    private static byte[] readEntry(ZipFile zip, ZipEntry entry) throws IOException {
+        try (InputStream in = zip.getInputStream(entry)) {
+            byte[] content = in.readNBytes(MAX_XML_ENTRY_BYTES + 1);
+            if (content.length > MAX_XML_ENTRY_BYTES) {
+                throw new IOException("Archive entry too large: " + entry.getName());
+            }
+            return content;
+        }
+    }
+
+    private static Document parseXml(ZipFile zip, ZipEntry entry) throws IOException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+            factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+            factory.setXIncludeAware(false);
+            factory.setExpandEntityReferences(false);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            return builder.parse(new ByteArrayInputStream(readEntry(zip, entry)));
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Invalid XML in " + entry.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static String firstText(Document document, String namespace, String localName) {
+        NodeList nodes = document.getElementsByTagNameNS(namespace, localName);
+        if (nodes.getLength() == 0) {
+            return null;
+        }
+        String text = nodes.item(0).getTextContent().trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    private static Integer parseInteger(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            int parsed = Integer.parseInt(value);
+            return parsed > 0 ? parsed : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean startsWith(byte[] bytes, String prefix) {
+        if (bytes.length < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (bytes[i] != (byte) prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static final class PdfScan {
+        private int pageObjects;
+        private int treeCount;
+        private String language;
+
+        private void scan(ByteBuffer pdf, boolean expandObjectStreams) {
+            int position = 0;
+            while ((position = indexOf(pdf, TYPE, position, pdf.limit())) >= 0) {
+                int value = skipWhitespace(pdf, position + TYPE.length);
+                if (matchesName(pdf, value, PAGES)) {
+                    // Intermediate nodes count their subtree only; the root has the largest count
+                    treeCount = Math.max(treeCount, countOf(pdf, position));
+                } else if (matchesName(pdf, value, PAGE)) {
+                    pageObjects++;
+                } else if (expandObjectStreams && matchesName(pdf, value, OBJECT_STREAM)) {
+                    ByteBuffer objects = inflateStream(pdf, position);
+                    if (objects != null) {
+                        scan(objects, false);
+                    }
+                }
+                position = value;
+            }
+
+            if (language == null) {
+                int lang = indexOf(pdf, LANG, 0, pdf.limit());
+                if (lang >= 0) {
+                    language = readLiteralString(pdf, skipWhitespace(pdf, lang + LANG.length));
+                }
+            }
+        }
+
+        private Integer pageCount() {
+            if (treeCount > 0) {
+                return treeCount;
+            }
+            return pageObjects > 0 ? pageObjects : null;
+        }
+    }
+
+    /**
+     * Stops after the limit so a forged entry size cannot fill the disk
+     */
+    private static final class BoundedInputStream extends InputStream {
+        private final InputStream in;
+        private long remaining;
+
+        private BoundedInputStream(InputStream in, long limit) {
+            this.in = in;
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = in.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,493 @@
+package com.alibou.security.core.infrastructure.service;
+
+import com.alibou.security.book.Book;
+import com.alibou.security.book.BookRepository;
+import com.alibou.security.core.domain.entity.FileProcessingJob;
+import com.alibou.security.core.domain.entity.FileProcessingJob.Status;
+import com.alibou.security.core.domain.entity.FileProcessingJob.TargetType;
+import com.alibou.security.core.domain.repository.FileProcessingJobRepository;
+import com.alibou.security.core.domain.service.ExtractedFileMetadata;
+import com.alibou.security.core.domain.service.FileStorageService;
+import com.alibou.security.core.domain.service.ProcessingJobStatus;
+import com.alibou.security.document.domain.entity.TechnicalDocument;
+import com.alibou.security.document.domain.repository.TechnicalDocumentRepository;
+import com.alibou.security.exception.ResourceNotFoundException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs post-upload processing of books and technical documents out of band
+ *
+ * Uploads only insert a QUEUED row in file_processing_job. Every node polls the
+ * table, claims jobs with a conditional UPDATE (so each job runs once) and hands
+ * them to a small fixed worker pool; it never claims more than the pool can
+ * hold. A job extracts format, page count and language, stores the embedded
+ * EPUB cover when the book has none, and renders a thumbnail of the cover.
+ * Results are written back to the book or document and kept on the job row
+ * for polling clients. Failed jobs are retried up to max-attempts; jobs of a
+ * node that died are put back after stale-after-minutes.
+ */
+@Component
+@Slf4j
+public class FileProcessingJobService {
+
+    private static final String IMAGES_CATEGORY = "images";
+    private static final String THUMBNAILS_DIRECTORY = "thumbnails";
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final FileProcessingJobRepository jobRepository;
+    private final BookRepository bookRepository;
+    private final TechnicalDocumentRepository documentRepository;
+    private final FileMetadataExtractor metadataExtractor;
+    private final ThumbnailGenerator thumbnailGenerator;
+    private final StorageLayout storageLayout;
+    private final StorageUsageTracker usageTracker;
+    private final FileStorageService fileStorageService;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor executor;
+    private final int capacity;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final String workerName;
+
+    @Value("${app.file-storage.base-path:./uploads}")
+    private String baseStoragePath;
+
+    @Value("${app.upload.dir:./uploads}")
+    private String documentUploadDir;
+
+    @Value("${app.file-processing.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.file-processing.stale-after-minutes:30}")
+    private long staleAfterMinutes;
+
+    public FileProcessingJobService(FileProcessingJobRepository jobRepository,
+                                    BookRepository bookRepository,
+                                    TechnicalDocumentRepository documentRepository,
+                                    FileMetadataExtractor metadataExtractor,
+                                    ThumbnailGenerator thumbnailGenerator,
+                                    StorageLayout storageLayout,
+                                    StorageUsageTracker usageTracker,
+                                    FileStorageService fileStorageService,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${app.file-processing.workers:2}") int workers) {
+        this.jobRepository = jobRepository;
+        this.bookRepository = bookRepository;
+        this.documentRepository = documentRepository;
+        this.metadataExtractor = metadataExtractor;
+        this.thumbnailGenerator = thumbnailGenerator;
+        this.storageLayout = storageLayout;
+        this.usageTracker = usageTracker;
+        this.fileStorageService = fileStorageService;
+
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        // Bounded on both ends: fixed threads, and a queue only as deep as the pool
+        int poolSize = Math.max(1, workers);
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+            poolSize, poolSize, 60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(poolSize),
+            runnable -> {
+                Thread thread = new Thread(runnable, "file-processing-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.executor.allowCoreThreadTimeOut(true);
+        this.capacity = poolSize * 2;
+        this.workerName = workerName();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Unfinished jobs stay RUNNING and are requeued once they are stale
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queue processing of a target; joins the caller's transaction so the job
+     * only becomes visible together with the file it processes
+     */
+    @Transactional
+    public ProcessingJobStatus enqueue(TargetType targetType, Integer targetId, Integer requestedBy) {
+        // A job that has not started yet will read the current file anyway
+        FileProcessingJob job = jobRepository
+            .findFirstByTargetTypeAndTargetIdAndStatusOrderByIdDesc(targetType, targetId, Status.QUEUED)
+            .orElseGet(() -> jobRepository.save(FileProcessingJob.builder()
+                .targetType(targetType)
+                .targetId(targetId)
+                .status(Status.QUEUED)
+                .requestedBy(requestedBy)
+                .createdAt(LocalDateTime.now())
+                .build()));
+        return toStatus(job);
+    }
+
+    /**
+     * Queue processing of freshly inserted targets (batch uploads), no duplicate check needed
+     */
+    @Transactional
+    public void enqueueAll(TargetType targetType, List<Integer> targetIds, Integer requestedBy) {
+        LocalDateTime now = LocalDateTime.now();
+        jobRepository.saveAll(targetIds.stream()
+            .map(targetId -> FileProcessingJob.builder()
+                .targetType(targetType)
+                .targetId(targetId)
+                .status(Status.QUEUED)
+                .requestedBy(requestedBy)
+                .createdAt(now)
+                .build())
+            .toList());
+    }
+
+    @Transactional(readOnly = true)
+    public ProcessingJobStatus getStatus(Long jobId) {
+        return jobRepository.findById(jobId)
+            .map(this::toStatus)
+            .orElseThrow(() -> new ResourceNotFoundException("Processing job not found: " + jobId));
+    }
+
+    /**
+     * Most recent job of a target, e.g. the one queued by its upload
+     */
+    @Transactional(readOnly = true)
+    public ProcessingJobStatus getLatestStatus(TargetType targetType, Integer targetId) {
+        return jobRepository.findFirstByTargetTypeAndTargetIdOrderByIdDesc(targetType, targetId)
+            .map(this::toStatus)
+            .orElseThrow(() -> new ResourceNotFoundException(
+                "No processing job for " + targetType.name().toLowerCase(Locale.ROOT) + " " + targetId));
+    }
+
+    /**
+     * Claim as many queued jobs as the pool has room for
+     */
+    @Scheduled(initialDelayString = "${app.file-processing.poll-interval-ms:2000}",
+               fixedDelayString = "${app.file-processing.poll-interval-ms:2000}")
+    public void poll() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime staleBefore = now.minusMinutes(staleAfterMinutes);
+        int requeued = jobRepository.requeueStale(staleBefore, maxAttempts);
+        int abandoned = jobRepository.failStale(staleBefore, maxAttempts, now, "Worker stopped before finishing the job");
+        if (requeued > 0 || abandoned > 0) {
+            log.warn("Stale processing jobs: {} requeued, {} failed", requeued, abandoned);
+        }
+
+        int free = capacity - inFlight.get();
+        if (free <= 0) {
+            return;
+        }
+        for (Long jobId : jobRepository.findIdsByStatus(Status.QUEUED, PageRequest.of(0, free))) {
+            if (jobRepository.claim(jobId, workerName, LocalDateTime.now()) == 0) {
+                continue; // Another node was faster
+            }
+            inFlight.incrementAndGet();
+            try {
+                executor.execute(() -> {
+                    try {
+                        run(jobId);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                inFlight.decrementAndGet();
+                transactionTemplate.executeWithoutResult(status -> release(jobId));
+            }
+        }
+    }
+
+    private void run(Long jobId) {
+        long started = System.currentTimeMillis();
+        try {
+            ProcessingTarget target = transactionTemplate.execute(status -> loadTarget(jobId));
+            ProcessingOutcome outcome = process(target);
+            transactionTemplate.executeWithoutResult(status -> complete(jobId, target, outcome));
+            log.info("Processed {} {} in {} ms (format {}, {} pages)", target.type, target.id,
+                System.currentTimeMillis() - started, outcome.metadata.getFileFormat(),
+                outcome.metadata.getPageCount());
+        } catch (Exception e) {
+            log.warn("Processing job {} failed: {}", jobId, e.getMessage(), e);
+            try {
+                transactionTemplate.executeWithoutResult(status -> fail(jobId, e));
+            } catch (RuntimeException failure) {
+                log.error("Failed to record failure of processing job {}", jobId, failure);
+            }
+        }
+    }
+
+    private ProcessingTarget loadTarget(Long jobId) {
+        FileProcessingJob job = findJob(jobId);
+        if (job.getTargetType() == TargetType.BOOK) {
+            Book book = bookRepository.findById(job.getTargetId())
+                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy sách với ID: " + job.getTargetId()));
+            if (book.getFilePath() == null) {
+                throw new ResourceNotFoundException("Sách chưa có file: " + book.getId());
+            }
+            Path file = ObjectStorageFileStorageService.isObjectPath(book.getFilePath())
+                ? null : Paths.get(book.getFilePath());
+            return new ProcessingTarget(TargetType.BOOK, book.getId(), book.getFilePath(),
+                file, book.getCoverImagePath());
+        }
+
+        TechnicalDocument document = documentRepository.findById(job.getTargetId())
+            .orElseThrow(() -> new ResourceNotFoundException("Document not found: " + job.getTargetId()));
+        if (document.getFilePath() == null) {
+            throw new ResourceNotFoundException("Document has no file: " + document.getId());
+        }
+        return new ProcessingTarget(TargetType.TECHNICAL_DOCUMENT, document.getId(), document.getFilePath(),
+            Paths.get(documentUploadDir, document.getFilePath()), null);
+    }
+
+    /**
+     * The slow part, outside any transaction
+     */
+    private ProcessingOutcome process(ProcessingTarget target) throws IOException {
+        if (target.file == null) {
+            // In object storage: the extractors need a local file
+            Path copy = copyToTemp(target.filePath);
+            try {
+                return process(new ProcessingTarget(target.type, target.id, target.filePath, copy, target.coverPath));
+            } finally {
+                Files.deleteIfExists(copy);
+            }
+        }
+        if (!Files.exists(target.file)) {
+            throw new ResourceNotFoundException("Stored file not found: " + target.filePath);
+        }
+        ExtractedFileMetadata metadata = metadataExtractor.extract(target.file);
+
+        String extractedCover = null;
+        Path coverSource = null;
+        if (target.coverPath != null) {
+            coverSource = Paths.get(target.coverPath);
+        } else if (metadata.getCoverEntry() != null && target.type == TargetType.BOOK) {
+            extractedCover = storeEmbeddedCover(target, metadata.getCoverEntry());
+            coverSource = Paths.get(extractedCover);
+        } else if (metadata.isImage()) {
+            coverSource = target.file;
+        }
+
+        String thumbnail = null;
+        if (coverSource != null && Files.exists(coverSource)) {
+            thumbnail = createThumbnail(target, coverSource);
+        }
+        return new ProcessingOutcome(metadata, extractedCover, thumbnail);
+    }
+
+    /**
+     * Local copy of a stored file, keeping its name (and so its extension)
+     */
+    private Path copyToTemp(String filePath) throws IOException {
+        if (!fileStorageService.fileExists(filePath)) {
+            throw new ResourceNotFoundException("Stored file not found: " + filePath);
+        }
+        Path tempDir = Paths.get(baseStoragePath, "temp");
+        Files.createDirectories(tempDir);
+        String fileName = filePath.substring(filePath.lastIndexOf('/') + 1);
+        Path copy = tempDir.resolve("processing_" + UUID.randomUUID().toString().substring(0, 8) + "_" + fileName);
+        try (InputStream in = fileStorageService.getFileAsStream(filePath)) {
+            Files.copy(in, copy);
+        }
+        return copy;
+    }
+
+    private String storeEmbeddedCover(ProcessingTarget target, String coverEntry) throws IOException {
+        String extension = coverEntry.contains(".")
+            ? coverEntry.substring(coverEntry.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT)
+            : "jpg";
+        String fileName = String.format("book_%d_cover_%s.%s", target.id,
+            UUID.randomUUID().toString().substring(0, 8), extension);
+        String relativePath = storageLayout.place(baseStoragePath + "/" + IMAGES_CATEGORY, fileName);
+
+        Path coverPath = Paths.get(relativePath);
+        metadataExtractor.copyEntry(target.file, coverEntry, coverPath);
+        usageTracker.recordStored(IMAGES_CATEGORY, Files.size(coverPath));
+        return relativePath;
+    }
+
+    /**
+     * One thumbnail per target with a fixed name, so reprocessing replaces it
+     */
+    private String createThumbnail(ProcessingTarget target, Path coverSource) throws IOException {
+        String fileName = target.type.name().toLowerCase(Locale.ROOT) + "_" + target.id + ".jpg";
+        String relativePath = storageLayout.place(baseStoragePath + "/" + THUMBNAILS_DIRECTORY, fileName);
+
+        Path thumbnailPath = Paths.get(relativePath);
+        long previousSize = Files.exists(thumbnailPath) ? Files.size(thumbnailPath) : -1;
+        if (!thumbnailGenerator.createThumbnail(coverSource, thumbnailPath)) {
+            return null;
+        }
+        String category = usageTracker.categoryOf(thumbnailPath);
+        if (previousSize >= 0) {
+            usageTracker.recordDeleted(category, previousSize);
+        }
+        usageTracker.recordStored(category, Files.size(thumbnailPath));
+        return relativePath;
+    }
+
+    private void complete(Long jobId, ProcessingTarget target, ProcessingOutcome outcome) {
+        ExtractedFileMetadata metadata = outcome.metadata;
+        boolean coverUsed = false;
+
+        // Only write back if the file was not replaced meanwhile; its own job takes over then
+        if (target.type == TargetType.BOOK) {
+            Book book = bookRepository.findById(target.id).orElse(null);
+            if (book != null && target.filePath.equals(book.getFilePath())) {
+                if (metadata.getPageCount() != null) {
+                    book.setPageCount(metadata.getPageCount());
+                }
+                if (book.getLanguage() == null && metadata.getLanguage() != null) {
+                    book.setLanguage(truncate(metadata.getLanguage(), 50));
+                }
+                if (metadata.getFileFormat() != null && !metadata.isImage()) {
+                    book.setFileFormat(metadata.getFileFormat());
+                }
+                if (outcome.extractedCover != null && book.getCoverImagePath() == null) {
+                    book.setCoverImagePath(outcome.extractedCover);
+                    coverUsed = true;
+                }
+                bookRepository.save(book);
+            }
+        } else {
+            TechnicalDocument document = documentRepository.findById(target.id).orElse(null);
+            if (document != null && target.filePath.equals(document.getFilePath())
+                    && metadata.getPageCount() != null) {
+                document.setPageCount(metadata.getPageCount());
+                documentRepository.save(document);
+            }
+        }
+        if (outcome.extractedCover != null && !coverUsed) {
+            deleteQuietly(Paths.get(outcome.extractedCover));
+        }
+
+        FileProcessingJob job = findJob(jobId);
+        job.setStatus(Status.SUCCEEDED);
+        job.setFinishedAt(LocalDateTime.now());
+        job.setFileFormat(metadata.getFileFormat());
+        job.setPageCount(metadata.getPageCount());
+        job.setLanguage(truncate(metadata.getLanguage(), 50));
+        job.setThumbnailPath(outcome.thumbnailPath);
+        job.setErrorMessage(null);
+        jobRepository.save(job);
+    }
+
+    private void fail(Long jobId, Exception cause) {
+        FileProcessingJob job = findJob(jobId);
+        // A missing book or file will not come back by retrying
+        boolean retry = !(cause instanceof ResourceNotFoundException) && job.getAttempts() < maxAttempts;
+        job.setStatus(retry ? Status.QUEUED : Status.FAILED);
+        job.setFinishedAt(retry ? null : LocalDateTime.now());
+        job.setErrorMessage(truncate(cause.getClass().getSimpleName() + ": " + cause.getMessage(), MAX_ERROR_LENGTH));
+        jobRepository.save(job);
+    }
+
+    /**
+     * Undo a claim the pool could not take
+     */
+    private void release(Long jobId) {
+        FileProcessingJob job = findJob(jobId);
+        job.setStatus(Status.QUEUED);
+        job.setAttempts(Math.max(0, job.getAttempts() - 1));
+        jobRepository.save(job);
+    }
+
+    private FileProcessingJob findJob(Long jobId) {
+        return jobRepository.findById(jobId)
+            .orElseThrow(() -> new ResourceNotFoundException("Processing job not found: " + jobId));
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            long size = Files.size(path);
+            Files.delete(path);
+            usageTracker.recordDeleted(usageTracker.categoryOf(path), size);
+        } catch (IOException e) {
+            log.warn("Failed to delete unused cover: {}", path, e);
+        }
+    }
+
+    private ProcessingJobStatus toStatus(FileProcessingJob job) {
+        return new ProcessingJobStatus(
+            job.getId(),
+            job.getTargetType().name(),
+            job.getTargetId(),
+            job.getStatus().name(),
+            job.getAttempts(),
+            job.getFileFormat(),
+            job.getPageCount(),
+            job.getLanguage(),
+            job.getThumbnailPath(),
+            job.getErrorMessage(),
+            job.getCreatedAt(),
+            job.getStartedAt(),
+            job.getFinishedAt()
+        );
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value == null || value.length() <= maxLength ? value : value.substring(0, maxLength);
+    }
+
+    private static String workerName() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            host = "unknown";
+        }
+        return truncate(host, 80) + ":" + ProcessHandle.current().pid();
+    }
+
+    private static final class ProcessingTarget {
+        private final TargetType type;
+        private final Integer id;
+        private final String filePath;
+        private final Path file;
+        private final String coverPath;
+
+        private ProcessingTarget(TargetType type, Integer id, String filePath, Path file, String coverPath) {
+            this.type = type;
+            this.id = id;
+            this.filePath = filePath;
+            this.file = file;
+            this.coverPath = coverPath;
+        }
+    }
+
+    private static final class ProcessingOutcome {
+        private final ExtractedFileMetadata metadata;
+        private final String extractedCover;
+        private final String thumbnailPath;
+
+        private ProcessingOutcome(ExtractedFileMetadata metadata, String extractedCover, String thumbnailPath) {
+            this.metadata = metadata;
+            this.extractedCover = extractedCover;
+            this.thumbnailPath = thumbnailPath;
+        }
+    }
+}
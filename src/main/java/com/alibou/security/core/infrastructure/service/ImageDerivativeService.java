@@ -0,0 +1,329 @@
+package com.alibou.security.core.infrastructure.service;
+
+import com.alibou.security.core.domain.service.ImageDerivative;
+import com.alibou.security.core.domain.service.ImageVariant;
+import com.alibou.security.exception.ResourceNotFoundException;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+/**
+ * Renders and caches fixed-width variants ({@link ImageVariant}) of stored images
+ *
+ * A variant is rendered on first request and kept in a disk cache below
+ * cache-dir, named after a hash of the source path, size, modification time
+ * and target width. A replaced source therefore gets new cache entries, and
+ * stale ones simply age out. The cache is bounded by cache-max-bytes and
+ * evicts least recently used entries; recency survives restarts through the
+ * entries' modification times. Concurrent requests for the same missing
+ * variant share one render, and at most max-concurrent-renders run at once.
+ */
+@Component
+@Slf4j
+public class ImageDerivativeService {
+
+    private static final Duration TOUCH_INTERVAL = Duration.ofHours(1);
+    private static final String IMAGES_CATEGORY = "images";
+
+    private final ThumbnailGenerator thumbnailGenerator;
+    private final StorageUsageTracker usageTracker;
+
+    // Access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<Path, Long> cacheEntries = new LinkedHashMap<>(256, 0.75f, true);
+    private long cacheBytes;
+    private final Map<String, CompletableFuture<Path>> renders = new ConcurrentHashMap<>();
+    private final Semaphore renderPermits;
+
+    @Value("${app.image-derivatives.cache-dir:./uploads/cache/images}")
+    private String cacheDir;
+
+    @Value("${app.image-derivatives.cache-max-bytes:536870912}") // 512MB default
+    private long cacheMaxBytes;
+
+    @Value("${app.file-storage.base-path:./uploads}")
+    private String baseStoragePath;
+
+    @Value("${app.upload.dir:./uploads}")
+    private String documentUploadDir;
+
+    public ImageDerivativeService(ThumbnailGenerator thumbnailGenerator,
+                                  StorageUsageTracker usageTracker,
+                                  @Value("${app.image-derivatives.max-concurrent-renders:2}") int maxConcurrentRenders) {
+        this.thumbnailGenerator = thumbnailGenerator;
+        this.usageTracker = usageTracker;
+        this.renderPermits = new Semaphore(Math.max(1, maxConcurrentRenders));
+    }
+
+    /**
+     * Rebuild the LRU order from the cache directory, oldest first
+     */
+    @PostConstruct
+    void loadCache() {
+        Path root = cacheRoot();
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        List<Map.Entry<Path, BasicFileAttributes>> files = new ArrayList<>();
+        try (Stream<Path> walk = Files.walk(root)) {
+            walk.filter(path -> path.getFileName().toString().endsWith(".jpg")).forEach(path -> {
+                try {
+                    files.add(Map.entry(path, Files.readAttributes(path, BasicFileAttributes.class)));
+                } catch (IOException e) {
+                    log.debug("Skipping unreadable cache entry {}", path);
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Failed to load image cache from {}", root, e);
+            return;
+        }
+
+        files.sort(Comparator.comparing(entry -> entry.getValue().lastModifiedTime()));
+        synchronized (cacheEntries) {
+            for (Map.Entry<Path, BasicFileAttributes> file : files) {
+                cacheEntries.put(file.getKey(), file.getValue().size());
+                cacheBytes += file.getValue().size();
+            }
+        }
+        evictOverBudget(null);
+        log.info("Image cache: {} entries, {} bytes", files.size(), cacheBytes);
+    }
+
+    /**
+     * The variant of a stored image, rendered on a cache miss
+     *
+     * @param storedPath path as stored on the entity, e.g. Book.coverImagePath
+     * @param uploadRoot true for paths relative to app.upload.dir (product images),
+     *                   false for paths that already carry the storage base path
+     */
+    public ImageDerivative getDerivative(String storedPath, boolean uploadRoot, ImageVariant variant) throws IOException {
+        if (storedPath == null || storedPath.isBlank() || storedPath.contains("://")) {
+            throw new ResourceNotFoundException("No stored image");
+        }
+        return getDerivative(storedPath, resolveSource(storedPath, uploadRoot), variant);
+    }
+
+    /**
+     * Variant of an image that must have been uploaded by the given user (profile
+     * images, whose path the user sets), see isOwnedImage
+     */
+    public ImageDerivative getOwnedDerivative(String storedPath, Integer ownerId, ImageVariant variant) throws IOException {
+        if (!isOwnedImage(storedPath, ownerId)) {
+            throw new ResourceNotFoundException("No stored image");
+        }
+        return getDerivative(storedPath, resolveSource(storedPath, false), variant);
+    }
+
+    /**
+     * Whether a path names an image the storage service stored for an upload by
+     * the given user: below the images category, with the user's id in the
+     * generated file name
+     */
+    public boolean isOwnedImage(String storedPath, Integer ownerId) {
+        if (storedPath == null || storedPath.isBlank() || storedPath.contains("://")) {
+            return false;
+        }
+        try {
+            Path source = Paths.get(storedPath).toAbsolutePath().normalize();
+            Path imagesRoot = Paths.get(baseStoragePath, IMAGES_CATEGORY).toAbsolutePath().normalize();
+            return source.startsWith(imagesRoot)
+                && LocalFileStorageService.isIssuedTo(source.getFileName().toString(), ownerId);
+        } catch (InvalidPathException e) {
+            return false;
+        }
+    }
+
+    private ImageDerivative getDerivative(String storedPath, Path source, ImageVariant variant) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(source, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            throw new ResourceNotFoundException("Image file not found: " + storedPath);
+        }
+
+        String key = cacheKey(source, attributes, variant);
+        Path cached = cacheRoot().resolve(key.substring(0, 2)).resolve(key + ".jpg");
+
+        if (!isCached(cached)) {
+            render(key, source, cached, variant);
+        }
+        try {
+            InputStream in = Files.newInputStream(cached);
+            return new ImageDerivative(in, Files.size(cached), key, ImageVariant.version(storedPath, attributes));
+        } catch (NoSuchFileException e) {
+            // Evicted between render and open; render once more
+            forget(cached);
+            render(key, source, cached, variant);
+            return new ImageDerivative(Files.newInputStream(cached), Files.size(cached), key,
+                ImageVariant.version(storedPath, attributes));
+        }
+    }
+
+    // Helper methods
+
+    /**
+     * Stored paths come from user-editable fields, so only files below the
+     * storage roots are ever read
+     */
+    private Path resolveSource(String storedPath, boolean uploadRoot) {
+        Path root = Paths.get(uploadRoot ? documentUploadDir : baseStoragePath).toAbsolutePath().normalize();
+        Path source = (uploadRoot ? Paths.get(documentUploadDir, storedPath) : Paths.get(storedPath))
+            .toAbsolutePath().normalize();
+        if (!source.startsWith(root) || source.startsWith(cacheRoot())) {
+            throw new ResourceNotFoundException("Image is not a stored file: " + storedPath);
+        }
+        return source;
+    }
+
+    private boolean isCached(Path cached) {
+        synchronized (cacheEntries) {
+            if (cacheEntries.get(cached) == null) {
+                return false;
+            }
+        }
+        // Keep the on-disk recency roughly current so the LRU order survives a restart
+        try {
+            FileTime modified = Files.getLastModifiedTime(cached);
+            Instant now = Instant.now();
+            if (modified.toInstant().isBefore(now.minus(TOUCH_INTERVAL))) {
+                Files.setLastModifiedTime(cached, FileTime.from(now));
+            }
+            return true;
+        } catch (IOException e) {
+            forget(cached);
+            return false;
+        }
+    }
+
+    private void render(String key, Path source, Path cached, ImageVariant variant) throws IOException {
+        CompletableFuture<Path> render = new CompletableFuture<>();
+        CompletableFuture<Path> running = renders.putIfAbsent(key, render);
+        if (running != null) {
+            awaitRender(running);
+            return;
+        }
+
+        try {
+            renderPermits.acquire();
+            try {
+                if (!thumbnailGenerator.createThumbnail(source, cached, variant.getWidth())) {
+                    throw new ResourceNotFoundException("Not a readable image: " + source.getFileName());
+                }
+            } finally {
+                renderPermits.release();
+            }
+            long size = Files.size(cached);
+            synchronized (cacheEntries) {
+                Long previous = cacheEntries.put(cached, size);
+                cacheBytes += size - (previous != null ? previous : 0);
+            }
+            usageTracker.recordStored(usageTracker.categoryOf(cached), size);
+            evictOverBudget(cached);
+            render.complete(cached);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            IOException failure = new IOException("Interrupted while waiting to render " + source.getFileName());
+            render.completeExceptionally(failure);
+            throw failure;
+        } catch (IOException | RuntimeException e) {
+            render.completeExceptionally(e);
+            throw e;
+        } finally {
+            renders.remove(key);
+        }
+    }
+
+    private static void awaitRender(CompletableFuture<Path> running) throws IOException {
+        try {
+            running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Delete least recently used entries until the cache fits its budget
+     */
+    private void evictOverBudget(Path keep) {
+        List<Map.Entry<Path, Long>> evicted = new ArrayList<>();
+        synchronized (cacheEntries) {
+            Iterator<Map.Entry<Path, Long>> entries = cacheEntries.entrySet().iterator();
+            while (cacheBytes > cacheMaxBytes && entries.hasNext()) {
+                Map.Entry<Path, Long> eldest = entries.next();
+                if (eldest.getKey().equals(keep)) {
+                    continue;
+                }
+                cacheBytes -= eldest.getValue();
+                evicted.add(Map.entry(eldest.getKey(), eldest.getValue()));
+                entries.remove();
+            }
+        }
+        for (Map.Entry<Path, Long> entry : evicted) {
+            try {
+                if (Files.deleteIfExists(entry.getKey())) {
+                    usageTracker.recordDeleted(usageTracker.categoryOf(entry.getKey()), entry.getValue());
+                }
+            } catch (IOException e) {
+                log.warn("Failed to evict image cache entry {}", entry.getKey(), e);
+            }
+        }
+    }
+
+    private void forget(Path cached) {
+        synchronized (cacheEntries) {
+            Long size = cacheEntries.remove(cached);
+            if (size != null) {
+                cacheBytes -= size;
+            }
+        }
+    }
+
+    private Path cacheRoot() {
+        return Paths.get(cacheDir).toAbsolutePath().normalize();
+    }
+
+    private static String cacheKey(Path source, BasicFileAttributes attributes, ImageVariant variant) {
+        String identity = source + "|" + attributes.size() + "|" + attributes.lastModifiedTime().toMillis()
+            + "|" + variant.getWidth();
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(identity.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+    }
+}
@@ -0,0 +1,627 @@
+package com.alibou.security.core.infrastructure.service;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index from words to the ids of the rows containing them
+ *
+ * The bulk of the index is an immutable segment: terms sorted by their UTF-8
+ * bytes, each with a posting list of ascending ids stored as varint-encoded
+ * gaps (one or two bytes per posting), plus bitsets of the ids it holds and of
+ * those that are visible (active, public). A segment is read in place from a
+ * ByteBuffer, so a segment file is memory-mapped rather than loaded onto the
+ * heap.
+ *
+ * Changes go to a small in-memory delta: a changed or removed id is masked out
+ * of the segment and its new terms are kept in a sorted map, until compact()
+ * merges segment and delta into a new segment.
+ *
+ * Text is folded to lower case without diacritics ("Tô Hoài" -> "to", "hoai")
+ * and split on anything that is not a letter or digit. A query matches the ids
+ * containing every query word as the prefix of a word.
+ *
+ * Searches run concurrently with each other and with the (single) writer;
+ * mutating methods are synchronized.
+ */
+public class InvertedIndex {
+
+    private static final int MAGIC = 0x42495831; // "BIX1"
+    private static final int TRAILER_BYTES = 28;
+    private static final int MAX_TERM_LENGTH = 32;
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Segment segment;
+    private final BitSet masked = new BitSet();
+    private final TreeMap<String, IntList> deltaTerms = new TreeMap<>();
+    private final Map<Integer, String[]> deltaDocs = new HashMap<>();
+    private final BitSet deltaVisible = new BitSet();
+    private long watermark;
+
+    private InvertedIndex(Segment segment) {
+        this.segment = segment;
+        this.watermark = segment.watermark;
+    }
+
+    /**
+     * Memory-map a segment file written by a previous build or compaction
+     */
+    public static InvertedIndex open(Path file) throws IOException {
+        return new InvertedIndex(Segment.map(file));
+    }
+
+    /**
+     * Ids of the rows matching every word of the query, highest (newest) first
+     */
+    public int[] search(String query, boolean visibleOnly) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty()) {
+            return new int[0];
+        }
+        lock.readLock().lock();
+        try {
+            BitSet matches = null;
+            for (String word : words) {
+                BitSet ids = segment.prefixMatches(word.getBytes(StandardCharsets.UTF_8));
+                ids.andNot(masked);
+                for (IntList delta : deltaTerms.subMap(word, true, word + Character.MAX_VALUE, false).values()) {
+                    delta.setAll(ids);
+                }
+                if (matches == null) {
+                    matches = ids;
+                } else {
+                    matches.and(ids);
+                }
+                if (matches.isEmpty()) {
+                    return new int[0];
+                }
+            }
+            if (visibleOnly) {
+                BitSet visible = (BitSet) segment.visible.clone();
+                visible.andNot(masked);
+                visible.or(deltaVisible);
+                matches.and(visible);
+            }
+            int[] ids = new int[matches.cardinality()];
+            int count = 0;
+            for (int id = matches.length() - 1; id >= 0; id = matches.previousSetBit(id - 1)) {
+                ids[count++] = id;
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Add or replace the row with the given id
+     */
+    public synchronized void put(int id, boolean visible, String text) {
+        String[] terms = tokenize(text).toArray(String[]::new);
+        lock.writeLock().lock();
+        try {
+            removeFromDelta(id);
+            if (segment.present.get(id)) {
+                masked.set(id);
+            }
+            for (String term : terms) {
+                deltaTerms.computeIfAbsent(term, key -> new IntList()).insert(id);
+            }
+            deltaDocs.put(id, terms);
+            deltaVisible.set(id, visible);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public synchronized void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            removeFromDelta(id);
+            if (segment.present.get(id)) {
+                masked.set(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of all rows held, visible or not
+     */
+    public synchronized BitSet ids() {
+        BitSet ids = (BitSet) segment.present.clone();
+        ids.andNot(masked);
+        deltaDocs.keySet().forEach(ids::set);
+        return ids;
+    }
+
+    /**
+     * Rows changed since the last compaction
+     */
+    public synchronized int deltaSize() {
+        return deltaDocs.size() + masked.cardinality();
+    }
+
+    /**
+     * Time up to which the owner has applied all changes; saved with the segment
+     */
+    public synchronized long getWatermark() {
+        return watermark;
+    }
+
+    public synchronized void setWatermark(long watermark) {
+        this.watermark = watermark;
+    }
+
+    /**
+     * Merge the delta into a new segment, written to the given file and mapped
+     * (or kept on the heap when file is null)
+     */
+    public synchronized void compact(Path file) throws IOException {
+        // Reading without the lock is safe: only synchronized methods change the delta and masks
+        BitSet present = ids();
+        BitSet visible = (BitSet) segment.visible.clone();
+        visible.andNot(masked);
+        visible.or(deltaVisible);
+
+        List<byte[]> deltaKeys = new ArrayList<>(deltaTerms.size());
+        List<IntList> deltaIds = new ArrayList<>(deltaTerms.size());
+        deltaTerms.entrySet().stream()
+            .map(entry -> Map.entry(entry.getKey().getBytes(StandardCharsets.UTF_8), entry.getValue()))
+            .sorted((a, b) -> Arrays.compareUnsigned(a.getKey(), b.getKey()))
+            .forEach(entry -> {
+                deltaKeys.add(entry.getKey());
+                deltaIds.add(entry.getValue());
+            });
+
+        SegmentWriter writer = new SegmentWriter(file);
+        Segment merged;
+        try {
+            PostingList postings = new PostingList();
+            int baseTerm = 0;
+            int deltaTerm = 0;
+            while (baseTerm < segment.termCount || deltaTerm < deltaKeys.size()) {
+                byte[] term;
+                int order = baseTerm == segment.termCount ? 1
+                    : deltaTerm == deltaKeys.size() ? -1
+                    : segment.compareTerm(baseTerm, deltaKeys.get(deltaTerm));
+                postings.clear();
+                if (order <= 0) {
+                    term = segment.term(baseTerm);
+                    // Delta ids are masked in the segment, so the two lists never share an id
+                    IntList delta = order == 0 ? deltaIds.get(deltaTerm++) : null;
+                    int[] next = {0};
+                    segment.decode(baseTerm++, id -> {
+                        if (!masked.get(id)) {
+                            while (delta != null && next[0] < delta.size && delta.values[next[0]] < id) {
+                                postings.add(delta.values[next[0]++]);
+                            }
+                            postings.add(id);
+                        }
+                    });
+                    while (delta != null && next[0] < delta.size) {
+                        postings.add(delta.values[next[0]++]);
+                    }
+                } else {
+                    term = deltaKeys.get(deltaTerm);
+                    IntList delta = deltaIds.get(deltaTerm++);
+                    for (int i = 0; i < delta.size; i++) {
+                        postings.add(delta.values[i]);
+                    }
+                }
+                if (postings.length > 0) {
+                    writer.addTerm(term, postings);
+                }
+            }
+            merged = writer.finish(present, visible, watermark);
+        } catch (IOException | RuntimeException e) {
+            writer.abort();
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            segment = merged;
+            masked.clear();
+            deltaTerms.clear();
+            deltaDocs.clear();
+            deltaVisible.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeFromDelta(int id) {
+        String[] terms = deltaDocs.remove(id);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            IntList ids = deltaTerms.get(term);
+            ids.delete(id);
+            if (ids.size == 0) {
+                deltaTerms.remove(term);
+            }
+        }
+        deltaVisible.clear(id);
+    }
+
+    /**
+     * Distinct index words of a text, folded to lower case without diacritics
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        String folded = fold(text);
+        Set<String> words = new LinkedHashSet<>();
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(folded.substring(start, Math.min(i, start + MAX_TERM_LENGTH)));
+                start = -1;
+            }
+        }
+        return new ArrayList<>(words);
+    }
+
+    /**
+     * Lower case without diacritics ("Tô Hoài" -> "to hoai")
+     */
+    static String fold(String text) {
+        return MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+            .replace('đ', 'd')
+            .replace('Đ', 'd')
+            .toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Builds a segment from rows added in ascending id order (a scan ordered by id)
+     */
+    public static class Builder {
+
+        private final Map<String, PostingList> terms = new HashMap<>();
+        private final BitSet present = new BitSet();
+        private final BitSet visible = new BitSet();
+        private int lastId = -1;
+
+        public void add(int id, boolean visible, String text) {
+            if (id <= lastId) {
+                throw new IllegalArgumentException("Ids must be added in ascending order: " + id + " after " + lastId);
+            }
+            lastId = id;
+            present.set(id);
+            this.visible.set(id, visible);
+            for (String term : tokenize(text)) {
+                terms.computeIfAbsent(term, key -> new PostingList()).add(id);
+            }
+        }
+
+        public int size() {
+            return present.cardinality();
+        }
+
+        public InvertedIndex build(Path file, long watermark) throws IOException {
+            List<Map.Entry<byte[], PostingList>> sorted = new ArrayList<>(terms.size());
+            terms.forEach((term, postings) -> sorted.add(Map.entry(term.getBytes(StandardCharsets.UTF_8), postings)));
+            terms.clear();
+            sorted.sort((a, b) -> Arrays.compareUnsigned(a.getKey(), b.getKey()));
+
+            SegmentWriter writer = new SegmentWriter(file);
+            try {
+                for (Map.Entry<byte[], PostingList> entry : sorted) {
+                    writer.addTerm(entry.getKey(), entry.getValue());
+                }
+                return new InvertedIndex(writer.finish(present, visible, watermark));
+            } catch (IOException | RuntimeException e) {
+                writer.abort();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Immutable, read in place: postings, term bytes, term and posting offsets,
+     * present and visible bitsets, then a fixed-size trailer
+     */
+    private static final class Segment {
+
+        private final ByteBuffer buffer;
+        private final int termCount;
+        private final int termBytesPos;
+        private final int termOffsetsPos;
+        private final int postingOffsetsPos;
+        private final long watermark;
+        private final BitSet present;
+        private final BitSet visible;
+
+        Segment(ByteBuffer buffer) throws IOException {
+            this.buffer = buffer;
+            int trailer = buffer.limit() - TRAILER_BYTES;
+            if (trailer < 0 || buffer.getInt(trailer) != MAGIC) {
+                throw new IOException("Not a search index segment");
+            }
+            this.watermark = buffer.getLong(trailer + 4);
+            this.termCount = buffer.getInt(trailer + 12);
+            int words = buffer.getInt(trailer + 16);
+            this.termBytesPos = buffer.getInt(trailer + 20);
+            this.termOffsetsPos = termBytesPos + buffer.getInt(trailer + 24);
+            this.postingOffsetsPos = termOffsetsPos + 4 * (termCount + 1);
+            int bitsPos = postingOffsetsPos + 4 * (termCount + 1);
+            if (bitsPos + 16L * words != trailer) {
+                throw new IOException("Corrupt search index segment");
+            }
+            this.present = readBits(bitsPos, words);
+            this.visible = readBits(bitsPos + 8 * words, words);
+        }
+
+        static Segment map(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                return new Segment(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+        }
+
+        BitSet prefixMatches(byte[] prefix) {
+            BitSet ids = new BitSet();
+            int low = 0;
+            int high = termCount;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compareTerm(mid, prefix) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            for (int term = low; term < termCount && startsWith(term, prefix); term++) {
+                decode(term, ids::set);
+            }
+            return ids;
+        }
+
+        void decode(int term, IntConsumer consumer) {
+            int position = buffer.getInt(postingOffsetsPos + 4 * term);
+            int end = buffer.getInt(postingOffsetsPos + 4 * (term + 1));
+            int id = -1;
+            while (position < end) {
+                int gap = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = buffer.get(position++);
+                    gap |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                id += gap;
+                consumer.accept(id);
+            }
+        }
+
+        byte[] term(int term) {
+            int start = termBytesPos + buffer.getInt(termOffsetsPos + 4 * term);
+            byte[] bytes = new byte[termBytesPos + buffer.getInt(termOffsetsPos + 4 * (term + 1)) - start];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = buffer.get(start + i);
+            }
+            return bytes;
+        }
+
+        int compareTerm(int term, byte[] key) {
+            int start = termBytesPos + buffer.getInt(termOffsetsPos + 4 * term);
+            int length = termBytesPos + buffer.getInt(termOffsetsPos + 4 * (term + 1)) - start;
+            for (int i = 0; i < Math.min(length, key.length); i++) {
+                int order = Integer.compare(buffer.get(start + i) & 0xFF, key[i] & 0xFF);
+                if (order != 0) {
+                    return order;
+                }
+            }
+            return Integer.compare(length, key.length);
+        }
+
+        private boolean startsWith(int term, byte[] prefix) {
+            int start = termBytesPos + buffer.getInt(termOffsetsPos + 4 * term);
+            int length = termBytesPos + buffer.getInt(termOffsetsPos + 4 * (term + 1)) - start;
+            if (length < prefix.length) {
+                return false;
+            }
+            for (int i = 0; i < prefix.length; i++) {
+                if (buffer.get(start + i) != prefix[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private BitSet readBits(int position, int words) {
+            long[] bits = new long[words];
+            for (int i = 0; i < words; i++) {
+                bits[i] = buffer.getLong(position + 8 * i);
+            }
+            return BitSet.valueOf(bits);
+        }
+    }
+
+    /**
+     * Streams postings out first, keeping only term bytes and offsets until finish()
+     */
+    private static final class SegmentWriter {
+
+        private final Path file;
+        private final Path temp;
+        private final ByteArrayOutputStream heap;
+        private final DataOutputStream out;
+        private final ByteArrayOutputStream termBytes = new ByteArrayOutputStream();
+        private final IntList termOffsets = new IntList();
+        private final IntList postingOffsets = new IntList();
+        private int postingsLength;
+
+        SegmentWriter(Path file) throws IOException {
+            this.file = file;
+            if (file == null) {
+                this.temp = null;
+                this.heap = new ByteArrayOutputStream();
+                this.out = new DataOutputStream(heap);
+            } else {
+                Files.createDirectories(file.toAbsolutePath().getParent());
+                this.temp = file.resolveSibling(file.getFileName() + ".tmp");
+                this.heap = null;
+                this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16));
+            }
+            termOffsets.add(0);
+            postingOffsets.add(0);
+        }
+
+        void addTerm(byte[] term, PostingList postings) throws IOException {
+            out.write(postings.bytes, 0, postings.length);
+            postingsLength = Math.addExact(postingsLength, postings.length);
+            termBytes.write(term, 0, term.length);
+            termOffsets.add(termBytes.size());
+            postingOffsets.add(postingsLength);
+        }
+
+        Segment finish(BitSet present, BitSet visible, long watermark) throws IOException {
+            termBytes.writeTo(out);
+            for (int i = 0; i < termOffsets.size; i++) {
+                out.writeInt(termOffsets.values[i]);
+            }
+            for (int i = 0; i < postingOffsets.size; i++) {
+                out.writeInt(postingOffsets.values[i]);
+            }
+            int words = (Math.max(present.length(), visible.length()) + 63) >>> 6;
+            writeBits(present, words);
+            writeBits(visible, words);
+            out.writeInt(MAGIC);
+            out.writeLong(watermark);
+            out.writeInt(termOffsets.size - 1);
+            out.writeInt(words);
+            out.writeInt(postingsLength);
+            out.writeInt(termBytes.size());
+            out.close();
+
+            if (heap != null) {
+                return new Segment(ByteBuffer.wrap(heap.toByteArray()));
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return Segment.map(file);
+        }
+
+        void abort() {
+            try {
+                out.close();
+                if (temp != null) {
+                    Files.deleteIfExists(temp);
+                }
+            } catch (IOException ignored) {
+                // Best effort; the next write replaces the temporary file
+            }
+        }
+
+        private void writeBits(BitSet bits, int words) throws IOException {
+            long[] values = bits.toLongArray();
+            for (int i = 0; i < words; i++) {
+                out.writeLong(i < values.length ? values[i] : 0L);
+            }
+        }
+    }
+
+    /**
+     * Ascending ids encoded as varint gaps
+     */
+    private static final class PostingList {
+
+        private byte[] bytes = new byte[4];
+        private int length;
+        private int last = -1;
+
+        void add(int id) {
+            int gap = id - last;
+            last = id;
+            if (length + 5 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + 5));
+            }
+            while ((gap & ~0x7F) != 0) {
+                bytes[length++] = (byte) ((gap & 0x7F) | 0x80);
+                gap >>>= 7;
+            }
+            bytes[length++] = (byte) gap;
+        }
+
+        void clear() {
+            length = 0;
+            last = -1;
+        }
+    }
+
+    /**
+     * Growable int array, kept sorted when filled through insert()
+     */
+    private static final class IntList {
+
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void insert(int value) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = value;
+            size++;
+        }
+
+        void delete(int value) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, size - index - 1);
+                size--;
+            }
+        }
+
+        void setAll(BitSet bits) {
+            for (int i = 0; i < size; i++) {
+                bits.set(values[i]);
+            }
+        }
+    }
+}
@@ -1,27 +1,41 @@
 package com.alibou.security.core.infrastructure.service;
 
 import com.alibou.security.core.domain.service.*;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
 import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Local file system implementation of FileStorageService
  * Production ready with security, validation, and error handling
  */
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class LocalFileStorageService implements FileStorageService {
 
+    private final StorageUsageTracker usageTracker;
+    private final SnapshotBackupService snapshotBackupService;
+    private final StorageLayout storageLayout;
+    private final CompressedVariantService compressedVariantService;
+    private final DownloadTokenService downloadTokenService;
+
     @Value("${app.file-storage.base-path:./uploads}")
     private String baseStoragePath;
     
@@ -33,6 +47,9 @@ public class LocalFileStorageService implements FileStorageService {
     
     @Value("${app.file-storage.temp-cleanup-hours:24}")
     private int tempCleanupHours;
+    
+    @Value("${app.file-storage.backup.mode:snapshot}") // snapshot | copy
+    private String backupMode;
 
     private static final Map<String, List<String>> CATEGORY_ALLOWED_TYPES = Map.of(
         "books", Arrays.asList("pdf", "epub", "mobi", "txt", "doc", "docx"),
@@ -54,20 +71,20 @@ public class LocalFileStorageService implements FileStorageService {
                     String.join(", ", validation.getErrors()));
             }
             
-            // Create storage directory structure
-            Path categoryPath = createCategoryDirectory(category);
-            
-            // Generate unique filename
+            // Generate unique filename and its (sharded) location in the category
             String fileName = generateUniqueFileName(file.getOriginalFilename(), userId);
-            Path filePath = categoryPath.resolve(fileName);
-            
-            // Calculate checksum
-            String checksum = calculateChecksum(file.getBytes());
-            
-            // Store file
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+            String relativePath = storageLayout.place(baseStoragePath + "/" + category, fileName);
+            Path filePath = Paths.get(relativePath);
+            Files.createDirectories(filePath.getParent());
+            
+            // Store file, hashing the bytes as they stream to disk
+            String checksum;
+            try (InputStream in = file.getInputStream()) {
+                checksum = copyWithChecksum(in, filePath);
+            }
             
-            String relativePath = baseStoragePath + "/" + category + "/" + fileName;
+            usageTracker.recordStored(category, Files.size(filePath));
+            compressedVariantService.createVariant(filePath);
             
             log.info("Successfully stored file: {} at path: {}", file.getOriginalFilename(), relativePath);
             
@@ -99,20 +116,17 @@ public class LocalFileStorageService implements FileStorageService {
                 return new FileStorageResult("File size exceeds maximum allowed size");
             }
             
-            // Create storage directory
-            Path categoryPath = createCategoryDirectory(category);
-            
-            // Generate unique filename
+            // Generate unique filename and its (sharded) location in the category
             String fileName = generateUniqueFileName(originalFileName, userId);
-            Path filePath = categoryPath.resolve(fileName);
-            
-            // Store file
-            Files.copy(inputStream, filePath, StandardCopyOption.REPLACE_EXISTING);
+            String relativePath = storageLayout.place(baseStoragePath + "/" + category, fileName);
+            Path filePath = Paths.get(relativePath);
+            Files.createDirectories(filePath.getParent());
             
-            // Calculate checksum
-            String checksum = calculateChecksum(Files.readAllBytes(filePath));
+            // Store file and calculate checksum in a single pass
+            String checksum = copyWithChecksum(inputStream, filePath);
             
-            String relativePath = baseStoragePath + "/" + category + "/" + fileName;
+            usageTracker.recordStored(category, Files.size(filePath));
+            compressedVariantService.createVariant(filePath);
             
             log.info("Successfully stored file from stream: {} at path: {}", originalFileName, relativePath);
             
@@ -139,7 +153,10 @@ public class LocalFileStorageService implements FileStorageService {
         try {
             Path path = Paths.get(filePath);
             if (Files.exists(path)) {
+                long size = Files.size(path);
                 Files.delete(path);
+                usageTracker.recordDeleted(extractCategoryFromPath(filePath), size);
+                compressedVariantService.deleteVariant(path);
                 log.info("Successfully deleted file: {}", filePath);
             } else {
                 log.warn("File not found for deletion: {}", filePath);
@@ -166,6 +183,44 @@ public class LocalFileStorageService implements FileStorageService {
         }
     }
 
+    @Override
+    public StoredFileContent openForDownload(String filePath, boolean acceptGzip) {
+        log.debug("Opening file for download: {}", filePath);
+        
+        try {
+            Path path = Paths.get(filePath);
+            if (!Files.exists(path)) {
+                throw new FileNotFoundException("File not found: " + filePath);
+            }
+            
+            Path variant = acceptGzip ? compressedVariantService.findVariant(path) : null;
+            Path served = variant != null ? variant : path;
+            return new StoredFileContent(
+                Files.newInputStream(served),
+                path.getFileName().toString(),
+                Files.size(served),
+                variant != null ? "gzip" : null
+            );
+        } catch (Exception e) {
+            log.error("Failed to open file for download: {}", filePath, e);
+            throw new RuntimeException("Failed to get file: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public StoredFileContent openRange(String filePath, long offset, long length) {
+        log.debug("Opening bytes {}+{} of file: {}", offset, length, filePath);
+        
+        try {
+            Path path = Paths.get(filePath);
+            return new StoredFileContent(openRange(path, offset, length),
+                path.getFileName().toString(), length, null);
+        } catch (Exception e) {
+            log.error("Failed to open file range: {}", filePath, e);
+            throw new RuntimeException("Failed to get file: " + e.getMessage());
+        }
+    }
+
     @Override
     public FileMetadata getFileMetadata(String filePath) {
         log.debug("Getting file metadata: {}", filePath);
@@ -192,7 +247,7 @@ public class LocalFileStorageService implements FileStorageService {
                 fileName,
                 contentType,
                 fileSize,
-                calculateChecksum(Files.readAllBytes(path)),
+                FileChecksums.sha256(path),
                 LocalDateTime.ofInstant(((java.nio.file.attribute.FileTime)attributes.get("creationTime")).toInstant(), 
                                       java.time.ZoneId.systemDefault()),
                 LocalDateTime.ofInstant(((java.nio.file.attribute.FileTime)attributes.get("lastModifiedTime")).toInstant(), 
@@ -208,15 +263,19 @@ public class LocalFileStorageService implements FileStorageService {
     }
 
     @Override
-    public String generateDownloadUrl(String filePath, Integer userId, long expirationMinutes) {
+    public String generateDownloadUrl(String filePath, String checksum, Integer userId, long expirationMinutes) {
         log.debug("Generating download URL for file: {} for user: {}", filePath, userId);
         
-        // Generate secure token
-        String token = generateSecureToken(filePath, userId, expirationMinutes);
+        long size;
+        try {
+            size = Files.size(Paths.get(filePath));
+        } catch (IOException e) {
+            throw new RuntimeException("File not found: " + filePath);
+        }
         
-        // In production, this would be a proper URL with domain
-        return String.format("/api/files/download?token=%s&expires=%d", 
-                           token, System.currentTimeMillis() + (expirationMinutes * 60 * 1000));
+        String token = downloadTokenService.issue(filePath, size, checksum, userId, 
+                                                  Duration.ofMinutes(expirationMinutes));
+        return "/api/v1/downloads?token=" + token;
     }
 
     @Override
@@ -259,42 +318,24 @@ public class LocalFileStorageService implements FileStorageService {
     public StorageStatistics getStorageStatistics() {
         log.debug("Getting storage statistics");
         
+        // Served from the running counters; StorageUsageTracker reconciles them with the disk
+        Map<String, Long> filesByCategory = usageTracker.getFilesByCategory();
+        Map<String, Long> sizeByCategory = usageTracker.getSizeByCategory();
+        long totalFiles = filesByCategory.values().stream().mapToLong(Long::longValue).sum();
+        long totalSize = sizeByCategory.values().stream().mapToLong(Long::longValue).sum();
+        
+        long availableSpace = 0;
         try {
             Path basePath = Paths.get(baseStoragePath);
-            if (!Files.exists(basePath)) {
-                return new StorageStatistics(0, 0, 0, Map.of(), Map.of());
-            }
-            
-            Map<String, Long> filesByCategory = new HashMap<>();
-            Map<String, Long> sizeByCategory = new HashMap<>();
-            long totalFiles = 0;
-            long totalSize = 0;
-            
-            // Walk through all files
-            try (var stream = Files.walk(basePath)) {
-                var files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
-                
-                for (Path file : files) {
-                    String category = extractCategoryFromPath(file.toString());
-                    long size = Files.size(file);
-                    
-                    filesByCategory.merge(category, 1L, Long::sum);
-                    sizeByCategory.merge(category, size, Long::sum);
-                    totalFiles++;
-                    totalSize += size;
-                }
+            if (Files.exists(basePath)) {
+                availableSpace = Files.getFileStore(basePath).getUsableSpace();
             }
-            
-            // Get available space
-            long availableSpace = Files.getFileStore(basePath).getUsableSpace();
-            
-            return new StorageStatistics(totalFiles, totalSize, availableSpace, 
-                                       filesByCategory, sizeByCategory);
-            
         } catch (Exception e) {
-            log.error("Failed to get storage statistics", e);
-            return new StorageStatistics(0, 0, 0, Map.of(), Map.of());
+            log.warn("Failed to get available storage space", e);
         }
+        
+        return new StorageStatistics(totalFiles, totalSize, availableSpace, 
+                                   filesByCategory, sizeByCategory);
     }
 
     @Override
@@ -307,30 +348,29 @@ public class LocalFileStorageService implements FileStorageService {
                 return;
             }
             
-            LocalDateTime cutoffTime = LocalDateTime.now().minusHours(tempCleanupHours);
-            
-            try (var stream = Files.walk(tempPath)) {
-                stream.filter(Files::isRegularFile)
-                      .filter(file -> {
-                          try {
-                              var attrs = Files.readAttributes(file, "basic:*");
-                              LocalDateTime fileTime = LocalDateTime.ofInstant(
-                                  ((java.nio.file.attribute.FileTime)attrs.get("creationTime")).toInstant(), 
-                                  java.time.ZoneId.systemDefault());
-                              return fileTime.isBefore(cutoffTime);
-                          } catch (Exception e) {
-                              return false;
-                          }
-                      })
-                      .forEach(file -> {
-                          try {
-                              Files.delete(file);
-                              log.debug("Deleted temporary file: {}", file);
-                          } catch (Exception e) {
-                              log.warn("Failed to delete temporary file: {}", file, e);
-                          }
-                      });
-            }
+            long cutoffMillis = System.currentTimeMillis() - tempCleanupHours * 3_600_000L;
+            
+            // One attribute read per file, straight from the directory walk
+            Files.walkFileTree(tempPath, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && attrs.lastModifiedTime().toMillis() < cutoffMillis) {
+                        try {
+                            Files.delete(file);
+                            usageTracker.recordDeleted("temp", attrs.size());
+                            log.debug("Deleted temporary file: {}", file);
+                        } catch (Exception e) {
+                            log.warn("Failed to delete temporary file: {}", file, e);
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+                
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
             
         } catch (Exception e) {
             log.error("Failed to cleanup temporary files", e);
@@ -347,17 +387,25 @@ public class LocalFileStorageService implements FileStorageService {
                 return new FileStorageResult("Source file not found");
             }
             
-            // Create new category directory
-            Path newCategoryPath = createCategoryDirectory(newCategory);
-            
-            // Generate new filename in new category
+            // Same file name, placed in the new category
             String fileName = current.getFileName().toString();
-            Path newPath = newCategoryPath.resolve(fileName);
+            String newRelativePath = storageLayout.place(baseStoragePath + "/" + newCategory, fileName);
+            Path newPath = Paths.get(newRelativePath);
+            Files.createDirectories(newPath.getParent());
             
             // Move file
+            String oldCategory = extractCategoryFromPath(currentPath);
+            long size = Files.size(current);
+            boolean replacing = Files.exists(newPath);
+            long replacedSize = replacing ? Files.size(newPath) : 0;
             Files.move(current, newPath, StandardCopyOption.REPLACE_EXISTING);
-            
-            String newRelativePath = baseStoragePath + "/" + newCategory + "/" + fileName;
+            // A move keeps the old mtime; the orphan scan's grace period counts from here
+            Files.setLastModifiedTime(newPath, FileTime.from(Instant.now()));
+            if (replacing) {
+                usageTracker.recordDeleted(newCategory, replacedSize);
+            }
+            usageTracker.recordMoved(oldCategory, newCategory, size);
+            compressedVariantService.moveVariant(current, newPath);
             
             log.info("Successfully moved file from: {} to: {}", currentPath, newRelativePath);
             
@@ -405,6 +453,13 @@ public class LocalFileStorageService implements FileStorageService {
                 throw new FileNotFoundException("Source file not found: " + filePath);
             }
             
+            if ("snapshot".equalsIgnoreCase(backupMode)) {
+                // Hard link into the content-addressed blob store, no extra copy
+                String blobPath = snapshotBackupService.backupFile(source);
+                log.info("Created snapshot backup: {} for file: {}", blobPath, filePath);
+                return blobPath;
+            }
+            
             // Create backup directory
             Path backupDir = createCategoryDirectory("backup");
             
@@ -416,6 +471,7 @@ public class LocalFileStorageService implements FileStorageService {
             
             // Copy file to backup
             Files.copy(source, backupPath, StandardCopyOption.REPLACE_EXISTING);
+            usageTracker.recordStored("backup", Files.size(backupPath));
             
             String backupRelativePath = baseStoragePath + "/backup/" + backupFileName;
             
@@ -429,6 +485,11 @@ public class LocalFileStorageService implements FileStorageService {
         }
     }
 
+    @Override
+    public SnapshotResult createSnapshot() {
+        return snapshotBackupService.createSnapshot();
+    }
+
     @Override
     public void restoreFromBackup(String backupPath, String originalPath) {
         log.debug("Restoring file from backup: {} to: {}", backupPath, originalPath);
@@ -445,7 +506,14 @@ public class LocalFileStorageService implements FileStorageService {
             Files.createDirectories(original.getParent());
             
             // Copy backup to original location
+            String category = extractCategoryFromPath(originalPath);
+            if (Files.exists(original)) {
+                usageTracker.recordDeleted(category, Files.size(original));
+            }
             Files.copy(backup, original, StandardCopyOption.REPLACE_EXISTING);
+            usageTracker.recordStored(category, Files.size(original));
+            compressedVariantService.deleteVariant(original);
+            compressedVariantService.createVariant(original);
             
             log.info("Successfully restored file from backup: {} to: {}", backupPath, originalPath);
             
@@ -463,7 +531,7 @@ public class LocalFileStorageService implements FileStorageService {
         return categoryPath;
     }
     
-    private String generateUniqueFileName(String originalFileName, Integer userId) {
+    static String generateUniqueFileName(String originalFileName, Integer userId) {
         String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
         String extension = getFileExtension(originalFileName);
         String baseName = removeFileExtension(originalFileName);
@@ -471,17 +539,28 @@ public class LocalFileStorageService implements FileStorageService {
         // Sanitize filename
         baseName = baseName.replaceAll("[^a-zA-Z0-9._-]", "_");
         
-        return String.format("%s_%d_%s.%s", timestamp, userId, baseName, extension);
+        // Short random suffix keeps names unique when the same file is uploaded
+        // concurrently within the same second (e.g. batch uploads)
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        
+        return String.format("%s_%d_%s_%s.%s", timestamp, userId, baseName, suffix, extension);
+    }
+    
+    /**
+     * Whether a file name was generated (generateUniqueFileName) for an upload by the given user
+     */
+    static boolean isIssuedTo(String fileName, Integer userId) {
+        return userId != null && fileName.matches("\\d{8}_\\d{6}_" + userId + "_.+");
     }
     
-    private String getFileExtension(String fileName) {
+    static String getFileExtension(String fileName) {
         if (fileName == null || !fileName.contains(".")) {
             return "";
         }
         return fileName.substring(fileName.lastIndexOf(".") + 1);
     }
     
-    private String removeFileExtension(String fileName) {
+    private static String removeFileExtension(String fileName) {
         if (fileName == null || !fileName.contains(".")) {
             return fileName;
         }
@@ -512,27 +591,94 @@ public class LocalFileStorageService implements FileStorageService {
         return "unknown";
     }
     
-    private String calculateChecksum(byte[] data) {
+    /**
+     * Copy a stream to the target path while computing its SHA-256 digest,
+     * so the file is never buffered in memory and never read back.
+     */
+    private String copyWithChecksum(InputStream inputStream, Path target) throws IOException {
         try {
             MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] hash = md.digest(data);
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hash) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) {
-                    hexString.append('0');
-                }
-                hexString.append(hex);
+            try (DigestInputStream digestStream = new DigestInputStream(inputStream, md)) {
+                Files.copy(digestStream, target, StandardCopyOption.REPLACE_EXISTING);
             }
-            return hexString.toString();
-        } catch (Exception e) {
-            log.error("Failed to calculate checksum", e);
-            return "";
+            return toHex(md.digest());
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+    }
+    
+    static String toHex(byte[] hash) {
+        StringBuilder hexString = new StringBuilder();
+        for (byte b : hash) {
+            String hex = Integer.toHexString(0xff & b);
+            if (hex.length() == 1) {
+                hexString.append('0');
+            }
+            hexString.append(hex);
         }
+        return hexString.toString();
     }
     
-    private String generateSecureToken(String filePath, Integer userId, long expirationMinutes) {
-        String data = filePath + ":" + userId + ":" + System.currentTimeMillis() + ":" + expirationMinutes;
-        return Base64.getEncoder().encodeToString(data.getBytes());
+    /**
+     * Stream length bytes of a file starting at offset (the rest of the file if length is -1)
+     */
+    static InputStream openRange(Path path, long offset, long length) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            channel.position(offset);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        InputStream in = Channels.newInputStream(channel);
+        return length >= 0 ? new LimitedInputStream(in, length) : in;
+    }
+    
+    /**
+     * Ends after a byte range
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+        private long remaining;
+        
+        private LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+        
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+        
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
     }
 }
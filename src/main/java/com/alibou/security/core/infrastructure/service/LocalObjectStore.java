@@ -0,0 +1,89 @@
+package com.alibou.security.core.infrastructure.service;
+
+import com.alibou.security.core.domain.service.ObjectInfo;
+import com.alibou.security.core.domain.service.ObjectStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Directory-backed stand-in for an S3 bucket
+ *
+ * Same semantics as {@link S3ObjectStore} (whole-object writes that appear
+ * atomically, ranged reads), so the object storage backend can be developed
+ * and exercised without running MinIO. It cannot hand out presigned URLs;
+ * downloads fall back to the application's signed links.
+ */
+public class LocalObjectStore implements ObjectStore {
+
+    private final Path root;
+
+    public LocalObjectStore(String directory) {
+        this.root = Paths.get(directory).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public void put(String key, InputStream content, long size, String contentType) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        Path partial = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + ".part");
+        try {
+            Files.copy(content, partial);
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+    }
+
+    @Override
+    public InputStream get(String key, long offset, long length) throws IOException {
+        return LocalFileStorageService.openRange(resolve(key), offset, length);
+    }
+
+    @Override
+    public ObjectInfo head(String key) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(resolve(key), BasicFileAttributes.class);
+            String etag = Long.toHexString(attributes.size()) + "-" + Long.toHexString(attributes.lastModifiedTime().toMillis());
+            return new ObjectInfo(key, attributes.size(), etag, attributes.lastModifiedTime().toInstant());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    @Override
+    public void copy(String sourceKey, String targetKey) throws IOException {
+        try (InputStream in = get(sourceKey, 0, -1)) {
+            put(targetKey, in, Files.size(resolve(sourceKey)), null);
+        }
+    }
+
+    @Override
+    public String presignGet(String key, Duration expiresIn, String downloadFileName) {
+        return null;
+    }
+
+    /**
+     * Keys are confined to the root directory, like keys are to a bucket
+     */
+    private Path resolve(String key) {
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new IllegalArgumentException("Invalid object key: " + key);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,416 @@
+package com.alibou.security.core.infrastructure.service;
+
+import com.alibou.security.core.domain.service.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLConnection;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Object storage implementation of FileStorageService
+ *
+ * Stored paths are "object://" + key, with keys laid out like the local tree
+ * (category/shard/file name), so every node sees the same files without a
+ * shared filesystem. Downloads can be handed to the store as presigned URLs.
+ * There are no gzip variants; backups are plain object copies and bucket
+ * versioning takes the place of snapshots.
+ */
+@Service
+@Slf4j
+public class ObjectStorageFileStorageService implements FileStorageService {
+
+    public static final String PATH_PREFIX = "object://";
+
+    private final ObjectStore objectStore;
+    private final LocalFileStorageService localFileStorageService;
+    private final StorageUsageTracker usageTracker;
+    private final StorageLayout storageLayout;
+    private final DownloadTokenService downloadTokenService;
+
+    @Value("${app.file-storage.max-file-size:10485760}") // 10MB default
+    private long maxFileSize;
+
+    @Value("${app.object-storage.presigned-downloads:false}")
+    private boolean presignedDownloads;
+
+    public ObjectStorageFileStorageService(ObjectStore objectStore,
+                                           LocalFileStorageService localFileStorageService,
+                                           StorageUsageTracker usageTracker,
+                                           StorageLayout storageLayout,
+                                           DownloadTokenService downloadTokenService) {
+        this.objectStore = objectStore;
+        this.localFileStorageService = localFileStorageService;
+        this.usageTracker = usageTracker;
+        this.storageLayout = storageLayout;
+        this.downloadTokenService = downloadTokenService;
+    }
+
+    public static boolean isObjectPath(String filePath) {
+        return filePath != null && filePath.startsWith(PATH_PREFIX);
+    }
+
+    @Override
+    public FileStorageResult storeFile(MultipartFile file, String category, Integer userId) {
+        log.debug("Storing file: {} in object storage category: {} for user: {}",
+                 file.getOriginalFilename(), category, userId);
+
+        FileValidationResult validation = validateFile(file, category);
+        if (!validation.isValid()) {
+            return new FileStorageResult("File validation failed: " +
+                String.join(", ", validation.getErrors()));
+        }
+
+        try (InputStream in = file.getInputStream()) {
+            return store(in, file.getOriginalFilename(), file.getContentType(), file.getSize(), category, userId);
+        } catch (Exception e) {
+            log.error("Failed to store file: {}", file.getOriginalFilename(), e);
+            return new FileStorageResult("Failed to store file: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public FileStorageResult storeFile(InputStream inputStream, String originalFileName,
+                                     String contentType, long size, String category, Integer userId) {
+        log.debug("Storing file from stream: {} in object storage category: {} for user: {}",
+                 originalFileName, category, userId);
+
+        if (size > maxFileSize) {
+            return new FileStorageResult("File size exceeds maximum allowed size");
+        }
+        try {
+            return store(inputStream, originalFileName, contentType, size, category, userId);
+        } catch (Exception e) {
+            log.error("Failed to store file from stream: {}", originalFileName, e);
+            return new FileStorageResult("Failed to store file: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void deleteFile(String filePath) {
+        log.debug("Deleting object: {}", filePath);
+
+        try {
+            String key = keyOf(filePath);
+            ObjectInfo info = objectStore.head(key);
+            if (info == null) {
+                log.warn("Object not found for deletion: {}", filePath);
+                return;
+            }
+            objectStore.delete(key);
+            usageTracker.recordDeleted(usageCategory(key), info.getSize());
+            log.info("Successfully deleted object: {}", filePath);
+        } catch (Exception e) {
+            log.error("Failed to delete object: {}", filePath, e);
+            throw new RuntimeException("Failed to delete file: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public InputStream getFileAsStream(String filePath) {
+        log.debug("Getting object as stream: {}", filePath);
+
+        try {
+            return objectStore.get(keyOf(filePath), 0, -1);
+        } catch (Exception e) {
+            log.error("Failed to get object as stream: {}", filePath, e);
+            throw new RuntimeException("Failed to get file: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public StoredFileContent openForDownload(String filePath, boolean acceptGzip) {
+        log.debug("Opening object for download: {}", filePath);
+
+        try {
+            String key = keyOf(filePath);
+            ObjectInfo info = headOrThrow(key);
+            return new StoredFileContent(objectStore.get(key, 0, -1), fileNameOf(key), info.getSize(), null);
+        } catch (Exception e) {
+            log.error("Failed to open object for download: {}", filePath, e);
+            throw new RuntimeException("Failed to get file: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public StoredFileContent openRange(String filePath, long offset, long length) {
+        log.debug("Opening bytes {}+{} of object: {}", offset, length, filePath);
+
+        try {
+            String key = keyOf(filePath);
+            return new StoredFileContent(objectStore.get(key, offset, length), fileNameOf(key), length, null);
+        } catch (Exception e) {
+            log.error("Failed to open object range: {}", filePath, e);
+            throw new RuntimeException("Failed to get file: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public FileMetadata getFileMetadata(String filePath) {
+        log.debug("Getting object metadata: {}", filePath);
+
+        try {
+            String key = keyOf(filePath);
+            ObjectInfo info = headOrThrow(key);
+            String fileName = fileNameOf(key);
+            LocalDateTime modified = info.getLastModified() != null
+                ? LocalDateTime.ofInstant(info.getLastModified(), ZoneId.systemDefault())
+                : null;
+
+            // Objects have no creation time of their own; they are only ever written whole
+            return new FileMetadata(
+                filePath,
+                fileName,
+                URLConnection.guessContentTypeFromName(fileName),
+                info.getSize(),
+                sha256(key),
+                modified,
+                modified,
+                categoryOf(key),
+                null
+            );
+        } catch (Exception e) {
+            log.error("Failed to get object metadata: {}", filePath, e);
+            throw new RuntimeException("Failed to get file metadata: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String generateDownloadUrl(String filePath, String checksum, Integer userId, long expirationMinutes) {
+        log.debug("Generating download URL for object: {} for user: {}", filePath, userId);
+
+        String key = keyOf(filePath);
+        Duration expiresIn = Duration.ofMinutes(expirationMinutes);
+        if (presignedDownloads) {
+            // Served by the store itself; the application never sees the bytes
+            String url = objectStore.presignGet(key, expiresIn, fileNameOf(key));
+            if (url != null) {
+                return url;
+            }
+        }
+
+        ObjectInfo info;
+        try {
+            info = objectStore.head(key);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to get file: " + e.getMessage());
+        }
+        if (info == null) {
+            throw new RuntimeException("File not found: " + filePath);
+        }
+        String token = downloadTokenService.issue(filePath, info.getSize(), checksum, userId, expiresIn);
+        return "/api/v1/downloads?token=" + token;
+    }
+
+    @Override
+    public FileValidationResult validateFile(MultipartFile file, String category) {
+        return localFileStorageService.validateFile(file, category);
+    }
+
+    @Override
+    public StorageStatistics getStorageStatistics() {
+        // Usage of object categories is tracked alongside the local ones
+        return localFileStorageService.getStorageStatistics();
+    }
+
+    @Override
+    public void cleanupTemporaryFiles() {
+        // Uploads never stage temporary objects; a failed multipart upload is aborted on the spot
+    }
+
+    @Override
+    public FileStorageResult moveFile(String currentPath, String newCategory) {
+        log.debug("Moving object from: {} to category: {}", currentPath, newCategory);
+
+        try {
+            String key = keyOf(currentPath);
+            ObjectInfo info = objectStore.head(key);
+            if (info == null) {
+                return new FileStorageResult("Source file not found");
+            }
+
+            // Same file name, placed in the new category; S3 has no rename, so copy then delete
+            String fileName = fileNameOf(key);
+            String newKey = storageLayout.place(newCategory, fileName);
+            ObjectInfo replaced = objectStore.head(newKey);
+            objectStore.copy(key, newKey);
+            objectStore.delete(key);
+            if (replaced != null) {
+                usageTracker.recordDeleted(usageCategory(newKey), replaced.getSize());
+            }
+            usageTracker.recordMoved(usageCategory(key), usageCategory(newKey), info.getSize());
+
+            log.info("Successfully moved object from: {} to: {}", currentPath, PATH_PREFIX + newKey);
+
+            return new FileStorageResult(
+                PATH_PREFIX + newKey,
+                fileName,
+                fileName, // originalFileName same as fileName for moved files
+                URLConnection.guessContentTypeFromName(fileName),
+                info.getSize(),
+                sha256(newKey),
+                newCategory
+            );
+        } catch (Exception e) {
+            log.error("Failed to move object: {}", currentPath, e);
+            return new FileStorageResult("Failed to move file: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean fileExists(String filePath) {
+        try {
+            return objectStore.head(keyOf(filePath)) != null;
+        } catch (Exception e) {
+            log.error("Failed to check object: {}", filePath, e);
+            return false;
+        }
+    }
+
+    @Override
+    public long getFileSize(String filePath) {
+        try {
+            ObjectInfo info = objectStore.head(keyOf(filePath));
+            return info != null ? info.getSize() : 0;
+        } catch (Exception e) {
+            log.error("Failed to get object size: {}", filePath, e);
+            return 0;
+        }
+    }
+
+    @Override
+    public String createBackup(String filePath) {
+        log.debug("Creating backup for object: {}", filePath);
+
+        try {
+            String key = keyOf(filePath);
+            ObjectInfo info = headOrThrow(key);
+
+            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+            String backupKey = "backup/" + timestamp + "_" + fileNameOf(key);
+            objectStore.copy(key, backupKey);
+            usageTracker.recordStored(usageCategory(backupKey), info.getSize());
+
+            log.info("Created backup: {} for object: {}", PATH_PREFIX + backupKey, filePath);
+            return PATH_PREFIX + backupKey;
+        } catch (Exception e) {
+            log.error("Failed to create backup for object: {}", filePath, e);
+            throw new RuntimeException("Failed to create backup: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public SnapshotResult createSnapshot() {
+        throw new IllegalStateException("Object storage is not snapshotted by the application; enable bucket versioning");
+    }
+
+    @Override
+    public void restoreFromBackup(String backupPath, String originalPath) {
+        log.debug("Restoring object from backup: {} to: {}", backupPath, originalPath);
+
+        try {
+            String backupKey = keyOf(backupPath);
+            String key = keyOf(originalPath);
+            ObjectInfo backup = headOrThrow(backupKey);
+
+            ObjectInfo replaced = objectStore.head(key);
+            objectStore.copy(backupKey, key);
+            if (replaced != null) {
+                usageTracker.recordDeleted(usageCategory(key), replaced.getSize());
+            }
+            usageTracker.recordStored(usageCategory(key), backup.getSize());
+
+            log.info("Successfully restored object from backup: {} to: {}", backupPath, originalPath);
+        } catch (Exception e) {
+            log.error("Failed to restore from backup: {} to: {}", backupPath, originalPath, e);
+            throw new RuntimeException("Failed to restore from backup: " + e.getMessage());
+        }
+    }
+
+    // Helper methods
+
+    private FileStorageResult store(InputStream inputStream, String originalFileName, String contentType,
+                                    long size, String category, Integer userId) throws IOException {
+        String fileName = LocalFileStorageService.generateUniqueFileName(originalFileName, userId);
+        String key = storageLayout.place(category, fileName);
+
+        // Hash the bytes as they stream to the store, so the upload is never read back
+        MessageDigest md = newSha256();
+        try (DigestInputStream digestStream = new DigestInputStream(inputStream, md)) {
+            objectStore.put(key, digestStream, size, contentType);
+        }
+        String checksum = LocalFileStorageService.toHex(md.digest());
+
+        usageTracker.recordStored(usageCategory(key), size);
+        log.info("Successfully stored file: {} as object: {}", originalFileName, key);
+
+        return new FileStorageResult(
+            PATH_PREFIX + key,
+            fileName,
+            originalFileName,
+            contentType,
+            size,
+            checksum,
+            category
+        );
+    }
+
+    private ObjectInfo headOrThrow(String key) throws IOException {
+        ObjectInfo info = objectStore.head(key);
+        if (info == null) {
+            throw new FileNotFoundException("File not found: " + PATH_PREFIX + key);
+        }
+        return info;
+    }
+
+    private String sha256(String key) throws IOException {
+        MessageDigest md = newSha256();
+        try (InputStream in = objectStore.get(key, 0, -1)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                md.update(buffer, 0, read);
+            }
+        }
+        return LocalFileStorageService.toHex(md.digest());
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+    }
+
+    private static String keyOf(String filePath) {
+        if (!isObjectPath(filePath)) {
+            throw new IllegalArgumentException("Not an object storage path: " + filePath);
+        }
+        return filePath.substring(PATH_PREFIX.length());
+    }
+
+    private static String fileNameOf(String key) {
+        return key.substring(key.lastIndexOf('/') + 1);
+    }
+
+    private static String categoryOf(String key) {
+        int slash = key.indexOf('/');
+        return slash > 0 ? key.substring(0, slash) : "unknown";
+    }
+
+    private static String usageCategory(String key) {
+        return StorageUsageTracker.OBJECT_STORAGE_PREFIX + categoryOf(key);
+    }
+}
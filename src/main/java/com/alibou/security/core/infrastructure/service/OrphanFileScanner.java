@@ -0,0 +1,464 @@
+package com.alibou.security.core.infrastructure.service;
+
+import com.alibou.security.book.BookRepository;
+import com.alibou.security.book.application.service.OrphanCleanupResult;
+import com.alibou.security.document.domain.repository.ProductRepository;
+import com.alibou.security.document.domain.repository.ProductSeriesRepository;
+import com.alibou.security.document.domain.repository.TechnicalDocumentRepository;
+import com.alibou.security.user.UserProfileRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Finds (and optionally deletes) stored files that no book, technical
+ * document, product or series image or profile image refers to.
+ *
+ * Referenced paths are streamed from the database into a {@link PathHashSet};
+ * the upload tree is then listed in parallel on a fork-join pool, one task per
+ * directory, reading each file's attributes once. Deletion runs afterwards on
+ * the calling thread at a bounded rate. The candidate list and the delete
+ * position are checkpointed, so an interrupted cleanup resumes without
+ * rescanning the tree.
+ *
+ * A file moved into place keeps its old modification time (moves are touched
+ * by the storage services, but files can also come from elsewhere), and its
+ * row may be committed while the tree is being listed. So the referenced
+ * paths are loaded again after the listing, right before anything is deleted,
+ * and the grace period should exceed the temporary upload TTL.
+ */
+@Component
+@Slf4j
+public class OrphanFileScanner {
+
+    private static final int MAX_REPORTED_ENTRIES = 1000;
+    private static final int CHECKPOINT_EVERY = 100;
+
+    private final BookRepository bookRepository;
+    private final TechnicalDocumentRepository documentRepository;
+    private final ProductRepository productRepository;
+    private final ProductSeriesRepository productSeriesRepository;
+    private final UserProfileRepository userProfileRepository;
+    private final StorageUsageTracker usageTracker;
+    private final TransactionTemplate readOnlyTransaction;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${app.file-storage.base-path:./uploads}")
+    private String baseStoragePath;
+
+    @Value("${app.upload.dir:./uploads}")
+    private String documentUploadDir;
+
+    @Value("${app.upload.temp-dir:./uploads/temp}")
+    private String documentTempDir;
+
+    @Value("${app.image-derivatives.cache-dir:./uploads/cache/images}")
+    private String imageCacheDir;
+
+    @Value("${app.file-storage.orphan-scan.parallelism:0}")
+    private int parallelism;
+
+    @Value("${app.file-storage.orphan-scan.max-deletes-per-second:200}")
+    private int maxDeletesPerSecond;
+
+    @Value("${app.file-storage.orphan-scan.grace-minutes:180}")
+    private long graceMinutes;
+
+    @Value("${app.upload.temp-ttl-minutes:60}")
+    private long tempTtlMinutes;
+
+    @Value("${app.file-storage.orphan-scan.checkpoint-file:./uploads/.orphan-scan-checkpoint}")
+    private String checkpointFile;
+
+    public OrphanFileScanner(BookRepository bookRepository,
+                             TechnicalDocumentRepository documentRepository,
+                             ProductRepository productRepository,
+                             ProductSeriesRepository productSeriesRepository,
+                             UserProfileRepository userProfileRepository,
+                             StorageUsageTracker usageTracker,
+                             PlatformTransactionManager transactionManager) {
+        this.bookRepository = bookRepository;
+        this.documentRepository = documentRepository;
+        this.productRepository = productRepository;
+        this.productSeriesRepository = productSeriesRepository;
+        this.userProfileRepository = userProfileRepository;
+        this.usageTracker = usageTracker;
+
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Scan the upload tree for unreferenced files.
+     *
+     * @param dryRun report orphans without deleting them (and without touching the checkpoint)
+     */
+    public OrphanCleanupResult scan(boolean dryRun) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Orphan file scan already running");
+        }
+        try {
+            return doScan(dryRun);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private OrphanCleanupResult doScan(boolean dryRun) {
+        long started = System.currentTimeMillis();
+        Path checkpoint = absolute(checkpointFile);
+        Path progress = Paths.get(checkpoint + ".progress");
+
+        if (graceMinutes <= tempTtlMinutes) {
+            log.warn("Orphan scan grace ({} min) should exceed the temporary upload TTL ({} min): " +
+                "a file finalized from an old upload can look orphaned", graceMinutes, tempTtlMinutes);
+        }
+        PathHashSet referenced = loadReferencedPaths();
+        ScanState state = new ScanState(referenced, checkpoint,
+            System.currentTimeMillis() - Duration.ofMinutes(graceMinutes).toMillis());
+
+        List<Orphan> orphans = dryRun ? null : readCheckpoint(checkpoint);
+        int position = 0;
+        if (orphans != null) {
+            position = readProgress(progress);
+            log.info("Resuming orphan file cleanup at {} of {} candidates", position, orphans.size());
+        } else {
+            orphans = scanTree(state);
+            if (!dryRun) {
+                writeCheckpoint(checkpoint, orphans);
+                // Rows committed while the tree was listed refer to files found as candidates
+                referenced = loadReferencedPaths();
+            }
+        }
+
+        List<String> reported = new ArrayList<>();
+        int deleted = 0;
+        long freedBytes = 0;
+
+        if (dryRun) {
+            orphans.stream()
+                .limit(MAX_REPORTED_ENTRIES)
+                .forEach(orphan -> reported.add(orphan.path.toString()));
+        } else {
+            RateLimiter rateLimiter = new RateLimiter(maxDeletesPerSecond);
+            for (; position < orphans.size(); position++) {
+                Orphan orphan = orphans.get(position);
+                // Checkpointed candidates may have been referenced since they were found
+                if (!referenced.contains(orphan.path.toString())) {
+                    rateLimiter.acquire();
+                    try {
+                        if (Files.deleteIfExists(orphan.path)) {
+                            usageTracker.recordDeleted(usageTracker.categoryOf(orphan.path), orphan.sizeBytes);
+                            deleted++;
+                            freedBytes += orphan.sizeBytes;
+                            if (reported.size() < MAX_REPORTED_ENTRIES) {
+                                reported.add(orphan.path.toString());
+                            }
+                        }
+                    } catch (IOException e) {
+                        state.error("Failed to delete " + orphan.path + ": " + e.getMessage());
+                    }
+                }
+                if ((position + 1) % CHECKPOINT_EVERY == 0) {
+                    writeProgress(progress, position + 1, state);
+                }
+            }
+            deleteQuietly(checkpoint);
+            deleteQuietly(progress);
+        }
+
+        log.info("Orphan file scan{}: {} files scanned, {} orphans, {} deleted in {} ms",
+            dryRun ? " (dry run)" : "", state.filesScanned.sum(), orphans.size(), deleted,
+            System.currentTimeMillis() - started);
+
+        return new OrphanCleanupResult(dryRun, state.filesScanned.sum(), orphans.size(), deleted, freedBytes,
+            reported, new ArrayList<>(state.errors), LocalDateTime.now());
+    }
+
+    private List<Orphan> scanTree(ScanState state) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism > 0
+            ? parallelism : Runtime.getRuntime().availableProcessors());
+        try {
+            for (Path root : scanRoots()) {
+                if (Files.isDirectory(root)) {
+                    pool.invoke(new DirectoryScan(root, excludedDirectories(), state));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return new ArrayList<>(state.orphans);
+    }
+
+    /**
+     * Stream every stored path out of the database; only the hashes are kept
+     */
+    private PathHashSet loadReferencedPaths() {
+        PathHashSet referenced = new PathHashSet((int) Math.min(Integer.MAX_VALUE / 4,
+            bookRepository.count() * 3 + documentRepository.count()));
+        Path documentRoot = absolute(documentUploadDir);
+
+        readOnlyTransaction.executeWithoutResult(status -> {
+            addAll(referenced, bookRepository.streamFilePaths(), null);
+            addAll(referenced, bookRepository.streamCoverImagePaths(), null);
+            addAll(referenced, bookRepository.streamPreviewFilePaths(), null);
+            addAll(referenced, documentRepository.streamFilePaths(), documentRoot);
+            addAll(referenced, productRepository.streamImagePaths(), documentRoot);
+            addAll(referenced, productSeriesRepository.streamImagePaths(), documentRoot);
+            addAll(referenced, userProfileRepository.streamProfileImagePaths(), null);
+        });
+
+        log.debug("Loaded {} referenced file paths", referenced.size());
+        return referenced;
+    }
+
+    private void addAll(PathHashSet referenced, Stream<String> paths, Path relativeTo) {
+        try (paths) {
+            paths.forEach(path -> {
+                try {
+                    Path resolved = relativeTo != null ? relativeTo.resolve(path) : Paths.get(path);
+                    referenced.add(resolved.toAbsolutePath().normalize().toString());
+                } catch (InvalidPathException e) {
+                    log.warn("Skipping invalid stored path: {}", path);
+                }
+            });
+        }
+    }
+
+    /**
+     * Book storage and document uploads share ./uploads by default; scan nested roots only once
+     */
+    private List<Path> scanRoots() {
+        Path storageRoot = absolute(baseStoragePath);
+        Path documentRoot = absolute(documentUploadDir);
+        if (documentRoot.startsWith(storageRoot)) {
+            return List.of(storageRoot);
+        }
+        if (storageRoot.startsWith(documentRoot)) {
+            return List.of(documentRoot);
+        }
+        return List.of(storageRoot, documentRoot);
+    }
+
+    /**
+     * Temp, backup, thumbnail and image cache files are not referenced by design and are managed elsewhere
+     */
+    private Set<Path> excludedDirectories() {
+        // A set built by hand: the document temp dir usually is the storage temp dir
+        Set<Path> excluded = new HashSet<>();
+        excluded.add(absolute(baseStoragePath).resolve("temp"));
+        excluded.add(absolute(baseStoragePath).resolve("backup"));
+        excluded.add(absolute(baseStoragePath).resolve("thumbnails"));
+        excluded.add(absolute(documentTempDir));
+        excluded.add(absolute(imageCacheDir));
+        return excluded;
+    }
+
+    /**
+     * Candidates of an interrupted cleanup, one "size<TAB>path" per line; null if there is none
+     */
+    private List<Orphan> readCheckpoint(Path checkpoint) {
+        if (!Files.exists(checkpoint)) {
+            return null;
+        }
+        try (Stream<String> lines = Files.lines(checkpoint, StandardCharsets.UTF_8)) {
+            List<Orphan> orphans = new ArrayList<>();
+            lines.filter(line -> !line.isBlank()).forEach(line -> {
+                int tab = line.indexOf('\t');
+                orphans.add(new Orphan(Paths.get(line.substring(tab + 1)), Long.parseLong(line.substring(0, tab))));
+            });
+            return orphans;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable orphan scan checkpoint: {}", checkpoint, e);
+            return null;
+        }
+    }
+
+    private void writeCheckpoint(Path checkpoint, List<Orphan> orphans) {
+        try (BufferedWriter writer = Files.newBufferedWriter(checkpoint, StandardCharsets.UTF_8)) {
+            for (Orphan orphan : orphans) {
+                writer.write(orphan.sizeBytes + "\t" + orphan.path);
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            // Cleanup still works, it just cannot resume
+            log.warn("Failed to write orphan scan checkpoint: {}", checkpoint, e);
+        }
+    }
+
+    private int readProgress(Path progress) {
+        try {
+            return Files.exists(progress) ? Integer.parseInt(Files.readString(progress).trim()) : 0;
+        } catch (IOException | NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void writeProgress(Path progress, int position, ScanState state) {
+        try {
+            Files.writeString(progress, Integer.toString(position), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            state.error("Failed to write checkpoint progress: " + e.getMessage());
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to remove orphan scan checkpoint: {}", file, e);
+        }
+    }
+
+    private static Path absolute(String path) {
+        return Paths.get(path).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Lists one directory: files are checked against the referenced set,
+     * subdirectories become forked subtasks
+     */
+    private static final class DirectoryScan extends RecursiveAction {
+
+        private final Path directory;
+        private final Set<Path> excluded;
+        private final ScanState state;
+
+        private DirectoryScan(Path directory, Set<Path> excluded, ScanState state) {
+            this.directory = directory;
+            this.excluded = excluded;
+            this.state = state;
+        }
+
+        @Override
+        protected void compute() {
+            List<DirectoryScan> subdirectories = new ArrayList<>();
+
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    BasicFileAttributes attrs;
+                    try {
+                        attrs = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    } catch (IOException e) {
+                        continue; // Removed while listing
+                    }
+
+                    if (attrs.isDirectory()) {
+                        if (!excluded.contains(entry)) {
+                            subdirectories.add(new DirectoryScan(entry, excluded, state));
+                        }
+                    } else if (attrs.isRegularFile() && !entry.toString().startsWith(state.checkpoint.toString())) {
+                        state.filesScanned.increment();
+                        // Recent files may belong to an upload whose row is not committed yet
+                        if (attrs.lastModifiedTime().toMillis() < state.graceCutoffMillis
+                                && !state.isReferenced(entry.toString())) {
+                            state.orphans.add(new Orphan(entry, attrs.size()));
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                state.error("Failed to list " + directory + ": " + e.getMessage());
+            }
+
+            invokeAll(subdirectories);
+        }
+    }
+
+    private static final class ScanState {
+        private final PathHashSet referenced;
+        private final Path checkpoint;
+        private final long graceCutoffMillis;
+        private final Queue<Orphan> orphans = new ConcurrentLinkedQueue<>();
+        private final LongAdder filesScanned = new LongAdder();
+        private final Queue<String> errors = new ConcurrentLinkedQueue<>();
+        private final LongAdder errorCount = new LongAdder();
+
+        private ScanState(PathHashSet referenced, Path checkpoint, long graceCutoffMillis) {
+            this.referenced = referenced;
+            this.checkpoint = checkpoint;
+            this.graceCutoffMillis = graceCutoffMillis;
+        }
+
+        /**
+         * A compressed variant lives as long as the file it was made from
+         */
+        private boolean isReferenced(String path) {
+            if (referenced.contains(path)) {
+                return true;
+            }
+            return path.endsWith(CompressedVariantService.VARIANT_SUFFIX) && referenced.contains(
+                path.substring(0, path.length() - CompressedVariantService.VARIANT_SUFFIX.length()));
+        }
+
+        private void error(String message) {
+            errorCount.increment();
+            if (errorCount.sum() <= MAX_REPORTED_ENTRIES) {
+                errors.add(message);
+            }
+        }
+    }
+
+    private static final class Orphan {
+        private final Path path;
+        private final long sizeBytes;
+
+        private Orphan(Path path, long sizeBytes) {
+            this.path = path;
+            this.sizeBytes = sizeBytes;
+        }
+    }
+
+    /**
+     * Spaces deletes evenly so a large cleanup does not saturate the disk
+     */
+    private static final class RateLimiter {
+        private final long intervalNanos;
+        private long nextPermitNanos = System.nanoTime();
+
+        private RateLimiter(int permitsPerSecond) {
+            this.intervalNanos = permitsPerSecond > 0 ? 1_000_000_000L / permitsPerSecond : 0;
+        }
+
+        private void acquire() {
+            if (intervalNanos == 0) {
+                return;
+            }
+            long waitNanos = nextPermitNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                try {
+                    Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Orphan file cleanup interrupted", e);
+                }
+            }
+            nextPermitNanos = Math.max(nextPermitNanos, System.nanoTime()) + intervalNanos;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.alibou.security.core.infrastructure.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongUnaryOperator;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Totals of paged results without an exact COUNT(*) over large matches
+ *
+ * A total is counted exactly up to exact-limit rows (the count stops there).
+ * Past that, on PostgreSQL, the planner's estimate is used: pg_class.reltuples
+ * for a whole table, the row estimate of EXPLAIN for a filtered query. Where no
+ * estimate is available the total is reported as the number counted, so a
+ * client can always page on. Either way the total is marked as not exact.
+ *
+ * Totals are cached for cache-ttl-ms by a key describing the query and its
+ * parameters, so paging through the same filter counts once.
+ */
+@Component
+@Slf4j
+public class PageCounter {
+
+    // First node of an EXPLAIN (FORMAT JSON) plan is the top one; its rows are the query's result estimate
+    private static final Pattern PLAN_ROWS = Pattern.compile("\"Plan Rows\"\\s*:\\s*([0-9.eE+]+)");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final boolean enabled;
+    private final long exactLimit;
+    private final long cacheTtlMs;
+    private final int cacheSize;
+    private final Map<String, CachedTotal> cache = new ConcurrentHashMap<>();
+    private volatile boolean estimatesAvailable;
+
+    public PageCounter(JdbcTemplate jdbcTemplate,
+                       NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                       @Value("${app.page-counts.enabled:true}") boolean enabled,
+                       @Value("${app.page-counts.exact-limit:1000}") long exactLimit,
+                       @Value("${app.page-counts.cache-ttl-ms:30000}") long cacheTtlMs,
+                       @Value("${app.page-counts.cache-size:1000}") int cacheSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.enabled = enabled;
+        this.exactLimit = exactLimit;
+        this.cacheTtlMs = cacheTtlMs;
+        this.cacheSize = cacheSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+            connection.getMetaData().getDatabaseProductName());
+        estimatesAvailable = "PostgreSQL".equalsIgnoreCase(database);
+        log.info("Page totals above {} rows are {}", exactLimit,
+            estimatesAvailable ? "planner estimates" : "reported as counted so far");
+    }
+
+    /**
+     * Total of a query, with the default exact limit
+     *
+     * @param key        query and parameters; equal keys share a cached total
+     * @param countUpTo  counts matching rows, stopping at the given number
+     * @param estimate   planner estimate of the total (see tableEstimate and planEstimate)
+     */
+    public Total count(String key, LongUnaryOperator countUpTo, Supplier<OptionalLong> estimate) {
+        return count(key, exactLimit, countUpTo, estimate);
+    }
+
+    /**
+     * Total of a query, counted exactly up to limit rows
+     */
+    public Total count(String key, long limit, LongUnaryOperator countUpTo, Supplier<OptionalLong> estimate) {
+        if (!enabled) {
+            return new Total(countUpTo.applyAsLong(Long.MAX_VALUE), true);
+        }
+        long now = System.currentTimeMillis();
+        CachedTotal cached = cache.get(key);
+        if (cached != null && cached.expiresAt > now) {
+            return cached.total;
+        }
+
+        long counted = countUpTo.applyAsLong(limit + 1);
+        Total total;
+        if (counted <= limit) {
+            total = new Total(counted, true);
+        } else {
+            OptionalLong estimated = estimatesAvailable ? estimate.get() : OptionalLong.empty();
+            // An estimate below what was already counted is certainly wrong
+            total = new Total(Math.max(counted, estimated.orElse(counted)), false);
+        }
+
+        if (cache.size() >= cacheSize) {
+            cache.values().removeIf(entry -> entry.expiresAt <= now);
+            if (cache.size() >= cacheSize) {
+                cache.clear();
+            }
+        }
+        cache.put(key, new CachedTotal(total, now + cacheTtlMs));
+        return total;
+    }
+
+    /**
+     * Planner estimate of the rows in a table (as of its last VACUUM or ANALYZE)
+     */
+    public OptionalLong tableEstimate(String table) {
+        try {
+            Double rows = jdbcTemplate.queryForObject(
+                "SELECT reltuples FROM pg_class WHERE oid = to_regclass(?)", Double.class, table);
+            // -1 for a table that was never analyzed
+            return rows != null && rows >= 0 ? OptionalLong.of(Math.round(rows)) : OptionalLong.empty();
+        } catch (DataAccessException e) {
+            log.debug("No row estimate for table {}", table, e);
+            return OptionalLong.empty();
+        }
+    }
+
+    /**
+     * Planner estimate of the rows a native query returns
+     */
+    public OptionalLong planEstimate(String sql, Map<String, ?> parameters) {
+        try {
+            String plan = namedParameterJdbcTemplate.queryForObject(
+                "EXPLAIN (FORMAT JSON) " + sql, parameters, String.class);
+            Matcher rows = plan != null ? PLAN_ROWS.matcher(plan) : null;
+            return rows != null && rows.find()
+                ? OptionalLong.of(Math.round(Double.parseDouble(rows.group(1)))) : OptionalLong.empty();
+        } catch (DataAccessException | NumberFormatException e) {
+            log.debug("No row estimate for query {}", sql, e);
+            return OptionalLong.empty();
+        }
+    }
+
+    /**
+     * A page total and whether it was counted exactly
+     */
+    public static final class Total {
+        private final long value;
+        private final boolean exact;
+
+        public Total(long value, boolean exact) {
+            this.value = value;
+            this.exact = exact;
+        }
+
+        // Getters
+        public long getValue() { return value; }
+        public boolean isExact() { return exact; }
+    }
+
+    // Helper methods
+
+    private static final class CachedTotal {
+        private final Total total;
+        private final long expiresAt;
+
+        CachedTotal(Total total, long expiresAt) {
+            this.total = total;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
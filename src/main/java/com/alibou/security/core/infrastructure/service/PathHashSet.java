@@ -0,0 +1,96 @@
+package com.alibou.security.core.infrastructure.service;
+
+/**
+ * Compact set of file paths, stored as 64-bit hashes in an open-addressing table
+ *
+ * About 16 bytes per path instead of a String plus a HashMap node. A hash
+ * collision can only make an unreferenced path look referenced, so callers
+ * that delete what is NOT in the set err on the side of keeping a file.
+ * Not thread-safe for writes; safe to read concurrently once populated.
+ */
+final class PathHashSet {
+
+    private static final long EMPTY = 0L;
+
+    private long[] slots;
+    private int size;
+
+    PathHashSet(int expectedSize) {
+        slots = new long[tableSizeFor(expectedSize)];
+    }
+
+    void add(String path) {
+        if ((size + 1) * 2 > slots.length) {
+            resize();
+        }
+        if (insert(slots, hash(path))) {
+            size++;
+        }
+    }
+
+    boolean contains(String path) {
+        long hash = hash(path);
+        int mask = slots.length - 1;
+        for (int i = (int) hash & mask; ; i = (i + 1) & mask) {
+            long slot = slots[i];
+            if (slot == hash) {
+                return true;
+            }
+            if (slot == EMPTY) {
+                return false;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private static boolean insert(long[] table, long hash) {
+        int mask = table.length - 1;
+        for (int i = (int) hash & mask; ; i = (i + 1) & mask) {
+            if (table[i] == hash) {
+                return false;
+            }
+            if (table[i] == EMPTY) {
+                table[i] = hash;
+                return true;
+            }
+        }
+    }
+
+    private void resize() {
+        long[] grown = new long[slots.length * 2];
+        for (long slot : slots) {
+            if (slot != EMPTY) {
+                insert(grown, slot);
+            }
+        }
+        slots = grown;
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity < expectedSize * 2 && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * FNV-1a over the UTF-16 chars, finished with the MurmurHash3 fmix64 mixer
+     */
+    private static long hash(String path) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < path.length(); i++) {
+            h ^= path.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == EMPTY ? 1L : h;
+    }
+}
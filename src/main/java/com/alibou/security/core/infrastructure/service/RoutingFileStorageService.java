@@ -0,0 +1,146 @@
+package com.alibou.security.core.infrastructure.service;
+
+import com.alibou.security.core.domain.service.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * FileStorageService that callers get injected
+ *
+ * New files go to object storage if their category is listed in
+ * app.file-storage.object-categories, to the local tree otherwise. Existing
+ * files are served by the backend their stored path belongs to, so a category
+ * can be switched without migrating what is already stored.
+ */
+@Service
+@Primary
+@Slf4j
+public class RoutingFileStorageService implements FileStorageService {
+
+    private final LocalFileStorageService localStorage;
+    private final ObjectStorageFileStorageService objectStorage;
+    private final Set<String> objectCategories;
+
+    public RoutingFileStorageService(LocalFileStorageService localStorage,
+                                     ObjectStorageFileStorageService objectStorage,
+                                     @Value("${app.file-storage.object-categories:}") String objectCategories) {
+        this.localStorage = localStorage;
+        this.objectStorage = objectStorage;
+        this.objectCategories = Arrays.stream(objectCategories.split(","))
+            .map(String::trim)
+            .filter(category -> !category.isEmpty())
+            .collect(Collectors.toUnmodifiableSet());
+        if (!this.objectCategories.isEmpty()) {
+            log.info("Storing categories {} in object storage", this.objectCategories);
+        }
+    }
+
+    @Override
+    public FileStorageResult storeFile(MultipartFile file, String category, Integer userId) {
+        return forCategory(category).storeFile(file, category, userId);
+    }
+
+    @Override
+    public FileStorageResult storeFile(InputStream inputStream, String originalFileName,
+                                     String contentType, long size, String category, Integer userId) {
+        return forCategory(category).storeFile(inputStream, originalFileName, contentType, size, category, userId);
+    }
+
+    @Override
+    public void deleteFile(String filePath) {
+        forPath(filePath).deleteFile(filePath);
+    }
+
+    @Override
+    public InputStream getFileAsStream(String filePath) {
+        return forPath(filePath).getFileAsStream(filePath);
+    }
+
+    @Override
+    public StoredFileContent openForDownload(String filePath, boolean acceptGzip) {
+        return forPath(filePath).openForDownload(filePath, acceptGzip);
+    }
+
+    @Override
+    public StoredFileContent openRange(String filePath, long offset, long length) {
+        return forPath(filePath).openRange(filePath, offset, length);
+    }
+
+    @Override
+    public FileMetadata getFileMetadata(String filePath) {
+        return forPath(filePath).getFileMetadata(filePath);
+    }
+
+    @Override
+    public String generateDownloadUrl(String filePath, String checksum, Integer userId, long expirationMinutes) {
+        return forPath(filePath).generateDownloadUrl(filePath, checksum, userId, expirationMinutes);
+    }
+
+    @Override
+    public FileValidationResult validateFile(MultipartFile file, String category) {
+        return localStorage.validateFile(file, category);
+    }
+
+    @Override
+    public StorageStatistics getStorageStatistics() {
+        return localStorage.getStorageStatistics();
+    }
+
+    @Override
+    public void cleanupTemporaryFiles() {
+        localStorage.cleanupTemporaryFiles();
+    }
+
+    @Override
+    public FileStorageResult moveFile(String currentPath, String newCategory) {
+        FileStorageService source = forPath(currentPath);
+        if (source != forCategory(newCategory)) {
+            return new FileStorageResult("Cannot move file between local and object storage: " + currentPath);
+        }
+        return source.moveFile(currentPath, newCategory);
+    }
+
+    @Override
+    public boolean fileExists(String filePath) {
+        return forPath(filePath).fileExists(filePath);
+    }
+
+    @Override
+    public long getFileSize(String filePath) {
+        return forPath(filePath).getFileSize(filePath);
+    }
+
+    @Override
+    public String createBackup(String filePath) {
+        return forPath(filePath).createBackup(filePath);
+    }
+
+    @Override
+    public SnapshotResult createSnapshot() {
+        // Only the local tree; object storage relies on bucket versioning
+        return localStorage.createSnapshot();
+    }
+
+    @Override
+    public void restoreFromBackup(String backupPath, String originalPath) {
+        forPath(originalPath).restoreFromBackup(backupPath, originalPath);
+    }
+
+    // Helper methods
+
+    private FileStorageService forCategory(String category) {
+        return objectCategories.contains(category) ? objectStorage : localStorage;
+    }
+
+    private FileStorageService forPath(String filePath) {
+        return ObjectStorageFileStorageService.isObjectPath(filePath) ? objectStorage : localStorage;
+    }
+}
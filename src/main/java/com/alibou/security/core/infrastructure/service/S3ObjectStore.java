@@ -0,0 +1,403 @@
+package com.alibou.security.core.infrastructure.service;
+
+import com.alibou.security.core.domain.service.ObjectInfo;
+import com.alibou.security.core.domain.service.ObjectStore;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@link ObjectStore} on any S3-compatible endpoint (AWS S3, MinIO, Ceph RGW, ...)
+ *
+ * Speaks the REST API directly over the JDK HTTP client with Signature V4.
+ * Payloads are sent as UNSIGNED-PAYLOAD so uploads stream without being
+ * hashed twice; content larger than part-size goes up as a multipart upload,
+ * one part buffer at a time, so memory use does not depend on file size.
+ */
+@Slf4j
+public class S3ObjectStore implements ObjectStore {
+
+    static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    static final String EMPTY_PAYLOAD_HASH = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+
+    private static final int MIN_PART_SIZE = 5 * 1024 * 1024; // S3 minimum for all but the last part
+    private static final long MAX_PRESIGN_SECONDS = Duration.ofDays(7).getSeconds();
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final Pattern UPLOAD_ID = Pattern.compile("<UploadId>([^<]+)</UploadId>");
+    private static final Pattern ERROR_CODE = Pattern.compile("<Code>([^<]+)</Code>");
+
+    private final HttpClient httpClient;
+    private final URI endpoint;
+    private final String region;
+    private final String bucket;
+    private final String accessKey;
+    private final String secretKey;
+    private final boolean pathStyle;
+    private final int partSize;
+
+    public S3ObjectStore(String endpoint, String region, String bucket, String accessKey, String secretKey,
+                         boolean pathStyle, int partSize) {
+        if (endpoint == null || endpoint.isBlank() || bucket == null || bucket.isBlank()
+                || accessKey == null || accessKey.isBlank() || secretKey == null || secretKey.isBlank()) {
+            throw new IllegalStateException("Object storage needs endpoint, bucket, access-key and secret-key");
+        }
+        this.endpoint = URI.create(endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint);
+        this.region = region;
+        this.bucket = bucket;
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.pathStyle = pathStyle;
+        this.partSize = Math.max(MIN_PART_SIZE, partSize);
+        this.httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    }
+
+    @Override
+    public void put(String key, InputStream content, long size, String contentType) throws IOException {
+        if (size >= 0 && size <= partSize) {
+            Map<String, String> headers = new TreeMap<>();
+            if (contentType != null) {
+                headers.put("content-type", contentType);
+            }
+            HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.fromPublisher(
+                HttpRequest.BodyPublishers.ofInputStream(() -> content), size);
+            expectSuccess(send("PUT", key, Map.of(), headers, body, HttpResponse.BodyHandlers.ofString()), key);
+            return;
+        }
+        putMultipart(key, content, contentType);
+    }
+
+    @Override
+    public InputStream get(String key, long offset, long length) throws IOException {
+        Map<String, String> headers = new TreeMap<>();
+        if (offset > 0 || length >= 0) {
+            headers.put("range", "bytes=" + offset + "-" + (length >= 0 ? String.valueOf(offset + length - 1) : ""));
+        }
+        HttpResponse<InputStream> response = send("GET", key, Map.of(), headers,
+            HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() == 200 || response.statusCode() == 206) {
+            return response.body();
+        }
+        String error = new String(response.body().readAllBytes(), StandardCharsets.UTF_8);
+        response.body().close();
+        if (response.statusCode() == 404) {
+            throw new NoSuchFileException(key);
+        }
+        throw failure(response.statusCode(), error, key);
+    }
+
+    @Override
+    public ObjectInfo head(String key) throws IOException {
+        HttpResponse<Void> response = send("HEAD", key, Map.of(), Map.of(),
+            HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) {
+            return null;
+        }
+        if (response.statusCode() != 200) {
+            throw failure(response.statusCode(), "", key);
+        }
+        long size = response.headers().firstValueAsLong("content-length").orElse(0);
+        String etag = response.headers().firstValue("etag").map(S3ObjectStore::unquote).orElse(null);
+        Instant lastModified = response.headers().firstValue("last-modified").map(value -> {
+            try {
+                return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }).orElse(null);
+        return new ObjectInfo(key, size, etag, lastModified);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        HttpResponse<String> response = send("DELETE", key, Map.of(), Map.of(),
+            HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 404) {
+            expectSuccess(response, key);
+        }
+    }
+
+    @Override
+    public void copy(String sourceKey, String targetKey) throws IOException {
+        // Single-request copy; S3 caps it at 5GB, far above app.file-storage.max-file-size
+        Map<String, String> headers = Map.of("x-amz-copy-source", "/" + bucket + "/" + encodePath(sourceKey));
+        HttpResponse<String> response = send("PUT", targetKey, Map.of(), headers,
+            HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.ofString());
+        expectSuccess(response, targetKey);
+        // A copy can fail after the 200 status line has been sent
+        if (response.body().contains("<Error>")) {
+            throw failure(500, response.body(), targetKey);
+        }
+    }
+
+    @Override
+    public String presignGet(String key, Duration expiresIn, String downloadFileName) {
+        Instant now = Instant.now();
+        Map<String, String> query = new TreeMap<>();
+        query.put("X-Amz-Algorithm", "AWS4-HMAC-SHA256");
+        query.put("X-Amz-Credential", accessKey + "/" + scope(now));
+        query.put("X-Amz-Date", AMZ_DATE.format(now.atOffset(ZoneOffset.UTC)));
+        query.put("X-Amz-Expires", String.valueOf(Math.min(MAX_PRESIGN_SECONDS, Math.max(1, expiresIn.getSeconds()))));
+        query.put("X-Amz-SignedHeaders", "host");
+        if (downloadFileName != null) {
+            query.put("response-content-disposition", "attachment; filename=\"" + downloadFileName + "\"");
+        }
+        String path = objectPath(key);
+        String signature = signature("GET", host(), path, query, Map.of("host", host()), UNSIGNED_PAYLOAD, now);
+        query.put("X-Amz-Signature", signature);
+        return baseUri() + path + "?" + canonicalQuery(query);
+    }
+
+    // Multipart upload
+
+    private void putMultipart(String key, InputStream content, String contentType) throws IOException {
+        Map<String, String> headers = new TreeMap<>();
+        if (contentType != null) {
+            headers.put("content-type", contentType);
+        }
+        HttpResponse<String> created = send("POST", key, Map.of("uploads", ""), headers,
+            HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.ofString());
+        expectSuccess(created, key);
+        Matcher matcher = UPLOAD_ID.matcher(created.body());
+        if (!matcher.find()) {
+            throw new IOException("Object storage returned no upload id for " + key);
+        }
+        String uploadId = matcher.group(1);
+
+        try {
+            List<String> etags = new ArrayList<>();
+            byte[] buffer = new byte[partSize];
+            int read;
+            while ((read = content.readNBytes(buffer, 0, partSize)) > 0 || etags.isEmpty()) {
+                int partNumber = etags.size() + 1;
+                HttpResponse<String> part = send("PUT", key,
+                    Map.of("partNumber", String.valueOf(partNumber), "uploadId", uploadId), Map.of(),
+                    HttpRequest.BodyPublishers.ofByteArray(buffer, 0, read), HttpResponse.BodyHandlers.ofString());
+                expectSuccess(part, key);
+                etags.add(part.headers().firstValue("etag")
+                    .orElseThrow(() -> new IOException("Object storage returned no ETag for part " + partNumber)));
+                if (read < partSize) {
+                    break;
+                }
+            }
+
+            StringBuilder complete = new StringBuilder("<CompleteMultipartUpload>");
+            for (int i = 0; i < etags.size(); i++) {
+                complete.append("<Part><PartNumber>").append(i + 1).append("</PartNumber><ETag>")
+                    .append(etags.get(i)).append("</ETag></Part>");
+            }
+            complete.append("</CompleteMultipartUpload>");
+            HttpResponse<String> completed = send("POST", key, Map.of("uploadId", uploadId), Map.of(),
+                HttpRequest.BodyPublishers.ofString(complete.toString()), HttpResponse.BodyHandlers.ofString());
+            expectSuccess(completed, key);
+            if (completed.body().contains("<Error>")) {
+                throw failure(500, completed.body(), key);
+            }
+        } catch (IOException | RuntimeException e) {
+            abortQuietly(key, uploadId);
+            throw e;
+        }
+    }
+
+    private void abortQuietly(String key, String uploadId) {
+        try {
+            send("DELETE", key, Map.of("uploadId", uploadId), Map.of(),
+                HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.discarding());
+        } catch (IOException e) {
+            // The bucket's lifecycle rule for incomplete uploads cleans up eventually
+            log.warn("Failed to abort multipart upload {} of {}", uploadId, key, e);
+        }
+    }
+
+    // Request signing (AWS Signature Version 4)
+
+    private <T> HttpResponse<T> send(String method, String key, Map<String, String> query,
+                                     Map<String, String> extraHeaders, HttpRequest.BodyPublisher body,
+                                     HttpResponse.BodyHandler<T> handler) throws IOException {
+        Instant now = Instant.now();
+        String path = objectPath(key);
+
+        Map<String, String> headers = new TreeMap<>(extraHeaders);
+        headers.put("host", host());
+        headers.put("x-amz-content-sha256", body.contentLength() == 0 ? EMPTY_PAYLOAD_HASH : UNSIGNED_PAYLOAD);
+        headers.put("x-amz-date", AMZ_DATE.format(now.atOffset(ZoneOffset.UTC)));
+
+        String signature = signature(method, host(), path, query, headers, headers.get("x-amz-content-sha256"), now);
+        String authorization = "AWS4-HMAC-SHA256 Credential=" + accessKey + "/" + scope(now)
+            + ", SignedHeaders=" + String.join(";", headers.keySet())
+            + ", Signature=" + signature;
+
+        String queryString = query.isEmpty() ? "" : "?" + canonicalQuery(query);
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUri() + path + queryString))
+            .timeout(Duration.ofMinutes(5))
+            .method(method, body)
+            .header("Authorization", authorization);
+        headers.forEach((name, value) -> {
+            if (!name.equals("host")) { // Set by the client from the URI
+                request.header(name, value);
+            }
+        });
+
+        try {
+            return httpClient.send(request.build(), handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted during object storage request");
+        }
+    }
+
+    /**
+     * Hex signature over the canonical request; headers must be keyed by lower-case name
+     */
+    String signature(String method, String host, String path, Map<String, String> query,
+                     Map<String, String> headers, String payloadHash, Instant time) {
+        StringBuilder canonicalHeaders = new StringBuilder();
+        Map<String, String> sortedHeaders = new TreeMap<>(headers);
+        sortedHeaders.put("host", host);
+        sortedHeaders.forEach((name, value) -> canonicalHeaders.append(name).append(':').append(value.trim()).append('\n'));
+
+        String canonicalRequest = method + "\n"
+            + path + "\n"
+            + canonicalQuery(query) + "\n"
+            + canonicalHeaders + "\n"
+            + String.join(";", sortedHeaders.keySet()) + "\n"
+            + payloadHash;
+
+        String stringToSign = "AWS4-HMAC-SHA256\n"
+            + AMZ_DATE.format(time.atOffset(ZoneOffset.UTC)) + "\n"
+            + scope(time) + "\n"
+            + HexFormat.of().formatHex(sha256(canonicalRequest.getBytes(StandardCharsets.UTF_8)));
+
+        byte[] signingKey = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), dateStamp(time));
+        signingKey = hmac(signingKey, region);
+        signingKey = hmac(signingKey, "s3");
+        signingKey = hmac(signingKey, "aws4_request");
+        return HexFormat.of().formatHex(hmac(signingKey, stringToSign));
+    }
+
+    private String scope(Instant time) {
+        return dateStamp(time) + "/" + region + "/s3/aws4_request";
+    }
+
+    private static String dateStamp(Instant time) {
+        return DateTimeFormatter.BASIC_ISO_DATE.format(time.atOffset(ZoneOffset.UTC).toLocalDate());
+    }
+
+    private String host() {
+        String host = pathStyle ? endpoint.getHost() : bucket + "." + endpoint.getHost();
+        return endpoint.getPort() > 0 ? host + ":" + endpoint.getPort() : host;
+    }
+
+    private String baseUri() {
+        return endpoint.getScheme() + "://" + host();
+    }
+
+    private String objectPath(String key) {
+        return (pathStyle ? "/" + bucket + "/" : "/") + encodePath(key);
+    }
+
+    private static String canonicalQuery(Map<String, String> query) {
+        Map<String, String> encoded = new TreeMap<>();
+        query.forEach((name, value) -> encoded.put(encode(name), encode(value)));
+        StringBuilder result = new StringBuilder();
+        encoded.forEach((name, value) -> {
+            if (result.length() > 0) {
+                result.append('&');
+            }
+            result.append(name).append('=').append(value);
+        });
+        return result.toString();
+    }
+
+    private static String encodePath(String key) {
+        StringBuilder result = new StringBuilder();
+        for (String segment : key.split("/", -1)) {
+            if (result.length() > 0) {
+                result.append('/');
+            }
+            result.append(encode(segment));
+        }
+        return result.toString();
+    }
+
+    /**
+     * RFC 3986 percent-encoding of everything but unreserved characters, as SigV4 requires
+     */
+    private static String encode(String value) {
+        StringBuilder result = new StringBuilder();
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xff);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~') {
+                result.append(c);
+            } else {
+                result.append('%').append(String.format(Locale.ROOT, "%02X", b & 0xff));
+            }
+        }
+        return result.toString();
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    private static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+    }
+
+    // Responses
+
+    private static void expectSuccess(HttpResponse<String> response, String key) throws IOException {
+        if (response.statusCode() / 100 != 2) {
+            throw failure(response.statusCode(), response.body(), key);
+        }
+    }
+
+    private static IOException failure(int status, String body, String key) {
+        Matcher code = ERROR_CODE.matcher(body != null ? body : "");
+        return new IOException("Object storage request for " + key + " failed: HTTP " + status
+            + (code.find() ? " " + code.group(1) : ""));
+    }
+
+    private static String unquote(String etag) {
+        return etag.length() >= 2 && etag.startsWith("\"") && etag.endsWith("\"")
+            ? etag.substring(1, etag.length() - 1) : etag;
+    }
+}
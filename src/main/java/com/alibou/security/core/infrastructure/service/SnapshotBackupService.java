@@ -0,0 +1,398 @@
+package com.alibou.security.core.infrastructure.service;
+
+import com.alibou.security.core.domain.service.SnapshotResult;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Snapshot backups on top of a content-addressed blob store
+ *
+ * Layout below {base-path}/backup:
+ *   blobs/ab/abcdef...        one hard link per distinct SHA-256, never modified
+ *   manifests/{id}.manifest.gz  "sha256 TAB size TAB mtime TAB path" per file
+ *
+ * Stored files are never rewritten in place, so a hard link is a safe backup
+ * of their content and costs no extra disk. Unchanged files (same size and
+ * mtime as in the previous library manifest) are not read again, which keeps
+ * a whole-library snapshot to roughly one stat per file. Where links are not
+ * supported (e.g. backup on another volume) blobs fall back to a copy.
+ *
+ * The scheduled snapshot walks and hashes the whole library, so it runs on a
+ * dedicated thread instead of holding one of the shared scheduler's few threads.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SnapshotBackupService {
+
+    private static final String LIBRARY_SUFFIX = "-library";
+    private static final String FILE_SUFFIX = "-file";
+    private static final String MANIFEST_EXTENSION = ".manifest.gz";
+    private static final DateTimeFormatter ID_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss_SSS");
+
+    private final StorageUsageTracker usageTracker;
+    private final AtomicBoolean scheduledRunning = new AtomicBoolean();
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "snapshot-backup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${app.file-storage.base-path:./uploads}")
+    private String baseStoragePath;
+
+    @Value("${app.file-storage.backup.retention-days:30}")
+    private long retentionDays;
+
+    @Value("${app.file-storage.backup.retention-min-snapshots:7}")
+    private int retentionMinSnapshots;
+
+    /**
+     * Back up a single file: link it into the blob store and record it in a one-line manifest
+     *
+     * @return path of the blob, usable with restoreFromBackup
+     */
+    public synchronized String backupFile(Path source) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(source, BasicFileAttributes.class);
+        String hash = FileChecksums.sha256(source);
+        Path blob = storeBlob(hash, source, attrs.size(), new long[2]);
+
+        String snapshotId = newSnapshotId(FILE_SUFFIX);
+        writeManifest(snapshotId, List.of(new ManifestEntry(hash, attrs.size(),
+            attrs.lastModifiedTime().toMillis(), relativeToBase(source))));
+
+        return blob.toString();
+    }
+
+    @Scheduled(cron = "${app.file-storage.backup.snapshot-cron:-}")
+    public void scheduledSnapshot() {
+        if (!scheduledRunning.compareAndSet(false, true)) {
+            log.warn("Skipping scheduled snapshot backup, the previous one is still going");
+            return;
+        }
+        runner.execute(() -> {
+            try {
+                createSnapshot();
+            } catch (Exception e) {
+                log.error("Scheduled snapshot backup failed", e);
+            } finally {
+                scheduledRunning.set(false);
+            }
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        runner.shutdownNow();
+    }
+
+    /**
+     * Snapshot every stored file, then apply retention
+     */
+    public synchronized SnapshotResult createSnapshot() {
+        long started = System.currentTimeMillis();
+        Path basePath = absoluteBasePath();
+        Path backupRoot = backupRoot();
+        Map<String, ManifestEntry> previous = readLatestLibraryManifest();
+
+        List<ManifestEntry> entries = new ArrayList<>();
+        long[] blobStats = new long[2]; // new blobs, bytes copied
+        long[] hashed = new long[1];
+        long[] linkedBytes = new long[1];
+
+        try {
+            Files.walkFileTree(basePath, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    // Temp files are transient and cached image renditions can be rendered again
+                    return dir.equals(backupRoot) || dir.equals(basePath.resolve("temp"))
+                            || dir.equals(basePath.resolve("cache"))
+                        ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (!attrs.isRegularFile() || file.getFileName().toString().startsWith(".")) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    String relativePath = relativeToBase(file);
+                    long mtime = attrs.lastModifiedTime().toMillis();
+                    try {
+                        ManifestEntry known = previous.get(relativePath);
+                        String hash;
+                        if (known != null && known.size == attrs.size() && known.mtime == mtime) {
+                            hash = known.hash;
+                        } else {
+                            hash = FileChecksums.sha256(file);
+                            hashed[0]++;
+                        }
+                        storeBlob(hash, file, attrs.size(), blobStats);
+                        linkedBytes[0] += attrs.size();
+                        entries.add(new ManifestEntry(hash, attrs.size(), mtime, relativePath));
+                    } catch (IOException e) {
+                        log.warn("Skipping {} in snapshot: {}", file, e.getMessage());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new IllegalStateException("Snapshot failed: " + e.getMessage(), e);
+        }
+
+        String snapshotId = newSnapshotId(LIBRARY_SUFFIX);
+        try {
+            writeManifest(snapshotId, entries);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write snapshot manifest: " + e.getMessage(), e);
+        }
+
+        long[] pruned = prune();
+
+        long duration = System.currentTimeMillis() - started;
+        log.info("Snapshot {}: {} files, {} new blobs, {} files hashed, {} manifests and {} blobs pruned in {} ms",
+            snapshotId, entries.size(), blobStats[0], hashed[0], pruned[0], pruned[1], duration);
+
+        return new SnapshotResult(snapshotId, entries.size(), blobStats[0], hashed[0],
+            linkedBytes[0] - blobStats[1], blobStats[1], (int) pruned[0], pruned[1],
+            duration, LocalDateTime.now());
+    }
+
+    /**
+     * Drop manifests past retention (always keeping the newest full snapshots;
+     * single-file manifests only by age), then delete blobs that no remaining
+     * manifest refers to
+     *
+     * @return {manifests removed, blobs removed}
+     */
+    private long[] prune() {
+        List<Path> manifests = listManifests();
+        LocalDateTime cutoff = LocalDateTime.now().minus(Duration.ofDays(retentionDays));
+        String cutoffId = cutoff.format(ID_FORMAT);
+
+        List<Path> libraries = manifests.stream().filter(SnapshotBackupService::isLibraryManifest).toList();
+        Set<Path> kept = new HashSet<>(
+            libraries.subList(Math.max(0, libraries.size() - retentionMinSnapshots), libraries.size()));
+
+        int removedManifests = 0;
+        for (Path manifest : manifests) {
+            if (manifest.getFileName().toString().compareTo(cutoffId) >= 0) {
+                break; // Sorted oldest first
+            }
+            if (kept.contains(manifest)) {
+                continue;
+            }
+            try {
+                long size = Files.size(manifest);
+                Files.delete(manifest);
+                usageTracker.recordDeleted("backup", size);
+                removedManifests++;
+            } catch (IOException e) {
+                log.warn("Failed to prune snapshot manifest: {}", manifest, e);
+            }
+        }
+        if (removedManifests == 0) {
+            return new long[] {0, 0};
+        }
+
+        // Mark: hashes still referenced. A collision only keeps a blob alive.
+        PathHashSet live = new PathHashSet(1024);
+        for (Path manifest : listManifests()) {
+            try {
+                readManifest(manifest, entry -> live.add(entry.hash));
+            } catch (IOException | RuntimeException e) {
+                // Cannot tell what this manifest needs; keep every blob this time
+                log.warn("Unreadable manifest {}, skipping blob pruning", manifest, e);
+                return new long[] {removedManifests, 0};
+            }
+        }
+
+        // Sweep
+        long removedBlobs = 0;
+        Path blobRoot = backupRoot().resolve("blobs");
+        if (Files.isDirectory(blobRoot)) {
+            try (Stream<Path> blobs = Files.walk(blobRoot, 2)) {
+                for (Path blob : (Iterable<Path>) blobs.filter(Files::isRegularFile)::iterator) {
+                    if (!live.contains(blob.getFileName().toString())) {
+                        long size = Files.size(blob);
+                        Files.delete(blob);
+                        usageTracker.recordDeleted("backup", size);
+                        removedBlobs++;
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Blob pruning stopped early", e);
+            }
+        }
+        return new long[] {removedManifests, removedBlobs};
+    }
+
+    // Helper methods
+
+    /**
+     * Link (or copy) content into the blob store unless that hash is already there
+     *
+     * @param stats {new blobs, bytes copied}, updated in place
+     */
+    private Path storeBlob(String hash, Path source, long size, long[] stats) throws IOException {
+        Path blob = backupRoot().resolve("blobs").resolve(hash.substring(0, 2)).resolve(hash);
+        if (Files.exists(blob)) {
+            return blob;
+        }
+        Files.createDirectories(blob.getParent());
+        try {
+            Files.createLink(blob, source);
+        } catch (FileAlreadyExistsException e) {
+            return blob;
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            // Different volume or no hard link support
+            Files.copy(source, blob);
+            stats[1] += size;
+        }
+        stats[0]++;
+        usageTracker.recordStored("backup", size);
+        return blob;
+    }
+
+    private void writeManifest(String snapshotId, List<ManifestEntry> entries) throws IOException {
+        Path manifestDir = backupRoot().resolve("manifests");
+        Files.createDirectories(manifestDir);
+        Path manifest = manifestDir.resolve(snapshotId + MANIFEST_EXTENSION);
+        Path partial = manifestDir.resolve(snapshotId + MANIFEST_EXTENSION + ".part");
+
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(partial)), StandardCharsets.UTF_8))) {
+            for (ManifestEntry entry : entries) {
+                writer.write(entry.hash + "\t" + entry.size + "\t" + entry.mtime + "\t" + entry.path);
+                writer.newLine();
+            }
+        }
+        // A manifest only becomes visible once complete
+        Files.move(partial, manifest);
+        usageTracker.recordStored("backup", Files.size(manifest));
+    }
+
+    private void readManifest(Path manifest, Consumer<ManifestEntry> consumer) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(manifest)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t", 4);
+                if (parts.length == 4) {
+                    consumer.accept(new ManifestEntry(parts[0], Long.parseLong(parts[1]),
+                        Long.parseLong(parts[2]), parts[3]));
+                }
+            }
+        }
+    }
+
+    private Map<String, ManifestEntry> readLatestLibraryManifest() {
+        List<Path> manifests = listManifests();
+        for (int i = manifests.size() - 1; i >= 0; i--) {
+            Path manifest = manifests.get(i);
+            if (isLibraryManifest(manifest)) {
+                Map<String, ManifestEntry> entries = new HashMap<>();
+                try {
+                    readManifest(manifest, entry -> entries.put(entry.path, entry));
+                    return entries;
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Ignoring unreadable manifest {}, all files will be hashed", manifest, e);
+                    return Map.of();
+                }
+            }
+        }
+        return Map.of();
+    }
+
+    private static boolean isLibraryManifest(Path manifest) {
+        return manifest.getFileName().toString().endsWith(LIBRARY_SUFFIX + MANIFEST_EXTENSION);
+    }
+
+    /**
+     * Complete manifests, oldest first (ids sort chronologically)
+     */
+    private List<Path> listManifests() {
+        Path manifestDir = backupRoot().resolve("manifests");
+        List<Path> manifests = new ArrayList<>();
+        if (!Files.isDirectory(manifestDir)) {
+            return manifests;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(manifestDir, "*" + MANIFEST_EXTENSION)) {
+            stream.forEach(manifests::add);
+        } catch (IOException e) {
+            log.warn("Failed to list snapshot manifests", e);
+        }
+        manifests.sort(null);
+        return manifests;
+    }
+
+    private String newSnapshotId(String suffix) {
+        return LocalDateTime.now().format(ID_FORMAT) + suffix;
+    }
+
+    private String relativeToBase(Path file) {
+        return absoluteBasePath().relativize(file.toAbsolutePath().normalize()).toString().replace('\\', '/');
+    }
+
+    private Path absoluteBasePath() {
+        return Paths.get(baseStoragePath).toAbsolutePath().normalize();
+    }
+
+    private Path backupRoot() {
+        return absoluteBasePath().resolve("backup");
+    }
+
+    private static final class ManifestEntry {
+        private final String hash;
+        private final long size;
+        private final long mtime;
+        private final String path;
+
+        private ManifestEntry(String hash, long size, long mtime, String path) {
+            this.hash = hash;
+            this.size = size;
+            this.mtime = mtime;
+            this.path = path;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.alibou.security.core.infrastructure.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decides the directory a stored file lands in below its category/hierarchy directory
+ *
+ * flat:    books/20240101_120000_1_title_ab12cd34.pdf
+ * sharded: books/3f/a2/20240101_120000_1_title_ab12cd34.pdf
+ *
+ * With sharding, files fan out over 256^depth subdirectories chosen from the
+ * SHA-256 of the file name, so no single directory grows past a few thousand
+ * entries. The prefix only depends on the name, so it is stable and can be
+ * recomputed from any stored path.
+ */
+@Component
+public class StorageLayout {
+
+    private final boolean sharded;
+    private final int depth;
+
+    public StorageLayout(@Value("${app.file-storage.layout:sharded}") String layout,
+                         @Value("${app.file-storage.shard-depth:2}") int depth) {
+        if (!"sharded".equalsIgnoreCase(layout) && !"flat".equalsIgnoreCase(layout)) {
+            throw new IllegalArgumentException("Unknown storage layout: " + layout);
+        }
+        if (depth < 1 || depth > 4) {
+            throw new IllegalArgumentException("Shard depth must be between 1 and 4: " + depth);
+        }
+        this.sharded = "sharded".equalsIgnoreCase(layout);
+        this.depth = depth;
+    }
+
+    /**
+     * Path of a new file below the given directory, using "/" separators
+     */
+    public String place(String directory, String fileName) {
+        String prefix = shardPrefix(fileName) + fileName;
+        return directory.isEmpty() ? prefix : directory + "/" + prefix;
+    }
+
+    /**
+     * Rewrite an existing stored path to the configured layout.
+     * Works in both directions (flat to sharded and back) and returns the
+     * path unchanged if it already matches.
+     */
+    public String relayout(String path) {
+        String normalized = path.replace('\\', '/');
+        int lastSlash = normalized.lastIndexOf('/');
+        if (lastSlash < 0) {
+            return shardPrefix(normalized) + normalized;
+        }
+        String fileName = normalized.substring(lastSlash + 1);
+        List<String> directories = new ArrayList<>(Arrays.asList(normalized.substring(0, lastSlash).split("/", -1)));
+
+        // Drop shard segments this file already sits in (from any supported depth)
+        List<String> expected = Arrays.asList(shardSegments(fileName, 4));
+        int existing = 0;
+        for (int count = 1; count <= expected.size() && count < directories.size(); count++) {
+            List<String> tail = directories.subList(directories.size() - count, directories.size());
+            if (tail.equals(expected.subList(0, count))) {
+                existing = count;
+            }
+        }
+        List<String> parent = directories.subList(0, directories.size() - existing);
+
+        return place(String.join("/", parent), fileName);
+    }
+
+    public boolean isSharded() {
+        return sharded;
+    }
+
+    private String shardPrefix(String fileName) {
+        if (!sharded) {
+            return "";
+        }
+        return String.join("/", shardSegments(fileName, depth)) + "/";
+    }
+
+    private static String[] shardSegments(String fileName, int count) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(fileName.getBytes(StandardCharsets.UTF_8));
+            String[] segments = new String[count];
+            for (int i = 0; i < count; i++) {
+                segments[i] = String.format("%02x", hash[i] & 0xff);
+            }
+            return segments;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+    }
+}
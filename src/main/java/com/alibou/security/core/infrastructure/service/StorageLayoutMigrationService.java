@@ -0,0 +1,254 @@
+package com.alibou.security.core.infrastructure.service;
+
+import com.alibou.security.book.Book;
+import com.alibou.security.book.BookRepository;
+import com.alibou.security.core.domain.service.LayoutMigrationResult;
+import com.alibou.security.document.domain.entity.TechnicalDocument;
+import com.alibou.security.document.domain.repository.TechnicalDocumentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Moves stored files into the configured {@link StorageLayout} and rewrites
+ * the paths in the book and technical_document tables.
+ *
+ * Rows are processed in keyset batches, one transaction per batch. Files of a
+ * batch are moved before its commit and moved back if the commit fails. A run
+ * is idempotent: rows already in the target layout are skipped, and a file
+ * that is found at its target path (interrupted run) only gets its row fixed.
+ */
+@Component
+@Slf4j
+public class StorageLayoutMigrationService {
+
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private final BookRepository bookRepository;
+    private final TechnicalDocumentRepository documentRepository;
+    private final StorageLayout storageLayout;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${app.upload.dir:./uploads}")
+    private String documentUploadDir;
+
+    public StorageLayoutMigrationService(BookRepository bookRepository,
+                                         TechnicalDocumentRepository documentRepository,
+                                         StorageLayout storageLayout,
+                                         PlatformTransactionManager transactionManager) {
+        this.bookRepository = bookRepository;
+        this.documentRepository = documentRepository;
+        this.storageLayout = storageLayout;
+
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public LayoutMigrationResult migrate(int batchSize, boolean dryRun) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Storage layout migration already running");
+        }
+        try {
+            long started = System.currentTimeMillis();
+            MigrationTotals totals = new MigrationTotals();
+
+            this.<Book>migrateTable("book", batchSize, dryRun, totals,
+                lastId -> bookRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, batchSize)),
+                Book::getId,
+                (book, batch) -> {
+                    boolean changed = migratePath(book.getFilePath(), Paths::get, book::setFilePath, batch);
+                    changed |= migratePath(book.getCoverImagePath(), Paths::get, book::setCoverImagePath, batch);
+                    changed |= migratePath(book.getPreviewFilePath(), Paths::get, book::setPreviewFilePath, batch);
+                    return changed;
+                },
+                bookRepository::saveAll);
+            long booksUpdated = totals.rowsUpdated;
+
+            totals.rowsUpdated = 0;
+            Function<String, Path> documentResolver = path -> Paths.get(documentUploadDir, path);
+            this.<TechnicalDocument>migrateTable("technical_document", batchSize, dryRun, totals,
+                lastId -> documentRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, batchSize)),
+                TechnicalDocument::getId,
+                (document, batch) -> migratePath(document.getFilePath(), documentResolver,
+                    document::setFilePath, batch),
+                documentRepository::saveAll);
+
+            long duration = System.currentTimeMillis() - started;
+            log.info("Storage layout migration{}: {} books, {} documents, {} files moved, {} missing in {} ms",
+                dryRun ? " (dry run)" : "", booksUpdated, totals.rowsUpdated, totals.filesMoved,
+                totals.filesMissing, duration);
+
+            return new LayoutMigrationResult(dryRun, booksUpdated, totals.rowsUpdated, totals.filesMoved,
+                totals.filesMissing, totals.errors, duration);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private <T> void migrateTable(String table, int batchSize, boolean dryRun, MigrationTotals totals,
+                                  Function<Integer, List<T>> nextBatch,
+                                  Function<T, Integer> idOf,
+                                  RowMigration<T> rowMigration,
+                                  Consumer<List<T>> saveAll) {
+        int lastId = 0;
+        while (true) {
+            final int afterId = lastId;
+            Batch batch = new Batch(dryRun);
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    List<T> rows = nextBatch.apply(afterId);
+                    List<T> changed = new ArrayList<>();
+                    for (T row : rows) {
+                        if (rowMigration.migrate(row, batch)) {
+                            changed.add(row);
+                        }
+                    }
+                    batch.rows = rows.size();
+                    batch.lastId = rows.isEmpty() ? afterId : idOf.apply(rows.get(rows.size() - 1));
+                    batch.rowsUpdated = changed.size();
+                    if (dryRun) {
+                        status.setRollbackOnly();
+                    } else {
+                        saveAll.accept(changed);
+                    }
+                });
+            } catch (RuntimeException e) {
+                batch.undoMoves();
+                totals.error("Stopped at " + table + " id > " + afterId + ": " + e.getMessage());
+                log.error("Storage layout migration failed on {} after id {}", table, afterId, e);
+                return;
+            }
+
+            totals.rowsUpdated += batch.rowsUpdated;
+            totals.filesMoved += batch.moves.size();
+            totals.filesMissing += batch.filesMissing;
+
+            if (batch.rows < batchSize) {
+                return;
+            }
+            lastId = batch.lastId;
+        }
+    }
+
+    /**
+     * @return true if the stored path changed
+     */
+    private boolean migratePath(String storedPath, Function<String, Path> resolver,
+                                Consumer<String> setter, Batch batch) {
+        // Object storage keys are placed by the layout when written and never moved
+        if (storedPath == null || ObjectStorageFileStorageService.isObjectPath(storedPath)) {
+            return false;
+        }
+        String targetPath = storageLayout.relayout(storedPath);
+        if (targetPath.equals(storedPath)) {
+            return false;
+        }
+
+        Path source = resolver.apply(storedPath);
+        Path target = resolver.apply(targetPath);
+        if (batch.dryRun) {
+            if (Files.exists(source)) {
+                batch.moves.add(new Move(source, target));
+            }
+            return true;
+        }
+
+        try {
+            if (Files.exists(source)) {
+                Files.createDirectories(target.getParent());
+                Files.move(source, target);
+                batch.moves.add(new Move(source, target));
+                moveIfExists(CompressedVariantService.variantOf(source), CompressedVariantService.variantOf(target), batch);
+            } else if (!Files.exists(target)) {
+                // Nothing to move; keep the row as it is so the missing file stays visible
+                batch.filesMissing++;
+                return false;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to move " + source + ": " + e.getMessage(), e);
+        }
+        setter.accept(targetPath);
+        return true;
+    }
+
+    private void moveIfExists(Path source, Path target, Batch batch) throws IOException {
+        if (Files.exists(source)) {
+            Files.move(source, target);
+            batch.moves.add(new Move(source, target));
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowMigration<T> {
+        boolean migrate(T row, Batch batch);
+    }
+
+    private static final class Batch {
+        private final boolean dryRun;
+        private final List<Move> moves = new ArrayList<>();
+        private int rows;
+        private int lastId;
+        private int rowsUpdated;
+        private long filesMissing;
+
+        private Batch(boolean dryRun) {
+            this.dryRun = dryRun;
+        }
+
+        private void undoMoves() {
+            if (dryRun) {
+                return;
+            }
+            for (int i = moves.size() - 1; i >= 0; i--) {
+                Move move = moves.get(i);
+                try {
+                    Files.move(move.target, move.source);
+                } catch (IOException e) {
+                    log.error("Failed to move {} back to {}", move.target, move.source, e);
+                }
+            }
+        }
+    }
+
+    private static final class Move {
+        private final Path source;
+        private final Path target;
+
+        private Move(Path source, Path target) {
+            this.source = source;
+            this.target = target;
+        }
+    }
+
+    private static final class MigrationTotals {
+        private long rowsUpdated;
+        private long filesMoved;
+        private long filesMissing;
+        private final List<String> errors = new ArrayList<>();
+
+        private void error(String message) {
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(message);
+            }
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.alibou.security.core.infrastructure.service;
+
+import com.alibou.security.core.domain.entity.StorageUsage;
+import com.alibou.security.core.domain.repository.StorageUsageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running file count and size per storage category
+ *
+ * Updated in place by the storage service on store, move and delete so that
+ * statistics are read in constant time. Counters are persisted periodically
+ * and corrected by a background walk of the upload tree, which also picks up
+ * files written outside of FileStorageService. Categories kept in object
+ * storage are prefixed with "object:" and only maintained incrementally; the
+ * walk does not see them. The walk runs on a dedicated thread, so it does not
+ * hold one of the shared scheduler's few threads.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StorageUsageTracker {
+
+    public static final String OBJECT_STORAGE_PREFIX = "object:";
+
+    private static final String UNKNOWN_CATEGORY = "unknown";
+
+    private final StorageUsageRepository storageUsageRepository;
+
+    @Value("${app.file-storage.base-path:./uploads}")
+    private String baseStoragePath;
+
+    private volatile Path absoluteBasePath;
+
+    private final Map<String, CategoryUsage> usageByCategory = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final AtomicBoolean reconciling = new AtomicBoolean();
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "storage-usage-reconcile");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    void loadPersistedUsage() {
+        try {
+            for (StorageUsage usage : storageUsageRepository.findAll()) {
+                CategoryUsage counters = counters(usage.getCategory());
+                counters.files.add(usage.getFileCount());
+                counters.bytes.add(usage.getTotalBytes());
+            }
+        } catch (Exception e) {
+            // Counters start at zero; the first reconciliation fills them in
+            log.warn("Failed to load persisted storage usage", e);
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        runner.shutdownNow();
+        flush();
+    }
+
+    public void recordStored(String category, long sizeBytes) {
+        CategoryUsage counters = counters(category);
+        counters.files.increment();
+        counters.bytes.add(sizeBytes);
+        dirty.set(true);
+    }
+
+    public void recordDeleted(String category, long sizeBytes) {
+        CategoryUsage counters = counters(category);
+        counters.files.decrement();
+        counters.bytes.add(-sizeBytes);
+        dirty.set(true);
+    }
+
+    public void recordMoved(String fromCategory, String toCategory, long sizeBytes) {
+        recordDeleted(fromCategory, sizeBytes);
+        recordStored(toCategory, sizeBytes);
+    }
+
+    public Map<String, Long> getFilesByCategory() {
+        Map<String, Long> files = new TreeMap<>();
+        usageByCategory.forEach((category, usage) -> files.put(category, Math.max(0, usage.files.sum())));
+        return files;
+    }
+
+    public Map<String, Long> getSizeByCategory() {
+        Map<String, Long> sizes = new TreeMap<>();
+        usageByCategory.forEach((category, usage) -> sizes.put(category, Math.max(0, usage.bytes.sum())));
+        return sizes;
+    }
+
+    /**
+     * Category of a stored file: its top-level directory below the storage base path
+     */
+    public String categoryOf(Path file) {
+        Path basePath = absoluteBasePath();
+        Path absolute = file.toAbsolutePath().normalize();
+        if (!absolute.startsWith(basePath)) {
+            return UNKNOWN_CATEGORY;
+        }
+        Path relative = basePath.relativize(absolute);
+        return relative.getNameCount() > 1 ? relative.getName(0).toString() : UNKNOWN_CATEGORY;
+    }
+
+    /**
+     * Persist the current counters if anything changed since the last flush
+     */
+    @Scheduled(fixedDelayString = "${app.file-storage.usage-flush-interval-ms:60000}")
+    public void flush() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            List<StorageUsage> rows = usageByCategory.entrySet().stream()
+                .map(entry -> StorageUsage.builder()
+                    .category(entry.getKey())
+                    .fileCount(Math.max(0, entry.getValue().files.sum()))
+                    .totalBytes(Math.max(0, entry.getValue().bytes.sum()))
+                    .updatedAt(now)
+                    .build())
+                .toList();
+            storageUsageRepository.saveAll(rows);
+        } catch (Exception e) {
+            dirty.set(true);
+            log.warn("Failed to persist storage usage", e);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${app.file-storage.reconcile-initial-delay-ms:30000}",
+               fixedDelayString = "${app.file-storage.reconcile-interval-ms:21600000}")
+    public void scheduledReconcile() {
+        if (!reconciling.compareAndSet(false, true)) {
+            log.warn("Skipping storage usage reconciliation, the previous walk is still going");
+            return;
+        }
+        runner.execute(() -> {
+            try {
+                reconcile();
+            } catch (Exception e) {
+                log.error("Storage usage reconciliation failed", e);
+            } finally {
+                reconciling.set(false);
+            }
+        });
+    }
+
+    /**
+     * Walk the upload tree and correct drift in the counters.
+     *
+     * Updates recorded while the walk runs are kept: each counter is shifted by
+     * (walked - value at walk start) rather than overwritten.
+     */
+    public void reconcile() {
+        Path basePath = Paths.get(baseStoragePath);
+        if (!Files.isDirectory(basePath)) {
+            return;
+        }
+
+        long started = System.currentTimeMillis();
+        Map<String, Long> filesBefore = getRawCounts(true);
+        Map<String, Long> bytesBefore = getRawCounts(false);
+        Map<String, long[]> walked = new HashMap<>();
+
+        try {
+            Files.walkFileTree(basePath, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile()) {
+                        long[] totals = walked.computeIfAbsent(categoryOf(file), key -> new long[2]);
+                        totals[0]++;
+                        totals[1] += attrs.size();
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    // Deleted mid-walk or unreadable; skip it
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Storage usage reconciliation failed", e);
+            return;
+        }
+
+        for (String category : union(walked.keySet(), filesBefore.keySet())) {
+            if (category.startsWith(OBJECT_STORAGE_PREFIX)) {
+                continue;
+            }
+            long[] totals = walked.getOrDefault(category, new long[2]);
+            CategoryUsage counters = counters(category);
+            counters.files.add(totals[0] - filesBefore.getOrDefault(category, 0L));
+            counters.bytes.add(totals[1] - bytesBefore.getOrDefault(category, 0L));
+        }
+        dirty.set(true);
+
+        log.info("Reconciled storage usage for {} categories in {} ms",
+            walked.size(), System.currentTimeMillis() - started);
+    }
+
+    // Helper methods
+
+    private CategoryUsage counters(String category) {
+        return usageByCategory.computeIfAbsent(category != null ? category : UNKNOWN_CATEGORY,
+            key -> new CategoryUsage());
+    }
+
+    private Path absoluteBasePath() {
+        Path basePath = absoluteBasePath;
+        if (basePath == null) {
+            basePath = Paths.get(baseStoragePath).toAbsolutePath().normalize();
+            absoluteBasePath = basePath;
+        }
+        return basePath;
+    }
+
+    private Map<String, Long> getRawCounts(boolean files) {
+        Map<String, Long> counts = new HashMap<>();
+        usageByCategory.forEach((category, usage) ->
+            counts.put(category, files ? usage.files.sum() : usage.bytes.sum()));
+        return counts;
+    }
+
+    private static Set<String> union(Set<String> a, Set<String> b) {
+        Set<String> all = new HashSet<>(a);
+        all.addAll(b);
+        return all;
+    }
+
+    private static final class CategoryUsage {
+        private final LongAdder files = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+    }
+}
@@ -0,0 +1,55 @@
+package com.alibou.security.core.web.controller;
+
+import com.alibou.security.core.domain.service.AutocompleteSuggestion;
+import com.alibou.security.core.infrastructure.service.AutocompleteIndex;
+import com.alibou.security.core.infrastructure.service.AutocompleteIndex.Source;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * REST Controller for search-box type-ahead
+ *
+ * Answered from the in-memory AutocompleteIndex, so it can be called on every
+ * keystroke; the full /search endpoints are for the submitted query.
+ */
+@RestController
+@RequestMapping("/api/v1/autocomplete")
+@RequiredArgsConstructor
+@Tag(name = "Autocomplete", description = "Type-ahead suggestions for titles, authors and hierarchy names")
+public class AutocompleteController {
+
+    private static final int MAX_LIMIT = 20;
+
+    private final AutocompleteIndex autocompleteIndex;
+
+    @GetMapping
+    @Operation(summary = "Suggest completions",
+               description = "Titles, authors, manufacturers, series and products with a word starting with the query, most downloaded first")
+    public ResponseEntity<List<AutocompleteSuggestion>> suggest(
+            @Parameter(description = "What has been typed so far") @RequestParam String q,
+            @Parameter(description = "Maximum number of suggestions (up to 20)") @RequestParam(defaultValue = "10") int limit,
+            @Parameter(description = "Restrict to these types: BOOK_TITLE, BOOK_AUTHOR, MANUFACTURER, PRODUCT_SERIES, PRODUCT")
+            @RequestParam(required = false) Set<Source> types) {
+
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        Set<Source> sources = types == null || types.isEmpty() ? EnumSet.allOf(Source.class) : EnumSet.copyOf(types);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(60, TimeUnit.SECONDS).cachePrivate())
+                .body(autocompleteIndex.suggest(q, limit, sources));
+    }
+}
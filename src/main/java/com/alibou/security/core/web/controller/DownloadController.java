@@ -0,0 +1,195 @@
+package com.alibou.security.core.web.controller;
+
+import com.alibou.security.core.domain.service.DownloadGrant;
+import com.alibou.security.core.domain.service.FileStorageService;
+import com.alibou.security.core.domain.service.StoredFileContent;
+import com.alibou.security.core.infrastructure.service.CompressedVariantService;
+import com.alibou.security.core.infrastructure.service.DownloadTokenService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * REST Controller serving signed download links
+ *
+ * The token was issued after the permission check, so this path skips JWT
+ * authentication and all database access: verify the signature, check the
+ * file is still the one the token was issued for, stream it. A single byte
+ * range is served on request, so interrupted downloads can resume.
+ *
+ * The gzip variant is a different representation with its own ETag; ranges
+ * are only offered and served on the uncompressed file, whose byte offsets
+ * are the ones a resumed download continues from.
+ */
+@RestController
+@RequestMapping("/api/v1/downloads")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Downloads", description = "Download files through signed, expiring links")
+public class DownloadController {
+
+    private final DownloadTokenService downloadTokenService;
+    private final FileStorageService fileStorageService;
+
+    @GetMapping
+    @Operation(summary = "Download file by signed link",
+               description = "Token from /api/v1/books/files/{bookId}/download-url; no Authorization header needed")
+    public ResponseEntity<InputStreamResource> download(
+            @Parameter(description = "Signed download token")
+            @RequestParam String token,
+
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+
+            WebRequest request) throws IOException {
+
+        DownloadGrant grant = downloadTokenService.verify(token);
+
+        // Replaced or deleted since the link was issued
+        if (fileStorageService.getFileSize(grant.getFilePath()) != grant.getFileSize()) {
+            throw new ResponseStatusException(HttpStatus.GONE, "File has changed since the link was issued");
+        }
+
+        // Private: the link is per user; no longer than the link itself is valid
+        long secondsLeft = Math.max(0, Duration.between(Instant.now(), grant.getExpiresAt()).getSeconds());
+        CacheControl cacheControl = CacheControl.maxAge(Duration.ofSeconds(secondsLeft)).cachePrivate();
+
+        String etag = etag(grant.getChecksum(), null);
+
+        log.debug("Signed download of {} for user {}", grant.getFilePath(), grant.getUserId());
+
+        // If-Range: only resume if the client still has this version, uncompressed
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            long size = grant.getFileSize();
+            long[] bytes = parseRange(range, size);
+            if (bytes == null) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                    .build();
+            }
+            if (bytes.length == 2) {
+                if (etag != null && request.checkNotModified(etag)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+                }
+                long length = bytes[1] - bytes[0] + 1;
+                StoredFileContent part = fileStorageService.openRange(grant.getFilePath(), bytes[0], length);
+                ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                           "attachment; filename=\"" + part.getFileName() + "\"")
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes " + bytes[0] + "-" + bytes[1] + "/" + size)
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .cacheControl(cacheControl)
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .contentLength(length);
+                if (etag != null) {
+                    response.eTag(etag);
+                }
+                return response.body(new InputStreamResource(part.getInputStream()));
+            }
+        }
+
+        StoredFileContent content = fileStorageService.openForDownload(
+            grant.getFilePath(), CompressedVariantService.acceptsGzip(acceptEncoding));
+        String contentEtag = etag(grant.getChecksum(), content.getContentEncoding());
+        if (contentEtag != null && request.checkNotModified(contentEtag)) {
+            content.getInputStream().close();
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(contentEtag)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .cacheControl(cacheControl)
+                .build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION,
+                   "attachment; filename=\"" + content.getFileName() + "\"")
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+            .cacheControl(cacheControl)
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .contentLength(content.getContentLength());
+        if (contentEtag != null) {
+            response.eTag(contentEtag);
+        }
+        if (content.getContentEncoding() != null) {
+            response.header(HttpHeaders.CONTENT_ENCODING, content.getContentEncoding());
+        } else {
+            response.header(HttpHeaders.ACCEPT_RANGES, "bytes");
+        }
+        return response.body(new InputStreamResource(content.getInputStream()));
+    }
+
+    /**
+     * Strong ETag of a representation: the checksum, suffixed with the content coding if any
+     */
+    private static String etag(String checksum, String contentEncoding) {
+        if (checksum == null) {
+            return null;
+        }
+        return "\"" + checksum + (contentEncoding != null ? "-" + contentEncoding : "") + "\"";
+    }
+
+    /**
+     * First and last byte of a single "bytes=" range, clamped to the file
+     *
+     * @return null if the range cannot be satisfied; an empty array if it is
+     *         not a single byte range, which is answered with the whole file
+     */
+    private static long[] parseRange(String range, long size) {
+        if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+            return new long[0];
+        }
+        String spec = range.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        try {
+            long first;
+            long last;
+            if (dash == 0) {
+                // Suffix range: the last n bytes
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix <= 0 || size == 0) {
+                    return null;
+                }
+                first = Math.max(0, size - suffix);
+                last = size - 1;
+            } else {
+                first = Long.parseLong(spec.substring(0, dash));
+                last = dash == spec.length() - 1 ? Long.MAX_VALUE : Long.parseLong(spec.substring(dash + 1));
+                if (last < first) {
+                    return new long[0];
+                }
+                if (first >= size) {
+                    return null;
+                }
+                last = Math.min(last, size - 1);
+            }
+            return new long[] {first, last};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.alibou.security.core.web.controller;
+
+import com.alibou.security.book.Book;
+import com.alibou.security.book.BookRepository;
+import com.alibou.security.core.domain.service.ImageDerivative;
+import com.alibou.security.core.domain.service.ImageVariant;
+import com.alibou.security.core.infrastructure.service.ImageDerivativeService;
+import com.alibou.security.document.domain.entity.Product;
+import com.alibou.security.document.domain.repository.ProductRepository;
+import com.alibou.security.exception.ResourceNotFoundException;
+import com.alibou.security.user.UserProfile;
+import com.alibou.security.user.UserProfileRepository;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * REST Controller serving resized renditions of cover, product and profile images
+ *
+ * The URLs in BookResponse.coverImageUrls and UserProfileResponse.profileImageUrls
+ * carry the source version (?v=...); responses for a current version are cached
+ * by the browser for a year, anything else only briefly.
+ */
+@RestController
+@RequestMapping("/api/v1/images")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Images", description = "APIs for resized cover, product and profile images")
+public class ImageController {
+
+    private final ImageDerivativeService imageDerivativeService;
+    private final BookRepository bookRepository;
+    private final ProductRepository productRepository;
+    private final UserProfileRepository userProfileRepository;
+
+    @GetMapping("/books/{bookId}/cover/{variant}")
+    @Operation(summary = "Get book cover", description = "Book cover scaled to thumb, card or full width")
+    public ResponseEntity<InputStreamResource> getBookCover(
+            @Parameter(description = "Book ID") @PathVariable Integer bookId,
+            @Parameter(description = "Size: thumb, card or full") @PathVariable String variant,
+            @Parameter(description = "Image version from the response URLs") @RequestParam(required = false) String v,
+            WebRequest request) throws IOException {
+
+        Book book = bookRepository.findById(bookId)
+                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy sách với ID: " + bookId));
+        return serve(book.getCoverImagePath(), false, variant, v, request);
+    }
+
+    @GetMapping("/products/{productId}/{variant}")
+    @Operation(summary = "Get product image", description = "Product image scaled to thumb, card or full width")
+    public ResponseEntity<InputStreamResource> getProductImage(
+            @Parameter(description = "Product ID") @PathVariable Integer productId,
+            @Parameter(description = "Size: thumb, card or full") @PathVariable String variant,
+            @Parameter(description = "Image version from the response URLs") @RequestParam(required = false) String v,
+            WebRequest request) throws IOException {
+
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + productId));
+        return serve(product.getImagePath(), true, variant, v, request);
+    }
+
+    @GetMapping("/profiles/{userId}/{variant}")
+    @Operation(summary = "Get profile image", description = "Profile image scaled to thumb, card or full width")
+    public ResponseEntity<InputStreamResource> getProfileImage(
+            @Parameter(description = "User ID") @PathVariable Integer userId,
+            @Parameter(description = "Size: thumb, card or full") @PathVariable String variant,
+            @Parameter(description = "Image version from the response URLs") @RequestParam(required = false) String v,
+            WebRequest request) throws IOException {
+
+        UserProfile profile = userProfileRepository.findByUserId(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User profile not found for user: " + userId));
+        // The path is set by the user, so only images they uploaded themselves are rendered
+        ImageDerivative image = imageDerivativeService.getOwnedDerivative(
+                profile.getProfileImageUrl(), userId, ImageVariant.fromPathSegment(variant));
+        return serve(image, v, request);
+    }
+
+    private ResponseEntity<InputStreamResource> serve(String storedPath, boolean uploadRoot, String variant,
+                                                      String requestedVersion, WebRequest request) throws IOException {
+        return serve(imageDerivativeService.getDerivative(storedPath, uploadRoot, ImageVariant.fromPathSegment(variant)),
+                requestedVersion, request);
+    }
+
+    private ResponseEntity<InputStreamResource> serve(ImageDerivative image, String requestedVersion,
+                                                      WebRequest request) throws IOException {
+
+        // A URL naming the current version never changes content; others may be stale links
+        CacheControl cacheControl = image.getVersion().equals(requestedVersion)
+                ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable()
+                : CacheControl.maxAge(5, TimeUnit.MINUTES).cachePrivate();
+
+        String etag = "\"" + image.getEtag() + "\"";
+        if (request.checkNotModified(etag)) {
+            image.getInputStream().close();
+            return ResponseEntity.status(304).eTag(etag).cacheControl(cacheControl).build();
+        }
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_JPEG)
+                .contentLength(image.getContentLength())
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .body(new InputStreamResource(image.getInputStream()));
+    }
+}
@@ -1,6 +1,10 @@
 package com.alibou.security.document.application.mapper;
 
 import com.alibou.security.document.application.dto.TechnicalDocumentDto;
+import com.alibou.security.document.domain.entity.DocumentField;
+import com.alibou.security.document.domain.entity.Manufacturer;
+import com.alibou.security.document.domain.entity.ProductSeries;
+import com.alibou.security.document.domain.entity.ProductionYear;
 import com.alibou.security.document.domain.entity.TechnicalDocument;
 import com.alibou.security.document.domain.entity.Product;
 import org.springframework.stereotype.Component;
@@ -47,27 +51,32 @@ public class TechnicalDocumentMapper {
             .lastModifiedDate(entity.getLastModifiedDate())
             .lastModifiedBy(entity.getLastModifiedBy() != null ? entity.getLastModifiedBy().toString() : null);
         
-        // Map product hierarchy
-        if (entity.getProduct() != null) {
-            Product product = entity.getProduct();
+        // Map product hierarchy; only single documents are mapped here (lists use
+        // TechnicalDocumentSummary), so walking the lazy chain costs a few queries at most
+        Product product = entity.getProduct();
+        if (product != null) {
             builder.productId(product.getId())
                    .productName(product.getName());
             
-            if (product.getProductSeries() != null) {
-                builder.seriesId(product.getProductSeries().getId())
-                       .seriesName(product.getProductSeries().getName());
+            ProductSeries series = product.getProductSeries();
+            if (series != null) {
+                builder.seriesId(series.getId())
+                       .seriesName(series.getName());
                 
-                if (product.getProductSeries().getManufacturer() != null) {
-                    builder.manufacturerId(product.getProductSeries().getManufacturer().getId())
-                           .manufacturerName(product.getProductSeries().getManufacturer().getName());
+                Manufacturer manufacturer = series.getManufacturer();
+                if (manufacturer != null) {
+                    builder.manufacturerId(manufacturer.getId())
+                           .manufacturerName(manufacturer.getName());
                     
-                    if (product.getProductSeries().getManufacturer().getProductionYear() != null) {
-                        builder.yearId(product.getProductSeries().getManufacturer().getProductionYear().getId())
-                               .year(product.getProductSeries().getManufacturer().getProductionYear().getYear());
+                    ProductionYear productionYear = manufacturer.getProductionYear();
+                    if (productionYear != null) {
+                        builder.yearId(productionYear.getId())
+                               .year(productionYear.getYear());
                         
-                        if (product.getProductSeries().getManufacturer().getProductionYear().getDocumentField() != null) {
-                            builder.fieldId(product.getProductSeries().getManufacturer().getProductionYear().getDocumentField().getId())
-                                   .fieldName(product.getProductSeries().getManufacturer().getProductionYear().getDocumentField().getName());
+                        DocumentField documentField = productionYear.getDocumentField();
+                        if (documentField != null) {
+                            builder.fieldId(documentField.getId())
+                                   .fieldName(documentField.getName());
                         }
                     }
                 }
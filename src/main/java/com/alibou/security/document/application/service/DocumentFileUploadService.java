@@ -1,33 +1,51 @@
 package com.alibou.security.document.application.service;
 
+import com.alibou.security.core.domain.entity.FileProcessingJob.TargetType;
+import com.alibou.security.core.infrastructure.service.CompressedVariantService;
+import com.alibou.security.core.infrastructure.service.FileChecksums;
+import com.alibou.security.core.infrastructure.service.FileProcessingJobService;
+import com.alibou.security.core.infrastructure.service.StorageLayout;
 import com.alibou.security.document.application.dto.TechnicalDocumentDto;
 import com.alibou.security.document.application.mapper.TechnicalDocumentMapper;
 import com.alibou.security.document.domain.entity.TechnicalDocument;
 import com.alibou.security.document.domain.entity.Product;
+import com.alibou.security.document.domain.entity.TemporaryUpload;
 import com.alibou.security.document.domain.repository.TechnicalDocumentRepository;
 import com.alibou.security.document.domain.repository.ProductRepository;
+import com.alibou.security.document.domain.repository.TemporaryUploadRepository;
 import com.alibou.security.document.infrastructure.web.dto.FileUploadResponse;
 import com.alibou.security.document.infrastructure.web.dto.CreateDocumentRequest;
 import com.alibou.security.document.infrastructure.web.dto.UpdateDocumentMetadataRequest;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Service for handling document file uploads and management
@@ -41,6 +59,15 @@ public class DocumentFileUploadService {
     private final TechnicalDocumentRepository documentRepository;
     private final ProductRepository productRepository;
     private final TechnicalDocumentMapper documentMapper;
+    private final TemporaryUploadRepository temporaryUploadRepository;
+    private final StorageLayout storageLayout;
+    private final CompressedVariantService compressedVariantService;
+    private final FileProcessingJobService fileProcessingJobService;
+    
+    // Staged files younger than this are left alone by the directory sweep:
+    // another node may have written the file and not yet inserted its row
+    private static final Duration ORPHAN_GRACE_PERIOD = Duration.ofMinutes(5);
+    private static final int EXPIRY_SWEEP_BATCH_SIZE = 100;
     
     @Value("${app.upload.dir:./uploads}")
     private String uploadDir;
@@ -54,8 +81,33 @@ public class DocumentFileUploadService {
     @Value("${app.upload.allowed-extensions:pdf,doc,docx,xls,xlsx,ppt,pptx,dwg,png,jpg,jpeg}")
     private String allowedExtensions;
     
-    // Temporary file storage (in production, use Redis or database)
-    private final Map<String, TempFileInfo> tempFiles = new ConcurrentHashMap<>();
+    @Value("${app.upload.temp-ttl-minutes:60}")
+    private long tempFileTtlMinutes;
+    
+    @Value("${app.upload.temp-sweep-interval-seconds:60}")
+    private long tempSweepIntervalSeconds;
+    
+    // Read-through cache over the temporary_upload table, which is the source of truth
+    private final Map<String, TemporaryUpload> tempFiles = new ConcurrentHashMap<>();
+    
+    private final ScheduledThreadPoolExecutor cleanupScheduler = createCleanupScheduler();
+    
+    /**
+     * Remove temp files nobody can claim any more, then expire staged uploads
+     * periodically. Runs on the cleanup thread so a large temp directory does
+     * not delay startup.
+     */
+    @PostConstruct
+    void scheduleSweeps() {
+        cleanupScheduler.execute(this::sweepTemporaryDirectory);
+        cleanupScheduler.scheduleWithFixedDelay(this::sweepExpiredUploads,
+            tempSweepIntervalSeconds, tempSweepIntervalSeconds, TimeUnit.SECONDS);
+    }
+    
+    @PreDestroy
+    void shutdownCleanupScheduler() {
+        cleanupScheduler.shutdownNow();
+    }
     
     /**
      * Step 1: Upload file to temporary location
@@ -83,21 +135,26 @@ public class DocumentFileUploadService {
         // Calculate checksum
         String checksum = calculateChecksum(tempFilePath);
         
-        // Store temporary file info
-        TempFileInfo tempFileInfo = TempFileInfo.builder()
-            .tempFileId(tempFileId)
+        // Register the staged file; the row is what makes it visible to other nodes
+        LocalDateTime now = LocalDateTime.now();
+        TemporaryUpload upload = TemporaryUpload.builder()
+            .id(tempFileId)
             .originalFileName(file.getOriginalFilename())
-            .tempFilePath(tempFilePath.toString())
+            .storedFileName(tempFileName)
             .fileSize(file.getSize())
             .fileFormat(fileExtension.toUpperCase())
             .checksum(checksum)
-            .uploadedAt(LocalDateTime.now())
+            .uploadedAt(now)
+            .expiresAt(now.plusMinutes(tempFileTtlMinutes))
             .build();
-            
-        tempFiles.put(tempFileId, tempFileInfo);
         
-        // Schedule cleanup (remove after 1 hour if not used)
-        scheduleCleanup(tempFileId);
+        try {
+            temporaryUploadRepository.save(upload);
+        } catch (RuntimeException e) {
+            Files.deleteIfExists(tempFilePath);
+            throw e;
+        }
+        tempFiles.put(tempFileId, upload);
         
         return FileUploadResponse.success(
             tempFileId,
@@ -110,27 +167,47 @@ public class DocumentFileUploadService {
     
     /**
      * Step 2: Create document with metadata and move file to final location
+     *
+     * If the transaction does not commit, the claim is rolled back and the file
+     * goes back to staging, so the upload can be retried.
      */
+    @Transactional(rollbackFor = IOException.class)
     public TechnicalDocumentDto createDocumentWithFile(CreateDocumentRequest request) throws IOException {
         log.info("Creating document with file: {}", request.getTemporaryFileId());
         
         // Get temporary file info
-        TempFileInfo tempFileInfo = tempFiles.get(request.getTemporaryFileId());
-        if (tempFileInfo == null) {
-            throw new IllegalArgumentException("Temporary file not found: " + request.getTemporaryFileId());
-        }
+        TemporaryUpload tempFileInfo = getTemporaryUpload(request.getTemporaryFileId());
         
         // Validate product exists
         Product product = productRepository.findById(request.getProductId())
             .orElseThrow(() -> new IllegalArgumentException("Product not found: " + request.getProductId()));
         
+        // Claim the staged file; only one request (on any node) can win
+        tempFiles.remove(tempFileInfo.getId());
+        if (temporaryUploadRepository.claim(tempFileInfo.getId()) == 0) {
+            throw new IllegalStateException("Temporary file already used or expired: " + tempFileInfo.getId());
+        }
+        
         // Create final file path based on hierarchy
         String finalFilePath = generateFinalFilePath(product, request.getTitle(), tempFileInfo.getFileFormat());
         
         // Move file from temp to final location
         Path finalPath = Paths.get(uploadDir, finalFilePath);
+        Path stagedPath = resolveTempFile(tempFileInfo);
         Files.createDirectories(finalPath.getParent());
-        Files.move(Paths.get(tempFileInfo.getTempFilePath()), finalPath, StandardCopyOption.REPLACE_EXISTING);
+        Files.move(stagedPath, finalPath, StandardCopyOption.REPLACE_EXISTING);
+        // The inserts may only fail at commit, after this method has returned
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    restoreStagedFile(finalPath, stagedPath);
+                }
+            }
+        });
+        // A move keeps the upload's mtime; the orphan scan's grace period counts from here
+        Files.setLastModifiedTime(finalPath, FileTime.from(Instant.now()));
+        compressedVariantService.createVariant(finalPath);
         
         // Create technical document entity
         TechnicalDocument document = TechnicalDocument.builder()
@@ -152,11 +229,9 @@ public class DocumentFileUploadService {
             .sortOrder(request.getSortOrder() != null ? request.getSortOrder() : 0)
             .build();
         
-        // Save document
+        // Save document; page count and thumbnail follow from the processing job
         TechnicalDocument saved = documentRepository.save(document);
-        
-        // Remove from temporary storage
-        tempFiles.remove(request.getTemporaryFileId());
+        fileProcessingJobService.enqueue(TargetType.TECHNICAL_DOCUMENT, saved.getId(), null);
         
         return documentMapper.toDto(saved);
     }
@@ -164,6 +239,7 @@ public class DocumentFileUploadService {
     /**
      * Alternative: Upload and create document in one step
      */
+    @Transactional(rollbackFor = IOException.class)
     public TechnicalDocumentDto uploadAndCreateDocument(MultipartFile file, CreateDocumentRequest request) throws IOException {
         log.info("Uploading and creating document: {}", request.getTitle());
         
@@ -182,13 +258,10 @@ public class DocumentFileUploadService {
      */
     @Transactional(readOnly = true)
     public FileUploadResponse getTemporaryFileInfo(String tempFileId) {
-        TempFileInfo tempFileInfo = tempFiles.get(tempFileId);
-        if (tempFileInfo == null) {
-            throw new IllegalArgumentException("Temporary file not found: " + tempFileId);
-        }
+        TemporaryUpload tempFileInfo = getTemporaryUpload(tempFileId);
         
         return FileUploadResponse.success(
-            tempFileInfo.getTempFileId(),
+            tempFileInfo.getId(),
             tempFileInfo.getOriginalFileName(),
             tempFileInfo.getFileFormat(),
             tempFileInfo.getFileSize(),
@@ -200,9 +273,10 @@ public class DocumentFileUploadService {
      * Delete temporary file
      */
     public void deleteTemporaryFile(String tempFileId) throws IOException {
-        TempFileInfo tempFileInfo = tempFiles.remove(tempFileId);
-        if (tempFileInfo != null) {
-            Files.deleteIfExists(Paths.get(tempFileInfo.getTempFilePath()));
+        Optional<TemporaryUpload> staged = findTemporaryUpload(tempFileId);
+        tempFiles.remove(tempFileId);
+        if (staged.isPresent() && temporaryUploadRepository.claim(tempFileId) > 0) {
+            Files.deleteIfExists(resolveTempFile(staged.get()));
             log.info("Deleted temporary file: {}", tempFileId);
         }
     }
@@ -247,6 +321,7 @@ public class DocumentFileUploadService {
         // Delete old file
         Path oldFilePath = Paths.get(uploadDir, document.getFilePath());
         Files.deleteIfExists(oldFilePath);
+        compressedVariantService.deleteVariant(oldFilePath);
         
         // Generate new file path
         String fileExtension = getFileExtension(newFile.getOriginalFilename());
@@ -256,6 +331,7 @@ public class DocumentFileUploadService {
         Path finalPath = Paths.get(uploadDir, newFilePath);
         Files.createDirectories(finalPath.getParent());
         Files.copy(newFile.getInputStream(), finalPath, StandardCopyOption.REPLACE_EXISTING);
+        compressedVariantService.createVariant(finalPath);
         
         // Calculate new checksum
         String newChecksum = calculateChecksum(finalPath);
@@ -268,6 +344,7 @@ public class DocumentFileUploadService {
         document.setChecksum(newChecksum);
         
         TechnicalDocument updated = documentRepository.save(document);
+        fileProcessingJobService.enqueue(TargetType.TECHNICAL_DOCUMENT, documentId, null);
         return documentMapper.toDto(updated);
     }
     
@@ -282,11 +359,9 @@ public class DocumentFileUploadService {
         long totalDocuments = documentRepository.countAllActive();
         Long totalFileSize = documentRepository.getTotalFileSize();
         
-        // Temporary file statistics
-        int tempFileCount = tempFiles.size();
-        long tempTotalSize = tempFiles.values().stream()
-            .mapToLong(TempFileInfo::getFileSize)
-            .sum();
+        // Temporary file statistics (all nodes)
+        long tempFileCount = temporaryUploadRepository.countStaged();
+        long tempTotalSize = temporaryUploadRepository.sumStagedFileSize();
         
         stats.put("totalDocuments", totalDocuments);
         stats.put("totalFileSize", totalFileSize != null ? totalFileSize : 0);
@@ -341,54 +416,147 @@ public class DocumentFileUploadService {
         // Clean document title for filename
         String cleanTitle = documentTitle.replaceAll("[^a-zA-Z0-9\\s]", "").replaceAll("\\s+", "_");
         
-        // Generate path: field/year/manufacturer/series/product/documentTitle.ext
-        return hierarchyPath.toLowerCase().replaceAll("\\s+", "_").replaceAll("[^a-zA-Z0-9/_]", "") 
-            + "/" + cleanTitle + "." + fileExtension.toLowerCase();
+        // Generate path: field/year/manufacturer/series/product/[shard/]documentTitle.ext
+        String hierarchyDir = hierarchyPath.toLowerCase().replaceAll("\\s+", "_").replaceAll("[^a-zA-Z0-9/_]", "");
+        return storageLayout.place(hierarchyDir, cleanTitle + "." + fileExtension.toLowerCase());
     }
     
     private String calculateChecksum(Path filePath) throws IOException {
+        return "sha256:" + FileChecksums.sha256(filePath);
+    }
+    
+    private TemporaryUpload getTemporaryUpload(String tempFileId) {
+        return findTemporaryUpload(tempFileId)
+            .orElseThrow(() -> new IllegalArgumentException("Temporary file not found: " + tempFileId));
+    }
+    
+    /**
+     * Cache first, then the registry table (the upload may have landed on another node)
+     */
+    private Optional<TemporaryUpload> findTemporaryUpload(String tempFileId) {
+        TemporaryUpload upload = tempFiles.get(tempFileId);
+        if (upload == null) {
+            upload = temporaryUploadRepository.findById(tempFileId).orElse(null);
+            if (upload == null) {
+                return Optional.empty();
+            }
+            tempFiles.put(tempFileId, upload);
+        }
+        if (upload.isExpired(LocalDateTime.now())) {
+            tempFiles.remove(tempFileId);
+            return Optional.empty();
+        }
+        return Optional.of(upload);
+    }
+    
+    private Path resolveTempFile(TemporaryUpload upload) {
+        return Paths.get(tempUploadDir).resolve(upload.getStoredFileName());
+    }
+    
+    /**
+     * Undo the move of a claimed upload whose document was not saved; if the
+     * file cannot go back to staging it is deleted rather than left for the
+     * orphan scan
+     */
+    private void restoreStagedFile(Path finalPath, Path stagedPath) {
+        compressedVariantService.deleteVariant(finalPath);
         try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] fileBytes = Files.readAllBytes(filePath);
-            byte[] hashBytes = digest.digest(fileBytes);
+            Files.move(finalPath, stagedPath, StandardCopyOption.REPLACE_EXISTING);
+            log.info("Returned {} to staging after failed document creation", stagedPath.getFileName());
+        } catch (IOException e) {
+            log.warn("Failed to return {} to staging, deleting it", finalPath, e);
+            try {
+                Files.deleteIfExists(finalPath);
+            } catch (IOException deleteFailure) {
+                log.error("Failed to delete {}", finalPath, deleteFailure);
+            }
+        }
+    }
+    
+    /**
+     * Expire staged uploads past their deadline. Each row is claimed before its
+     * file is removed, so nodes sweeping concurrently never double-delete and a
+     * row consumed meanwhile by createDocumentWithFile is left alone.
+     */
+    private void sweepExpiredUploads() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            tempFiles.values().removeIf(upload -> upload.isExpired(now));
             
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hashBytes) {
-                sb.append(String.format("%02x", b));
+            int expired = 0;
+            List<TemporaryUpload> batch;
+            do {
+                batch = temporaryUploadRepository.findExpired(now, PageRequest.of(0, EXPIRY_SWEEP_BATCH_SIZE));
+                for (TemporaryUpload upload : batch) {
+                    if (temporaryUploadRepository.claim(upload.getId()) == 0) {
+                        continue;
+                    }
+                    try {
+                        Files.deleteIfExists(resolveTempFile(upload));
+                        expired++;
+                    } catch (IOException e) {
+                        log.warn("Failed to delete expired temp file: {}", upload.getId(), e);
+                    }
+                }
+            } while (batch.size() == EXPIRY_SWEEP_BATCH_SIZE);
+            
+            if (expired > 0) {
+                log.info("Expired {} temporary files", expired);
             }
-            return "sha256:" + sb.toString();
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("SHA-256 algorithm not available", e);
+        } catch (Exception e) {
+            // Never let an exception escape, it would cancel the periodic task
+            log.warn("Error during temporary upload expiry sweep", e);
         }
     }
     
-    private void scheduleCleanup(String tempFileId) {
-        // In production, use @Scheduled method or job queue
-        // For now, simple cleanup after 1 hour
-        new Thread(() -> {
-            try {
-                Thread.sleep(3600000); // 1 hour
-                deleteTemporaryFile(tempFileId);
-            } catch (Exception e) {
-                log.warn("Error during scheduled cleanup of temp file: {}", tempFileId, e);
+    /**
+     * Reconcile the temp directory with the registry: files without a row
+     * (crash between write and insert, or expired by a node that lost the
+     * file) can never be claimed and are deleted once past the grace period.
+     */
+    private void sweepTemporaryDirectory() {
+        Path tempDir = Paths.get(tempUploadDir);
+        if (!Files.isDirectory(tempDir)) {
+            return;
+        }
+        
+        FileTime cutoff = FileTime.from(Instant.now().minus(ORPHAN_GRACE_PERIOD));
+        int removed = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(tempDir)) {
+            for (Path entry : entries) {
+                try {
+                    if (!Files.isRegularFile(entry)
+                            || Files.getLastModifiedTime(entry).compareTo(cutoff) > 0
+                            || temporaryUploadRepository.existsById(tempFileIdOf(entry))) {
+                        continue;
+                    }
+                    Files.deleteIfExists(entry);
+                    removed++;
+                } catch (IOException e) {
+                    log.warn("Failed to remove orphaned temp file: {}", entry, e);
+                }
             }
-        }).start();
+        } catch (Exception e) {
+            log.warn("Failed to sweep temp upload directory: {}", tempDir, e);
+        }
+        
+        if (removed > 0) {
+            log.info("Removed {} orphaned temporary files from {}", removed, tempDir);
+        }
+    }
+    
+    private String tempFileIdOf(Path tempFile) {
+        String fileName = tempFile.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        return dot > 0 ? fileName.substring(0, dot) : fileName;
+    }
+    
+    private static ScheduledThreadPoolExecutor createCleanupScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "temp-upload-cleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        return scheduler;
     }
-}
-
-/**
- * Temporary file information
- */
-@lombok.Data
-@lombok.Builder
-@lombok.NoArgsConstructor
-@lombok.AllArgsConstructor
-class TempFileInfo {
-    private String tempFileId;
-    private String originalFileName;
-    private String tempFilePath;
-    private Long fileSize;
-    private String fileFormat;
-    private String checksum;
-    private LocalDateTime uploadedAt;
 }
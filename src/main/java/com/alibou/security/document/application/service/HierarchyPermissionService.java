@@ -152,9 +152,9 @@ public class HierarchyPermissionService {
             editor.getId(),
             product.getId(),
             product.getProductSeries().getId(),
-            product.getProductSeries().getManufacturer().getId(),
-            product.getProductSeries().getManufacturer().getProductionYear().getId(),
-            product.getProductSeries().getManufacturer().getProductionYear().getDocumentField().getId()
+            product.getManufacturerId(),
+            product.getProductionYearId(),
+            product.getDocumentFieldId()
         );
     }
     
@@ -179,9 +179,9 @@ public class HierarchyPermissionService {
             editor.getId(),
             product.getId(),
             product.getProductSeries().getId(),
-            product.getProductSeries().getManufacturer().getId(),
-            product.getProductSeries().getManufacturer().getProductionYear().getId(),
-            product.getProductSeries().getManufacturer().getProductionYear().getDocumentField().getId()
+            product.getManufacturerId(),
+            product.getProductionYearId(),
+            product.getDocumentFieldId()
         );
     }
     
@@ -206,9 +206,9 @@ public class HierarchyPermissionService {
             editor.getId(),
             product.getId(),
             product.getProductSeries().getId(),
-            product.getProductSeries().getManufacturer().getId(),
-            product.getProductSeries().getManufacturer().getProductionYear().getId(),
-            product.getProductSeries().getManufacturer().getProductionYear().getDocumentField().getId()
+            product.getManufacturerId(),
+            product.getProductionYearId(),
+            product.getDocumentFieldId()
         );
     }
     
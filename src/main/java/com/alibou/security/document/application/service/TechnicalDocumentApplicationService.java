@@ -1,20 +1,36 @@
 package com.alibou.security.document.application.service;
 
-import com.alibou.security.document.application.dto.TechnicalDocumentDto;
 import com.alibou.security.document.application.dto.DocumentHierarchySearchDto;
 import com.alibou.security.document.application.mapper.TechnicalDocumentMapper;
 import com.alibou.security.document.domain.entity.TechnicalDocument;
 import com.alibou.security.document.domain.repository.TechnicalDocumentRepository;
+import com.alibou.security.document.infrastructure.service.TechnicalDocumentSearchIndex;
+import com.alibou.security.core.domain.repository.CountedPage;
+import com.alibou.security.core.domain.repository.CursorPage;
+import com.alibou.security.core.domain.repository.KeysetCursor;
+import com.alibou.security.core.domain.service.TechnicalDocumentSummary;
+import com.alibou.security.core.infrastructure.service.EmbeddedSearchIndex;
+import com.alibou.security.core.infrastructure.service.PageCounter;
 import com.alibou.security.core.application.service.impl.BaseApplicationServiceImpl;
+import com.alibou.security.core.infrastructure.service.CounterBuffer;
+import com.alibou.security.core.infrastructure.service.CounterBuffer.Counter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Application service for TechnicalDocument management
@@ -25,8 +41,14 @@ import java.util.Optional;
 @Transactional
 public class TechnicalDocumentApplicationService {
     
+    private static final String HIERARCHY_CURSOR = "technical-documents:hierarchySortKey,id";
+    
     private final TechnicalDocumentRepository technicalDocumentRepository;
     private final TechnicalDocumentMapper technicalDocumentMapper;
+    private final CounterBuffer counterBuffer;
+    private final TechnicalDocumentSearchIndex searchIndex;
+    private final EmbeddedSearchIndex embeddedSearchIndex;
+    private final PageCounter pageCounter;
     
     protected TechnicalDocumentRepository getRepository() {
         return technicalDocumentRepository;
@@ -40,53 +62,45 @@ public class TechnicalDocumentApplicationService {
      * Find documents by product
      */
     @Transactional(readOnly = true)
-    public List<TechnicalDocumentDto> findByProduct(Integer productId) {
+    public List<TechnicalDocumentSummary> findByProduct(Integer productId) {
         log.debug("Finding technical documents by product ID: {}", productId);
-        List<TechnicalDocument> documents = technicalDocumentRepository
-            .findByProductIdAndActiveTrueOrderBySortOrder(productId);
-        return technicalDocumentMapper.toDto(documents);
+        return technicalDocumentRepository.findSummariesByProduct(productId);
     }
     
     /**
      * Find documents by product with pagination
      */
     @Transactional(readOnly = true)
-    public Page<TechnicalDocumentDto> findByProduct(Integer productId, Pageable pageable) {
+    public Page<TechnicalDocumentSummary> findByProduct(Integer productId, Pageable pageable) {
         log.debug("Finding technical documents by product ID: {} with pagination", productId);
-        Page<TechnicalDocument> documents = technicalDocumentRepository
-            .findByProductIdAndActiveTrue(productId, pageable);
-        return documents.map(technicalDocumentMapper::toDto);
+        return technicalDocumentRepository.findSummariesByProduct(productId, pageable);
     }
     
     /**
      * Find documents by document type
      */
     @Transactional(readOnly = true)
-    public List<TechnicalDocumentDto> findByDocumentType(String documentType) {
+    public List<TechnicalDocumentSummary> findByDocumentType(String documentType) {
         log.debug("Finding technical documents by type: {}", documentType);
-        List<TechnicalDocument> documents = technicalDocumentRepository
-            .findByDocumentTypeAndActiveTrueOrderBySortOrder(documentType);
-        return technicalDocumentMapper.toDto(documents);
+        return technicalDocumentRepository.findSummariesByDocumentType(documentType);
     }
     
     /**
      * Find documents by category
      */
     @Transactional(readOnly = true)
-    public List<TechnicalDocumentDto> findByCategory(String category) {
+    public List<TechnicalDocumentSummary> findByCategory(String category) {
         log.debug("Finding technical documents by category: {}", category);
-        List<TechnicalDocument> documents = technicalDocumentRepository
-            .findByCategoryAndActiveTrueOrderBySortOrder(category);
-        return technicalDocumentMapper.toDto(documents);
+        return technicalDocumentRepository.findSummariesByCategory(category);
     }
     
     /**
      * Complex hierarchy search
      */
     @Transactional(readOnly = true)
-    public Page<TechnicalDocumentDto> searchByHierarchy(DocumentHierarchySearchDto searchDto, Pageable pageable) {
+    public Page<TechnicalDocumentSummary> searchByHierarchy(DocumentHierarchySearchDto searchDto, Pageable pageable) {
         log.debug("Searching technical documents by hierarchy: {}", searchDto);
-        Page<TechnicalDocument> documents = technicalDocumentRepository.findByHierarchy(
+        return technicalDocumentRepository.findByHierarchy(
             searchDto.getFieldName(),
             searchDto.getYear(),
             searchDto.getManufacturerName(),
@@ -95,51 +109,137 @@ public class TechnicalDocumentApplicationService {
             searchDto.getDocumentType(),
             pageable
         );
-        return documents.map(technicalDocumentMapper::toDto);
+    }
+    
+    /**
+     * Browse the hierarchy listing page by page with a cursor instead of a page number
+     * Each page seeks to the row after the cursor, so deep pages cost the same as the first;
+     * the total is only counted when withTotal is set
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<TechnicalDocumentSummary> browseByHierarchy(DocumentHierarchySearchDto searchDto,
+                                                                  String cursor, int size, boolean withTotal) {
+        log.debug("Browsing technical documents by hierarchy: {} after cursor {}", searchDto, cursor);
+        String afterKey = null;
+        Integer afterId = null;
+        if (cursor != null) {
+            List<String> values = KeysetCursor.decode(HIERARCHY_CURSOR, cursor, 2);
+            afterKey = values.get(0);
+            afterId = Integer.valueOf(values.get(1));
+        }
+        List<TechnicalDocumentSummary> rows;
+        if (cursor == null) {
+            rows = technicalDocumentRepository.findByHierarchyFromStart(
+                searchDto.getFieldName(),
+                searchDto.getYear(),
+                searchDto.getManufacturerName(),
+                searchDto.getSeriesName(),
+                searchDto.getProductName(),
+                searchDto.getDocumentType(),
+                PageRequest.of(0, size + 1));
+        } else if (afterKey != null) {
+            rows = technicalDocumentRepository.findByHierarchyAfter(
+                searchDto.getFieldName(),
+                searchDto.getYear(),
+                searchDto.getManufacturerName(),
+                searchDto.getSeriesName(),
+                searchDto.getProductName(),
+                searchDto.getDocumentType(),
+                afterKey,
+                afterId,
+                PageRequest.of(0, size + 1));
+        } else {
+            rows = List.of();
+        }
+        // Rows without a sort key (inserted by SQL, not backfilled yet) follow the others, by id
+        if (rows.size() <= size) {
+            List<TechnicalDocumentSummary> page = new ArrayList<>(rows);
+            page.addAll(technicalDocumentRepository.findByHierarchyWithoutSortKey(
+                searchDto.getFieldName(),
+                searchDto.getYear(),
+                searchDto.getManufacturerName(),
+                searchDto.getSeriesName(),
+                searchDto.getProductName(),
+                searchDto.getDocumentType(),
+                cursor != null && afterKey == null ? afterId : 0,
+                PageRequest.of(0, size + 1 - rows.size())));
+            rows = page;
+        }
+        String nextCursor = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            TechnicalDocumentSummary last = rows.get(size - 1);
+            nextCursor = KeysetCursor.encode(HIERARCHY_CURSOR, Arrays.asList(last.getHierarchySortKey(), last.getId()));
+        }
+        Long total = withTotal ? technicalDocumentRepository.countByHierarchy(
+            searchDto.getFieldName(),
+            searchDto.getYear(),
+            searchDto.getManufacturerName(),
+            searchDto.getSeriesName(),
+            searchDto.getProductName(),
+            searchDto.getDocumentType()
+        ) : null;
+        return new CursorPage<>(rows, nextCursor, total);
     }
     
     /**
      * Full text search across documents
+     * Asks the embedded search index first when enabled and the page is unsorted or sorted by
+     * id or creation date (newest or oldest first); otherwise uses the
+     * PostgreSQL full-text index when available (results ordered by relevance),
+     * LIKE matching otherwise (results in the requested sort order)
      */
     @Transactional(readOnly = true)
-    public Page<TechnicalDocumentDto> searchDocuments(String query, Pageable pageable) {
+    public Page<TechnicalDocumentSummary> searchDocuments(String query, Pageable pageable) {
         log.debug("Full text search for documents with query: {}", query);
-        Page<TechnicalDocument> documents = technicalDocumentRepository
-            .searchDocuments(query, pageable);
-        return documents.map(technicalDocumentMapper::toDto);
+        Optional<Page<TechnicalDocumentSummary>> indexed = embeddedSearchIndex.search(EmbeddedSearchIndex.Kind.DOCUMENTS,
+            query, true, pageable, technicalDocumentRepository::findSummariesByIdIn, TechnicalDocumentSummary::getId);
+        if (indexed.isPresent()) {
+            return indexed.get();
+        }
+        if (!searchIndex.isAvailable()) {
+            return technicalDocumentRepository.searchDocuments(query, pageable);
+        }
+        String trimmed = query.trim();
+        Pageable unsorted = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        List<Integer> ids = technicalDocumentRepository.searchDocumentIdsFullText(trimmed, unsorted);
+        Map<Integer, TechnicalDocumentSummary> loaded = ids.isEmpty() ? Map.of()
+            : technicalDocumentRepository.findSummariesByIdIn(ids).stream()
+                .collect(Collectors.toMap(TechnicalDocumentSummary::getId, Function.identity()));
+        // A row deleted between the two queries is skipped
+        List<TechnicalDocumentSummary> content = ids.stream()
+            .map(loaded::get).filter(Objects::nonNull).toList();
+        PageCounter.Total total = pageCounter.count("documents:fulltext:" + trimmed,
+            limit -> technicalDocumentRepository.countFullTextUpTo(trimmed, limit),
+            () -> pageCounter.planEstimate(TechnicalDocumentRepository.FULL_TEXT_MATCHES, Map.of("query", trimmed)));
+        return new CountedPage<>(content, unsorted, total.getValue(), total.isExact());
     }
     
     /**
      * Get most popular documents
      */
     @Transactional(readOnly = true)
-    public List<TechnicalDocumentDto> getMostPopular(int limit) {
+    public List<TechnicalDocumentSummary> getMostPopular(int limit) {
         log.debug("Getting {} most popular documents", limit);
-        List<TechnicalDocument> documents = technicalDocumentRepository
-            .findMostPopular(Pageable.ofSize(limit));
-        return technicalDocumentMapper.toDto(documents);
+        return technicalDocumentRepository.findMostPopular(Pageable.ofSize(limit));
     }
     
     /**
      * Get highest rated documents
      */
     @Transactional(readOnly = true)
-    public List<TechnicalDocumentDto> getHighestRated(int limit) {
+    public List<TechnicalDocumentSummary> getHighestRated(int limit) {
         log.debug("Getting {} highest rated documents", limit);
-        List<TechnicalDocument> documents = technicalDocumentRepository
-            .findHighestRated(Pageable.ofSize(limit));
-        return technicalDocumentMapper.toDto(documents);
+        return technicalDocumentRepository.findHighestRated(Pageable.ofSize(limit));
     }
     
     /**
      * Get recent documents
      */
     @Transactional(readOnly = true)
-    public List<TechnicalDocumentDto> getRecent(int limit) {
+    public List<TechnicalDocumentSummary> getRecent(int limit) {
         log.debug("Getting {} most recent documents", limit);
-        List<TechnicalDocument> documents = technicalDocumentRepository
-            .findRecent(Pageable.ofSize(limit));
-        return technicalDocumentMapper.toDto(documents);
+        return technicalDocumentRepository.findRecent(Pageable.ofSize(limit));
     }
     
     /**
@@ -161,29 +261,21 @@ public class TechnicalDocumentApplicationService {
     }
     
     /**
-     * Increment view count
+     * Increment view count (buffered, or one in-place UPDATE; no transaction of its own needed)
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void incrementViewCount(Integer documentId) {
         log.debug("Incrementing view count for document ID: {}", documentId);
-        Optional<TechnicalDocument> documentOpt = technicalDocumentRepository.findById(documentId);
-        if (documentOpt.isPresent()) {
-            TechnicalDocument document = documentOpt.get();
-            document.incrementViewCount();
-            technicalDocumentRepository.save(document);
-        }
+        counterBuffer.increment(Counter.DOCUMENT_VIEWS, documentId);
     }
     
     /**
-     * Increment download count
+     * Increment download count (buffered, or one in-place UPDATE; no transaction of its own needed)
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void incrementDownloadCount(Integer documentId) {
         log.debug("Incrementing download count for document ID: {}", documentId);
-        Optional<TechnicalDocument> documentOpt = technicalDocumentRepository.findById(documentId);
-        if (documentOpt.isPresent()) {
-            TechnicalDocument document = documentOpt.get();
-            document.incrementDownloadCount();
-            technicalDocumentRepository.save(document);
-        }
+        counterBuffer.increment(Counter.DOCUMENT_DOWNLOADS, documentId);
     }
     
     /**
@@ -1,6 +1,7 @@
 package com.alibou.security.document.domain.entity;
 
 import com.alibou.security.core.domain.entity.BaseEntity;
+import com.alibou.security.core.domain.entity.Searchable;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -24,9 +25,11 @@ import java.util.List;
 @Table(name = "document_field")
 public class DocumentField extends BaseEntity {
 
+    @Searchable
     @Column(nullable = false, length = 100, unique = true)
     private String name; // Auto, Electrical Bike, etc.
 
+    @Searchable
     @Column(length = 500)
     private String description;
 
@@ -1,6 +1,7 @@
 package com.alibou.security.document.domain.entity;
 
 import com.alibou.security.core.domain.entity.BaseEntity;
+import com.alibou.security.core.domain.entity.Searchable;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -24,12 +25,14 @@ import java.util.List;
 @Table(name = "manufacturer")
 public class Manufacturer extends BaseEntity {
 
+    @Searchable
     @Column(nullable = false, length = 100)
     private String name; // Toyota, Kia, Honda
 
     @Column(length = 100)
     private String code; // TOYOTA, KIA, HONDA
 
+    @Searchable
     @Column(length = 500)
     private String description;
 
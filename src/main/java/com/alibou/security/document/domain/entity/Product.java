@@ -1,6 +1,7 @@
 package com.alibou.security.document.domain.entity;
 
 import com.alibou.security.core.domain.entity.BaseEntity;
+import com.alibou.security.core.domain.entity.Searchable;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -21,15 +22,22 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "product")
+@Table(name = "product", indexes = {
+    @Index(name = "idx_product_document_field_id", columnList = "document_field_id"),
+    @Index(name = "idx_product_production_year_id", columnList = "production_year_id"),
+    @Index(name = "idx_product_manufacturer_id", columnList = "manufacturer_id"),
+    @Index(name = "idx_product_hierarchy_sort_key", columnList = "hierarchy_sort_key")
+})
 public class Product extends BaseEntity {
 
+    @Searchable
     @Column(nullable = false, length = 100)
     private String name; // Mazda2, Kia Morning, Camry 2.5
 
     @Column(length = 100)
     private String code; // MAZDA2, KIA_MORNING, CAMRY_25
 
+    @Searchable
     @Column(length = 500)
     private String description;
 
@@ -43,6 +51,24 @@ public class Product extends BaseEntity {
     @Column(nullable = false)
     private Integer sortOrder = 0;
 
+    // Hierarchy denormalized onto the row, so filtering and ordering by any level needs no joins.
+    // Set from the parent chain on save; DocumentHierarchyMaintainer rewrites them when an ancestor
+    // is renamed, moved or reordered
+    @Column(name = "document_field_id")
+    private Integer documentFieldId;
+
+    @Column(name = "production_year_id")
+    private Integer productionYearId;
+
+    @Column(name = "manufacturer_id")
+    private Integer manufacturerId;
+
+    @Column(length = 600)
+    private String hierarchyPath; // Auto / 2020 / Toyota / Camry / Camry 2.0
+
+    @Column(length = 60)
+    private String hierarchySortKey; // field, year (descending), manufacturer, series, product sort orders
+
     // Parent relationship
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_series_id", nullable = false)
@@ -75,7 +101,29 @@ public class Product extends BaseEntity {
 
     // Helper method to get full path in hierarchy
     public String getHierarchyPath() {
-        return productSeries.getHierarchyPath() + " / " + this.name;
+        return hierarchyPath != null ? hierarchyPath : productSeries.getHierarchyPath() + " / " + this.name;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void refreshHierarchy() {
+        Manufacturer manufacturer = productSeries.getManufacturer();
+        ProductionYear productionYear = manufacturer.getProductionYear();
+        DocumentField documentField = productionYear.getDocumentField();
+        this.documentFieldId = documentField.getId();
+        this.productionYearId = productionYear.getId();
+        this.manufacturerId = manufacturer.getId();
+        this.hierarchyPath = productSeries.getHierarchyPath() + " / " + this.name;
+        this.hierarchySortKey = sortKeyPart(documentField.getSortOrder())
+                + String.format("%04d", 9999 - productionYear.getYear())
+                + sortKeyPart(manufacturer.getSortOrder())
+                + sortKeyPart(productSeries.getSortOrder())
+                + sortKeyPart(this.sortOrder);
+    }
+
+    // Fixed-width, order-preserving text for a sort order, so keys compare like the tuple they encode
+    static String sortKeyPart(Integer sortOrder) {
+        return String.format("%010d", (sortOrder != null ? sortOrder : 0) + 2147483648L);
     }
 
     // Get documents by type
@@ -1,6 +1,7 @@
 package com.alibou.security.document.domain.entity;
 
 import com.alibou.security.core.domain.entity.BaseEntity;
+import com.alibou.security.core.domain.entity.Searchable;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -24,12 +25,14 @@ import java.util.List;
 @Table(name = "product_series")
 public class ProductSeries extends BaseEntity {
 
+    @Searchable
     @Column(nullable = false, length = 100)
     private String name; // Mazda, Morning, Camry
 
     @Column(length = 100)
     private String code; // MAZDA, MORNING, CAMRY
 
+    @Searchable
     @Column(length = 500)
     private String description;
 
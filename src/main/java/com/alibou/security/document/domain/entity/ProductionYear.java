@@ -1,6 +1,7 @@
 package com.alibou.security.document.domain.entity;
 
 import com.alibou.security.core.domain.entity.BaseEntity;
+import com.alibou.security.core.domain.entity.Searchable;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -27,6 +28,7 @@ public class ProductionYear extends BaseEntity {
     @Column(nullable = false)
     private Integer year; // 2008, 2009, etc.
 
+    @Searchable
     @Column(length = 500)
     private String description;
 
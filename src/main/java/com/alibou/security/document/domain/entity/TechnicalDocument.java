@@ -1,6 +1,7 @@
 package com.alibou.security.document.domain.entity;
 
 import com.alibou.security.core.domain.entity.BaseEntity;
+import com.alibou.security.core.domain.entity.Searchable;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -20,15 +21,24 @@ import java.math.BigDecimal;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "technical_document")
+@Table(name = "technical_document", indexes = {
+    @Index(name = "idx_technical_document_document_field_id", columnList = "document_field_id"),
+    @Index(name = "idx_technical_document_production_year_id", columnList = "production_year_id"),
+    @Index(name = "idx_technical_document_manufacturer_id", columnList = "manufacturer_id"),
+    @Index(name = "idx_technical_document_product_series_id", columnList = "product_series_id"),
+    @Index(name = "idx_technical_document_product_id", columnList = "product_id"),
+    @Index(name = "idx_technical_document_hierarchy_sort_key", columnList = "hierarchy_sort_key, id")
+})
 public class TechnicalDocument extends BaseEntity {
 
+    @Searchable
     @Column(nullable = false, length = 255)
     private String title; // Engine Schematic, Window Electric Schematic
 
     @Column(nullable = false, length = 100)
     private String documentType; // ENGINE_SCHEMATIC, WINDOW_ELECTRIC_SCHEMATIC
 
+    @Searchable
     @Column(length = 1000)
     private String description;
 
@@ -73,13 +83,14 @@ public class TechnicalDocument extends BaseEntity {
     @Column(nullable = false)
     private Boolean downloadable = true; // Can be downloaded
 
-    // Document statistics
+    // Document statistics; only changed by the additive counter updates (CounterBuffer),
+    // never by saving the entity
     @Builder.Default
-    @Column
+    @Column(updatable = false)
     private Integer downloadCount = 0;
 
     @Builder.Default
-    @Column
+    @Column(updatable = false)
     private Integer viewCount = 0;
 
     @Builder.Default
@@ -90,20 +101,33 @@ public class TechnicalDocument extends BaseEntity {
     @Column(nullable = false)
     private Integer sortOrder = 0;
 
+    // Hierarchy copied from the product on save (see Product), so hierarchy filters and
+    // ordering are single-table scans; DocumentHierarchyMaintainer rewrites them when an
+    // ancestor is renamed, moved or reordered
+    @Column(name = "document_field_id")
+    private Integer documentFieldId;
+
+    @Column(name = "production_year_id")
+    private Integer productionYearId;
+
+    @Column(name = "manufacturer_id")
+    private Integer manufacturerId;
+
+    @Column(name = "product_series_id")
+    private Integer productSeriesId;
+
+    @Column(length = 900)
+    private String hierarchyPath; // product path / title
+
+    @Column(length = 60)
+    private String hierarchySortKey; // product sort key, then the document sort order
+
     // Parent relationship
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id", nullable = false)
     private Product product;
 
     // Business methods
-    public void incrementDownloadCount() {
-        this.downloadCount = (this.downloadCount == null ? 0 : this.downloadCount) + 1;
-    }
-
-    public void incrementViewCount() {
-        this.viewCount = (this.viewCount == null ? 0 : this.viewCount) + 1;
-    }
-
     public void updateRating(BigDecimal newRating) {
         if (newRating != null && 
             newRating.compareTo(BigDecimal.ZERO) >= 0 && 
@@ -114,7 +138,18 @@ public class TechnicalDocument extends BaseEntity {
 
     // Helper method to get full path in hierarchy
     public String getHierarchyPath() {
-        return product.getHierarchyPath() + " / " + this.title;
+        return hierarchyPath != null ? hierarchyPath : product.getHierarchyPath() + " / " + this.title;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void refreshHierarchy() {
+        this.documentFieldId = product.getDocumentFieldId();
+        this.productionYearId = product.getProductionYearId();
+        this.manufacturerId = product.getManufacturerId();
+        this.productSeriesId = product.getProductSeries().getId();
+        this.hierarchyPath = product.getHierarchyPath() + " / " + this.title;
+        this.hierarchySortKey = product.getHierarchySortKey() + Product.sortKeyPart(this.sortOrder);
     }
 
     // Get full document path with type
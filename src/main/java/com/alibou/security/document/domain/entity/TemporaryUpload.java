@@ -0,0 +1,53 @@
+package com.alibou.security.document.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Staged upload waiting to be attached to a document (step 1 of the 2-step upload)
+ * Persisted so the second step can land on any node, also after a restart
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "temporary_upload", indexes = {
+    @Index(name = "idx_temporary_upload_expires_at", columnList = "expires_at")
+})
+public class TemporaryUpload {
+
+    @Id
+    @Column(length = 36)
+    private String id; // Temporary file ID handed to the client
+
+    @Column(nullable = false, length = 255)
+    private String originalFileName;
+
+    @Column(nullable = false, length = 255)
+    private String storedFileName; // Name inside the shared staging directory
+
+    @Column(nullable = false)
+    private Long fileSize;
+
+    @Column(length = 50)
+    private String fileFormat;
+
+    @Column(length = 100)
+    private String checksum;
+
+    @Column(nullable = false)
+    private LocalDateTime uploadedAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    public boolean isExpired(LocalDateTime now) {
+        return expiresAt.isBefore(now);
+    }
+}
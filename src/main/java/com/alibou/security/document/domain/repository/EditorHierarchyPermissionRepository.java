@@ -110,22 +110,18 @@ public interface EditorHierarchyPermissionRepository extends BaseRepository<Edit
     /**
      * Find all products editor can upload to
      */
-    @Query("SELECT DISTINCT p FROM Product p " +
-           "JOIN p.productSeries ps " +
-           "JOIN ps.manufacturer m " +
-           "JOIN m.productionYear py " +
-           "JOIN py.documentField df " +
+    @Query("SELECT p FROM Product p " +
            "WHERE EXISTS (" +
            "  SELECT ehp FROM EditorHierarchyPermission ehp " +
            "  WHERE ehp.editor.id = :editorId AND ehp.active = true AND ehp.canUpload = true " +
            "  AND (ehp.product.id = p.id " +
-           "  OR ehp.productSeries.id = ps.id " +
-           "  OR ehp.manufacturer.id = m.id " +
-           "  OR ehp.productionYear.id = py.id " +
-           "  OR ehp.documentField.id = df.id " +
+           "  OR ehp.productSeries.id = p.productSeries.id " +
+           "  OR ehp.manufacturer.id = p.manufacturerId " +
+           "  OR ehp.productionYear.id = p.productionYearId " +
+           "  OR ehp.documentField.id = p.documentFieldId " +
            "  OR (ehp.product IS NULL AND ehp.productSeries IS NULL AND ehp.manufacturer IS NULL AND ehp.productionYear IS NULL AND ehp.documentField IS NULL))" +
            ") AND p.active = true " +
-           "ORDER BY df.sortOrder, py.year DESC, m.sortOrder, ps.sortOrder, p.sortOrder")
+           "ORDER BY p.hierarchySortKey")
     List<com.alibou.security.document.domain.entity.Product> findUploadableProductsByEditor(@Param("editorId") Integer editorId);
     
     /**
@@ -9,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository for Product entity
@@ -33,17 +34,17 @@ public interface ProductRepository extends BaseRepository<Product, Integer> {
     
     // Complex hierarchy search
     @Query("SELECT p FROM Product p " +
-           "JOIN p.productSeries ps " +
-           "JOIN ps.manufacturer m " +
-           "JOIN m.productionYear py " +
-           "JOIN py.documentField df " +
            "WHERE p.active = true " +
-           "AND (:fieldName IS NULL OR LOWER(df.name) = LOWER(:fieldName)) " +
-           "AND (:year IS NULL OR py.year = :year) " +
-           "AND (:manufacturerName IS NULL OR LOWER(m.name) = LOWER(:manufacturerName)) " +
-           "AND (:seriesName IS NULL OR LOWER(ps.name) = LOWER(:seriesName)) " +
+           "AND (:fieldName IS NULL OR p.documentFieldId IN " +
+           "(SELECT df.id FROM DocumentField df WHERE LOWER(df.name) = LOWER(:fieldName))) " +
+           "AND (:year IS NULL OR p.productionYearId IN " +
+           "(SELECT py.id FROM ProductionYear py WHERE py.year = :year)) " +
+           "AND (:manufacturerName IS NULL OR p.manufacturerId IN " +
+           "(SELECT m.id FROM Manufacturer m WHERE LOWER(m.name) = LOWER(:manufacturerName))) " +
+           "AND (:seriesName IS NULL OR p.productSeries.id IN " +
+           "(SELECT ps.id FROM ProductSeries ps WHERE LOWER(ps.name) = LOWER(:seriesName))) " +
            "AND (:productName IS NULL OR LOWER(p.name) = LOWER(:productName)) " +
-           "ORDER BY df.sortOrder, py.year DESC, m.sortOrder, ps.sortOrder, p.sortOrder")
+           "ORDER BY p.hierarchySortKey")
     Page<Product> findByHierarchy(
         @Param("fieldName") String fieldName,
         @Param("year") Integer year,
@@ -84,24 +85,15 @@ public interface ProductRepository extends BaseRepository<Product, Integer> {
     long countByProductSeries(@Param("seriesId") Integer seriesId);
     
     @Query("SELECT COUNT(p) FROM Product p " +
-           "JOIN p.productSeries ps " +
-           "JOIN ps.manufacturer m " +
-           "WHERE p.active = true AND m.id = :manufacturerId")
+           "WHERE p.active = true AND p.manufacturerId = :manufacturerId")
     long countByManufacturer(@Param("manufacturerId") Integer manufacturerId);
     
     @Query("SELECT COUNT(p) FROM Product p " +
-           "JOIN p.productSeries ps " +
-           "JOIN ps.manufacturer m " +
-           "JOIN m.productionYear py " +
-           "WHERE p.active = true AND py.id = :yearId")
+           "WHERE p.active = true AND p.productionYearId = :yearId")
     long countByYear(@Param("yearId") Integer yearId);
     
     @Query("SELECT COUNT(p) FROM Product p " +
-           "JOIN p.productSeries ps " +
-           "JOIN ps.manufacturer m " +
-           "JOIN m.productionYear py " +
-           "JOIN py.documentField df " +
-           "WHERE p.active = true AND df.id = :fieldId")
+           "WHERE p.active = true AND p.documentFieldId = :fieldId")
     long countByField(@Param("fieldId") Integer fieldId);
     
     // Get products with most documents
@@ -111,4 +103,8 @@ public interface ProductRepository extends BaseRepository<Product, Integer> {
            "GROUP BY p " +
            "ORDER BY COUNT(td) DESC")
     List<Product> findProductsWithMostDocuments(Pageable pageable);
+    
+    // Stored image references, relative to app.upload.dir (must run inside a transaction)
+    @Query("SELECT p.imagePath FROM Product p WHERE p.imagePath IS NOT NULL")
+    Stream<String> streamImagePaths();
 }
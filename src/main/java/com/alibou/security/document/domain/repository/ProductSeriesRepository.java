@@ -9,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository for ProductSeries entity
@@ -110,4 +111,8 @@ public interface ProductSeriesRepository extends BaseRepository<ProductSeries, I
            "AND (td IS NULL OR td.active = true) " +
            "GROUP BY ps.id")
     List<Object[]> countDocumentsBySeries();
+    
+    // Stored image references, relative to app.upload.dir (must run inside a transaction)
+    @Query("SELECT ps.imagePath FROM ProductSeries ps WHERE ps.imagePath IS NOT NULL")
+    Stream<String> streamImagePaths();
 }
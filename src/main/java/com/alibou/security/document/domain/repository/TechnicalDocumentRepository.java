@@ -2,92 +2,177 @@ package com.alibou.security.document.domain.repository;
 
 import com.alibou.security.document.domain.entity.TechnicalDocument;
 import com.alibou.security.core.domain.repository.BaseRepository;
+import com.alibou.security.core.domain.service.StoredChecksum;
+import com.alibou.security.core.domain.service.TechnicalDocumentSummary;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Repository for TechnicalDocument entity
  */
 public interface TechnicalDocumentRepository extends BaseRepository<TechnicalDocument, Integer> {
     
+    // List views select only the card fields, from technical_document alone
+    String SUMMARY = "SELECT new com.alibou.security.core.domain.service.TechnicalDocumentSummary(" +
+                     "td.id, td.title, td.documentType, td.category, td.fileFormat, td.fileSize, td.pageCount, " +
+                     "td.language, td.downloadCount, td.viewCount, td.rating, td.product.id, td.hierarchyPath, " +
+                     "td.hierarchySortKey) " +
+                     "FROM TechnicalDocument td ";
+    
+    // Hierarchy filter over the denormalized ancestor ids; the name lookups only touch the small hierarchy tables
+    String HIERARCHY_FILTER = "WHERE td.active = true " +
+           "AND (:fieldName IS NULL OR td.documentFieldId IN " +
+           "(SELECT df.id FROM DocumentField df WHERE LOWER(df.name) = LOWER(:fieldName))) " +
+           "AND (:year IS NULL OR td.productionYearId IN " +
+           "(SELECT py.id FROM ProductionYear py WHERE py.year = :year)) " +
+           "AND (:manufacturerName IS NULL OR td.manufacturerId IN " +
+           "(SELECT m.id FROM Manufacturer m WHERE LOWER(m.name) = LOWER(:manufacturerName))) " +
+           "AND (:seriesName IS NULL OR td.productSeriesId IN " +
+           "(SELECT ps.id FROM ProductSeries ps WHERE LOWER(ps.name) = LOWER(:seriesName))) " +
+           "AND (:productName IS NULL OR td.product.id IN " +
+           "(SELECT p.id FROM Product p WHERE LOWER(p.name) = LOWER(:productName))) " +
+           "AND (:documentType IS NULL OR LOWER(td.documentType) = LOWER(:documentType)) ";
+    
+    // hierarchyPath holds the field, year, manufacturer, series and product names and the title
+    String TEXT_FILTER = "WHERE td.active = true " +
+           "AND td.isPublic = true " +
+           "AND (LOWER(td.hierarchyPath) LIKE LOWER(CONCAT('%', :query, '%')) " +
+           "OR LOWER(td.description) LIKE LOWER(CONCAT('%', :query, '%')) " +
+           "OR LOWER(td.documentType) LIKE LOWER(CONCAT('%', :query, '%'))) ";
+    
+    // Summaries by ids (pages of search index hits), in no particular order
+    @Query(SUMMARY + "WHERE td.id IN :ids")
+    List<TechnicalDocumentSummary> findSummariesByIdIn(@Param("ids") Collection<Integer> ids);
+    
     // Find by product
-    List<TechnicalDocument> findByProductIdAndActiveTrueOrderBySortOrder(Integer productId);
-    Page<TechnicalDocument> findByProductIdAndActiveTrue(Integer productId, Pageable pageable);
+    @Query(SUMMARY + "WHERE td.product.id = :productId AND td.active = true ORDER BY td.sortOrder")
+    List<TechnicalDocumentSummary> findSummariesByProduct(@Param("productId") Integer productId);
+    
+    @Query(value = SUMMARY + "WHERE td.product.id = :productId AND td.active = true",
+           countQuery = "SELECT COUNT(td) FROM TechnicalDocument td WHERE td.product.id = :productId AND td.active = true")
+    Page<TechnicalDocumentSummary> findSummariesByProduct(@Param("productId") Integer productId, Pageable pageable);
     
     // Find by document type
-    List<TechnicalDocument> findByDocumentTypeAndActiveTrueOrderBySortOrder(String documentType);
-    Page<TechnicalDocument> findByDocumentTypeAndActiveTrue(String documentType, Pageable pageable);
+    @Query(SUMMARY + "WHERE td.documentType = :documentType AND td.active = true ORDER BY td.sortOrder")
+    List<TechnicalDocumentSummary> findSummariesByDocumentType(@Param("documentType") String documentType);
     
     // Find by category
-    List<TechnicalDocument> findByCategoryAndActiveTrueOrderBySortOrder(String category);
-    Page<TechnicalDocument> findByCategoryAndActiveTrue(String category, Pageable pageable);
+    @Query(SUMMARY + "WHERE td.category = :category AND td.active = true ORDER BY td.sortOrder")
+    List<TechnicalDocumentSummary> findSummariesByCategory(@Param("category") String category);
     
     // Complex hierarchy search
-    @Query("SELECT td FROM TechnicalDocument td " +
-           "JOIN td.product p " +
-           "JOIN p.productSeries ps " +
-           "JOIN ps.manufacturer m " +
-           "JOIN m.productionYear py " +
-           "JOIN py.documentField df " +
-           "WHERE td.active = true " +
-           "AND (:fieldName IS NULL OR LOWER(df.name) = LOWER(:fieldName)) " +
-           "AND (:year IS NULL OR py.year = :year) " +
-           "AND (:manufacturerName IS NULL OR LOWER(m.name) = LOWER(:manufacturerName)) " +
-           "AND (:seriesName IS NULL OR LOWER(ps.name) = LOWER(:seriesName)) " +
-           "AND (:productName IS NULL OR LOWER(p.name) = LOWER(:productName)) " +
-           "AND (:documentType IS NULL OR LOWER(td.documentType) = LOWER(:documentType)) " +
-           "ORDER BY df.sortOrder, py.year DESC, m.sortOrder, ps.sortOrder, p.sortOrder, td.sortOrder")
-    Page<TechnicalDocument> findByHierarchy(
+    @Query(value = SUMMARY + HIERARCHY_FILTER + "ORDER BY td.hierarchySortKey",
+           countQuery = "SELECT COUNT(td) FROM TechnicalDocument td " + HIERARCHY_FILTER)
+    Page<TechnicalDocumentSummary> findByHierarchy(
+        @Param("fieldName") String fieldName,
+        @Param("year") Integer year,
+        @Param("manufacturerName") String manufacturerName,
+        @Param("seriesName") String seriesName,
+        @Param("productName") String productName,
+        @Param("documentType") String documentType,
+        Pageable pageable
+    );
+    
+    // First keyset page of the hierarchy listing; pageable only limits. Rows without a sort key
+    // (not backfilled yet) come last, from findByHierarchyWithoutSortKey
+    @Query(SUMMARY + HIERARCHY_FILTER + "AND td.hierarchySortKey IS NOT NULL ORDER BY td.hierarchySortKey, td.id")
+    List<TechnicalDocumentSummary> findByHierarchyFromStart(
+        @Param("fieldName") String fieldName,
+        @Param("year") Integer year,
+        @Param("manufacturerName") String manufacturerName,
+        @Param("seriesName") String seriesName,
+        @Param("productName") String productName,
+        @Param("documentType") String documentType,
+        Pageable pageable
+    );
+    
+    // Next keyset page: rows after (afterKey, afterId), no OFFSET. The row comparison is a range
+    // start on idx_technical_document_hierarchy_sort_key (hierarchy_sort_key, id)
+    @Query(SUMMARY + HIERARCHY_FILTER +
+           "AND (td.hierarchySortKey, td.id) > (:afterKey, :afterId) " +
+           "ORDER BY td.hierarchySortKey, td.id")
+    List<TechnicalDocumentSummary> findByHierarchyAfter(
+        @Param("fieldName") String fieldName,
+        @Param("year") Integer year,
+        @Param("manufacturerName") String manufacturerName,
+        @Param("seriesName") String seriesName,
+        @Param("productName") String productName,
+        @Param("documentType") String documentType,
+        @Param("afterKey") String afterKey,
+        @Param("afterId") Integer afterId,
+        Pageable pageable
+    );
+    
+    // Tail of the hierarchy listing: rows whose sort key is still NULL, by id after afterId
+    @Query(SUMMARY + HIERARCHY_FILTER + "AND td.hierarchySortKey IS NULL AND td.id > :afterId ORDER BY td.id")
+    List<TechnicalDocumentSummary> findByHierarchyWithoutSortKey(
         @Param("fieldName") String fieldName,
         @Param("year") Integer year,
         @Param("manufacturerName") String manufacturerName,
         @Param("seriesName") String seriesName,
         @Param("productName") String productName,
         @Param("documentType") String documentType,
+        @Param("afterId") Integer afterId,
         Pageable pageable
     );
     
+    @Query("SELECT COUNT(td) FROM TechnicalDocument td " + HIERARCHY_FILTER)
+    long countByHierarchy(
+        @Param("fieldName") String fieldName,
+        @Param("year") Integer year,
+        @Param("manufacturerName") String manufacturerName,
+        @Param("seriesName") String seriesName,
+        @Param("productName") String productName,
+        @Param("documentType") String documentType
+    );
+    
     // Full text search across documents
-    @Query("SELECT td FROM TechnicalDocument td " +
-           "JOIN td.product p " +
-           "JOIN p.productSeries ps " +
-           "JOIN ps.manufacturer m " +
-           "JOIN m.productionYear py " +
-           "JOIN py.documentField df " +
-           "WHERE td.active = true " +
-           "AND td.isPublic = true " +
-           "AND (LOWER(td.title) LIKE LOWER(CONCAT('%', :query, '%')) " +
-           "OR LOWER(td.description) LIKE LOWER(CONCAT('%', :query, '%')) " +
-           "OR LOWER(td.documentType) LIKE LOWER(CONCAT('%', :query, '%')) " +
-           "OR LOWER(df.name) LIKE LOWER(CONCAT('%', :query, '%')) " +
-           "OR LOWER(m.name) LIKE LOWER(CONCAT('%', :query, '%')) " +
-           "OR LOWER(ps.name) LIKE LOWER(CONCAT('%', :query, '%')) " +
-           "OR LOWER(p.name) LIKE LOWER(CONCAT('%', :query, '%'))) " +
-           "ORDER BY td.downloadCount DESC, td.rating DESC")
-    Page<TechnicalDocument> searchDocuments(@Param("query") String query, Pageable pageable);
+    @Query(value = SUMMARY + TEXT_FILTER + "ORDER BY td.downloadCount DESC, td.rating DESC",
+           countQuery = "SELECT COUNT(td) FROM TechnicalDocument td " + TEXT_FILTER)
+    Page<TechnicalDocumentSummary> searchDocuments(@Param("query") String query, Pageable pageable);
+    
+    // Full text search through the search_vector GIN index (PostgreSQL only, see TechnicalDocumentSearchIndex).
+    // Every word of the query must match as a prefix
+    String FULL_TEXT_MATCHES = "WITH q AS (SELECT to_tsquery('simple', string_agg(quote_literal(lexeme) || ':*', ' & ')) AS query " +
+                               "FROM unnest(to_tsvector('simple', :query))) " +
+                               "SELECT td.id FROM technical_document td, q " +
+                               "WHERE td.active = true AND td.is_public = true AND td.search_vector @@ q.query ";
+    
+    // Ids of a page of full text matches, ranked by ts_rank weighted with popularity, to be loaded with
+    // findSummariesByIdIn. The ORDER BY is fixed: pass an unsorted Pageable
+    @Query(value = FULL_TEXT_MATCHES +
+                   "ORDER BY ts_rank(td.search_vector, q.query) " +
+                   "* ln(2 + COALESCE(td.download_count, 0) + COALESCE(td.view_count, 0) / 10.0) DESC, td.id DESC",
+           nativeQuery = true)
+    List<Integer> searchDocumentIdsFullText(@Param("query") String query, Pageable pageable);
+    
+    // Number of full text matches, counting no further than :limit
+    @Query(value = "SELECT count(*) FROM (" + FULL_TEXT_MATCHES + "LIMIT :limit) matches", nativeQuery = true)
+    long countFullTextUpTo(@Param("query") String query, @Param("limit") long limit);
     
     // Get popular documents
-    @Query("SELECT td FROM TechnicalDocument td " +
-           "WHERE td.active = true AND td.isPublic = true " +
+    @Query(SUMMARY + "WHERE td.active = true AND td.isPublic = true " +
            "ORDER BY td.downloadCount DESC, td.viewCount DESC")
-    List<TechnicalDocument> findMostPopular(Pageable pageable);
+    List<TechnicalDocumentSummary> findMostPopular(Pageable pageable);
     
     // Get highly rated documents
-    @Query("SELECT td FROM TechnicalDocument td " +
-           "WHERE td.active = true AND td.isPublic = true " +
+    @Query(SUMMARY + "WHERE td.active = true AND td.isPublic = true " +
            "AND td.rating > 0 " +
            "ORDER BY td.rating DESC, td.downloadCount DESC")
-    List<TechnicalDocument> findHighestRated(Pageable pageable);
+    List<TechnicalDocumentSummary> findHighestRated(Pageable pageable);
     
     // Get recent documents
-    @Query("SELECT td FROM TechnicalDocument td " +
-           "WHERE td.active = true AND td.isPublic = true " +
+    @Query(SUMMARY + "WHERE td.active = true AND td.isPublic = true " +
            "ORDER BY td.createdDate DESC")
-    List<TechnicalDocument> findRecent(Pageable pageable);
+    List<TechnicalDocumentSummary> findRecent(Pageable pageable);
     
     // Get document types for a specific product
     @Query("SELECT DISTINCT td.documentType FROM TechnicalDocument td " +
@@ -97,12 +182,7 @@ public interface TechnicalDocumentRepository extends BaseRepository<TechnicalDoc
     
     // Get categories for a specific field
     @Query("SELECT DISTINCT td.category FROM TechnicalDocument td " +
-           "JOIN td.product p " +
-           "JOIN p.productSeries ps " +
-           "JOIN ps.manufacturer m " +
-           "JOIN m.productionYear py " +
-           "JOIN py.documentField df " +
-           "WHERE df.id = :fieldId AND td.active = true " +
+           "WHERE td.documentFieldId = :fieldId AND td.active = true " +
            "ORDER BY td.category")
     List<String> findCategoriesByField(@Param("fieldId") Integer fieldId);
     
@@ -124,4 +204,28 @@ public interface TechnicalDocumentRepository extends BaseRepository<TechnicalDoc
     
     @Query("SELECT SUM(td.fileSize) FROM TechnicalDocument td WHERE td.active = true")
     Long getTotalFileSize();
+    
+    // Keyset batches over all documents (storage layout migration)
+    List<TechnicalDocument> findByIdGreaterThanOrderByIdAsc(Integer id, Pageable pageable);
+    
+    // Stored file references, relative to app.upload.dir (must run inside a transaction)
+    @Query("SELECT td.filePath FROM TechnicalDocument td WHERE td.filePath IS NOT NULL")
+    Stream<String> streamFilePaths();
+    
+    // Keyset batches of files with a checksum, paths relative to app.upload.dir (integrity verifier)
+    @Query("SELECT new com.alibou.security.core.domain.service.StoredChecksum(td.id, td.filePath, td.checksum) " +
+           "FROM TechnicalDocument td WHERE td.id > :afterId AND td.filePath IS NOT NULL AND td.checksum IS NOT NULL " +
+           "ORDER BY td.id")
+    List<StoredChecksum> findStoredChecksums(@Param("afterId") Integer afterId, Pageable pageable);
+    
+    // Counter bumps in place, without loading the row; bypasses auditing, so last-modified is left alone
+    @Modifying
+    @Transactional
+    @Query("UPDATE TechnicalDocument td SET td.viewCount = COALESCE(td.viewCount, 0) + :delta WHERE td.id = :id")
+    int addToViewCount(@Param("id") Integer id, @Param("delta") int delta);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE TechnicalDocument td SET td.downloadCount = COALESCE(td.downloadCount, 0) + :delta WHERE td.id = :id")
+    int addToDownloadCount(@Param("id") Integer id, @Param("delta") int delta);
 }
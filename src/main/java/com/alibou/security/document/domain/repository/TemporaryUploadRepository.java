@@ -0,0 +1,38 @@
+package com.alibou.security.document.domain.repository;
+
+import com.alibou.security.document.domain.entity.TemporaryUpload;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for staged (temporary) uploads
+ */
+public interface TemporaryUploadRepository extends JpaRepository<TemporaryUpload, String> {
+
+    /**
+     * Expired entries, oldest first (served by the expires_at index)
+     */
+    @Query("SELECT t FROM TemporaryUpload t WHERE t.expiresAt < :now ORDER BY t.expiresAt")
+    List<TemporaryUpload> findExpired(@Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Claim an entry: exactly one caller across all nodes gets 1 back
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM TemporaryUpload t WHERE t.id = :id")
+    int claim(@Param("id") String id);
+
+    @Query("SELECT COUNT(t) FROM TemporaryUpload t")
+    long countStaged();
+
+    @Query("SELECT COALESCE(SUM(t.fileSize), 0) FROM TemporaryUpload t")
+    long sumStagedFileSize();
+}
@@ -0,0 +1,186 @@
+package com.alibou.security.document.infrastructure.service;
+
+import com.alibou.security.document.domain.entity.DocumentField;
+import com.alibou.security.document.domain.entity.Manufacturer;
+import com.alibou.security.document.domain.entity.Product;
+import com.alibou.security.document.domain.entity.ProductSeries;
+import com.alibou.security.document.domain.entity.ProductionYear;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the denormalized hierarchy columns of product and technical_document consistent
+ *
+ * Each product and document carries the ids of its ancestors, its materialized
+ * path and a composite sort key (see Product#refreshHierarchy). The entities set
+ * them from their own parent chain on save; this component rewrites them for all
+ * descendants when a field, year, manufacturer, series or product is renamed,
+ * moved or reordered. The rewrite runs in the same transaction, just before
+ * commit, so it sees every change made in that transaction.
+ *
+ * Rows inserted with plain SQL (data.sql, import scripts) have no hierarchy
+ * columns yet and are filled in at startup. The SQL is portable between H2 and
+ * PostgreSQL.
+ */
+@Component
+@Slf4j
+public class DocumentHierarchyMaintainer implements PostUpdateEventListener {
+
+    // Sort key layout must match Product#refreshHierarchy and Product#sortKeyPart
+    private static final String PRODUCT_CHAIN =
+        " FROM product_series ps" +
+        " JOIN manufacturer m ON m.id = ps.manufacturer_id" +
+        " JOIN production_year py ON py.id = m.production_year_id" +
+        " JOIN document_field df ON df.id = py.document_field_id" +
+        " WHERE ps.id = product.product_series_id)";
+
+    private static final String UPDATE_PRODUCTS =
+        "UPDATE product SET" +
+        " manufacturer_id = (SELECT m.id" + PRODUCT_CHAIN + "," +
+        " production_year_id = (SELECT py.id" + PRODUCT_CHAIN + "," +
+        " document_field_id = (SELECT df.id" + PRODUCT_CHAIN + "," +
+        " hierarchy_path = (SELECT df.name || ' / ' || CAST(py.year AS VARCHAR(10)) || ' / ' || m.name" +
+        " || ' / ' || ps.name || ' / ' || product.name" + PRODUCT_CHAIN + "," +
+        " hierarchy_sort_key = (SELECT " + sortKeyPart("df.sort_order") +
+        " || LPAD(CAST(9999 - py.year AS VARCHAR(10)), 4, '0') || " + sortKeyPart("m.sort_order") +
+        " || " + sortKeyPart("ps.sort_order") + " || " + sortKeyPart("product.sort_order") + PRODUCT_CHAIN +
+        " WHERE %s";
+
+    private static final String FROM_PRODUCT = " FROM product p WHERE p.id = technical_document.product_id)";
+
+    private static final String UPDATE_DOCUMENTS =
+        "UPDATE technical_document SET" +
+        " document_field_id = (SELECT p.document_field_id" + FROM_PRODUCT + "," +
+        " production_year_id = (SELECT p.production_year_id" + FROM_PRODUCT + "," +
+        " manufacturer_id = (SELECT p.manufacturer_id" + FROM_PRODUCT + "," +
+        " product_series_id = (SELECT p.product_series_id" + FROM_PRODUCT + "," +
+        " hierarchy_path = (SELECT p.hierarchy_path || ' / ' || technical_document.title" + FROM_PRODUCT + "," +
+        " hierarchy_sort_key = (SELECT p.hierarchy_sort_key || " +
+        sortKeyPart("technical_document.sort_order") + FROM_PRODUCT +
+        " WHERE %s";
+
+    // Hierarchy entity -> product column holding its id, and the properties that end up in the columns
+    private static final Map<Class<?>, Level> LEVELS = Map.of(
+        DocumentField.class, new Level("document_field_id", Set.of("name", "sortOrder")),
+        ProductionYear.class, new Level("production_year_id", Set.of("year", "documentField")),
+        Manufacturer.class, new Level("manufacturer_id", Set.of("name", "sortOrder", "productionYear")),
+        ProductSeries.class, new Level("product_series_id", Set.of("name", "sortOrder", "manufacturer")),
+        Product.class, new Level("id", Set.of("name", "sortOrder", "productSeries"))
+    );
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public DocumentHierarchyMaintainer(EntityManagerFactory entityManagerFactory,
+                                       JdbcTemplate jdbcTemplate,
+                                       PlatformTransactionManager transactionManager) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    void register() {
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+            .getServiceRegistry()
+            .getService(EventListenerRegistry.class)
+            .appendListeners(EventType.POST_UPDATE, this);
+    }
+
+    /**
+     * Fill in the hierarchy columns of rows that were inserted without them
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        long started = System.currentTimeMillis();
+        int[] updated = transactionTemplate.execute(status -> new int[] {
+            jdbcTemplate.update(UPDATE_PRODUCTS.formatted("hierarchy_sort_key IS NULL")),
+            jdbcTemplate.update(UPDATE_DOCUMENTS.formatted("hierarchy_sort_key IS NULL"))
+        });
+        if (updated[0] > 0 || updated[1] > 0) {
+            log.info("Filled in hierarchy columns of {} products and {} documents in {} ms",
+                updated[0], updated[1], System.currentTimeMillis() - started);
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        Level level = LEVELS.get(Hibernate.getClass(event.getEntity()));
+        if (level == null || !level.isAffectedBy(event) || !(event.getId() instanceof Integer id)) {
+            return;
+        }
+        // After the final flush, so descendants moved in the same transaction are seen where they end up
+        event.getSession().getActionQueue().registerProcess((BeforeTransactionCompletionProcess) session ->
+            session.doWork(connection -> {
+                String scope = level.column + " = ?";
+                int products;
+                int documents;
+                try (PreparedStatement statement = connection.prepareStatement(UPDATE_PRODUCTS.formatted(scope))) {
+                    statement.setInt(1, id);
+                    products = statement.executeUpdate();
+                }
+                try (PreparedStatement statement = connection.prepareStatement(
+                        UPDATE_DOCUMENTS.formatted("product_id IN (SELECT id FROM product WHERE " + scope + ")"))) {
+                    statement.setInt(1, id);
+                    documents = statement.executeUpdate();
+                }
+                log.debug("{} {} changed: rewrote hierarchy of {} products and {} documents",
+                    Hibernate.getClass(event.getEntity()).getSimpleName(), id, products, documents);
+            }));
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    // Helper methods
+
+    private static String sortKeyPart(String column) {
+        return "LPAD(CAST(COALESCE(" + column + ", 0) + 2147483648 AS VARCHAR(10)), 10, '0')";
+    }
+
+    private static final class Level {
+        private final String column;
+        private final Set<String> properties;
+
+        Level(String column, Set<String> properties) {
+            this.column = column;
+            this.properties = properties;
+        }
+
+        boolean isAffectedBy(PostUpdateEvent event) {
+            int[] dirty = event.getDirtyProperties();
+            if (dirty == null) {
+                return true;
+            }
+            String[] names = event.getPersister().getPropertyNames();
+            for (int index : dirty) {
+                if (properties.contains(names[index])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
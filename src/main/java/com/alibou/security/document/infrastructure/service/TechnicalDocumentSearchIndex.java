@@ -0,0 +1,185 @@
+package com.alibou.security.document.infrastructure.service;
+
+import com.alibou.security.core.infrastructure.repository.ConcurrentIndexes;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PostgreSQL full-text index over technical documents
+ *
+ * Maintains technical_document.search_vector, a weighted tsvector of title (A),
+ * document type and the product/series/manufacturer/field names (B) and
+ * description (C), with a GIN index. A row trigger keeps it current on insert
+ * and update; triggers on the hierarchy tables rebuild the vectors of affected
+ * documents when a name changes or a level is moved. The 'simple' text search
+ * configuration is used (no stemming), as documents are in several languages.
+ *
+ * The column is not mapped by JPA, so the DDL is applied here, idempotently,
+ * once the schema exists. Only the column, functions and triggers are created
+ * in a transaction; existing rows are then backfilled in small batches and
+ * the GIN index is built concurrently, so document writes are not blocked
+ * while the app is serving. On other databases (H2 in dev) the index is not
+ * available and searches fall back to LIKE matching.
+ */
+@Component
+@Slf4j
+public class TechnicalDocumentSearchIndex {
+
+    private static final String SEARCH_VECTOR_FUNCTION = """
+        CREATE OR REPLACE FUNCTION technical_document_search_vector(
+                p_title text, p_document_type text, p_description text, p_product_id integer)
+            RETURNS tsvector LANGUAGE sql STABLE AS $$
+            SELECT setweight(to_tsvector('simple', coalesce(p_title, '')), 'A')
+                || setweight(to_tsvector('simple', replace(coalesce(p_document_type, ''), '_', ' ')), 'B')
+                || setweight(to_tsvector('simple', coalesce((
+                       SELECT concat_ws(' ', p.name, ps.name, m.name, df.name)
+                       FROM product p
+                       LEFT JOIN product_series ps ON ps.id = p.product_series_id
+                       LEFT JOIN manufacturer m ON m.id = ps.manufacturer_id
+                       LEFT JOIN production_year py ON py.id = m.production_year_id
+                       LEFT JOIN document_field df ON df.id = py.document_field_id
+                       WHERE p.id = p_product_id), '')), 'B')
+                || setweight(to_tsvector('simple', coalesce(p_description, '')), 'C')
+            $$""";
+
+    private static final String DOCUMENT_TRIGGER_FUNCTION = """
+        CREATE OR REPLACE FUNCTION technical_document_search_vector_update()
+            RETURNS trigger LANGUAGE plpgsql AS $$
+            BEGIN
+                NEW.search_vector := technical_document_search_vector(
+                    NEW.title, NEW.document_type, NEW.description, NEW.product_id);
+                RETURN NEW;
+            END
+            $$""";
+
+    private static final String HIERARCHY_TRIGGER_FUNCTION = """
+        CREATE OR REPLACE FUNCTION technical_document_search_hierarchy_update()
+            RETURNS trigger LANGUAGE plpgsql AS $$
+            BEGIN
+                UPDATE technical_document td
+                SET search_vector = technical_document_search_vector(
+                    td.title, td.document_type, td.description, td.product_id)
+                WHERE td.product_id IN (
+                    SELECT p.id FROM product p
+                    JOIN product_series ps ON ps.id = p.product_series_id
+                    JOIN manufacturer m ON m.id = ps.manufacturer_id
+                    JOIN production_year py ON py.id = m.production_year_id
+                    WHERE CASE TG_TABLE_NAME
+                        WHEN 'product' THEN p.id
+                        WHEN 'product_series' THEN ps.id
+                        WHEN 'manufacturer' THEN m.id
+                        WHEN 'production_year' THEN py.id
+                        ELSE py.document_field_id
+                    END = NEW.id);
+                RETURN NULL;
+            END
+            $$""";
+
+    private static final List<String> DDL = List.of(
+        "ALTER TABLE technical_document ADD COLUMN IF NOT EXISTS search_vector tsvector",
+        SEARCH_VECTOR_FUNCTION,
+        DOCUMENT_TRIGGER_FUNCTION,
+        HIERARCHY_TRIGGER_FUNCTION,
+        "DROP TRIGGER IF EXISTS technical_document_search_vector ON technical_document",
+        "CREATE TRIGGER technical_document_search_vector " +
+            "BEFORE INSERT OR UPDATE OF title, document_type, description, product_id ON technical_document " +
+            "FOR EACH ROW EXECUTE FUNCTION technical_document_search_vector_update()"
+    );
+
+    // Hierarchy table -> columns whose change affects the vectors of its documents
+    private static final Map<String, String> HIERARCHY_COLUMNS = new LinkedHashMap<>();
+    static {
+        HIERARCHY_COLUMNS.put("product", "name, product_series_id");
+        HIERARCHY_COLUMNS.put("product_series", "name, manufacturer_id");
+        HIERARCHY_COLUMNS.put("manufacturer", "name, production_year_id");
+        HIERARCHY_COLUMNS.put("production_year", "document_field_id");
+        HIERARCHY_COLUMNS.put("document_field", "name");
+    }
+
+    // One batch of rows without a vector; each batch commits on its own, so row locks are short
+    private static final String BACKFILL =
+        "UPDATE technical_document SET search_vector = technical_document_search_vector(" +
+        "title, document_type, description, product_id) WHERE id IN (" +
+        "SELECT id FROM technical_document WHERE search_vector IS NULL LIMIT ?)";
+
+    private static final int BACKFILL_BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String mode;
+    private volatile boolean available;
+
+    public TechnicalDocumentSearchIndex(JdbcTemplate jdbcTemplate,
+                                        PlatformTransactionManager transactionManager,
+                                        @Value("${app.search.documents.mode:auto}") String mode) {
+        if (!"auto".equalsIgnoreCase(mode) && !"fulltext".equalsIgnoreCase(mode) && !"like".equalsIgnoreCase(mode)) {
+            throw new IllegalArgumentException("Unknown document search mode: " + mode);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.mode = mode;
+    }
+
+    /**
+     * Whether searches can use the full-text index
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if ("like".equalsIgnoreCase(mode)) {
+            return;
+        }
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+            connection.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equalsIgnoreCase(database)) {
+            if ("fulltext".equalsIgnoreCase(mode)) {
+                throw new IllegalStateException("Full-text document search needs PostgreSQL, not " + database);
+            }
+            log.info("Document search uses LIKE matching on {}", database);
+            return;
+        }
+
+        // One transaction (PostgreSQL DDL is transactional), so nodes starting together do not interleave
+        long started = System.currentTimeMillis();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (String statement : DDL) {
+                jdbcTemplate.execute(statement);
+            }
+            HIERARCHY_COLUMNS.forEach((table, columns) -> {
+                String trigger = table + "_document_search";
+                jdbcTemplate.execute("DROP TRIGGER IF EXISTS " + trigger + " ON " + table);
+                jdbcTemplate.execute("CREATE TRIGGER " + trigger + " AFTER UPDATE OF " + columns + " ON " + table +
+                    " FOR EACH ROW EXECUTE FUNCTION technical_document_search_hierarchy_update()");
+            });
+        });
+
+        // New and changed rows get their vector from the trigger from now on
+        int backfilled = 0;
+        int updated;
+        do {
+            updated = jdbcTemplate.update(BACKFILL, BACKFILL_BATCH_SIZE);
+            backfilled += updated;
+        } while (updated > 0);
+
+        // Auto-commit statement: CONCURRENTLY cannot run inside a transaction
+        ConcurrentIndexes.create(jdbcTemplate, "idx_technical_document_search_vector",
+            "ON technical_document USING GIN (search_vector)");
+        available = true;
+        log.info("Document full-text index ready ({} rows indexed) in {} ms",
+            backfilled, System.currentTimeMillis() - started);
+    }
+}
@@ -1,6 +1,7 @@
 package com.alibou.security.document.web.controller;
 
-import com.alibou.security.document.application.dto.TechnicalDocumentDto;
+import com.alibou.security.core.domain.repository.CursorPage;
+import com.alibou.security.core.domain.service.TechnicalDocumentSummary;
 import com.alibou.security.document.application.dto.DocumentHierarchySearchDto;
 import com.alibou.security.document.application.service.TechnicalDocumentApplicationService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -33,18 +34,18 @@ public class TechnicalDocumentController {
     
     @GetMapping
     @Operation(summary = "Get documents by product", description = "Retrieve technical documents for a specific product")
-    public ResponseEntity<Page<TechnicalDocumentDto>> getDocumentsByProduct(
+    public ResponseEntity<Page<TechnicalDocumentSummary>> getDocumentsByProduct(
             @Parameter(description = "Product ID") @RequestParam Integer productId,
             @PageableDefault(size = 20, sort = "sortOrder") Pageable pageable) {
         
         log.info("Getting documents for product ID: {}", productId);
-        Page<TechnicalDocumentDto> documents = documentService.findByProduct(productId, pageable);
+        Page<TechnicalDocumentSummary> documents = documentService.findByProduct(productId, pageable);
         return ResponseEntity.ok(documents);
     }
     
     @GetMapping("/search")
     @Operation(summary = "Advanced hierarchy search", description = "Search documents across the entire hierarchy")
-    public ResponseEntity<Page<TechnicalDocumentDto>> searchDocuments(
+    public ResponseEntity<Page<TechnicalDocumentSummary>> searchDocuments(
             @Parameter(description = "Field name") @RequestParam(required = false) String fieldName,
             @Parameter(description = "Production year") @RequestParam(required = false) Integer year,
             @Parameter(description = "Manufacturer name") @RequestParam(required = false) String manufacturerName,
@@ -59,7 +60,7 @@ public class TechnicalDocumentController {
         
         if (query != null && !query.trim().isEmpty()) {
             // Full text search
-            Page<TechnicalDocumentDto> documents = documentService.searchDocuments(query, pageable);
+            Page<TechnicalDocumentSummary> documents = documentService.searchDocuments(query, pageable);
             return ResponseEntity.ok(documents);
         } else {
             // Hierarchy search
@@ -72,58 +73,87 @@ public class TechnicalDocumentController {
                 .documentType(documentType)
                 .build();
             
-            Page<TechnicalDocumentDto> documents = documentService.searchByHierarchy(searchDto, pageable);
+            Page<TechnicalDocumentSummary> documents = documentService.searchByHierarchy(searchDto, pageable);
             return ResponseEntity.ok(documents);
         }
     }
     
+    @GetMapping("/browse")
+    @Operation(summary = "Browse the hierarchy", description = "Page through documents in hierarchy order with a cursor; the total is only counted on request")
+    public ResponseEntity<CursorPage<TechnicalDocumentSummary>> browseDocuments(
+            @Parameter(description = "Field name") @RequestParam(required = false) String fieldName,
+            @Parameter(description = "Production year") @RequestParam(required = false) Integer year,
+            @Parameter(description = "Manufacturer name") @RequestParam(required = false) String manufacturerName,
+            @Parameter(description = "Product series name") @RequestParam(required = false) String seriesName,
+            @Parameter(description = "Product name") @RequestParam(required = false) String productName,
+            @Parameter(description = "Document type") @RequestParam(required = false) String documentType,
+            @Parameter(description = "nextCursor of the previous page, empty for the first page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (1-100)") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "Also count all matching documents") @RequestParam(defaultValue = "false") boolean withTotal) {
+        
+        log.info("Browsing documents with hierarchy: field={}, year={}, manufacturer={}, series={}, product={}, type={}",
+                fieldName, year, manufacturerName, seriesName, productName, documentType);
+        DocumentHierarchySearchDto searchDto = DocumentHierarchySearchDto.builder()
+            .fieldName(fieldName)
+            .year(year)
+            .manufacturerName(manufacturerName)
+            .seriesName(seriesName)
+            .productName(productName)
+            .documentType(documentType)
+            .build();
+        
+        CursorPage<TechnicalDocumentSummary> documents = documentService.browseByHierarchy(searchDto,
+            cursor == null || cursor.isBlank() ? null : cursor, Math.max(1, Math.min(size, 100)), withTotal);
+        return ResponseEntity.ok(documents);
+    }
+    
     @GetMapping("/popular")
     @Operation(summary = "Get popular documents", description = "Retrieve most downloaded documents")
-    public ResponseEntity<List<TechnicalDocumentDto>> getPopularDocuments(
+    public ResponseEntity<List<TechnicalDocumentSummary>> getPopularDocuments(
             @Parameter(description = "Number of documents to return") @RequestParam(defaultValue = "10") int limit) {
         
         log.info("Getting {} most popular documents", limit);
-        List<TechnicalDocumentDto> documents = documentService.getMostPopular(limit);
+        List<TechnicalDocumentSummary> documents = documentService.getMostPopular(limit);
         return ResponseEntity.ok(documents);
     }
     
     @GetMapping("/highly-rated")
     @Operation(summary = "Get highly rated documents", description = "Retrieve highest rated documents")
-    public ResponseEntity<List<TechnicalDocumentDto>> getHighlyRatedDocuments(
+    public ResponseEntity<List<TechnicalDocumentSummary>> getHighlyRatedDocuments(
             @Parameter(description = "Number of documents to return") @RequestParam(defaultValue = "10") int limit) {
         
         log.info("Getting {} highest rated documents", limit);
-        List<TechnicalDocumentDto> documents = documentService.getHighestRated(limit);
+        List<TechnicalDocumentSummary> documents = documentService.getHighestRated(limit);
         return ResponseEntity.ok(documents);
     }
     
     @GetMapping("/recent")
     @Operation(summary = "Get recent documents", description = "Retrieve recently added documents")
-    public ResponseEntity<List<TechnicalDocumentDto>> getRecentDocuments(
+    public ResponseEntity<List<TechnicalDocumentSummary>> getRecentDocuments(
             @Parameter(description = "Number of documents to return") @RequestParam(defaultValue = "10") int limit) {
         
         log.info("Getting {} most recent documents", limit);
-        List<TechnicalDocumentDto> documents = documentService.getRecent(limit);
+        List<TechnicalDocumentSummary> documents = documentService.getRecent(limit);
         return ResponseEntity.ok(documents);
     }
     
     @GetMapping("/by-type")
     @Operation(summary = "Get documents by type", description = "Retrieve documents by document type")
-    public ResponseEntity<List<TechnicalDocumentDto>> getDocumentsByType(
+    public ResponseEntity<List<TechnicalDocumentSummary>> getDocumentsByType(
             @Parameter(description = "Document type") @RequestParam String documentType) {
         
         log.info("Getting documents by type: {}", documentType);
-        List<TechnicalDocumentDto> documents = documentService.findByDocumentType(documentType);
+        List<TechnicalDocumentSummary> documents = documentService.findByDocumentType(documentType);
         return ResponseEntity.ok(documents);
     }
     
     @GetMapping("/by-category")
     @Operation(summary = "Get documents by category", description = "Retrieve documents by category")
-    public ResponseEntity<List<TechnicalDocumentDto>> getDocumentsByCategory(
+    public ResponseEntity<List<TechnicalDocumentSummary>> getDocumentsByCategory(
             @Parameter(description = "Document category") @RequestParam String category) {
         
         log.info("Getting documents by category: {}", category);
-        List<TechnicalDocumentDto> documents = documentService.findByCategory(category);
+        List<TechnicalDocumentSummary> documents = documentService.findByCategory(category);
         return ResponseEntity.ok(documents);
     }
     
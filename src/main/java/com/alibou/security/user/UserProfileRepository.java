@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserProfileRepository extends JpaRepository<UserProfile, Integer> {
 
@@ -26,4 +27,9 @@ public interface UserProfileRepository extends JpaRepository<UserProfile, Intege
 
     @Query("SELECT COUNT(up) FROM UserProfile up WHERE up.activityStatus = :status")
     Long countByActivityStatus(@Param("status") UserProfile.ActivityStatus status);
+
+    // Stored profile images (external URLs excluded; must run inside a transaction)
+    @Query("SELECT up.profileImageUrl FROM UserProfile up " +
+           "WHERE up.profileImageUrl IS NOT NULL AND up.profileImageUrl NOT LIKE '%://%'")
+    Stream<String> streamProfileImagePaths();
 }
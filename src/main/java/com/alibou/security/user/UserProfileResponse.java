@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Map;
 
 @Data
 @Builder
@@ -25,6 +26,7 @@ public class UserProfileResponse {
     private String activityStatusDescription;
     private String bio;
     private String profileImageUrl;
+    private Map<String, String> profileImageUrls; // thumb/card/full renditions of a stored image
     private Boolean isEmailVerified;
     private Boolean isPhoneVerified;
     private LocalDateTime createdDate;
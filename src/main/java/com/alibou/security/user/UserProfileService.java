@@ -1,5 +1,7 @@
 package com.alibou.security.user;
 
+import com.alibou.security.core.domain.service.ImageVariant;
+import com.alibou.security.core.infrastructure.service.ImageDerivativeService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -7,6 +9,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.security.Principal;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -15,6 +18,7 @@ public class UserProfileService {
 
     private final UserProfileRepository profileRepository;
     private final UserRepository userRepository;
+    private final ImageDerivativeService imageDerivativeService;
 
     public UserProfileResponse getCurrentUserProfile(Principal connectedUser) {
         var user = (User) ((org.springframework.security.authentication.UsernamePasswordAuthenticationToken) connectedUser).getPrincipal();
@@ -41,6 +45,7 @@ public class UserProfileService {
                 .activityStatusDescription(profile != null ? profile.getActivityStatus().getDescription() : UserProfile.ActivityStatus.ACTIVE.getDescription())
                 .bio(profile != null ? profile.getBio() : null)
                 .profileImageUrl(profile != null ? profile.getProfileImageUrl() : null)
+                .profileImageUrls(profile != null ? profileImageUrls(userId, profile) : null)
                 .isEmailVerified(profile != null ? profile.getIsEmailVerified() : false)
                 .isPhoneVerified(profile != null ? profile.getIsPhoneVerified() : false)
                 .createdDate(profile != null ? profile.getCreatedDate() : null)
@@ -94,7 +99,12 @@ public class UserProfileService {
             profile.setBio(request.getBio());
         }
         if (request.getProfileImageUrl() != null) {
-            profile.setProfileImageUrl(request.getProfileImageUrl());
+            String image = request.getProfileImageUrl();
+            // A stored path must be an image this user uploaded; anything else could expose other users' files
+            if (!image.isBlank() && !image.contains("://") && !imageDerivativeService.isOwnedImage(image, userId)) {
+                throw new IllegalArgumentException("Profile image must be an external URL or an image you uploaded");
+            }
+            profile.setProfileImageUrl(image);
         }
         if (request.getActivityStatus() != null) {
             profile.setActivityStatus(request.getActivityStatus());
@@ -158,6 +168,7 @@ public class UserProfileService {
                 .activityStatusDescription(profile.getActivityStatus().getDescription())
                 .bio(profile.getBio())
                 .profileImageUrl(profile.getProfileImageUrl())
+                .profileImageUrls(profileImageUrls(profile.getUser().getId(), profile))
                 .isEmailVerified(profile.getIsEmailVerified())
                 .isPhoneVerified(profile.getIsPhoneVerified())
                 .createdDate(profile.getCreatedDate())
@@ -167,4 +178,12 @@ public class UserProfileService {
                 .role(profile.getUser().getRole())
                 .build();
     }
+
+    private Map<String, String> profileImageUrls(Integer userId, UserProfile profile) {
+        String image = profile.getProfileImageUrl();
+        if (!imageDerivativeService.isOwnedImage(image, userId)) {
+            return null; // External images, and paths not uploaded by this user, are not rendered here
+        }
+        return ImageVariant.urls("/api/v1/images/profiles/" + userId, image);
+    }
 }
@@ -0,0 +1,69 @@
+package com.alibou.security.core.domain.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeysetCursorTest {
+
+    private static final String KEY = "hierarchy:sortKey,id";
+
+    private enum Status { ACTIVE }
+
+    @Test
+    void roundTripsValuesAndNulls() {
+        String cursor = KeysetCursor.encode(KEY, Arrays.asList("Field/2024/\u00c4cme", null, 42, Status.ACTIVE));
+
+        assertEquals(Arrays.asList("Field/2024/\u00c4cme", null, "42", "ACTIVE"), KeysetCursor.decode(KEY, cursor, 4));
+    }
+
+    @Test
+    void isUrlSafe() {
+        String cursor = KeysetCursor.encode(KEY, List.of("???>>>~~~", "\uffff\uffff"));
+
+        assertFalse(cursor.contains("+") || cursor.contains("/") || cursor.contains("="), cursor);
+    }
+
+    @Test
+    void rejectsCursorOfAnotherListing() {
+        String cursor = KeysetCursor.encode(KEY, List.of("a", "1"));
+
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("recent:createdDate,id", cursor, 2));
+    }
+
+    @Test
+    void rejectsWrongValueCount() {
+        String cursor = KeysetCursor.encode(KEY, List.of("a", "1"));
+
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(KEY, cursor, 3));
+    }
+
+    @Test
+    void rejectsTamperedHeader() {
+        byte[] bytes = Base64.getUrlDecoder().decode(KeysetCursor.encode(KEY, List.of("a", "1")));
+        bytes[0] ^= 0x01;
+        String tampered = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(KEY, tampered, 2));
+    }
+
+    @Test
+    void rejectsTruncatedCursor() {
+        byte[] bytes = Base64.getUrlDecoder().decode(KeysetCursor.encode(KEY, List.of("abcdef", "1")));
+        String truncated = Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(bytes, bytes.length - 3));
+
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(KEY, truncated, 2));
+    }
+
+    @Test
+    void rejectsMalformedInput() {
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(KEY, "not base64!", 2));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(KEY, "", 2));
+    }
+}
@@ -0,0 +1,143 @@
+package com.alibou.security.core.infrastructure.repository;
+
+import com.alibou.security.core.domain.repository.CursorPage;
+import com.alibou.security.core.infrastructure.service.PageCounter;
+import com.alibou.security.document.domain.entity.DocumentField;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Keyset paging through findAll(spec, sort, cursor, size, withTotal): the from() range and the
+ * after() condition together must return every row exactly once, in order, with cursors falling
+ * on ties and on nulls
+ */
+@DataJpaTest(properties = "spring.sql.init.mode=never")
+@Import({PageCounter.class, BaseRepositoryImplTest.DocumentFieldRepository.class})
+class BaseRepositoryImplTest {
+
+    static class DocumentFieldRepository extends BaseRepositoryImpl<DocumentField, Integer> {
+        DocumentFieldRepository() {
+            super(DocumentField.class);
+        }
+    }
+
+    @Autowired
+    private DocumentFieldRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void insertFields() {
+        // name, code (nullable), sort order, active
+        insert("a", "X", 1, true);
+        insert("b", null, 2, true);
+        insert("c", "X", 2, true);
+        insert("d", "Y", 1, true);
+        insert("e", null, 1, true);
+        insert("f", "A", 2, false);
+        insert("g", "Y", 2, true);
+        insert("h", null, 2, true);
+    }
+
+    @Test
+    void pagesByNullableKeyAscending() {
+        assertPagesInOrder(null, Sort.by(Sort.Order.asc("code")), 2);
+    }
+
+    @Test
+    void pagesByNullableKeyDescending() {
+        assertPagesInOrder(null, Sort.by(Sort.Order.desc("code")), 2);
+    }
+
+    @Test
+    void pagesByMixedDirections() {
+        assertPagesInOrder(null, Sort.by(Sort.Order.desc("sortOrder"), Sort.Order.asc("code")), 3);
+    }
+
+    @Test
+    void pagesByUniqueKey() {
+        assertPagesInOrder(null, Sort.by(Sort.Order.desc("name")), 3);
+    }
+
+    @Test
+    void pagesByIdAlone() {
+        assertPagesInOrder(null, Sort.by(Sort.Order.desc("id")), 2);
+    }
+
+    @Test
+    void pagesWithinFilter() {
+        Specification<DocumentField> active = (root, query, cb) -> cb.isTrue(root.get("active"));
+
+        assertPagesInOrder(active, Sort.by(Sort.Order.asc("code")), 1);
+    }
+
+    @Test
+    void rejectsCursorOfAnotherSort() {
+        String cursor = repository.findAll(null, Sort.by(Sort.Order.asc("code")), null, 2, false).getNextCursor();
+
+        assertThrows(IllegalArgumentException.class,
+            () -> repository.findAll(null, Sort.by(Sort.Order.asc("name")), cursor, 2, false));
+    }
+
+    // Helper methods
+
+    private void assertPagesInOrder(Specification<DocumentField> spec, Sort sort, int size) {
+        List<DocumentField> expected = new ArrayList<>(repository.findAll(spec));
+        expected.sort(comparator(sort));
+
+        List<Integer> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<DocumentField> page = repository.findAll(spec, sort, cursor, size, false);
+            page.getContent().forEach(field -> paged.add(field.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null && paged.size() <= expected.size());
+
+        assertEquals(expected.stream().map(DocumentField::getId).toList(), paged);
+    }
+
+    // Nulls last in either direction, then id ascending, as findAll orders
+    private static Comparator<DocumentField> comparator(Sort sort) {
+        Comparator<DocumentField> comparator = (a, b) -> 0;
+        boolean byId = false;
+        for (Sort.Order order : sort) {
+            Function<DocumentField, Comparable<Object>> key = key(order.getProperty());
+            Comparator<Comparable<Object>> values = order.isAscending() ? Comparator.naturalOrder() : Comparator.reverseOrder();
+            comparator = comparator.thenComparing(key, Comparator.nullsLast(values));
+            byId |= order.getProperty().equals("id");
+        }
+        return byId ? comparator : comparator.thenComparing(DocumentField::getId);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<DocumentField, Comparable<Object>> key(String property) {
+        return switch (property) {
+            case "id" -> field -> (Comparable<Object>) (Comparable<?>) field.getId();
+            case "name" -> field -> (Comparable<Object>) (Comparable<?>) field.getName();
+            case "code" -> field -> (Comparable<Object>) (Comparable<?>) field.getCode();
+            case "sortOrder" -> field -> (Comparable<Object>) (Comparable<?>) field.getSortOrder();
+            default -> throw new IllegalArgumentException(property);
+        };
+    }
+
+    private void insert(String name, String code, int sortOrder, boolean active) {
+        jdbcTemplate.update("INSERT INTO document_field (name, code, sort_order, active, created_date, "
+            + "last_modified_date, created_by, last_modified_by) "
+            + "VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, 1, 1)", name, code, sortOrder, active);
+    }
+}
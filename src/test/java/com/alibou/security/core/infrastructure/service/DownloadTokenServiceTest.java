@@ -0,0 +1,139 @@
+package com.alibou.security.core.infrastructure.service;
+
+import com.alibou.security.core.domain.service.DownloadGrant;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.access.AccessDeniedException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DownloadTokenServiceTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    private final DownloadTokenService service = new DownloadTokenService(SECRET, 60);
+
+    @Test
+    void verifiesIssuedToken() {
+        Instant before = Instant.now();
+        String token = service.issue("books/2024/manual.pdf", 1234L, "sha256:abc", 7, Duration.ofMinutes(5));
+
+        DownloadGrant grant = service.verify(token);
+
+        assertEquals("books/2024/manual.pdf", grant.getFilePath());
+        assertEquals(1234L, grant.getFileSize());
+        assertEquals("sha256:abc", grant.getChecksum());
+        assertEquals(7, grant.getUserId());
+        assertFalse(grant.getExpiresAt().isBefore(before.plus(Duration.ofMinutes(5)).minusSeconds(1)));
+    }
+
+    @Test
+    void keepsMissingChecksumAndUserAsNull() {
+        DownloadGrant grant = service.verify(service.issue("a.pdf", 1L, null, null, Duration.ofMinutes(1)));
+
+        assertNull(grant.getChecksum());
+        assertNull(grant.getUserId());
+    }
+
+    @Test
+    void tokenIsUrlSafe() {
+        String token = service.issue("d\u00fcr/\u00e4?&=+.pdf", 1L, null, 1, Duration.ofMinutes(1));
+
+        assertTrue(token.matches("[A-Za-z0-9_-]+\\.[A-Za-z0-9_-]+"), token);
+    }
+
+    @Test
+    void rejectsTamperedPayload() {
+        String token = service.issue("a.pdf", 1L, null, 1, Duration.ofMinutes(1));
+        String forged = service.issue("b.pdf", 1L, null, 1, Duration.ofMinutes(1));
+        String swapped = forged.substring(0, forged.indexOf('.')) + token.substring(token.indexOf('.'));
+
+        assertThrows(AccessDeniedException.class, () -> service.verify(swapped));
+    }
+
+    @Test
+    void rejectsTokenSignedWithAnotherSecret() {
+        DownloadTokenService other = new DownloadTokenService("fedcba9876543210fedcba9876543210", 60);
+        String token = other.issue("a.pdf", 1L, null, 1, Duration.ofMinutes(1));
+
+        assertThrows(AccessDeniedException.class, () -> service.verify(token));
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        assertThrows(AccessDeniedException.class, () -> service.verify(null));
+        assertThrows(AccessDeniedException.class, () -> service.verify(""));
+        assertThrows(AccessDeniedException.class, () -> service.verify("no-dot"));
+        assertThrows(AccessDeniedException.class, () -> service.verify(".signature"));
+        assertThrows(AccessDeniedException.class, () -> service.verify("payload.!!!"));
+    }
+
+    @Test
+    void rejectsExpiredToken() throws Exception {
+        String token = signed(Instant.now().minusSeconds(1), "a.pdf");
+
+        AccessDeniedException e = assertThrows(AccessDeniedException.class, () -> service.verify(token));
+        assertEquals("Download link has expired", e.getMessage());
+    }
+
+    @Test
+    void acceptsTokenUntilExpiry() throws Exception {
+        assertEquals("a.pdf", service.verify(signed(Instant.now().plusSeconds(30), "a.pdf")).getFilePath());
+    }
+
+    @Test
+    void enforcesExpirationBounds() {
+        assertThrows(IllegalArgumentException.class, () -> service.issue("a.pdf", 1L, null, 1, Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> service.issue("a.pdf", 1L, null, 1, Duration.ofMinutes(-1)));
+        assertThrows(IllegalArgumentException.class, () -> service.issue("a.pdf", 1L, null, 1, Duration.ofMinutes(61)));
+    }
+
+    @Test
+    void rejectsShortSecret() {
+        assertThrows(IllegalStateException.class, () -> new DownloadTokenService("too-short", 60));
+    }
+
+    @Test
+    void randomKeyWithoutSecret() {
+        DownloadTokenService first = new DownloadTokenService("", 60);
+        DownloadTokenService second = new DownloadTokenService("", 60);
+        String token = first.issue("a.pdf", 1L, null, 1, Duration.ofMinutes(1));
+
+        assertEquals("a.pdf", first.verify(token).getFilePath());
+        assertThrows(AccessDeniedException.class, () -> second.verify(token));
+    }
+
+    // Helper methods
+
+    /**
+     * A token with an arbitrary expiry, signed the way the service signs (payload version 1)
+     */
+    private static String signed(Instant expiresAt, String filePath) throws Exception {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            out.writeByte(1);
+            out.writeLong(expiresAt.getEpochSecond());
+            out.writeInt(1);
+            out.writeLong(1L);
+            out.writeUTF("");
+            out.writeUTF(filePath);
+        }
+        byte[] payload = buffer.toByteArray();
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(payload) + "." + encoder.encodeToString(mac.doFinal(payload));
+    }
+}
@@ -0,0 +1,97 @@
+package com.alibou.security.core.infrastructure.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileChecksumsTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void emptyFile() throws Exception {
+        Path file = Files.createFile(dir.resolve("empty.bin"));
+
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", FileChecksums.sha256(file));
+    }
+
+    @Test
+    void smallFile() throws Exception {
+        Path file = Files.writeString(dir.resolve("abc.txt"), "abc");
+
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", FileChecksums.sha256(file));
+    }
+
+    @Test
+    void fileSpanningMapWindows() throws Exception {
+        // Sparse file with data on both sides of the first window boundary
+        long size = FileChecksums.MAP_WINDOW + FileChecksums.SLICE + 7;
+        Path file = dir.resolve("large.bin");
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(size);
+            raf.seek(0);
+            raf.write("head".getBytes(StandardCharsets.US_ASCII));
+            raf.seek(FileChecksums.MAP_WINDOW - 3);
+            raf.write("straddles the boundary".getBytes(StandardCharsets.US_ASCII));
+            raf.seek(size - 4);
+            raf.write("tail".getBytes(StandardCharsets.US_ASCII));
+        }
+        List<Long> slices = new ArrayList<>();
+
+        String checksum = FileChecksums.sha256(file, slices::add);
+
+        assertEquals(streamedSha256(file), checksum);
+        assertEquals(size, slices.stream().mapToLong(Long::longValue).sum());
+        assertTrue(slices.stream().allMatch(length -> length > 0 && length <= FileChecksums.SLICE));
+        assertEquals(FileChecksums.MAP_WINDOW / FileChecksums.SLICE + 2, slices.size());
+    }
+
+    @Test
+    void fileOfExactlyOneWindow() throws Exception {
+        Path file = dir.resolve("window.bin");
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(FileChecksums.MAP_WINDOW);
+            raf.seek(FileChecksums.MAP_WINDOW - 1);
+            raf.write(0x7f);
+        }
+
+        assertEquals(streamedSha256(file), FileChecksums.sha256(file));
+    }
+
+    @Test
+    void normalizesStoredChecksums() {
+        assertEquals("abcdef", FileChecksums.normalize("sha256:ABCDEF"));
+        assertEquals("abcdef", FileChecksums.normalize(" abcdef "));
+        assertNull(FileChecksums.normalize(null));
+    }
+
+    // Helper methods
+
+    private static String streamedSha256(Path file) throws IOException, NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,135 @@
+package com.alibou.security.core.infrastructure.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class InvertedIndexTest {
+
+    // Gaps of 127/128, 16383/16384 and 2097151/2097152: both sides of the one-, two- and three-byte varint limits
+    private static final int[] IDS = {0, 127, 255, 16_638, 33_022, 2_130_173, 4_227_325};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void tokenizeFoldsCaseAndDiacritics() {
+        assertEquals(List.of("to", "hoai", "de", "men", "phieu", "luu", "ky"),
+            InvertedIndex.tokenize("T\u00f4 Ho\u00e0i \u2013 D\u1ebf M\u00e8n phi\u00eau l\u01b0u k\u00fd"));
+        assertEquals(List.of("dang", "duc"), InvertedIndex.tokenize("\u0110\u1eb7ng \u0111\u1ee9c"));
+    }
+
+    @Test
+    void tokenizeSplitsOnNonWordCharactersAndDropsDuplicates() {
+        assertEquals(List.of("iso", "9001", "2015", "rev"), InvertedIndex.tokenize("ISO-9001:2015 (rev. ISO)"));
+        assertEquals(List.of(), InvertedIndex.tokenize(" -- "));
+        assertEquals(List.of(), InvertedIndex.tokenize(null));
+    }
+
+    @Test
+    void tokenizeTruncatesLongWords() {
+        String word = "a".repeat(40);
+
+        assertEquals(List.of("a".repeat(32)), InvertedIndex.tokenize(word));
+    }
+
+    @Test
+    void postingsRoundTripAcrossVarintWidths() throws Exception {
+        InvertedIndex.Builder builder = new InvertedIndex.Builder();
+        for (int id : IDS) {
+            builder.add(id, true, "common " + (id % 2 == 0 ? "even" : "odd"));
+        }
+
+        InvertedIndex heap = builder.build(null, 0L);
+
+        assertArrayEquals(reversed(IDS), heap.search("common", false));
+        assertArrayEquals(new int[]{33_022, 16_638, 0}, heap.search("even", false));
+        assertArrayEquals(new int[]{4_227_325, 2_130_173, 255, 127}, heap.search("odd", false));
+    }
+
+    @Test
+    void mappedSegmentReadsTheSamePostings() throws Exception {
+        Path file = dir.resolve("index.bin");
+        InvertedIndex.Builder builder = new InvertedIndex.Builder();
+        for (int id : IDS) {
+            builder.add(id, id != 255, "common");
+        }
+        builder.build(file, 42L);
+
+        InvertedIndex mapped = InvertedIndex.open(file);
+
+        assertEquals(42L, mapped.getWatermark());
+        assertArrayEquals(reversed(IDS), mapped.search("common", false));
+        assertEquals(IDS.length - 1, mapped.search("common", true).length);
+    }
+
+    @Test
+    void matchesEveryWordAsPrefix() throws Exception {
+        InvertedIndex index = index(
+            1, "Hydraulic pump manual",
+            2, "Hydraulic valve datasheet",
+            3, "Pump datasheet");
+
+        assertArrayEquals(new int[]{2, 1}, index.search("hydr", false));
+        assertArrayEquals(new int[]{3, 1}, index.search("PUMP", false));
+        assertArrayEquals(new int[]{2}, index.search("hyd data", false));
+        assertArrayEquals(new int[0], index.search("pump valve", false));
+        assertArrayEquals(new int[0], index.search("", false));
+    }
+
+    @Test
+    void deltaChangesAreSearchableAndSurviveCompaction() throws Exception {
+        InvertedIndex index = index(
+            1, "Hydraulic pump manual",
+            2, "Hydraulic valve datasheet",
+            3, "Pump datasheet");
+
+        index.put(2, true, "Pneumatic valve");
+        index.put(4, false, "Hydraulic pump service");
+        index.remove(3);
+
+        assertArrayEquals(new int[]{4, 1}, index.search("hydraulic", false));
+        assertArrayEquals(new int[]{1}, index.search("hydraulic", true));
+        assertArrayEquals(new int[0], index.search("datasheet", false));
+
+        index.compact(dir.resolve("compacted.bin"));
+
+        assertEquals(0, index.deltaSize());
+        assertArrayEquals(new int[]{4, 1}, index.search("hydraulic", false));
+        assertArrayEquals(new int[]{2}, index.search("pneu", false));
+        assertArrayEquals(new int[]{1}, index.search("pump", true));
+        assertArrayEquals(new int[0], index.search("datasheet", false));
+    }
+
+    @Test
+    void builderRequiresAscendingIds() {
+        InvertedIndex.Builder builder = new InvertedIndex.Builder();
+        builder.add(5, true, "a");
+
+        assertThrows(IllegalArgumentException.class, () -> builder.add(5, true, "b"));
+    }
+
+    // Helper methods
+
+    private static InvertedIndex index(Object... idsAndTexts) throws Exception {
+        InvertedIndex.Builder builder = new InvertedIndex.Builder();
+        for (int i = 0; i < idsAndTexts.length; i += 2) {
+            builder.add((Integer) idsAndTexts[i], true, (String) idsAndTexts[i + 1]);
+        }
+        return builder.build(null, 0L);
+    }
+
+    private static int[] reversed(int[] ids) {
+        int[] reversed = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            reversed[i] = ids[ids.length - 1 - i];
+        }
+        return reversed;
+    }
+}
@@ -0,0 +1,144 @@
+package com.alibou.security.core.infrastructure.service;
+
+import com.alibou.security.core.domain.service.ObjectInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalObjectStoreTest {
+
+    private static final int PART_SIZE = 8 * 1024 * 1024;
+
+    @TempDir
+    Path dir;
+
+    private LocalObjectStore store;
+
+    @BeforeEach
+    void createStore() {
+        store = new LocalObjectStore(dir.toString());
+    }
+
+    @Test
+    void storesContentAroundThePartSize() throws Exception {
+        for (int size : new int[]{PART_SIZE - 1, PART_SIZE, PART_SIZE + 1}) {
+            byte[] content = content(size);
+
+            store.put("books/" + size + ".pdf", new ByteArrayInputStream(content), size, "application/pdf");
+
+            try (InputStream in = store.get("books/" + size + ".pdf", 0, -1)) {
+                assertArrayEquals(content, in.readAllBytes());
+            }
+        }
+    }
+
+    @Test
+    void storesContentOfUnknownSize() throws Exception {
+        byte[] content = content(PART_SIZE + 1);
+
+        store.put("books/unsized.pdf", new ByteArrayInputStream(content), -1, null);
+
+        assertEquals(PART_SIZE + 1, store.head("books/unsized.pdf").getSize());
+    }
+
+    @Test
+    void leavesNoPartialFilesBehind() throws Exception {
+        store.put("books/a.pdf", new ByteArrayInputStream(content(1024)), 1024, null);
+        store.put("books/a.pdf", new ByteArrayInputStream(content(2048)), 2048, null);
+
+        try (var files = Files.list(dir.resolve("books"))) {
+            assertEquals(1, files.count());
+        }
+        assertEquals(2048, store.head("books/a.pdf").getSize());
+    }
+
+    @Test
+    void readsByteRanges() throws Exception {
+        byte[] content = content(PART_SIZE + 100);
+        store.put("books/large.pdf", new ByteArrayInputStream(content), content.length, null);
+
+        // Across the part boundary, to the end, and a single byte
+        assertArrayEquals(Arrays.copyOfRange(content, PART_SIZE - 10, PART_SIZE + 10),
+            read("books/large.pdf", PART_SIZE - 10, 20));
+        assertArrayEquals(Arrays.copyOfRange(content, PART_SIZE, content.length),
+            read("books/large.pdf", PART_SIZE, -1));
+        assertArrayEquals(new byte[]{content[0]}, read("books/large.pdf", 0, 1));
+    }
+
+    @Test
+    void rangePastTheEndIsShortened() throws Exception {
+        byte[] content = content(100);
+        store.put("books/small.pdf", new ByteArrayInputStream(content), content.length, null);
+
+        assertArrayEquals(Arrays.copyOfRange(content, 90, 100), read("books/small.pdf", 90, 50));
+    }
+
+    @Test
+    void headDescribesObjects() throws Exception {
+        store.put("books/a.pdf", new ByteArrayInputStream(content(10)), 10, null);
+
+        ObjectInfo info = store.head("books/a.pdf");
+
+        assertEquals(10, info.getSize());
+        assertNotNull(info.getEtag());
+        assertNull(store.head("books/missing.pdf"));
+    }
+
+    @Test
+    void copiesAndDeletes() throws Exception {
+        byte[] content = content(1000);
+        store.put("books/a.pdf", new ByteArrayInputStream(content), content.length, null);
+
+        store.copy("books/a.pdf", "backups/a.pdf");
+        store.delete("books/a.pdf");
+        store.delete("books/a.pdf");
+
+        assertNull(store.head("books/a.pdf"));
+        assertArrayEquals(content, read("backups/a.pdf", 0, -1));
+        assertThrows(NoSuchFileException.class, () -> store.get("books/a.pdf", 0, -1));
+    }
+
+    @Test
+    void confinesKeysToTheRoot() {
+        assertThrows(IllegalArgumentException.class,
+            () -> store.put("../outside.pdf", new ByteArrayInputStream(new byte[1]), 1, null));
+        assertThrows(IllegalArgumentException.class, () -> store.get("books/../../outside.pdf", 0, -1));
+        assertThrows(IllegalArgumentException.class, () -> store.delete(""));
+        assertTrue(Files.notExists(dir.resolveSibling("outside.pdf")));
+    }
+
+    @Test
+    void handsOutNoPresignedUrls() {
+        assertNull(store.presignGet("books/a.pdf", Duration.ofMinutes(5), "a.pdf"));
+    }
+
+    // Helper methods
+
+    private byte[] read(String key, long offset, long length) throws Exception {
+        try (InputStream in = store.get(key, offset, length)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] content(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+}
@@ -0,0 +1,154 @@
+package com.alibou.security.core.infrastructure.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PageCounterTest {
+
+    private final AtomicInteger counts = new AtomicInteger();
+
+    @Test
+    void countsExactlyUpToTheLimit() {
+        PageCounter counter = counter("PostgreSQL", true, 60_000);
+
+        PageCounter.Total total = counter.count("q", matching(100), () -> OptionalLong.of(5_000));
+
+        assertEquals(100, total.getValue());
+        assertTrue(total.isExact());
+    }
+
+    @Test
+    void stopsCountingPastTheLimit() {
+        PageCounter counter = counter("PostgreSQL", true, 60_000);
+        long[] requested = new long[1];
+
+        counter.count("q", limit -> {
+            requested[0] = limit;
+            return Math.min(limit, 1_000_000);
+        }, () -> OptionalLong.of(5_000));
+
+        assertEquals(1_001, requested[0]);
+    }
+
+    @Test
+    void usesEstimatePastTheLimit() {
+        PageCounter counter = counter("PostgreSQL", true, 60_000);
+
+        PageCounter.Total total = counter.count("q", matching(50_000), () -> OptionalLong.of(48_000));
+
+        assertEquals(48_000, total.getValue());
+        assertFalse(total.isExact());
+    }
+
+    @Test
+    void neverReportsLessThanCounted() {
+        PageCounter counter = counter("PostgreSQL", true, 60_000);
+
+        PageCounter.Total total = counter.count("q", matching(50_000), () -> OptionalLong.of(10));
+
+        assertEquals(1_001, total.getValue());
+        assertFalse(total.isExact());
+    }
+
+    @Test
+    void reportsCountedSoFarWithoutEstimates() {
+        PageCounter counter = counter("H2", true, 60_000);
+
+        PageCounter.Total total = counter.count("q", matching(50_000), () -> {
+            throw new AssertionError("no estimates on H2");
+        });
+
+        assertEquals(1_001, total.getValue());
+        assertFalse(total.isExact());
+    }
+
+    @Test
+    void countsEverythingWhenDisabled() {
+        PageCounter counter = counter("PostgreSQL", false, 60_000);
+
+        PageCounter.Total total = counter.count("q", matching(50_000), OptionalLong::empty);
+
+        assertEquals(50_000, total.getValue());
+        assertTrue(total.isExact());
+    }
+
+    @Test
+    void cachesTotalsByKey() {
+        PageCounter counter = counter("PostgreSQL", true, 60_000);
+
+        counter.count("q", matching(10), OptionalLong::empty);
+        PageCounter.Total cached = counter.count("q", matching(20), OptionalLong::empty);
+        PageCounter.Total other = counter.count("other", matching(20), OptionalLong::empty);
+
+        assertEquals(10, cached.getValue());
+        assertEquals(20, other.getValue());
+        assertEquals(2, counts.get());
+    }
+
+    @Test
+    void expiredTotalsAreCountedAgain() throws Exception {
+        PageCounter counter = counter("PostgreSQL", true, 1);
+
+        counter.count("q", matching(10), OptionalLong::empty);
+        Thread.sleep(5);
+        PageCounter.Total total = counter.count("q", matching(20), OptionalLong::empty);
+
+        assertEquals(20, total.getValue());
+        assertEquals(2, counts.get());
+    }
+
+    @Test
+    void readsPlanAndTableEstimates() {
+        PageCounter counter = counter("PostgreSQL", true, 60_000);
+
+        assertEquals(OptionalLong.of(1235), counter.planEstimate("SELECT 1", Map.of()));
+        assertEquals(OptionalLong.of(98_765), counter.tableEstimate("book"));
+    }
+
+    // Helper methods
+
+    private LongUnaryOperator matching(long rows) {
+        return limit -> {
+            counts.incrementAndGet();
+            return Math.min(limit, rows);
+        };
+    }
+
+    private static PageCounter counter(String database, boolean enabled, long cacheTtlMs) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T execute(ConnectionCallback<T> action) {
+                return (T) database;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+                return (T) Double.valueOf(98_765.0);
+            }
+        };
+        NamedParameterJdbcTemplate namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate) {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T queryForObject(String sql, Map<String, ?> paramMap, Class<T> requiredType) {
+                return (T) ("[{\"Plan\": {\"Node Type\": \"Aggregate\", \"Plan Rows\": 1234.6, "
+                    + "\"Plans\": [{\"Plan Rows\": 99}]}}]");
+            }
+        };
+        PageCounter counter = new PageCounter(jdbcTemplate, namedParameterJdbcTemplate, enabled, 1_000, cacheTtlMs, 100);
+        counter.initialize();
+        return counter;
+    }
+}
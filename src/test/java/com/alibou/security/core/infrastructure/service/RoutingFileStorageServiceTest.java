@@ -0,0 +1,119 @@
+package com.alibou.security.core.infrastructure.service;
+
+import com.alibou.security.core.domain.service.FileStorageResult;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoutingFileStorageServiceTest {
+
+    private final List<String> calls = new ArrayList<>();
+
+    private final LocalFileStorageService local = new LocalFileStorageService(null, null, null, null, null) {
+        @Override
+        public FileStorageResult storeFile(InputStream inputStream, String originalFileName, String contentType,
+                                           long size, String category, Integer userId) {
+            return stored("local", category);
+        }
+
+        @Override
+        public void deleteFile(String filePath) {
+            calls.add("local delete " + filePath);
+        }
+
+        @Override
+        public long getFileSize(String filePath) {
+            calls.add("local size " + filePath);
+            return 1;
+        }
+
+        @Override
+        public FileStorageResult moveFile(String currentPath, String newCategory) {
+            calls.add("local move " + currentPath);
+            return new FileStorageResult(currentPath, "a", "a", null, 1, null, newCategory);
+        }
+    };
+
+    private final ObjectStorageFileStorageService object = new ObjectStorageFileStorageService(null, null, null, null, null) {
+        @Override
+        public FileStorageResult storeFile(InputStream inputStream, String originalFileName, String contentType,
+                                           long size, String category, Integer userId) {
+            return stored("object", category);
+        }
+
+        @Override
+        public void deleteFile(String filePath) {
+            calls.add("object delete " + filePath);
+        }
+
+        @Override
+        public long getFileSize(String filePath) {
+            calls.add("object size " + filePath);
+            return 2;
+        }
+
+        @Override
+        public FileStorageResult moveFile(String currentPath, String newCategory) {
+            calls.add("object move " + currentPath);
+            return new FileStorageResult(currentPath, "a", "a", null, 1, null, newCategory);
+        }
+    };
+
+    private final RoutingFileStorageService routing = new RoutingFileStorageService(local, object, " books , images ,");
+
+    @Test
+    void storesListedCategoriesInObjectStorage() {
+        routing.storeFile(new ByteArrayInputStream(new byte[1]), "a.pdf", "application/pdf", 1, "books", 1);
+        routing.storeFile(new ByteArrayInputStream(new byte[1]), "a.png", "image/png", 1, "images", 1);
+        routing.storeFile(new ByteArrayInputStream(new byte[1]), "a.doc", "application/msword", 1, "documents", 1);
+
+        assertEquals(List.of("object store books", "object store images", "local store documents"), calls);
+    }
+
+    @Test
+    void routesExistingFilesByPathPrefix() {
+        routing.deleteFile("object://books/ab/cd/a.pdf");
+        routing.deleteFile("books/ab/cd/a.pdf");
+        assertEquals(2, routing.getFileSize("object://documents/a.doc"));
+        assertEquals(1, routing.getFileSize("documents/object/a.doc"));
+
+        assertEquals(List.of(
+            "object delete object://books/ab/cd/a.pdf",
+            "local delete books/ab/cd/a.pdf",
+            "object size object://documents/a.doc",
+            "local size documents/object/a.doc"), calls);
+    }
+
+    @Test
+    void emptyCategoryListKeepsEverythingLocal() {
+        RoutingFileStorageService allLocal = new RoutingFileStorageService(local, object, "");
+
+        allLocal.storeFile(new ByteArrayInputStream(new byte[1]), "a.pdf", "application/pdf", 1, "books", 1);
+
+        assertEquals(List.of("local store books"), calls);
+    }
+
+    @Test
+    void movesOnlyWithinOneBackend() {
+        assertTrue(routing.moveFile("books/a.pdf", "documents").isSuccess());
+        assertTrue(routing.moveFile("object://books/a.pdf", "images").isSuccess());
+        assertFalse(routing.moveFile("books/a.pdf", "images").isSuccess());
+        assertFalse(routing.moveFile("object://books/a.pdf", "documents").isSuccess());
+
+        assertEquals(List.of("local move books/a.pdf", "object move object://books/a.pdf"), calls);
+    }
+
+    // Helper methods
+
+    private FileStorageResult stored(String backend, String category) {
+        calls.add(backend + " store " + category);
+        return new FileStorageResult(backend + "://" + category + "/a", "a", "a", null, 1, null, category);
+    }
+}
@@ -0,0 +1,149 @@
+package com.alibou.security.document.application.mapper;
+
+import com.alibou.security.core.domain.service.TechnicalDocumentSummary;
+import com.alibou.security.document.application.dto.TechnicalDocumentDto;
+import com.alibou.security.document.domain.entity.TechnicalDocument;
+import com.alibou.security.document.domain.repository.TechnicalDocumentRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Statement counts of document pages: a page of 50 must take no more statements than a page of 10,
+ * whether it is read as summaries or as entities mapped through TechnicalDocumentMapper
+ */
+@DataJpaTest(properties = {
+    "spring.sql.init.mode=never",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class TechnicalDocumentMapperTest {
+
+    private static final int DOCUMENTS = 60;
+
+    private static final String AUDIT_COLUMNS = "active, created_date, last_modified_date, created_by, last_modified_by";
+
+    private static final String AUDIT_VALUES = "true, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, 1, 1";
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final TechnicalDocumentMapper mapper = new TechnicalDocumentMapper();
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void insertHierarchy() {
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        insert("INSERT INTO document_field (id, name, sort_order, " + AUDIT_COLUMNS + ") VALUES (1, 'Auto', 0, "
+            + AUDIT_VALUES + ")");
+        insert("INSERT INTO production_year (id, year, sort_order, document_field_id, " + AUDIT_COLUMNS
+            + ") VALUES (1, 2020, 0, 1, " + AUDIT_VALUES + ")");
+        insert("INSERT INTO manufacturer (id, name, sort_order, production_year_id, " + AUDIT_COLUMNS
+            + ") VALUES (1, 'Toyota', 0, 1, " + AUDIT_VALUES + ")");
+
+        // A series and a product per document, so every document on a page has its own ancestors to load
+        for (int id = 1; id <= DOCUMENTS; id++) {
+            insert("INSERT INTO product_series (id, name, sort_order, manufacturer_id, " + AUDIT_COLUMNS
+                + ") VALUES (?, ?, 0, 1, " + AUDIT_VALUES + ")", id, "Series " + id);
+            insert("INSERT INTO product (id, name, sort_order, product_series_id, document_field_id, "
+                + "production_year_id, manufacturer_id, hierarchy_path, hierarchy_sort_key, " + AUDIT_COLUMNS
+                + ") VALUES (?, ?, 0, ?, 1, 1, 1, ?, ?, " + AUDIT_VALUES + ")",
+                id, "Product " + id, id, "Auto / 2020 / Toyota / Series " + id + " / Product " + id, key(id));
+            insert("INSERT INTO technical_document (id, title, document_type, is_public, downloadable, "
+                + "download_count, view_count, rating, sort_order, product_id, document_field_id, "
+                + "production_year_id, manufacturer_id, product_series_id, hierarchy_path, hierarchy_sort_key, "
+                + AUDIT_COLUMNS + ") VALUES (?, ?, 'ENGINE_SCHEMATIC', true, true, 0, 0, 0, 0, ?, 1, 1, 1, ?, ?, ?, "
+                + AUDIT_VALUES + ")",
+                id, "Document " + id, id, id, "Auto / 2020 / Toyota / Series " + id + " / Product " + id
+                    + " / Document " + id, key(id));
+        }
+    }
+
+    @Test
+    void mapsPagesInConstantStatements() {
+        assertConstantStatements(size -> {
+            List<TechnicalDocument> documents = entityManager.createQuery(
+                    "SELECT td FROM TechnicalDocument td WHERE td.active = true ORDER BY td.id", TechnicalDocument.class)
+                .setMaxResults(size)
+                .getResultList();
+            List<TechnicalDocumentDto> dtos = mapper.toDto(documents);
+            dtos.forEach(dto -> assertEquals("Auto", dto.getFieldName()));
+            return dtos.size();
+        });
+    }
+
+    @Test
+    void readsSummaryPagesInConstantStatements() {
+        assertConstantStatements(size -> hierarchyQuery(TechnicalDocumentRepository.SUMMARY
+                + TechnicalDocumentRepository.HIERARCHY_FILTER + "ORDER BY td.hierarchySortKey",
+            TechnicalDocumentSummary.class)
+            .setMaxResults(size)
+            .getResultList()
+            .size());
+    }
+
+    @Test
+    void readsProductSummariesInConstantStatements() {
+        jdbcTemplate.update("UPDATE technical_document SET product_id = 1");
+
+        assertConstantStatements(size -> entityManager.createQuery(TechnicalDocumentRepository.SUMMARY
+                + "WHERE td.product.id = :productId AND td.active = true ORDER BY td.sortOrder",
+                TechnicalDocumentSummary.class)
+            .setParameter("productId", 1)
+            .setMaxResults(size)
+            .getResultList()
+            .size());
+    }
+
+    // Helper methods
+
+    // Runs a page of 10 and a page of 50, each on a cleared persistence context, and compares statement counts
+    private void assertConstantStatements(IntFunction<Integer> page) {
+        long small = statements(page, 10);
+        long large = statements(page, 50);
+
+        assertEquals(small, large, "statements for a page of 10 and a page of 50");
+    }
+
+    private long statements(IntFunction<Integer> page, int size) {
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        assertEquals(size, page.apply(size));
+        return statistics.getPrepareStatementCount();
+    }
+
+    private <T> TypedQuery<T> hierarchyQuery(String jpql, Class<T> type) {
+        return entityManager.createQuery(jpql, type)
+            .setParameter("fieldName", null)
+            .setParameter("year", null)
+            .setParameter("manufacturerName", null)
+            .setParameter("seriesName", null)
+            .setParameter("productName", null)
+            .setParameter("documentType", null);
+    }
+
+    private static String key(int id) {
+        return String.format("%04d", id);
+    }
+
+    private void insert(String sql, Object... args) {
+        jdbcTemplate.update(sql, args);
+    }
+}
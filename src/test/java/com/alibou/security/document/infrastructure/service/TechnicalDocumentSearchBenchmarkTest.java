@@ -0,0 +1,185 @@
+package com.alibou.security.document.infrastructure.service;
+
+import com.alibou.security.core.domain.service.TechnicalDocumentSummary;
+import com.alibou.security.document.domain.repository.TechnicalDocumentRepository;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * LIKE search against the search_vector GIN index over 100k documents, running the repository's own
+ * queries. Needs a scratch PostgreSQL database, whose tables are dropped and recreated:
+ * <pre>
+ * mvn test -Dtest=TechnicalDocumentSearchBenchmarkTest -Dbenchmark.postgres.url=jdbc:postgresql://localhost/bench
+ * </pre>
+ * Prints the median time of a 20-row page plus its total for each query; asserts only that both paths
+ * find the same documents
+ */
+@Slf4j
+@DataJpaTest(properties = {
+    "spring.datasource.url=${benchmark.postgres.url}",
+    "spring.datasource.username=${benchmark.postgres.username:postgres}",
+    "spring.datasource.password=${benchmark.postgres.password:}",
+    "spring.datasource.driver-class-name=org.postgresql.Driver",
+    "spring.jpa.database=postgresql",
+    "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQLDialect",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false",
+    "spring.sql.init.mode=never"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(TechnicalDocumentSearchIndex.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark.postgres.url", matches = ".+")
+class TechnicalDocumentSearchBenchmarkTest {
+
+    private static final int DOCUMENTS = 100_000;
+
+    private static final int PAGE_SIZE = 20;
+
+    private static final int WARMUP_RUNS = 3;
+
+    private static final int RUNS = 15;
+
+    // Each title names one of these parts and each description another, so a part matches about a fifth
+    // of the documents; "tensioner" is in one title in a thousand
+    private static final String[] PARTS = {
+        "alternator", "brake", "clutch", "gearbox", "ignition", "radiator", "starter", "suspension", "wiper", "horn"
+    };
+
+    private static final List<String> QUERIES = List.of("alternator", "suspension", "tensioner", "nothing");
+
+    private static final String AUDIT_COLUMNS = "active, created_date, last_modified_date, created_by, last_modified_by";
+
+    private static final String AUDIT_VALUES = "true, now(), now(), 1, 1";
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TechnicalDocumentSearchIndex searchIndex;
+
+    @Test
+    void comparesLikeAndFullTextSearch() throws Exception {
+        insertDocuments();
+
+        long started = System.nanoTime();
+        searchIndex.initialize();
+        log.info("Indexed {} documents in {} ms", DOCUMENTS, (System.nanoTime() - started) / 1_000_000);
+        assertTrue(searchIndex.isAvailable());
+        jdbcTemplate.execute("ANALYZE");
+
+        Query like = query("searchDocuments", String.class, Pageable.class);
+        String fullTextIds = query("searchDocumentIdsFullText", String.class, Pageable.class).value();
+        String summariesByIds = query("findSummariesByIdIn", Collection.class).value();
+        String fullTextCount = query("countFullTextUpTo", String.class, long.class).value();
+
+        for (String text : QUERIES) {
+            assertEquals(likeCount(like, text), fullTextCount(fullTextCount, text, DOCUMENTS), text);
+
+            double likeMs = median(() -> {
+                entityManager.createQuery(like.value(), TechnicalDocumentSummary.class)
+                    .setParameter("query", text)
+                    .setMaxResults(PAGE_SIZE)
+                    .getResultList();
+                likeCount(like, text);
+            });
+            double fullTextMs = median(() -> {
+                List<?> ids = entityManager.createNativeQuery(fullTextIds)
+                    .setParameter("query", text)
+                    .setMaxResults(PAGE_SIZE)
+                    .getResultList();
+                if (!ids.isEmpty()) {
+                    entityManager.createQuery(summariesByIds, TechnicalDocumentSummary.class)
+                        .setParameter("ids", ids.stream().map(id -> ((Number) id).intValue()).toList())
+                        .getResultList();
+                }
+                // Counted as PageCounter does with its default limit
+                fullTextCount(fullTextCount, text, 1_001);
+            });
+            log.info(String.format("%-12s LIKE %9.2f ms   full text %9.2f ms", text, likeMs, fullTextMs));
+        }
+    }
+
+    // Helper methods
+
+    private void insertDocuments() {
+        jdbcTemplate.update("INSERT INTO document_field (id, name, sort_order, " + AUDIT_COLUMNS + ") "
+            + "VALUES (1, 'Auto', 0, " + AUDIT_VALUES + ")");
+        jdbcTemplate.update("INSERT INTO production_year (id, year, sort_order, document_field_id, " + AUDIT_COLUMNS
+            + ") VALUES (1, 2020, 0, 1, " + AUDIT_VALUES + ")");
+        jdbcTemplate.update("INSERT INTO manufacturer (id, name, sort_order, production_year_id, " + AUDIT_COLUMNS
+            + ") SELECT g, 'Maker ' || g, 0, 1, " + AUDIT_VALUES + " FROM generate_series(1, 20) g");
+        jdbcTemplate.update("INSERT INTO product_series (id, name, sort_order, manufacturer_id, " + AUDIT_COLUMNS
+            + ") SELECT g, 'Series ' || g, 0, (g - 1) % 20 + 1, " + AUDIT_VALUES + " FROM generate_series(1, 200) g");
+        jdbcTemplate.update("INSERT INTO product (id, name, sort_order, product_series_id, document_field_id, "
+            + "production_year_id, manufacturer_id, hierarchy_path, hierarchy_sort_key, " + AUDIT_COLUMNS + ") "
+            + "SELECT g, 'Model ' || g, 0, (g - 1) % 200 + 1, 1, 1, (g - 1) % 20 + 1, "
+            + "'Auto / 2020 / Maker ' || ((g - 1) % 20 + 1) || ' / Series ' || ((g - 1) % 200 + 1) || ' / Model ' || g, "
+            + "lpad(g::text, 6, '0'), " + AUDIT_VALUES + " FROM generate_series(1, 2000) g");
+
+        String parts = "ARRAY['" + String.join("', '", PARTS) + "']";
+        jdbcTemplate.update("INSERT INTO technical_document (id, title, document_type, description, is_public, "
+            + "downloadable, download_count, view_count, rating, sort_order, product_id, document_field_id, "
+            + "production_year_id, manufacturer_id, product_series_id, hierarchy_path, hierarchy_sort_key, "
+            + AUDIT_COLUMNS + ") "
+            + "SELECT g, t.title, 'SERVICE_MANUAL', 'Wiring of the ' || (" + parts + ")[(g / 10) % 10 + 1], "
+            + "true, true, g % 500, g % 97, 0, 0, (g - 1) % 2000 + 1, 1, 1, (g - 1) % 20 + 1, (g - 1) % 200 + 1, "
+            + "'Auto / 2020 / Model ' || ((g - 1) % 2000 + 1) || ' / ' || t.title, "
+            + "lpad(((g - 1) % 2000 + 1)::text, 6, '0') || lpad(g::text, 6, '0'), " + AUDIT_VALUES + " "
+            + "FROM generate_series(1, " + DOCUMENTS + ") g, LATERAL (SELECT (" + parts + ")[g % 10 + 1] "
+            + "|| ' diagram ' || g || CASE WHEN g % 1000 = 0 THEN ' tensioner' ELSE '' END AS title) t");
+    }
+
+    private long likeCount(Query like, String text) {
+        return entityManager.createQuery(like.countQuery(), Long.class)
+            .setParameter("query", text)
+            .getSingleResult();
+    }
+
+    private long fullTextCount(String sql, String text, long limit) {
+        return ((Number) entityManager.createNativeQuery(sql)
+            .setParameter("query", text)
+            .setParameter("limit", limit)
+            .getSingleResult()).longValue();
+    }
+
+    private static double median(Runnable search) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            search.run();
+        }
+        double[] millis = new double[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long started = System.nanoTime();
+            search.run();
+            millis[i] = (System.nanoTime() - started) / 1_000_000.0;
+        }
+        Arrays.sort(millis);
+        return millis[RUNS / 2];
+    }
+
+    private static Query query(String method, Class<?>... parameterTypes) throws NoSuchMethodException {
+        return TechnicalDocumentRepository.class.getMethod(method, parameterTypes).getAnnotation(Query.class);
+    }
+}